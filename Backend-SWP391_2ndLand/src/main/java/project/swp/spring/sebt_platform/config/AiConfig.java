@@ -26,6 +26,43 @@ public class AiConfig {
     private boolean cacheEnabled;
     @Value("${app.pricing.cache.maxSize:500}")
     private int cacheMaxSize;
+    @Value("${app.pricing.cache.ttlSeconds:21600}")
+    private long cacheTtlSeconds; // giá thị trường cũ hết hạn sau TTL (mặc định 6h, <= 0 = không hết hạn)
+
+    // Gemini gateway client (httpclient5 async, pool kết nối dùng chung)
+    @Value("${app.pricing.gemini.baseUrl:https://generativelanguage.googleapis.com}")
+    private String geminiBaseUrl;
+    @Value("${app.pricing.gemini.connectTimeoutMillis:3000}")
+    private long connectTimeoutMillis;
+    @Value("${app.pricing.gemini.responseTimeoutMillis:15000}")
+    private long responseTimeoutMillis; // timeout cho một attempt
+    @Value("${app.pricing.gemini.deadlineMillis:25000}")
+    private long deadlineMillis; // tổng thời gian tối đa của một lời gọi, kể cả retry
+    @Value("${app.pricing.gemini.maxConnections:32}")
+    private int maxConnections;
+    @Value("${app.pricing.gemini.streaming:true}")
+    private boolean geminiStreaming; // pricing job dùng streamGenerateContent để báo giá AI sớm
+    @Value("${app.pricing.breaker.failureThreshold:5}")
+    private int breakerFailureThreshold; // số lời gọi lỗi liên tiếp để mở circuit
+    @Value("${app.pricing.breaker.openMillis:30000}")
+    private long breakerOpenMillis; // thời gian dùng thẳng heuristic trước khi gọi thử lại
+
+    @Value("${app.pricing.baseline.minConfidence:0.55}")
+    private double baselineMinConfidence; // baseline khớp tên model dưới ngưỡng này sẽ không được dùng
+
+    // Batch pricing
+    @Value("${app.pricing.batch.maxItems:50}")
+    private int batchMaxItems; // số xe tối đa trong một request batch
+    @Value("${app.pricing.batch.itemsPerCall:10}")
+    private int batchItemsPerCall; // số xe gộp vào một prompt Gemini
+
+    // Comparables: giá thị trường từ listing ACTIVE/SOLD của sàn, dùng trước khi gọi Gemini
+    @Value("${app.pricing.comparables.enabled:true}")
+    private boolean comparablesEnabled;
+    @Value("${app.pricing.comparables.minSamples:5}")
+    private int comparablesMinSamples; // nhóm ít listing hơn thì không đủ tin cậy
+    @Value("${app.pricing.comparables.maxSpread:0.35}")
+    private double comparablesMaxSpread; // IQR / median lớn hơn ngưỡng này (giá quá phân tán) thì vẫn hỏi AI
 
     public String getGeminiApiKey() {
         return geminiApiKey;
@@ -90,4 +127,124 @@ public class AiConfig {
     public void setCacheMaxSize(int cacheMaxSize) {
         this.cacheMaxSize = cacheMaxSize;
     }
+
+    public long getCacheTtlSeconds() {
+        return cacheTtlSeconds;
+    }
+
+    public void setCacheTtlSeconds(long cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    public String getGeminiBaseUrl() {
+        return geminiBaseUrl;
+    }
+
+    public void setGeminiBaseUrl(String geminiBaseUrl) {
+        this.geminiBaseUrl = geminiBaseUrl;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public void setResponseTimeoutMillis(long responseTimeoutMillis) {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public boolean isGeminiStreaming() {
+        return geminiStreaming;
+    }
+
+    public void setGeminiStreaming(boolean geminiStreaming) {
+        this.geminiStreaming = geminiStreaming;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public void setBreakerFailureThreshold(int breakerFailureThreshold) {
+        this.breakerFailureThreshold = breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMillis() {
+        return breakerOpenMillis;
+    }
+
+    public void setBreakerOpenMillis(long breakerOpenMillis) {
+        this.breakerOpenMillis = breakerOpenMillis;
+    }
+
+    public int getBatchMaxItems() {
+        return batchMaxItems;
+    }
+
+    public void setBatchMaxItems(int batchMaxItems) {
+        this.batchMaxItems = batchMaxItems;
+    }
+
+    public int getBatchItemsPerCall() {
+        return batchItemsPerCall;
+    }
+
+    public void setBatchItemsPerCall(int batchItemsPerCall) {
+        this.batchItemsPerCall = batchItemsPerCall;
+    }
+
+    public double getBaselineMinConfidence() {
+        return baselineMinConfidence;
+    }
+
+    public void setBaselineMinConfidence(double baselineMinConfidence) {
+        this.baselineMinConfidence = baselineMinConfidence;
+    }
+
+    public boolean isComparablesEnabled() {
+        return comparablesEnabled;
+    }
+
+    public void setComparablesEnabled(boolean comparablesEnabled) {
+        this.comparablesEnabled = comparablesEnabled;
+    }
+
+    public int getComparablesMinSamples() {
+        return comparablesMinSamples;
+    }
+
+    public void setComparablesMinSamples(int comparablesMinSamples) {
+        this.comparablesMinSamples = comparablesMinSamples;
+    }
+
+    public double getComparablesMaxSpread() {
+        return comparablesMaxSpread;
+    }
+
+    public void setComparablesMaxSpread(double comparablesMaxSpread) {
+        this.comparablesMaxSpread = comparablesMaxSpread;
+    }
 }
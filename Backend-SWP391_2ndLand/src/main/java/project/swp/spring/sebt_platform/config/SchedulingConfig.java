@@ -0,0 +1,12 @@
+package project.swp.spring.sebt_platform.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật các job định kỳ (@Scheduled) của ứng dụng, ví dụ flush lượt xem listing.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
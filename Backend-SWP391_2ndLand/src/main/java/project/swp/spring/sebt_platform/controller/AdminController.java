@@ -12,13 +12,19 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import project.swp.spring.sebt_platform.dto.response.ListingDetailResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.PostListingCartResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.UserProfileResponseDTO;
 import project.swp.spring.sebt_platform.model.enums.UserRole;
 import project.swp.spring.sebt_platform.model.enums.UserStatus;
+import project.swp.spring.sebt_platform.pricing.baseline.BaselineCatalogueReloader;
 import project.swp.spring.sebt_platform.service.AdminService;
 import project.swp.spring.sebt_platform.service.ListingService;
+import project.swp.spring.sebt_platform.wallet.WalletLedgerExecutor;
+import project.swp.spring.sebt_platform.wallet.WalletLedgerReconciler;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -30,6 +36,15 @@ public class AdminController {
     @Autowired
     private ListingService listingService;
 
+    @Autowired
+    private BaselineCatalogueReloader baselineCatalogueReloader;
+
+    @Autowired
+    private WalletLedgerExecutor walletLedgerExecutor;
+
+    @Autowired
+    private WalletLedgerReconciler walletLedgerReconciler;
+
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved post requests",
                     content = @Content(mediaType = "application/json",
@@ -240,4 +255,92 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
         }
     }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Baseline catalogue reloaded",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BaselineCatalogueReloader.ReloadResult.class))),
+            @ApiResponse(responseCode = "202", description = "Reload is still running in the background",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "400", description = "Catalogue file is invalid, previous catalogue kept",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BaselineCatalogueReloader.ReloadResult.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized: Admin access required",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @PostMapping("/pricing/baseline/reload")
+    public ResponseEntity<?> reloadBaselineCatalogue(HttpServletRequest request) {
+        try {
+            HttpSession session = request.getSession(false);
+            if (session == null || session.getAttribute("role") == null || !session.getAttribute("role").equals(UserRole.ADMIN)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized: Admin access required.");
+            }
+            BaselineCatalogueReloader.ReloadResult result = baselineCatalogueReloader.reload().get(30, TimeUnit.SECONDS);
+            if (!result.success()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
+            }
+            return ResponseEntity.ok(result);
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body("Đang nạp lại catalogue baseline, vui lòng kiểm tra lại sau");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Wallet mutation conflict/retry counters since startup",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = WalletLedgerExecutor.Stats.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized: Admin access required",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/wallet/ledger-stats")
+    public ResponseEntity<?> getWalletLedgerStats(HttpServletRequest request) {
+        try {
+            HttpSession session = request.getSession(false);
+            if (session == null || session.getAttribute("role") == null || !session.getAttribute("role").equals(UserRole.ADMIN)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized: Admin access required.");
+            }
+            return ResponseEntity.ok(walletLedgerExecutor.stats());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
+
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Ledger chains and snapshots are consistent",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = WalletLedgerReconciler.Report.class))),
+            @ApiResponse(responseCode = "409", description = "Inconsistencies found (counts and samples in the report)",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = WalletLedgerReconciler.Report.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized: Admin access required",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @PostMapping("/wallet/reconcile")
+    public ResponseEntity<?> reconcileWalletLedger(HttpServletRequest request) {
+        try {
+            HttpSession session = request.getSession(false);
+            if (session == null || session.getAttribute("role") == null || !session.getAttribute("role").equals(UserRole.ADMIN)) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized: Admin access required.");
+            }
+            WalletLedgerReconciler.Report report = walletLedgerReconciler.reconcile();
+            return ResponseEntity.status(report.consistent() ? HttpStatus.OK : HttpStatus.CONFLICT).body(report);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
 }
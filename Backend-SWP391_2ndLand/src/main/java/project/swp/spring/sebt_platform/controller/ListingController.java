@@ -8,10 +8,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -30,8 +32,12 @@ import project.swp.spring.sebt_platform.dto.object.Image;
 import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
 import project.swp.spring.sebt_platform.dto.request.CreateListingFormDTO;
 import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.response.CursorPageResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.FacetedSearchResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingDetailResponseDTO;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.Facet;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.FacetDictionary;
 import project.swp.spring.sebt_platform.model.enums.BatteryCondition;
 import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
 import project.swp.spring.sebt_platform.model.enums.VehicleType;
@@ -261,6 +267,74 @@ public class ListingController {
         }
     }
 
+    /**
+     * GET /api/listings/evCart/cursor - EV listings, keyset pagination (không COUNT, không OFFSET)
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved EV listings",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPageResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/evCart/cursor")
+    public ResponseEntity<?> getEvListingsByCursor(
+            HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size) {
+
+        try {
+            CursorPageResponseDTO<ListingCartResponseDTO> results = listingService.getEvListingCartsByCursor(
+                Utils.getUserIdFromSession(request), cursor, validateSize(size));
+
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Cursor không hợp lệ");
+        } catch (Exception e) {
+            logger.error("Error getting EV listings by cursor: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Lỗi khi lấy danh sách EV");
+        }
+    }
+
+    /**
+     * GET /api/listings/batteryCart/cursor - Battery listings, keyset pagination
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved battery listings",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPageResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/batteryCart/cursor")
+    public ResponseEntity<?> getBatteryListingsByCursor(
+            HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size) {
+
+        try {
+            CursorPageResponseDTO<ListingCartResponseDTO> results = listingService.getBatteryListingCartsByCursor(
+                Utils.getUserIdFromSession(request), cursor, validateSize(size));
+
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Cursor không hợp lệ");
+        } catch (Exception e) {
+            logger.error("Error getting battery listings by cursor: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Lỗi khi lấy danh sách pin");
+        }
+    }
+
     /**
      * GET /api/listings/detail/{id} - Get listing detail
      */
@@ -476,6 +550,70 @@ public class ListingController {
         }
     }
 
+    /**
+     * GET /api/listings/ev-filter/facets - Filter EV listings kèm số lượng theo facet
+     * (brand, type, year, province, condition, price). Nhận cùng query params với /ev-filter.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved filtered EV listings with facet counts",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = FacetedSearchResponseDTO.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/ev-filter/facets")
+    public ResponseEntity<?> filterEvListingsWithFacets(
+            HttpServletRequest request,
+            @ModelAttribute EvFilterFormDTO filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size) {
+        try {
+            Pageable pageable = PageRequest.of(Math.max(0, page), validateSize(size));
+            logger.info("[EV_FILTER_FACETS] userId={} filters: {}", Utils.getUserIdFromSession(request), filter);
+
+            FacetedSearchResponseDTO<ListingCartResponseDTO> results = listingService.filterEvListingsWithFacets(
+                    filter, Utils.getUserIdFromSession(request), pageable);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            logger.error("Error filtering EV listings with facets: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Lỗi khi lọc xe điện. Vui lòng thử lại sau.");
+        }
+    }
+
+    /**
+     * GET /api/listings/battery-filter/facets - Filter battery listings kèm số lượng theo facet
+     * (brand, year, province, condition, price). Nhận cùng query params với /battery-filter.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved filtered battery listings with facet counts",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = FacetedSearchResponseDTO.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/battery-filter/facets")
+    public ResponseEntity<?> filterBatteryListingsWithFacets(
+            HttpServletRequest request,
+            @ModelAttribute BatteryFilterFormDTO filter,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "12") int size) {
+        try {
+            Pageable pageable = PageRequest.of(Math.max(0, page), validateSize(size));
+            logger.info("[BATTERY_FILTER_FACETS] userId={} filters: {}", Utils.getUserIdFromSession(request), filter);
+
+            FacetedSearchResponseDTO<ListingCartResponseDTO> results = listingService.filterBatteryListingsWithFacets(
+                    filter, Utils.getUserIdFromSession(request), pageable);
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            logger.error("Error filtering battery listings with facets: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Lỗi khi lọc pin điện. Vui lòng thử lại sau.");
+        }
+    }
+
     /**
      * GET /api/listings/my-listings - Get user's listings
      */
@@ -514,14 +652,53 @@ public class ListingController {
         }
     }
 
+    /**
+     * GET /api/listings/my-listings/cursor - User's listings, keyset pagination
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved user's listings",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CursorPageResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "User not authenticated or invalid cursor",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/my-listings/cursor")
+    public ResponseEntity<?> getMyListingsByCursor(
+            HttpServletRequest request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size) {
+
+        try {
+            Long userId = Utils.getUserIdFromSession(request);
+            if (userId == null) {
+                return ResponseEntity.badRequest()
+                    .body("Vui lòng đăng nhập để xem bài đăng của bạn");
+            }
+
+            CursorPageResponseDTO<ListingCartResponseDTO> results =
+                listingService.getListingCartsBySellerByCursor(userId, cursor, validateSize(size));
+
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Cursor không hợp lệ");
+        } catch (Exception e) {
+            logger.error("Error getting my listings by cursor: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Lỗi khi lấy danh sách của bạn");
+        }
+    }
+
     /**
      * GET /api/listings/filter-data/provinces - Get all provinces for location filter
      */
     @GetMapping("/filter-data/provinces")
     public ResponseEntity<?> getProvinces() {
         try {
-            List<String> provinces = listingService.getAllProvinces();
-            return ResponseEntity.ok(provinces);
+            return facetResponse(listingService.getFilterData(Facet.PROVINCES));
         } catch (Exception e) {
             logger.error("Error getting provinces: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -535,8 +712,7 @@ public class ListingController {
     @GetMapping("/filter-data/districts")
     public ResponseEntity<?> getDistricts(@RequestParam(required = false) String province) {
         try {
-            List<String> districts = listingService.getAllDistricts(province);
-            return ResponseEntity.ok(districts);
+            return facetResponse(listingService.getDistrictFilterData(province));
         } catch (Exception e) {
             logger.error("Error getting districts: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -550,8 +726,7 @@ public class ListingController {
     @GetMapping("/filter-data/ev-brands")
     public ResponseEntity<?> getEvBrands() {
         try {
-            List<String> brands = listingService.getAllEvBrands();
-            return ResponseEntity.ok(brands);
+            return facetResponse(listingService.getFilterData(Facet.EV_BRANDS));
         } catch (Exception e) {
             logger.error("Error getting EV brands: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -565,8 +740,7 @@ public class ListingController {
     @GetMapping("/filter-data/battery-brands")
     public ResponseEntity<?> getBatteryBrands() {
         try {
-            List<String> brands = listingService.getAllBatteryBrands();
-            return ResponseEntity.ok(brands);
+            return facetResponse(listingService.getFilterData(Facet.BATTERY_BRANDS));
         } catch (Exception e) {
             logger.error("Error getting battery brands: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -580,8 +754,7 @@ public class ListingController {
     @GetMapping("/filter-data/battery-names")
     public ResponseEntity<?> getBatteryNames() {
         try {
-            List<String> names = listingService.getAllBatteryNames();
-            return ResponseEntity.ok(names);
+            return facetResponse(listingService.getFilterData(Facet.BATTERY_NAMES));
         } catch (Exception e) {
             logger.error("Error getting battery names: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -595,8 +768,7 @@ public class ListingController {
     @GetMapping("/filter-data/compatible-vehicles")
     public ResponseEntity<?> getCompatibleVehicles() {
         try {
-            List<String> vehicles = listingService.getAllCompatibleVehicles();
-            return ResponseEntity.ok(vehicles);
+            return facetResponse(listingService.getFilterData(Facet.COMPATIBLE_VEHICLES));
         } catch (Exception e) {
             logger.error("Error getting compatible vehicles: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -610,8 +782,7 @@ public class ListingController {
     @GetMapping("/filter-data/ev-years")
     public ResponseEntity<?> getEvYears() {
         try {
-            List<Integer> years = listingService.getAllEvYears();
-            return ResponseEntity.ok(years);
+            return facetResponse(listingService.getFilterData(Facet.EV_YEARS));
         } catch (Exception e) {
             logger.error("Error getting EV years: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -625,8 +796,7 @@ public class ListingController {
     @GetMapping("/filter-data/battery-years")
     public ResponseEntity<?> getBatteryYears() {
         try {
-            List<Integer> years = listingService.getAllBatteryYears();
-            return ResponseEntity.ok(years);
+            return facetResponse(listingService.getFilterData(Facet.BATTERY_YEARS));
         } catch (Exception e) {
             logger.error("Error getting battery years: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -635,6 +805,16 @@ public class ListingController {
     }
 
     // ========== HELPER METHODS ==========
+
+    // ETag/Last-Modified cho filter-data: Spring tự trả 304 khi If-None-Match / If-Modified-Since khớp.
+    // Khi cache chưa dựng xong (đọc thẳng DB) thì không có validator, trình duyệt tải lại ở lần sau.
+    private ResponseEntity<?> facetResponse(FacetDictionary<?> dictionary) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (dictionary.etag() != null) response.eTag(dictionary.etag());
+        if (dictionary.lastModified() != null) response.lastModified(dictionary.lastModified());
+        return response.body(dictionary.values());
+    }
+
     private int validateSize(int size) {
         return (size <= 0 || size > 100) ? 12 : size;
     }
@@ -8,19 +8,38 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import project.swp.spring.sebt_platform.config.AiConfig;
+import project.swp.spring.sebt_platform.dto.request.PricingBatchRequestDTO;
 import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
 import jakarta.validation.Valid;
 import project.swp.spring.sebt_platform.service.PricingService;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingJobResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.pricing.job.PricingJob;
+import project.swp.spring.sebt_platform.pricing.job.PricingJobService;
+import project.swp.spring.sebt_platform.pricing.ai.CircuitBreaker;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiClient;
+import project.swp.spring.sebt_platform.pricing.cache.SingleFlight;
+import project.swp.spring.sebt_platform.pricing.cache.TinyLfuCache;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
 import project.swp.spring.sebt_platform.service.WalletLedgerService;
 import project.swp.spring.sebt_platform.util.Utils;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/pricing")
@@ -37,6 +56,9 @@ public class PricingController {
     @Autowired
     private AiConfig environment;
 
+    @Autowired
+    private PricingJobService pricingJobService;
+
     /**
      * POST /api/pricing/suggest - Get price suggestion (Gemini or heuristic fallback)
      */
@@ -52,28 +74,166 @@ public class PricingController {
                             schema = @Schema(implementation = String.class)))
     })
     @PostMapping("/suggest")
-    public ResponseEntity<?> suggest(@Valid @RequestBody PricingSuggestRequestDTO dto, HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<?>> suggest(@Valid @RequestBody PricingSuggestRequestDTO dto,
+                                                        HttpServletRequest request) {
         try {
             Long userId = Utils.getUserIdFromSession(request);
-            if(userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("yêu cầu đăng nhập");
+            if (userId == null) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("yêu cầu đăng nhập"));
+            }
             if (dto.getProduct() == null || dto.getProduct().isEmpty()) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("thiếu thông tin sản phẩm");
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.BAD_REQUEST).body("thiếu thông tin sản phẩm"));
             }
 
            /*if(walletLedgerService.pricingFee(userId) == null){
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Số dư của bạn không đủ để sử dụng dịch vụ");
             }*/ // tư bản time
 
-            PricingSuggestResponseDTO result = pricingService.suggestPrice(dto);
-            return ResponseEntity.ok(result);
+            // Thread Tomcat được trả về ngay; response được ghi khi Gemini trả lời (async servlet)
+            return pricingService.suggestPriceAsync(dto)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        logger.error("Error suggesting price: {}", e.getMessage(), e);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+                    });
         } catch (Exception e) {
             logger.error("Error suggesting price: {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error"));
+        }
+    }
+
+    /**
+     * POST /api/pricing/batch - Định giá nhiều xe một lần (dealer). Phí tính một lần cho cả batch (một giao dịch
+     * ví), chỉ cho các item được định giá bằng AI hoặc comparables: item trùng key với item trước, item lấy từ cache,
+     * item INVALID và item chỉ có giá heuristic vì AI lỗi không tính phí (xem {@code billable} của từng item).
+     * <p>
+     * Ví phải đủ tiền cho số item hợp lệ (cận trên của phí) trước khi định giá; phí chỉ bị trừ sau khi định giá
+     * thành công, nên lỗi giữa chừng không làm mất tiền.
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch pricing results",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PricingBatchResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input or insufficient balance",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Server error",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> suggestBatch(@Valid @RequestBody PricingBatchRequestDTO dto, HttpServletRequest request) {
+        try {
+            Long userId = Utils.getUserIdFromSession(request);
+            if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("yêu cầu đăng nhập");
+            int maxItems = Math.max(1, environment.getBatchMaxItems());
+            if (dto.getItems().size() > maxItems) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("tối đa " + maxItems + " xe mỗi lần định giá");
+            }
+
+            // Không tốn lời gọi AI cho ví không đủ tiền trả phí
+            int validItems = (int) dto.getItems().stream()
+                    .filter(item -> item != null && item.getProduct() != null && !item.getProduct().isEmpty())
+                    .count();
+            if (validItems > 0) {
+                BigDecimal balance = walletLedgerService.getBalance(userId);
+                if (balance == null || balance.compareTo(walletLedgerService.pricingFeeAmount(validItems)) < 0) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Số dư của bạn không đủ để sử dụng dịch vụ");
+                }
+            }
+
+            PricingBatchResponseDTO result = pricingService.suggestPrices(dto.getItems());
+            int billable = (int) result.getItems().stream().filter(PricingBatchItemDTO::isBillable).count();
+            result.setBillableItems(billable);
+            if (billable > 0) {
+                WalletTransactionEntity feeTx = walletLedgerService.pricingFee(userId, billable);
+                if (feeTx == null) {
+                    // Số dư vừa bị dùng ở request khác giữa lúc kiểm tra và lúc trừ phí
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Số dư của bạn không đủ để sử dụng dịch vụ");
+                }
+                result.setFeeCharged(feeTx.getAmount().negate());
+                result.setFeeOrderId(feeTx.getOrderId());
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("Error batch pricing: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
         }
     }
 
     /**
-     * GET /api/pricing/health - quick check for AI availability
+     * POST /api/pricing/jobs - Async pricing: trả về ngay jobId + giá tạm tính (baseline/heuristic);
+     * giá AI lấy sau qua GET /api/pricing/jobs/{id} hoặc SSE /api/pricing/jobs/{id}/events
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Pricing job accepted",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PricingJobResponseDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "503", description = "Pricing queue is full",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@Valid @RequestBody PricingSuggestRequestDTO dto, HttpServletRequest request) {
+        try {
+            Long userId = Utils.getUserIdFromSession(request);
+            if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("yêu cầu đăng nhập");
+            if (dto.getProduct() == null || dto.getProduct().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("thiếu thông tin sản phẩm");
+            }
+            PricingJob job = pricingJobService.submit(dto, userId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toResponse());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Pricing job rejected: queue full");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Hệ thống định giá đang bận, vui lòng thử lại sau");
+        } catch (Exception e) {
+            logger.error("Error submitting pricing job: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
+        }
+    }
+
+    /**
+     * GET /api/pricing/jobs/{id} - Poll trạng thái pricing job
+     */
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pricing job state",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PricingJobResponseDTO.class))),
+            @ApiResponse(responseCode = "404", description = "Job not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getJob(@PathVariable("id") String id, HttpServletRequest request) {
+        Long userId = Utils.getUserIdFromSession(request);
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("yêu cầu đăng nhập");
+        Optional<PricingJob> job = pricingJobService.find(id, userId);
+        if (job.isEmpty()) return ResponseEntity.status(HttpStatus.NOT_FOUND).body("không tìm thấy pricing job");
+        return ResponseEntity.ok(job.get().toResponse());
+    }
+
+    /**
+     * GET /api/pricing/jobs/{id}/events - SSE: event "provisional" ngay lập tức, event "result" khi AI xong
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable("id") String id, HttpServletRequest request) {
+        Long userId = Utils.getUserIdFromSession(request);
+        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return pricingJobService.find(id, userId)
+                .map(job -> ResponseEntity.ok(pricingJobService.subscribe(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    /**
+     * GET /api/pricing/health - quick check for AI availability + suggestion cache statistics
      */
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Health check successful",
@@ -93,6 +253,11 @@ public class PricingController {
             if (!verbose) {
                 return ResponseEntity.ok(java.util.Map.of(
                         "hasApiKey", hasEnv || hasProp,
+                        "cache", cacheStats(),
+                        "coalescing", coalescingStats(),
+                        "circuitBreaker", circuitBreakerStats(),
+                        "gemini", geminiStats(),
+                        "comparables", pricingService.comparablesStats(),
                         "timestamp", Instant.now().toString()
                 ));
             }
@@ -100,6 +265,11 @@ public class PricingController {
                     "hasApiKeyEnv", hasEnv,
                     "hasApiKeyProperty", hasProp,
                     "effectiveModel", model,
+                    "cache", cacheStats(),
+                    "coalescing", coalescingStats(),
+                    "circuitBreaker", circuitBreakerStats(),
+                    "gemini", geminiStats(),
+                    "comparables", pricingService.comparablesStats(),
                     "timestamp", Instant.now().toString()
             ));
         } catch (Exception e) {
@@ -107,4 +277,48 @@ public class PricingController {
                     .body(Map.of("error", e.getMessage()));
         }
     }
+
+    private Map<String, Object> cacheStats() {
+        TinyLfuCache.Stats stats = pricingService.cacheStats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", environment.isCacheEnabled());
+        m.put("size", stats.size());
+        m.put("maximumSize", stats.maximumSize());
+        m.put("ttlSeconds", environment.getCacheTtlSeconds());
+        m.put("hits", stats.hits());
+        m.put("misses", stats.misses());
+        m.put("hitRate", stats.hitRate());
+        m.put("evictions", stats.evictions());
+        m.put("expirations", stats.expirations());
+        return m;
+    }
+
+    private Map<String, Object> coalescingStats() {
+        SingleFlight.Stats stats = pricingService.inFlightStats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("upstreamCalls", stats.executions());
+        m.put("coalescedRequests", stats.coalesced());
+        m.put("inFlight", stats.inFlight());
+        return m;
+    }
+
+    private Map<String, Object> circuitBreakerStats() {
+        CircuitBreaker.Snapshot snapshot = pricingService.circuitBreakerStats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("state", snapshot.state().name());
+        m.put("consecutiveFailures", snapshot.consecutiveFailures());
+        m.put("rejectedCalls", snapshot.rejected());
+        m.put("timesOpened", snapshot.opened());
+        return m;
+    }
+
+    private Map<String, Object> geminiStats() {
+        GeminiClient.Stats stats = pricingService.geminiStats();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("calls", stats.calls());
+        m.put("attempts", stats.attempts());
+        m.put("retries", stats.retries());
+        m.put("failures", stats.failures());
+        return m;
+    }
 }
@@ -12,7 +12,6 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import project.swp.spring.sebt_platform.dto.response.TopUpIntentResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.WalletTransactionResponseDTO;
-import project.swp.spring.sebt_platform.model.WalletEntity;
 import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
 import project.swp.spring.sebt_platform.model.enums.WalletPurpose;
 import project.swp.spring.sebt_platform.service.VnpayService;
@@ -59,11 +58,11 @@ public class WalletController {
             if (userId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Bạn chưa đăng nhập");
             }
-            WalletEntity wallet = walletLedgerService.getWalletByUserId(userId);
-            if (wallet == null) {
+            BigDecimal balance = walletLedgerService.getBalance(userId);
+            if (balance == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Không tìm thấy ví");
             }
-            return ResponseEntity.ok(wallet.getBalance());
+            return ResponseEntity.ok(balance);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal server error");
         }
@@ -0,0 +1,17 @@
+package project.swp.spring.sebt_platform.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * Request payload for batch pricing (dealer định giá nhiều xe một lần).
+ * Từng item không bị validate cứng: item thiếu thông tin sẽ có status INVALID thay vì làm hỏng cả batch.
+ */
+public class PricingBatchRequestDTO {
+
+    @NotEmpty(message = "items không được để trống")
+    private List<PricingSuggestRequestDTO> items;
+
+    public List<PricingSuggestRequestDTO> getItems() { return items; }
+    public void setItems(List<PricingSuggestRequestDTO> items) { this.items = items; }
+}
@@ -0,0 +1,60 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+import java.util.List;
+
+/**
+ * Trang kết quả phân trang theo cursor (keyset): không có totalElements/totalPages
+ * vì không chạy COUNT(*). Client gửi lại nextCursor để lấy trang tiếp theo.
+ */
+public class CursorPageResponseDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor; // null khi đã hết dữ liệu
+
+    public CursorPageResponseDTO() {
+    }
+
+    public CursorPageResponseDTO(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> CursorPageResponseDTO<T> empty(int size) {
+        return new CursorPageResponseDTO<>(List.of(), size, false, null);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,7 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+/**
+ * Một giá trị facet và số listing khớp filter hiện tại có giá trị đó.
+ */
+public record FacetCountDTO(String value, long count) {
+}
@@ -0,0 +1,39 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * Trang kết quả filter kèm số lượng theo từng facet (brand, type, year, province, condition, price)
+ * trên toàn bộ tập kết quả, không chỉ trang hiện tại.
+ */
+public class FacetedSearchResponseDTO<T> {
+    private Page<T> results;
+    private Map<String, List<FacetCountDTO>> facets;
+
+    public FacetedSearchResponseDTO() {
+    }
+
+    public FacetedSearchResponseDTO(Page<T> results, Map<String, List<FacetCountDTO>> facets) {
+        this.results = results;
+        this.facets = facets;
+    }
+
+    public Page<T> getResults() {
+        return results;
+    }
+
+    public void setResults(Page<T> results) {
+        this.results = results;
+    }
+
+    public Map<String, List<FacetCountDTO>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetCountDTO>> facets) {
+        this.facets = facets;
+    }
+}
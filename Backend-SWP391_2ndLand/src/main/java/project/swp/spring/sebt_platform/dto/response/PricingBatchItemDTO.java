@@ -0,0 +1,79 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+/**
+ * Kết quả định giá của một item trong batch, theo đúng thứ tự gửi lên.
+ */
+public class PricingBatchItemDTO {
+
+    public enum Status {
+        CACHED,     // lấy từ cache, không gọi AI, không tính phí
+        COMPARABLES, // giá trung vị của các listing tương đương trên sàn, không gọi AI
+        AI,         // Gemini đã tinh chỉnh giá
+        HEURISTIC,  // baseline/heuristic (AI không khả dụng hoặc không trả lời cho item này), không tính phí
+        INVALID     // thiếu thông tin sản phẩm, không định giá và không tính phí
+    }
+
+    private int index;
+    private Status status;
+    private Integer duplicateOf;        // index của item trùng key đứng trước (dùng chung kết quả)
+    private PricingSuggestResponseDTO result;
+    private String error;
+
+    public PricingBatchItemDTO() {
+    }
+
+    public PricingBatchItemDTO(int index, Status status, PricingSuggestResponseDTO result, String error) {
+        this.index = index;
+        this.status = status;
+        this.result = result;
+        this.error = error;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * Item có bị tính phí không: chỉ item đầu tiên của mỗi key được định giá bằng AI hoặc comparables trong batch
+     * này. Item trùng key, lấy từ cache, INVALID hoặc chỉ có giá heuristic (AI lỗi/circuit breaker mở) thì miễn phí.
+     */
+    public boolean isBillable() {
+        return duplicateOf == null && (status == Status.COMPARABLES || status == Status.AI);
+    }
+
+    public Integer getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(Integer duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
+    public PricingSuggestResponseDTO getResult() {
+        return result;
+    }
+
+    public void setResult(PricingSuggestResponseDTO result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,92 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Kết quả batch pricing: một item cho mỗi xe gửi lên, kèm thống kê và giao dịch phí (một ledger entry cho cả batch).
+ */
+public class PricingBatchResponseDTO {
+    private List<PricingBatchItemDTO> items;
+    private int cacheHits;
+    private int deduplicated;           // số item trùng key với item khác trong batch
+    private int comparableHits;         // số item định giá từ listing tương đương, không cần AI
+    private int aiCalls;                // số lời gọi Gemini generateContent đã dùng
+    private int billableItems;
+    private BigDecimal feeCharged;
+    private String feeOrderId;
+
+    public PricingBatchResponseDTO() {
+    }
+
+    public PricingBatchResponseDTO(List<PricingBatchItemDTO> items, int cacheHits, int deduplicated, int aiCalls) {
+        this.items = items;
+        this.cacheHits = cacheHits;
+        this.deduplicated = deduplicated;
+        this.aiCalls = aiCalls;
+    }
+
+    public List<PricingBatchItemDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<PricingBatchItemDTO> items) {
+        this.items = items;
+    }
+
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public void setCacheHits(int cacheHits) {
+        this.cacheHits = cacheHits;
+    }
+
+    public int getDeduplicated() {
+        return deduplicated;
+    }
+
+    public void setDeduplicated(int deduplicated) {
+        this.deduplicated = deduplicated;
+    }
+
+    public int getComparableHits() {
+        return comparableHits;
+    }
+
+    public void setComparableHits(int comparableHits) {
+        this.comparableHits = comparableHits;
+    }
+
+    public int getAiCalls() {
+        return aiCalls;
+    }
+
+    public void setAiCalls(int aiCalls) {
+        this.aiCalls = aiCalls;
+    }
+
+    public int getBillableItems() {
+        return billableItems;
+    }
+
+    public void setBillableItems(int billableItems) {
+        this.billableItems = billableItems;
+    }
+
+    public BigDecimal getFeeCharged() {
+        return feeCharged;
+    }
+
+    public void setFeeCharged(BigDecimal feeCharged) {
+        this.feeCharged = feeCharged;
+    }
+
+    public String getFeeOrderId() {
+        return feeOrderId;
+    }
+
+    public void setFeeOrderId(String feeOrderId) {
+        this.feeOrderId = feeOrderId;
+    }
+}
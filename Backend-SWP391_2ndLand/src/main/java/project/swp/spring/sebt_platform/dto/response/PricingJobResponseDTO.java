@@ -0,0 +1,99 @@
+package project.swp.spring.sebt_platform.dto.response;
+
+import java.time.Instant;
+
+/**
+ * Trạng thái một pricing job bất đồng bộ.
+ * {@code provisional} là giá tạm tính (baseline/heuristic) có ngay khi tạo job;
+ * {@code aiPrice} là giá AI đã clamp, có ngay khi Gemini stream trả về giá (trước lý do/evidence);
+ * {@code result} là giá cuối cùng sau khi AI tinh chỉnh (null khi status = RUNNING).
+ */
+public class PricingJobResponseDTO {
+    private String jobId;
+    private String status;              // RUNNING | COMPLETED | FAILED
+    private PricingSuggestResponseDTO provisional;
+    private Long aiPrice;
+    private PricingSuggestResponseDTO result;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+
+    public PricingJobResponseDTO() {
+    }
+
+    public PricingJobResponseDTO(String jobId, String status, PricingSuggestResponseDTO provisional,
+                                 PricingSuggestResponseDTO result, String error,
+                                 Instant createdAt, Instant updatedAt) {
+        this.jobId = jobId;
+        this.status = status;
+        this.provisional = provisional;
+        this.result = result;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public PricingSuggestResponseDTO getProvisional() {
+        return provisional;
+    }
+
+    public void setProvisional(PricingSuggestResponseDTO provisional) {
+        this.provisional = provisional;
+    }
+
+    public Long getAiPrice() {
+        return aiPrice;
+    }
+
+    public void setAiPrice(Long aiPrice) {
+        this.aiPrice = aiPrice;
+    }
+
+    public PricingSuggestResponseDTO getResult() {
+        return result;
+    }
+
+    public void setResult(PricingSuggestResponseDTO result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -22,7 +22,12 @@ public class PricingSuggestResponseDTO {
 
     // --- Breakdown fields (mới thêm) ---
     private Long baselinePrice;         // Baseline theo model/brand trước khi nhân hệ số
+    private String baselineMatch;       // EXACT | COMPACT | CONTAINS | FUZZY | FALLBACK | NONE
+    private Double baselineMatchConfidence; // 0..1, độ tin cậy khi so khớp tên model với catalogue
     private Double clampPercent;        // biên clamp động (ví dụ 0.12 nghĩa ±12%)
+    private Integer comparableCount;    // số listing ACTIVE/SOLD tương đương (cùng brand, model, khoảng năm)
+    private Integer comparableSoldCount; // trong đó số listing đã bán
+    private Long comparableMedian;      // giá trung vị của nhóm tương đương
     // Các hệ số thành phần
     private Double factorAge;
     private Double factorCapacity;
@@ -41,6 +46,39 @@ public class PricingSuggestResponseDTO {
 
     public PricingSuggestResponseDTO() {}
 
+    // Bản sao để đánh dấu cacheHit mà không sửa object đang nằm trong cache (có thể đang được serialize ở request khác)
+    public PricingSuggestResponseDTO(PricingSuggestResponseDTO other) {
+        this.suggestedPrice = other.suggestedPrice;
+        this.reason = other.reason;
+        this.model = other.model;
+        this.mode = other.mode;
+        this.heuristicPrice = other.heuristicPrice;
+        this.minPrice = other.minPrice;
+        this.maxPrice = other.maxPrice;
+        this.clamped = other.clamped;
+        this.confidence = other.confidence;
+        this.deltaPercent = other.deltaPercent;
+        this.promptVersion = other.promptVersion;
+        this.prompt = other.prompt;
+        this.cacheHit = other.cacheHit;
+        this.baselinePrice = other.baselinePrice;
+        this.baselineMatch = other.baselineMatch;
+        this.baselineMatchConfidence = other.baselineMatchConfidence;
+        this.clampPercent = other.clampPercent;
+        this.comparableCount = other.comparableCount;
+        this.comparableSoldCount = other.comparableSoldCount;
+        this.comparableMedian = other.comparableMedian;
+        this.factorAge = other.factorAge;
+        this.factorCapacity = other.factorCapacity;
+        this.factorCondition = other.factorCondition;
+        this.factorMileage = other.factorMileage;
+        this.factorHealth = other.factorHealth;
+        this.strategyType = other.strategyType;
+        this.strategyRate = other.strategyRate;
+        this.strategyMaxDep = other.strategyMaxDep;
+        this.evidence = other.evidence == null ? null : new java.util.ArrayList<>(other.evidence);
+    }
+
     public PricingSuggestResponseDTO(Long suggestedPrice, String reason, String model, String mode) {
         this.suggestedPrice = suggestedPrice;
         this.reason = reason;
@@ -112,6 +150,16 @@ public class PricingSuggestResponseDTO {
     public void setStrategyRate(Double strategyRate) { this.strategyRate = strategyRate; }
     public Double getStrategyMaxDep() { return strategyMaxDep; }
     public void setStrategyMaxDep(Double strategyMaxDep) { this.strategyMaxDep = strategyMaxDep; }
+    public String getBaselineMatch() { return baselineMatch; }
+    public void setBaselineMatch(String baselineMatch) { this.baselineMatch = baselineMatch; }
+    public Double getBaselineMatchConfidence() { return baselineMatchConfidence; }
+    public void setBaselineMatchConfidence(Double baselineMatchConfidence) { this.baselineMatchConfidence = baselineMatchConfidence; }
+    public Integer getComparableCount() { return comparableCount; }
+    public void setComparableCount(Integer comparableCount) { this.comparableCount = comparableCount; }
+    public Integer getComparableSoldCount() { return comparableSoldCount; }
+    public void setComparableSoldCount(Integer comparableSoldCount) { this.comparableSoldCount = comparableSoldCount; }
+    public Long getComparableMedian() { return comparableMedian; }
+    public void setComparableMedian(Long comparableMedian) { this.comparableMedian = comparableMedian; }
     public java.util.List<String> getEvidence() { return evidence; }
     public void setEvidence(java.util.List<String> evidence) { this.evidence = evidence; }
 }
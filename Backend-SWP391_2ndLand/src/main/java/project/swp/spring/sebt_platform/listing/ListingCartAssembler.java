@@ -0,0 +1,114 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.dto.response.CursorPageResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.repository.FavoriteRepository;
+
+/**
+ * Bước dựng "card" dùng chung cho mọi endpoint trả về {@link ListingCartResponseDTO}.
+ * Trạng thái yêu thích được tra cứu một lần cho cả trang (1 câu IN (...))
+ * thay vì gọi {@code findByUserIdAndListingId} cho từng listing. Lượt xem hiển thị
+ * đã cộng phần đang chờ flush trong {@link ListingViewCounter}.
+ */
+@Component
+public class ListingCartAssembler {
+
+    private final FavoriteRepository favoriteRepository;
+    private final ListingViewCounter viewCounter;
+
+    public ListingCartAssembler(FavoriteRepository favoriteRepository, ListingViewCounter viewCounter) {
+        this.favoriteRepository = favoriteRepository;
+        this.viewCounter = viewCounter;
+    }
+
+    /**
+     * Chuyển một trang listing thành trang card, kèm cờ favorite của user hiện tại.
+     *
+     * @param listings trang listing đã truy vấn
+     * @param userId   user đang đăng nhập (null nếu khách) - khi null sẽ không truy vấn favorite
+     */
+    public Page<ListingCartResponseDTO> toCartPage(Page<ListingEntity> listings, Long userId) {
+        Set<Long> favoritedIds = resolveFavorites(userId,
+                listings.getContent().stream().map(ListingEntity::getId).toList());
+        return listings.map(listing -> toCart(listing, favoritedIds.contains(listing.getId())));
+    }
+
+    /**
+     * Giống {@link #toCartPage(Page, Long)} nhưng nhận trang projection {@link ListingCartRow}
+     * (đã có sẵn số điện thoại seller nên không phát sinh lazy load).
+     */
+    public Page<ListingCartResponseDTO> toCartRowPage(Page<ListingCartRow> rows, Long userId) {
+        Set<Long> favoritedIds = resolveFavorites(userId,
+                rows.getContent().stream().map(ListingCartRow::id).toList());
+        return rows.map(row -> toCart(row, favoritedIds.contains(row.id())));
+    }
+
+    /**
+     * Chuyển một slice keyset thành trang cursor. Cursor tiếp theo được lấy từ phần tử
+     * cuối slice, chỉ khi còn dữ liệu phía sau.
+     */
+    public CursorPageResponseDTO<ListingCartResponseDTO> toCursorPage(Slice<ListingCartRow> rows, Long userId) {
+        List<ListingCartRow> content = rows.getContent();
+        Set<Long> favoritedIds = resolveFavorites(userId, content.stream().map(ListingCartRow::id).toList());
+        List<ListingCartResponseDTO> cards = content.stream()
+                .map(row -> toCart(row, favoritedIds.contains(row.id())))
+                .toList();
+        String nextCursor = rows.hasNext() && !content.isEmpty()
+                ? ListingCursor.after(content.get(content.size() - 1)).encode()
+                : null;
+        return new CursorPageResponseDTO<>(cards, rows.getSize(), nextCursor != null, nextCursor);
+    }
+
+    /**
+     * Tạo card cho một listing với cờ favorite đã biết trước.
+     */
+    public ListingCartResponseDTO toCart(ListingEntity listing, boolean favorite) {
+        ListingCartResponseDTO dto = new ListingCartResponseDTO(
+                listing.getId(),
+                listing.getTitle(),
+                listing.getThumbnailImage(),
+                listing.getPrice().doubleValue(),
+                viewCounter.merge(listing.getId(), listing.getViewsCount()),
+                listing.getSeller().getPhoneNumber(),
+                favorite
+        );
+        if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
+        return dto;
+    }
+
+    /**
+     * Tạo card từ projection với cờ favorite đã biết trước.
+     */
+    public ListingCartResponseDTO toCart(ListingCartRow row, boolean favorite) {
+        ListingCartResponseDTO dto = new ListingCartResponseDTO(
+                row.id(),
+                row.title(),
+                row.thumbnailImage(),
+                row.price().doubleValue(),
+                viewCounter.merge(row.id(), row.viewsCount()),
+                row.sellerPhoneNumber(),
+                favorite
+        );
+        if (row.status() != null) dto.setStatus(row.status().name());
+        return dto;
+    }
+
+    /**
+     * Lấy tập id listing mà user đã yêu thích trong số các id truyền vào (tối đa 1 query).
+     */
+    public Set<Long> resolveFavorites(Long userId, List<Long> listingIds) {
+        if (userId == null || listingIds == null || listingIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(favoriteRepository.findFavoritedListingIds(userId, listingIds));
+    }
+}
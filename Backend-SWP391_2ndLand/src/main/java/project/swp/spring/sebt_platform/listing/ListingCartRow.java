@@ -0,0 +1,30 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+
+/**
+ * Projection (constructor expression JPQL) chứa đúng các cột cần cho một card listing.
+ * Được đọc trong một câu SELECT duy nhất (listing JOIN seller), không hydrate entity
+ * nên không phát sinh lazy load seller/product.
+ *
+ * @param id                id listing
+ * @param title             tiêu đề
+ * @param thumbnailImage    URL ảnh đại diện
+ * @param price             giá bán
+ * @param viewsCount        lượt xem đã lưu trong DB
+ * @param status            trạng thái listing
+ * @param sellerPhoneNumber số điện thoại người bán
+ * @param createdAt         thời điểm tạo (khóa seek cho phân trang cursor)
+ */
+public record ListingCartRow(Long id,
+                             String title,
+                             String thumbnailImage,
+                             BigDecimal price,
+                             Integer viewsCount,
+                             ListingStatus status,
+                             String sellerPhoneNumber,
+                             LocalDateTime createdAt) {
+}
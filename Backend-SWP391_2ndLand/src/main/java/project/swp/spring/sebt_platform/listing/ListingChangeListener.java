@@ -0,0 +1,87 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparablesIndex;
+
+/**
+ * JPA entity listener của {@link ListingEntity}: mọi insert/update/delete (duyệt bài,
+ * thanh toán phí, gỡ bài, bán...) đều đánh dấu listing cần cập nhật lại trong search index,
+ * facet cache và thống kê giá comparables, không phải sửa từng service.
+ * <p>
+ * Callback {@code @PostUpdate}... chạy lúc flush, trước commit. Nếu đánh dấu ngay, job refresh có thể
+ * lấy id ra khỏi tập dirty rồi đọc lại bản ghi cũ đã commit, và listing sẽ không bao giờ được đánh dấu
+ * lại. Vì vậy trong transaction, các id được gom lại và chỉ đánh dấu ở {@code afterCommit}
+ * (rollback thì bỏ); ngoài transaction thì đánh dấu ngay.
+ * <p>
+ * Dùng {@link ObjectProvider} vì listener được Hibernate tạo cùng EntityManagerFactory,
+ * trước khi các component phụ thuộc repository sẵn sàng.
+ */
+@Component
+public class ListingChangeListener {
+
+    private final ObjectProvider<ListingSearchIndex> searchIndex;
+    private final ObjectProvider<ListingFacetCache> facetCache;
+    private final ObjectProvider<ComparablesIndex> comparables;
+
+    public ListingChangeListener(ObjectProvider<ListingSearchIndex> searchIndex,
+                                 ObjectProvider<ListingFacetCache> facetCache,
+                                 ObjectProvider<ComparablesIndex> comparables) {
+        this.searchIndex = searchIndex;
+        this.facetCache = facetCache;
+        this.comparables = comparables;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(ListingEntity listing) {
+        Long listingId = listing.getId();
+        if (listingId == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markDirty(Set.of(listingId));
+            return;
+        }
+        pendingInTransaction().add(listingId);
+    }
+
+    // Một synchronization cho mỗi transaction, dù transaction sửa bao nhiêu listing
+    @SuppressWarnings("unchecked")
+    private Set<Long> pendingInTransaction() {
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) return pending;
+
+        Set<Long> ids = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markDirty(ids);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ListingChangeListener.this);
+            }
+        });
+        return ids;
+    }
+
+    private void markDirty(Set<Long> listingIds) {
+        for (Long listingId : listingIds) {
+            searchIndex.ifAvailable(index -> index.markDirty(listingId));
+            facetCache.ifAvailable(cache -> cache.markDirty(listingId));
+            comparables.ifAvailable(index -> index.markDirty(listingId));
+        }
+    }
+}
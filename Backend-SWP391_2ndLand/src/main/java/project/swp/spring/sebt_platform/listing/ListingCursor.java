@@ -0,0 +1,53 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Vị trí seek cho phân trang keyset trên (created_at DESC, id DESC).
+ * Client chỉ nhận token mờ (base64url), không phụ thuộc vào cấu trúc bên trong.
+ *
+ * @param createdAt created_at của phần tử cuối trang trước
+ * @param id        id của phần tử cuối trang trước (phá thế hòa khi trùng created_at)
+ */
+public record ListingCursor(LocalDateTime createdAt, Long id) {
+
+    // Trang đầu: seek từ "vô cực" để dùng chung một câu query với các trang sau
+    private static final ListingCursor START = new ListingCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public static ListingCursor start() {
+        return START;
+    }
+
+    public static ListingCursor after(ListingCartRow row) {
+        return new ListingCursor(row.createdAt(), row.id());
+    }
+
+    /**
+     * Giải mã token; token rỗng nghĩa là trang đầu.
+     *
+     * @throws IllegalArgumentException nếu token không hợp lệ
+     */
+    public static ListingCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep <= 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new ListingCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
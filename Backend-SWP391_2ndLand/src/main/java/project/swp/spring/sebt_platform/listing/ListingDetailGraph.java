@@ -0,0 +1,16 @@
+package project.swp.spring.sebt_platform.listing;
+
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.LocationEntity;
+import project.swp.spring.sebt_platform.model.enums.UserRole;
+
+/**
+ * Kết quả của truy vấn chi tiết listing (1 round trip): listing đã fetch sẵn seller,
+ * product, EV/battery; location đi kèm; và role của người đang xem (null nếu khách).
+ *
+ * @param listing    listing với seller/product/evVehicle/battery đã được fetch join
+ * @param location   location của listing (có thể null)
+ * @param viewerRole role của user đang xem, dùng cho logic tăng lượt xem
+ */
+public record ListingDetailGraph(ListingEntity listing, LocationEntity location, UserRole viewerRole) {
+}
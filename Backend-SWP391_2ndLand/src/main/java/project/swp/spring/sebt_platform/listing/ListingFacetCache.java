@@ -0,0 +1,282 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+/**
+ * Cache các danh sách giá trị filter (tỉnh, quận, brand, tên pin, xe tương thích, năm)
+ * cho {@code /api/listings/filter-data/*}, tính trên các listing ACTIVE.
+ * <p>
+ * Mỗi giá trị giữ số listing đang dùng nó, nên khi một listing được duyệt/kích hoạt/gỡ
+ * (đánh dấu qua {@link ListingChangeListener}) chỉ cần cộng/trừ đóng góp của listing đó và
+ * dựng lại những danh sách thực sự thay đổi. Mỗi danh sách có ETag (theo nội dung) và
+ * Last-Modified để trình duyệt revalidate bằng 304.
+ * <p>
+ * Cache được dựng ở {@link ApplicationReadyEvent} (hoặc bởi job refresh nếu lần đó lỗi), không bao giờ
+ * trên thread của request; trong lúc chưa {@link #isReady()}, caller tự đọc DB.
+ */
+@Component
+public class ListingFacetCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingFacetCache.class);
+
+    public enum Facet {
+        PROVINCES, DISTRICTS, EV_BRANDS, BATTERY_BRANDS, BATTERY_NAMES, COMPATIBLE_VEHICLES, EV_YEARS, BATTERY_YEARS
+    }
+
+    /**
+     * Một danh sách facet đã sắp xếp, bất biến.
+     */
+    public record FacetDictionary<T>(List<T> values, String etag, Instant lastModified) {
+    }
+
+    private final ListingRepository listingRepository;
+    private final int batchSize;
+
+    // Trạng thái nội bộ, chỉ sửa trong các method synchronized
+    private final Map<Long, ListingFacetRow> rows = new HashMap<>();
+    private final Map<Facet, Map<Object, Integer>> counts = new EnumMap<>(Facet.class);
+    private final Map<String, Map<Object, Integer>> districtsByProvince = new HashMap<>();
+
+    // Snapshot đã publish, đọc không cần khóa
+    private final Map<Facet, FacetDictionary<?>> dictionaries = new ConcurrentHashMap<>();
+    private final Map<String, FacetDictionary<String>> districtDictionaries = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public ListingFacetCache(ListingRepository listingRepository,
+                             @Value("${app.listing.facets.batchSize:1000}") int batchSize) {
+        this.listingRepository = listingRepository;
+        this.batchSize = batchSize;
+        for (Facet facet : Facet.values()) {
+            counts.put(facet, new HashMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Không chặn khởi động; job refresh sẽ thử dựng lại
+            logger.error("[FACET_CACHE] Warm-up failed", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Dựng toàn bộ cache từ DB (một lượt quét các listing ACTIVE theo lô).
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        rows.clear();
+        counts.values().forEach(Map::clear);
+        districtsByProvince.clear();
+
+        long afterId = 0;
+        List<ListingFacetRow> batch;
+        do {
+            batch = listingRepository.findFacetRows(ListingStatus.ACTIVE, afterId, PageRequest.of(0, batchSize));
+            for (ListingFacetRow row : batch) {
+                apply(row, 1, EnumSet.noneOf(Facet.class));
+                rows.put(row.id(), row);
+                afterId = row.id();
+            }
+        } while (batch.size() == batchSize);
+
+        publish(EnumSet.allOf(Facet.class));
+        ready = true;
+        logger.info("[FACET_CACHE] Built facet dictionaries from {} active listings in {} ms",
+                rows.size(), System.currentTimeMillis() - start);
+    }
+
+    public void markDirty(Long listingId) {
+        if (listingId != null) {
+            dirty.add(listingId);
+        }
+    }
+
+    /**
+     * Áp dụng thay đổi của các listing dirty: trừ đóng góp cũ, cộng đóng góp mới nếu còn ACTIVE.
+     * Id chỉ được đánh dấu sau khi transaction commit ({@link ListingChangeListener}), nên lần đọc lại
+     * luôn thấy bản đã commit. Nếu cache chưa dựng được lúc khởi động thì job này dựng lại.
+     *
+     * @return số listing đã xử lý
+     */
+    @Scheduled(fixedDelayString = "${app.listing.facets.refreshIntervalMillis:1000}")
+    public synchronized int refresh() {
+        if (!ready) {
+            warmUp();
+            return 0;
+        }
+        if (dirty.isEmpty()) return 0;
+
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        List<ListingFacetRow> fresh;
+        try {
+            fresh = listingRepository.findFacetRowsByIds(ids);
+        } catch (Exception e) {
+            logger.error("[FACET_CACHE] Refresh failed for {} listings, will retry", ids.size(), e);
+            dirty.addAll(ids);
+            return 0;
+        }
+
+        Map<Long, ListingFacetRow> byId = new HashMap<>();
+        fresh.forEach(row -> byId.put(row.id(), row));
+        Set<Facet> changed = EnumSet.noneOf(Facet.class);
+        for (Long id : ids) {
+            ListingFacetRow previous = rows.remove(id);
+            if (previous != null) apply(previous, -1, changed);
+            ListingFacetRow current = byId.get(id);
+            if (current != null && current.status() == ListingStatus.ACTIVE) {
+                apply(current, 1, changed);
+                rows.put(id, current);
+            }
+        }
+        publish(changed);
+        return ids.size();
+    }
+
+    /**
+     * Danh sách facet đã dựng; chỉ gọi khi {@link #isReady()}.
+     */
+    public FacetDictionary<?> dictionary(Facet facet) {
+        requireReady();
+        return dictionaries.get(facet);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> values(Facet facet) {
+        return (List<T>) dictionary(facet).values();
+    }
+
+    /**
+     * Danh sách quận của một tỉnh (so khớp đúng tên tỉnh như query cũ); province rỗng = tất cả quận.
+     */
+    public FacetDictionary<String> districts(String province) {
+        if (province == null || province.isBlank()) {
+            @SuppressWarnings("unchecked")
+            FacetDictionary<String> all = (FacetDictionary<String>) dictionary(Facet.DISTRICTS);
+            return all;
+        }
+        requireReady();
+        FacetDictionary<String> cached = districtDictionaries.get(province.trim());
+        return cached != null ? cached : buildDistricts(province.trim());
+    }
+
+    // Dựng và publish trong cùng khóa với refresh để không ghi đè bằng dữ liệu cũ
+    private synchronized FacetDictionary<String> buildDistricts(String province) {
+        Map<Object, Integer> districts = districtsByProvince.getOrDefault(province, Map.of());
+        List<String> values = districts.keySet().stream().map(String.class::cast)
+                .sorted(String.CASE_INSENSITIVE_ORDER).toList();
+        FacetDictionary<?> all = dictionaries.get(Facet.DISTRICTS);
+        // Tên tỉnh có dấu nên không đưa thẳng vào header ETag
+        String name = "districts-" + Integer.toHexString(province.hashCode());
+        FacetDictionary<String> built = new FacetDictionary<>(values, etag(name, values), all.lastModified());
+        if (districtsByProvince.containsKey(province)) {
+            // Chỉ cache tỉnh có thật để input tùy ý không làm phình map
+            districtDictionaries.put(province, built);
+        }
+        return built;
+    }
+
+    private void requireReady() {
+        if (!ready) {
+            throw new IllegalStateException("Facet cache is not built yet");
+        }
+    }
+
+    private void apply(ListingFacetRow row, int delta, Set<Facet> changed) {
+        bump(Facet.PROVINCES, row.province(), delta, changed);
+        bump(Facet.DISTRICTS, row.district(), delta, changed);
+        bump(Facet.EV_BRANDS, row.evBrand(), delta, changed);
+        bump(Facet.EV_YEARS, row.evYear(), delta, changed);
+        bump(Facet.BATTERY_BRANDS, row.batteryBrand(), delta, changed);
+        bump(Facet.BATTERY_NAMES, row.batteryName(), delta, changed);
+        bump(Facet.BATTERY_YEARS, row.batteryYear(), delta, changed);
+        // CSV xe tương thích chỉ được tách một lần cho mỗi listing thay vì mỗi request
+        if (row.compatibleVehicles() != null) {
+            for (String vehicle : row.compatibleVehicles().split(",")) {
+                bump(Facet.COMPATIBLE_VEHICLES, vehicle.trim(), delta, changed);
+            }
+        }
+        if (row.province() != null && row.district() != null) {
+            Map<Object, Integer> districts = districtsByProvince.computeIfAbsent(row.province(), p -> new HashMap<>());
+            if (adjust(districts, row.district(), delta)) {
+                districtDictionaries.remove(row.province());
+            }
+            if (districts.isEmpty()) districtsByProvince.remove(row.province());
+        }
+    }
+
+    private void bump(Facet facet, Object value, int delta, Set<Facet> changed) {
+        if (adjust(counts.get(facet), value, delta)) {
+            changed.add(facet);
+        }
+    }
+
+    // Trả về true nếu tập giá trị thay đổi (giá trị mới xuất hiện hoặc không còn listing nào dùng)
+    private static boolean adjust(Map<Object, Integer> counter, Object value, int delta) {
+        if (value == null || (value instanceof String s && s.isBlank())) return false;
+        Integer updated = counter.merge(value, delta, Integer::sum);
+        if (updated != null && updated <= 0) {
+            counter.remove(value);
+            return true;
+        }
+        return delta > 0 && updated != null && updated == delta;
+    }
+
+    private void publish(Set<Facet> facets) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (Facet facet : facets) {
+            List<Object> values = new ArrayList<>(counts.get(facet).keySet());
+            values.sort(comparator(facet));
+            List<Object> sorted = Collections.unmodifiableList(values);
+            FacetDictionary<?> previous = dictionaries.get(facet);
+            if (previous != null && previous.values().equals(sorted)) continue;
+            dictionaries.put(facet, new FacetDictionary<>(sorted, etag(facet.name(), sorted), now));
+        }
+        if (facets.contains(Facet.DISTRICTS)) {
+            districtDictionaries.clear();
+        }
+    }
+
+    private static Comparator<Object> comparator(Facet facet) {
+        if (facet == Facet.EV_YEARS || facet == Facet.BATTERY_YEARS) {
+            // Năm mới nhất trước
+            return Comparator.<Object, Integer>comparing(value -> (Integer) value, Comparator.reverseOrder());
+        }
+        return Comparator.<Object, String>comparing(value -> (String) value, String.CASE_INSENSITIVE_ORDER);
+    }
+
+    private static String etag(String name, List<?> values) {
+        return "\"" + name.toLowerCase() + "-" + Integer.toHexString(values.hashCode()) + "\"";
+    }
+}
@@ -0,0 +1,217 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.response.FacetCountDTO;
+import project.swp.spring.sebt_platform.model.BatteryEntity;
+import project.swp.spring.sebt_platform.model.EvVehicleEntity;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.LocationEntity;
+import project.swp.spring.sebt_platform.model.ProductEntity;
+import project.swp.spring.sebt_platform.util.VietnameseText;
+
+/**
+ * Đếm số listing theo từng facet (brand, type, năm, tỉnh, tình trạng, khoảng giá) cho đúng
+ * tập kết quả của {@link ListingFilterSpecifications}.
+ * <p>
+ * Chỉ chạy một query: GROUP BY theo các cột ít giá trị (brand, type, year, province, condition)
+ * và đếm khoảng giá bằng {@code SUM(CASE ...)} trong cùng lượt quét, sau đó cộng dồn từng cột
+ * ở Java. Không có query COUNT riêng cho mỗi giá trị facet.
+ */
+@Component
+public class ListingFacetCounter {
+
+    public static final String BRAND = "brand";
+    public static final String TYPE = "type";
+    public static final String YEAR = "year";
+    public static final String PROVINCE = "province";
+    public static final String CONDITION = "condition";
+    public static final String PRICE = "price";
+
+    // Ngưỡng khoảng giá (VND): <50tr, 50-200tr, 200-500tr, 500tr-1 tỷ, từ 1 tỷ
+    static final long[] PRICE_EDGES = {50_000_000L, 200_000_000L, 500_000_000L, 1_000_000_000L};
+    // Nhóm năm theo tuổi xe/pin: <= 1 năm, 2-4, 5-7, lâu hơn
+    private static final int[] YEAR_AGE_EDGES = {1, 4, 7};
+
+    private final EntityManager entityManager;
+
+    public ListingFacetCounter(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Map<String, List<FacetCountDTO>> countEv(EvFilterFormDTO filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        // Đi từ location sang listing: inner join giữ nguyên điều kiện "phải có location" và cho phép group theo tỉnh
+        Root<LocationEntity> location = query.from(LocationEntity.class);
+        Join<LocationEntity, ListingEntity> listing = location.join("listing");
+        Join<ProductEntity, EvVehicleEntity> ev = ListingFilterSpecifications.evJoin(listing);
+        List<Predicate> predicates = ListingFilterSpecifications.evPredicates(filter, listing, ev, query, cb);
+
+        List<Expression<?>> groups = List.of(ev.get("brand"), ev.get("type"), ev.get("year"),
+                location.get("province"), ev.get("conditionStatus"));
+        return rollUp(execute(query, cb, listing, predicates, groups),
+                List.of(BRAND, TYPE, YEAR, PROVINCE, CONDITION), Year.now().getValue());
+    }
+
+    public Map<String, List<FacetCountDTO>> countBattery(BatteryFilterFormDTO filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<LocationEntity> location = query.from(LocationEntity.class);
+        Join<LocationEntity, ListingEntity> listing = location.join("listing");
+        Join<ProductEntity, BatteryEntity> battery = ListingFilterSpecifications.batteryJoin(listing);
+        List<Predicate> predicates = ListingFilterSpecifications.batteryPredicates(filter, listing, battery, query, cb);
+
+        // Pin không có "type"
+        List<Expression<?>> groups = List.of(battery.get("brand"), battery.get("year"),
+                location.get("province"), battery.get("conditionStatus"));
+        return rollUp(execute(query, cb, listing, predicates, groups),
+                List.of(BRAND, YEAR, PROVINCE, CONDITION), Year.now().getValue());
+    }
+
+    // Mỗi dòng: [các cột group..., COUNT(*), SUM(bucket giá 0), ..., SUM(bucket giá n)]
+    private List<Object[]> execute(CriteriaQuery<Object[]> query, CriteriaBuilder cb,
+                                   Join<LocationEntity, ListingEntity> listing,
+                                   List<Predicate> predicates, List<Expression<?>> groups) {
+        List<Selection<?>> selections = new ArrayList<>(groups);
+        selections.add(cb.count(listing));
+        Path<BigDecimal> price = listing.get("price");
+        for (int bucket = 0; bucket <= PRICE_EDGES.length; bucket++) {
+            selections.add(cb.sum(priceBucket(cb, price, bucket)));
+        }
+        query.multiselect(selections)
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(groups);
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static Expression<Integer> priceBucket(CriteriaBuilder cb, Path<BigDecimal> price, int bucket) {
+        List<Predicate> range = new ArrayList<>();
+        if (bucket > 0) range.add(cb.ge(price, BigDecimal.valueOf(PRICE_EDGES[bucket - 1])));
+        if (bucket < PRICE_EDGES.length) range.add(cb.lt(price, BigDecimal.valueOf(PRICE_EDGES[bucket])));
+        return cb.<Integer>selectCase()
+                .when(cb.and(range.toArray(Predicate[]::new)), 1)
+                .otherwise(0);
+    }
+
+    /**
+     * Cộng dồn các dòng GROUP BY thành số đếm cho từng facet.
+     *
+     * @param rows        kết quả query: các cột theo thứ tự {@code facets}, rồi COUNT, rồi các SUM khoảng giá
+     * @param facets      tên facet của từng cột group
+     * @param currentYear năm hiện tại, để chia nhóm năm
+     */
+    static Map<String, List<FacetCountDTO>> rollUp(List<Object[]> rows, List<String> facets, int currentYear) {
+        Map<String, Tally> tallies = new LinkedHashMap<>();
+        facets.forEach(facet -> tallies.put(facet, new Tally()));
+        long[] priceCounts = new long[PRICE_EDGES.length + 1];
+
+        for (Object[] row : rows) {
+            long count = number(row[facets.size()]);
+            if (count == 0) continue;
+            for (int i = 0; i < facets.size(); i++) {
+                String facet = facets.get(i);
+                Object value = row[i];
+                if (value == null) continue;
+                switch (facet) {
+                    // "VinFast" / "vinfast" / "Vin Fast" là cùng một brand
+                    case BRAND -> tallies.get(facet).add(VietnameseText.key(value.toString()), value.toString().trim(), count);
+                    case PROVINCE -> tallies.get(facet).add(VietnameseText.locationKey(value.toString()), value.toString().trim(), count);
+                    case YEAR -> {
+                        int bucket = yearBucket(((Number) value).intValue(), currentYear);
+                        tallies.get(facet).add(String.valueOf(bucket), yearLabel(bucket, currentYear), count);
+                    }
+                    default -> tallies.get(facet).add(value.toString(), value.toString(), count);
+                }
+            }
+            for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+                priceCounts[bucket] += number(row[facets.size() + 1 + bucket]);
+            }
+        }
+
+        Map<String, List<FacetCountDTO>> result = new LinkedHashMap<>();
+        tallies.forEach((facet, tally) -> result.put(facet, facet.equals(YEAR) ? tally.byKey() : tally.byCount()));
+        List<FacetCountDTO> prices = new ArrayList<>();
+        for (int bucket = 0; bucket < priceCounts.length; bucket++) {
+            if (priceCounts[bucket] > 0) prices.add(new FacetCountDTO(priceLabel(bucket), priceCounts[bucket]));
+        }
+        result.put(PRICE, prices);
+        return result;
+    }
+
+    static int yearBucket(int year, int currentYear) {
+        int age = currentYear - year;
+        for (int bucket = 0; bucket < YEAR_AGE_EDGES.length; bucket++) {
+            if (age <= YEAR_AGE_EDGES[bucket]) return bucket;
+        }
+        return YEAR_AGE_EDGES.length;
+    }
+
+    // Ví dụ năm 2026: "2025+", "2022-2024", "2019-2021", "<2019"
+    static String yearLabel(int bucket, int currentYear) {
+        if (bucket == 0) return (currentYear - YEAR_AGE_EDGES[0]) + "+";
+        if (bucket == YEAR_AGE_EDGES.length) return "<" + (currentYear - YEAR_AGE_EDGES[bucket - 1]);
+        return (currentYear - YEAR_AGE_EDGES[bucket]) + "-" + (currentYear - YEAR_AGE_EDGES[bucket - 1] - 1);
+    }
+
+    // Ví dụ: "0-50000000", "50000000-200000000", ..., "1000000000+"
+    static String priceLabel(int bucket) {
+        if (bucket == PRICE_EDGES.length) return PRICE_EDGES[bucket - 1] + "+";
+        return (bucket == 0 ? 0 : PRICE_EDGES[bucket - 1]) + "-" + PRICE_EDGES[bucket];
+    }
+
+    private static long number(Object value) {
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+
+    // Số đếm theo key chuẩn hóa; nhãn hiển thị là cách viết của nhóm lớn nhất gặp được
+    private static final class Tally {
+        private final Map<String, Long> counts = new HashMap<>();
+        private final Map<String, String> labels = new HashMap<>();
+        private final Map<String, Long> labelWeights = new HashMap<>();
+
+        void add(String key, String label, long count) {
+            if (key == null || label.isEmpty()) return;
+            counts.merge(key, count, Long::sum);
+            if (count > labelWeights.getOrDefault(key, 0L)) {
+                labels.put(key, label);
+                labelWeights.put(key, count);
+            }
+        }
+
+        List<FacetCountDTO> byCount() {
+            return counts.entrySet().stream()
+                    .map(e -> new FacetCountDTO(labels.get(e.getKey()), e.getValue()))
+                    .sorted(Comparator.comparingLong(FacetCountDTO::count).reversed()
+                            .thenComparing(FacetCountDTO::value, String.CASE_INSENSITIVE_ORDER))
+                    .toList();
+        }
+
+        List<FacetCountDTO> byKey() {
+            return counts.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(e -> new FacetCountDTO(labels.get(e.getKey()), e.getValue()))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package project.swp.spring.sebt_platform.listing;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+
+/**
+ * Các giá trị facet của một listing (xe/pin + location), đọc bằng constructor expression JPQL.
+ * Listing EV có các cột battery* = null và ngược lại.
+ */
+public record ListingFacetRow(Long id,
+                              ListingStatus status,
+                              String evBrand,
+                              Integer evYear,
+                              String batteryBrand,
+                              String batteryName,
+                              Integer batteryYear,
+                              String compatibleVehicles,
+                              String province,
+                              String district) {
+}
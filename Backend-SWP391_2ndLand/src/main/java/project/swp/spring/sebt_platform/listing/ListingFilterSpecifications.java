@@ -0,0 +1,182 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.model.BatteryEntity;
+import project.swp.spring.sebt_platform.model.EvVehicleEntity;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.LocationEntity;
+import project.swp.spring.sebt_platform.model.ProductEntity;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.util.VietnameseText;
+
+/**
+ * Bộ lọc listing động: chỉ sinh predicate cho các tiêu chí thực sự được truyền vào.
+ * <p>
+ * Thay cho các câu JPQL {@code (:x IS NULL OR ...)} 15 tham số: mỗi tổ hợp filter cho ra
+ * một câu SQL riêng nên SQL Server cache plan theo đúng "hình dạng" filter, và các predicate
+ * đều sargable (không bọc cột trong LOWER cho so sánh bằng) để dùng được
+ * {@code idx_ev_vehicles_*} / {@code idx_batteries_*}.
+ * <p>
+ * Brand, tên pin và tỉnh/quận được so trên các cột shadow {@code *_norm} (bỏ dấu, xem
+ * {@link VietnameseText}) bằng equality hoặc prefix, nên "Ha Noi", "hà nội" và "HANOI" cho cùng kết quả.
+ */
+public final class ListingFilterSpecifications {
+
+    private ListingFilterSpecifications() {
+    }
+
+    public static Specification<ListingEntity> ev(EvFilterFormDTO filter) {
+        return (root, query, cb) -> cb.and(evPredicates(filter, root, query, cb).toArray(Predicate[]::new));
+    }
+
+    public static Specification<ListingEntity> battery(BatteryFilterFormDTO filter) {
+        return (root, query, cb) -> cb.and(batteryPredicates(filter, root, query, cb).toArray(Predicate[]::new));
+    }
+
+    static List<Predicate> evPredicates(EvFilterFormDTO f, From<?, ListingEntity> root,
+                                        CriteriaQuery<?> query, CriteriaBuilder cb) {
+        return evPredicates(f, root, evJoin(root), query, cb);
+    }
+
+    // Inner join product -> evVehicle thay cho "l.product.evVehicle IS NOT NULL"
+    static Join<ProductEntity, EvVehicleEntity> evJoin(From<?, ListingEntity> root) {
+        Join<ListingEntity, ProductEntity> product = root.join("product");
+        return product.join("evVehicle");
+    }
+
+    static Join<ProductEntity, BatteryEntity> batteryJoin(From<?, ListingEntity> root) {
+        Join<ListingEntity, ProductEntity> product = root.join("product");
+        return product.join("battery");
+    }
+
+    /**
+     * Predicate của filter xe trên một join {@code ev} đã có sẵn, để query khác (ví dụ đếm facet)
+     * dùng lại đúng điều kiện lọc và đồng thời select/group theo cột của xe.
+     */
+    static List<Predicate> evPredicates(EvFilterFormDTO f, From<?, ListingEntity> root,
+                                        Join<ProductEntity, EvVehicleEntity> ev,
+                                        CriteriaQuery<?> query, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("status"), ListingStatus.ACTIVE));
+
+        if (f == null) {
+            predicates.add(locationExists(root, query, cb, null, null));
+            return predicates;
+        }
+
+        if (f.year() != null) predicates.add(cb.equal(ev.get("year"), f.year()));
+        if (f.minYear() != null) predicates.add(cb.ge(ev.get("year"), f.minYear()));
+        if (f.maxYear() != null) predicates.add(cb.le(ev.get("year"), f.maxYear()));
+        if (f.vehicleType() != null) predicates.add(cb.equal(ev.get("type"), f.vehicleType()));
+        String brandKey = VietnameseText.key(f.brand());
+        if (brandKey != null) predicates.add(cb.equal(ev.get("brandNorm"), brandKey));
+        if (f.conditionStatus() != null) predicates.add(cb.equal(ev.get("conditionStatus"), f.conditionStatus()));
+        if (f.minMileage() != null) predicates.add(cb.ge(ev.get("mileage"), f.minMileage()));
+        if (f.maxMileage() != null) predicates.add(cb.le(ev.get("mileage"), f.maxMileage()));
+
+        Path<BigDecimal> capacity = ev.get("batteryCapacity");
+        if (f.minBatteryCapacity() != null) predicates.add(cb.ge(capacity, BigDecimal.valueOf(f.minBatteryCapacity())));
+        if (f.maxBatteryCapacity() != null) predicates.add(cb.le(capacity, BigDecimal.valueOf(f.maxBatteryCapacity())));
+
+        addPriceRange(predicates, root, cb, f.minPrice(), f.maxPrice());
+        predicates.add(locationExists(root, query, cb, f.province(), f.district()));
+        return predicates;
+    }
+
+    static List<Predicate> batteryPredicates(BatteryFilterFormDTO f, From<?, ListingEntity> root,
+                                             CriteriaQuery<?> query, CriteriaBuilder cb) {
+        return batteryPredicates(f, root, batteryJoin(root), query, cb);
+    }
+
+    static List<Predicate> batteryPredicates(BatteryFilterFormDTO f, From<?, ListingEntity> root,
+                                             Join<ProductEntity, BatteryEntity> battery,
+                                             CriteriaQuery<?> query, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(root.get("status"), ListingStatus.ACTIVE));
+
+        if (f == null) {
+            predicates.add(locationExists(root, query, cb, null, null));
+            return predicates;
+        }
+
+        String brandKey = VietnameseText.key(f.brand());
+        String nameKey = VietnameseText.key(f.name());
+        if (brandKey != null) predicates.add(cb.equal(battery.get("brandNorm"), brandKey));
+        if (nameKey != null) predicates.add(startsWith(cb, battery.get("nameNorm"), nameKey));
+        if (f.year() != null) predicates.add(cb.equal(battery.get("year"), f.year()));
+        if (f.minYear() != null) predicates.add(cb.ge(battery.get("year"), f.minYear()));
+        if (f.maxYear() != null) predicates.add(cb.le(battery.get("year"), f.maxYear()));
+        if (f.conditionStatus() != null) predicates.add(cb.equal(battery.get("conditionStatus"), f.conditionStatus()));
+        if (hasText(f.compatibility())) {
+            predicates.add(containsIgnoreCase(cb, battery.get("compatibleVehicles"), f.compatibility()));
+        }
+
+        Path<BigDecimal> capacity = battery.get("capacity");
+        if (f.minBatteryCapacity() != null) predicates.add(cb.ge(capacity, BigDecimal.valueOf(f.minBatteryCapacity())));
+        if (f.maxBatteryCapacity() != null) predicates.add(cb.le(capacity, BigDecimal.valueOf(f.maxBatteryCapacity())));
+        if (f.minHealthPercentage() != null) predicates.add(cb.ge(battery.get("healthPercentage"), f.minHealthPercentage()));
+        if (f.maxHealthPercentage() != null) predicates.add(cb.le(battery.get("healthPercentage"), f.maxHealthPercentage()));
+
+        addPriceRange(predicates, root, cb, f.minPrice(), f.maxPrice());
+        predicates.add(locationExists(root, query, cb, f.province(), f.district()));
+        return predicates;
+    }
+
+    private static void addPriceRange(List<Predicate> predicates, From<?, ListingEntity> root, CriteriaBuilder cb,
+                                      Double minPrice, Double maxPrice) {
+        Path<BigDecimal> price = root.get("price");
+        if (minPrice != null) predicates.add(cb.ge(price, BigDecimal.valueOf(minPrice)));
+        if (maxPrice != null) predicates.add(cb.le(price, BigDecimal.valueOf(maxPrice)));
+    }
+
+    /**
+     * Listing phải có location (giữ nguyên ngữ nghĩa JOIN cũ); province/district chỉ được
+     * thêm vào subquery khi có giá trị. Dùng EXISTS để không nhân bản dòng và không ảnh hưởng COUNT.
+     */
+    private static Predicate locationExists(From<?, ListingEntity> root, CriteriaQuery<?> query, CriteriaBuilder cb,
+                                            String province, String district) {
+        Subquery<Long> sub = query.subquery(Long.class);
+        Root<LocationEntity> location = sub.from(LocationEntity.class);
+        List<Predicate> conditions = new ArrayList<>();
+        conditions.add(cb.equal(location.get("listing").get("id"), root.get("id")));
+        String provinceKey = VietnameseText.locationKey(province);
+        String districtKey = VietnameseText.locationKey(district);
+        if (provinceKey != null) conditions.add(startsWith(cb, location.get("provinceNorm"), provinceKey));
+        if (districtKey != null) {
+            // "Quận 1" -> "1": so sánh bằng để không khớp nhầm "10", "11"...
+            conditions.add(districtKey.chars().allMatch(Character::isDigit)
+                    ? cb.equal(location.get("districtNorm"), districtKey)
+                    : startsWith(cb, location.get("districtNorm"), districtKey));
+        }
+        sub.select(location.get("id")).where(conditions.toArray(Predicate[]::new));
+        return cb.exists(sub);
+    }
+
+    // Cột *_norm đã bỏ dấu/chữ thường nên LIKE 'key%' dùng được index
+    private static Predicate startsWith(CriteriaBuilder cb, Path<String> path, String key) {
+        return cb.like(path, key + "%");
+    }
+
+    private static Predicate containsIgnoreCase(CriteriaBuilder cb, Path<String> path, String value) {
+        return cb.like(cb.lower(path), "%" + value.trim().toLowerCase() + "%");
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,22 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.time.LocalDateTime;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+
+/**
+ * Các trường văn bản của một listing được đưa vào {@link ListingSearchIndex}.
+ * Đọc bằng constructor expression JPQL (listing + product EV/pin + location) trong một SELECT.
+ */
+public record ListingSearchDocument(Long id,
+                                    ListingStatus status,
+                                    String title,
+                                    String description,
+                                    String evBrand,
+                                    String evName,
+                                    String batteryBrand,
+                                    String batteryName,
+                                    String province,
+                                    String district,
+                                    LocalDateTime createdAt) {
+}
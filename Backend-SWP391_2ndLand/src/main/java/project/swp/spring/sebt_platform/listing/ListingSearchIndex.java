@@ -0,0 +1,312 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+import project.swp.spring.sebt_platform.util.VietnameseText;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm từ khóa trên listing ACTIVE.
+ * <p>
+ * Index gồm title, description, brand/tên xe hoặc pin và tỉnh/quận. Mỗi term trỏ tới
+ * {@code listingId -> trọng số} (title nặng hơn description). Truy vấn là AND của các term,
+ * term cuối được mở rộng theo prefix; kết quả xếp theo điểm tf-idf rồi tới bài mới nhất.
+ * Term được bỏ dấu qua {@link VietnameseText} nên không phân biệt "hà nội" / "Ha Noi" / "HANOI".
+ * <p>
+ * Index được dựng lại từ DB khi ứng dụng khởi động. Thay đổi listing chỉ đánh dấu "dirty"
+ * (qua {@link ListingChangeListener}, sau khi transaction commit); job định kỳ đọc lại các listing đó
+ * và cập nhật index. Vì id chỉ được đánh dấu sau commit nên lần đọc lại luôn thấy bản đã commit.
+ */
+@Component
+public class ListingSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingSearchIndex.class);
+
+    static final int TITLE_WEIGHT = 3;
+    static final int PRODUCT_WEIGHT = 2;
+    static final int TEXT_WEIGHT = 1;
+    // Giới hạn trọng số một term trong một listing để description dài không lấn át title
+    private static final int MAX_TERM_WEIGHT = 10;
+
+    private final ListingRepository listingRepository;
+    private final int batchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private Map<Long, IndexedListing> listings = new HashMap<>();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public ListingSearchIndex(ListingRepository listingRepository,
+                              @Value("${app.listing.search.batchSize:1000}") int batchSize) {
+        this.listingRepository = listingRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Kết quả tìm kiếm: id theo thứ hạng của trang được yêu cầu và tổng số listing khớp.
+     */
+    public record Hits(List<Long> ids, long total) {
+        public static Hits empty() {
+            return new Hits(List.of(), 0);
+        }
+    }
+
+    private record IndexedListing(Set<String> terms, LocalDateTime createdAt) {
+    }
+
+    private record Scored(Long id, double score, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Dựng lại toàn bộ index từ DB, đọc theo lô id tăng dần.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        TreeMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        Map<Long, IndexedListing> newListings = new HashMap<>();
+        try {
+            long afterId = 0;
+            List<ListingSearchDocument> batch;
+            do {
+                batch = listingRepository.findSearchDocuments(ListingStatus.ACTIVE, afterId, PageRequest.of(0, batchSize));
+                for (ListingSearchDocument doc : batch) {
+                    add(doc, newPostings, newListings);
+                    afterId = doc.id();
+                }
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            logger.error("[SEARCH_INDEX] Rebuild failed, keyword search falls back to database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            listings = newListings;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("[SEARCH_INDEX] Indexed {} listings ({} terms) in {} ms",
+                newListings.size(), newPostings.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return listings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Đánh dấu listing cần đọc lại ở lần refresh kế tiếp.
+     */
+    public void markDirty(Long listingId) {
+        if (listingId != null) {
+            dirty.add(listingId);
+        }
+    }
+
+    /**
+     * Đọc lại các listing dirty trong một query và cập nhật index.
+     * Listing không còn ACTIVE (hoặc đã bị xóa) sẽ bị gỡ khỏi index.
+     *
+     * @return số listing đã xử lý
+     */
+    @Scheduled(fixedDelayString = "${app.listing.search.refreshIntervalMillis:1000}")
+    public int refresh() {
+        if (!ready || dirty.isEmpty()) return 0;
+
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        try {
+            Map<Long, ListingSearchDocument> docs = new HashMap<>();
+            for (ListingSearchDocument doc : listingRepository.findSearchDocumentsByIds(ids)) {
+                docs.put(doc.id(), doc);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long id : ids) {
+                    removeLocked(id);
+                    ListingSearchDocument doc = docs.get(id);
+                    if (doc != null && doc.status() == ListingStatus.ACTIVE) {
+                        add(doc, postings, listings);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return ids.size();
+        } catch (Exception e) {
+            logger.error("[SEARCH_INDEX] Refresh failed for {} listings, will retry", ids.size(), e);
+            dirty.addAll(ids);
+            return 0;
+        }
+    }
+
+    /**
+     * Tìm listing khớp tất cả từ khóa.
+     *
+     * @param query  chuỗi người dùng nhập
+     * @param offset vị trí bắt đầu (page * size)
+     * @param limit  số kết quả tối đa
+     */
+    public Hits search(String query, int offset, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) return Hits.empty();
+
+        lock.readLock().lock();
+        try {
+            int n = listings.size();
+            List<Map<Long, Integer>> matches = new ArrayList<>(terms.size());
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Map<Long, Integer> match = last ? prefixMatches(terms.get(i)) : postings.get(terms.get(i));
+                if (match == null || match.isEmpty()) return Hits.empty();
+                matches.add(match);
+            }
+            // Giao từ danh sách nhỏ nhất để số phép tra cứu tỉ lệ với term hiếm nhất
+            matches.sort(Comparator.comparingInt(Map::size));
+            double[] idf = matches.stream().mapToDouble(m -> Math.log(1.0 + (double) n / m.size())).toArray();
+
+            int wanted = offset + limit;
+            Comparator<Scored> ranking = Comparator.comparingDouble(Scored::score)
+                    .thenComparing(Scored::createdAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Scored::id);
+            PriorityQueue<Scored> top = new PriorityQueue<>(ranking);
+            long total = 0;
+
+            outer:
+            for (Map.Entry<Long, Integer> candidate : matches.get(0).entrySet()) {
+                Long id = candidate.getKey();
+                double score = candidate.getValue() * idf[0];
+                for (int i = 1; i < matches.size(); i++) {
+                    Integer weight = matches.get(i).get(id);
+                    if (weight == null) continue outer;
+                    score += weight * idf[i];
+                }
+                total++;
+                top.offer(new Scored(id, score, listings.get(id).createdAt()));
+                if (top.size() > wanted) top.poll();
+            }
+
+            List<Scored> ranked = new ArrayList<>(top);
+            ranked.sort(ranking.reversed());
+            if (offset >= ranked.size()) return new Hits(List.of(), total);
+            return new Hits(ranked.subList(offset, ranked.size()).stream().map(Scored::id).toList(), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Gộp postings của mọi term bắt đầu bằng prefix (lấy trọng số lớn nhất cho mỗi listing)
+    private Map<Long, Integer> prefixMatches(String prefix) {
+        Map<String, Map<Long, Integer>> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.size() == 1) return range.values().iterator().next();
+        Map<Long, Integer> merged = new HashMap<>();
+        for (Map<Long, Integer> posting : range.values()) {
+            posting.forEach((id, weight) -> merged.merge(id, weight, Math::max));
+        }
+        return merged;
+    }
+
+    private void removeLocked(Long listingId) {
+        IndexedListing existing = listings.remove(listingId);
+        if (existing == null) return;
+        for (String term : existing.terms()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting == null) continue;
+            posting.remove(listingId);
+            if (posting.isEmpty()) postings.remove(term);
+        }
+    }
+
+    private static void add(ListingSearchDocument doc,
+                            TreeMap<String, Map<Long, Integer>> postings,
+                            Map<Long, IndexedListing> listings) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, doc.title(), TITLE_WEIGHT);
+        addField(weights, doc.evBrand(), PRODUCT_WEIGHT);
+        addField(weights, doc.evName(), PRODUCT_WEIGHT);
+        addField(weights, doc.batteryBrand(), PRODUCT_WEIGHT);
+        addField(weights, doc.batteryName(), PRODUCT_WEIGHT);
+        addField(weights, doc.description(), TEXT_WEIGHT);
+        addField(weights, doc.province(), TEXT_WEIGHT);
+        addField(weights, doc.district(), TEXT_WEIGHT);
+        addKey(weights, doc.evBrand(), PRODUCT_WEIGHT);
+        addKey(weights, doc.batteryBrand(), PRODUCT_WEIGHT);
+        addKey(weights, doc.province(), TEXT_WEIGHT);
+        addKey(weights, doc.district(), TEXT_WEIGHT);
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(doc.id(), weight));
+        listings.put(doc.id(), new IndexedListing(Set.copyOf(weights.keySet()), doc.createdAt()));
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, (a, b) -> Math.min(MAX_TERM_WEIGHT, a + b));
+        }
+    }
+
+    // Token không dấu: "Hà Nội" và "ha noi" cho cùng term
+    static List<String> tokenize(String text) {
+        return VietnameseText.tokens(text);
+    }
+
+    // Thêm dạng viết liền ("hanoi", "vinfast") cho các trường tên riêng người dùng hay gõ dính
+    private static void addKey(Map<String, Integer> weights, String text, int weight) {
+        String key = VietnameseText.key(text);
+        if (key != null && key.length() > 1) {
+            weights.merge(key, weight, Math::max);
+        }
+    }
+
+    /**
+     * Thêm trực tiếp tài liệu vào index (dùng khi nạp dữ liệu ngoài luồng rebuild, ví dụ trong test).
+     */
+    void indexAll(Collection<ListingSearchDocument> docs) {
+        lock.writeLock().lock();
+        try {
+            for (ListingSearchDocument doc : docs) {
+                removeLocked(doc.id());
+                if (doc.status() == ListingStatus.ACTIVE) add(doc, postings, listings);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package project.swp.spring.sebt_platform.listing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bộ đệm lượt xem listing trong bộ nhớ.
+ * <p>
+ * Mỗi lượt xem chỉ cộng vào một {@link LongAdder} theo listing id (không mở transaction,
+ * không khóa row). Job định kỳ gom các delta và ghi xuống DB bằng một batch
+ * {@code UPDATE listings SET views_count = views_count + ?}, nên nhiều lượt xem đồng thời
+ * không còn ghi đè nhau. Lượt xem chưa flush vẫn được cộng khi đọc qua {@link #pending(Long)}
+ * và được flush nốt khi ứng dụng tắt.
+ * <p>
+ * Adder của listing không có lượt xem nào trong cả một chu kỳ flush bị bỏ khỏi map, nên map chỉ chứa các
+ * listing đang được xem chứ không lớn dần theo mọi listing từng được xem.
+ */
+@Component
+public class ListingViewCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListingViewCounter.class);
+
+    private static final String FLUSH_SQL =
+            "UPDATE listings SET views_count = COALESCE(views_count, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Chỉ chứa listing có lượt xem từ chu kỳ flush trước; adder rảnh được dọn trong flush()
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public ListingViewCounter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Ghi nhận một lượt xem cho listing.
+     */
+    public void record(Long listingId) {
+        if (listingId == null) return;
+        add(listingId, 1);
+    }
+
+    /**
+     * Số lượt xem đã ghi nhận nhưng chưa flush xuống DB.
+     */
+    public long pending(Long listingId) {
+        if (listingId == null) return 0;
+        LongAdder adder = pending.get(listingId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Số listing đang có adder trong map
+    int tracked() {
+        return pending.size();
+    }
+
+    /**
+     * Giá trị hiển thị = lượt xem trong DB + phần chưa flush.
+     */
+    public int merge(Long listingId, Integer storedViews) {
+        long total = (storedViews == null ? 0 : storedViews) + pending(listingId);
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    /**
+     * Gom các delta đang chờ và ghi xuống DB trong một batch UPDATE.
+     * Nếu ghi lỗi, delta được cộng trả lại bộ đệm để lần flush sau thử lại.
+     *
+     * @return số listing đã được cập nhật
+     */
+    @Scheduled(fixedDelayString = "${app.listing.views.flushIntervalMillis:5000}")
+    public int flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<Map.Entry<Long, LongAdder>> idle = new ArrayList<>();
+        pending.forEach((listingId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, listingId});
+            } else {
+                idle.add(Map.entry(listingId, adder));
+            }
+        });
+        if (batch.isEmpty()) {
+            prune(idle);
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            logger.debug("[VIEW_COUNTER] Flushed view deltas for {} listings", batch.size());
+        } catch (Exception e) {
+            logger.error("[VIEW_COUNTER] Flush failed for {} listings, re-queueing deltas", batch.size(), e);
+            for (Object[] row : batch) {
+                add((Long) row[1], (Long) row[0]);
+            }
+            return 0;
+        }
+        prune(idle);
+        return batch.size();
+    }
+
+    // Bỏ các adder vẫn bằng 0. Lượt xem cộng vào adder ngay lúc nó bị bỏ được add() hoặc bước lấy lại
+    // bên dưới chuyển sang adder mới.
+    private void prune(List<Map.Entry<Long, LongAdder>> idle) {
+        for (Map.Entry<Long, LongAdder> entry : idle) {
+            LongAdder adder = entry.getValue();
+            if (adder.sum() == 0 && pending.remove(entry.getKey(), adder)) {
+                add(entry.getKey(), adder.sumThenReset());
+            }
+        }
+    }
+
+    // Cộng delta vào adder đang nằm trong map. Nếu adder vừa bị prune() bỏ thì lấy lại phần đã cộng
+    // (sumThenReset: mỗi lượt chỉ một bên lấy được) và cộng sang adder mới, nên không mất và không đếm trùng.
+    private void add(Long listingId, long delta) {
+        while (delta > 0) {
+            LongAdder adder = pending.computeIfAbsent(listingId, id -> new LongAdder());
+            adder.add(delta);
+            if (pending.get(listingId) == adder) return;
+            delta = adder.sumThenReset();
+        }
+    }
+
+    /**
+     * Flush phần còn lại khi ứng dụng tắt (graceful shutdown), trước khi DataSource bị đóng.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = flush();
+        logger.info("[VIEW_COUNTER] Shutdown flush wrote view deltas for {} listings", flushed);
+    }
+}
@@ -19,15 +19,20 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import project.swp.spring.sebt_platform.model.enums.BatteryCondition;
+import project.swp.spring.sebt_platform.util.VietnameseText;
 
 @Entity
 @Table(name = "batteries",
     indexes = {
         @Index(name = "idx_batteries_brand", columnList = "brand"),
         @Index(name = "idx_batteries_capacity", columnList = "capacity"),
-        @Index(name = "idx_batteries_health_percentage", columnList = "health_percentage")
+        @Index(name = "idx_batteries_health_percentage", columnList = "health_percentage"),
+        @Index(name = "idx_batteries_brand_norm", columnList = "brand_norm"),
+        @Index(name = "idx_batteries_name_norm", columnList = "name_norm")
     }
 )
 public class BatteryEntity {
@@ -57,6 +62,20 @@ public class BatteryEntity {
     @Column(name = "condition_status", nullable = false, length = 30, columnDefinition = "NVARCHAR(20)")
     private BatteryCondition conditionStatus = BatteryCondition.GOOD;
 
+    // Shadow columns: key không dấu/không khoảng trắng cho filter (xem VietnameseText)
+    @Column(name = "brand_norm", length = 50, columnDefinition = "VARCHAR(50)")
+    private String brandNorm;
+
+    @Column(name = "name_norm", length = 100, columnDefinition = "VARCHAR(100)")
+    private String nameNorm;
+
+    @PrePersist
+    @PreUpdate
+    protected void normalize() {
+        this.brandNorm = VietnameseText.key(brand);
+        this.nameNorm = VietnameseText.key(name);
+    }
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
     private LocalDateTime createdAt;
@@ -102,6 +121,14 @@ public class BatteryEntity {
         this.brand = brand;
     }
 
+    public String getBrandNorm() {
+        return brandNorm;
+    }
+
+    public String getNameNorm() {
+        return nameNorm;
+    }
+
     public Integer getYear() {
         return year;
     }
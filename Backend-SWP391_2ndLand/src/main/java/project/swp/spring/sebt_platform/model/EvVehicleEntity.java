@@ -19,16 +19,20 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
 import project.swp.spring.sebt_platform.model.enums.VehicleType;
+import project.swp.spring.sebt_platform.util.VietnameseText;
 
 @Entity
 @Table(name = "ev_vehicles",
     indexes = {
         @Index(name = "idx_ev_vehicles_brand", columnList = "brand"),
         @Index(name = "idx_ev_vehicles_type", columnList = "type"),
-        @Index(name = "idx_ev_vehicles_year", columnList = "year")
+        @Index(name = "idx_ev_vehicles_year", columnList = "year"),
+        @Index(name = "idx_ev_vehicles_brand_norm", columnList = "brand_norm")
     }
 )
 public class EvVehicleEntity {
@@ -59,6 +63,16 @@ public class EvVehicleEntity {
     @Column(name = "condition_status", nullable = false, length = 20, columnDefinition = "NVARCHAR(20)")
     private VehicleCondition conditionStatus = VehicleCondition.GOOD;
 
+    // Shadow column: key không dấu/không khoảng trắng cho filter (xem VietnameseText)
+    @Column(name = "brand_norm", length = 50, columnDefinition = "VARCHAR(50)")
+    private String brandNorm;
+
+    @PrePersist
+    @PreUpdate
+    protected void normalize() {
+        this.brandNorm = VietnameseText.key(brand);
+    }
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
     private LocalDateTime createdAt;
@@ -111,6 +125,10 @@ public class EvVehicleEntity {
         this.brand = brand;
     }
 
+    public String getBrandNorm() {
+        return brandNorm;
+    }
+
     public Integer getYear() {
         return year;
     }
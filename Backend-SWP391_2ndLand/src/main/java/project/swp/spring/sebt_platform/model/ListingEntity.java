@@ -8,6 +8,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
@@ -19,6 +20,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import project.swp.spring.sebt_platform.listing.ListingChangeListener;
 import project.swp.spring.sebt_platform.model.enums.ListingStatus;
 import project.swp.spring.sebt_platform.model.enums.ListingType;
 
@@ -29,9 +31,14 @@ import project.swp.spring.sebt_platform.model.enums.ListingType;
         @Index(name = "idx_listings_status", columnList = "status"),
         @Index(name = "idx_listings_listing_type", columnList = "listing_type"),
         @Index(name = "idx_listings_created_at", columnList = "created_at"),
-        @Index(name = "idx_listings_status_expires_at", columnList = "status, expires_at")
+        @Index(name = "idx_listings_status_expires_at", columnList = "status, expires_at"),
+        // Keyset pagination: seek trên (created_at, id) theo status / seller
+        @Index(name = "idx_listings_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_listings_seller_created_at_id", columnList = "seller_id, created_at, id")
     }
 )
+// Đánh dấu listing cần cập nhật search index / facet cache mỗi khi thay đổi
+@EntityListeners(ListingChangeListener.class)
 public class ListingEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -68,7 +75,9 @@ public class ListingEntity {
     @Column(name = "price", nullable = false, precision = 18, scale = 2, columnDefinition = "DECIMAL(18,2)")
     private BigDecimal price;
 
-    @Column(name = "views_count", columnDefinition = "INT DEFAULT 0")
+    // Chỉ ListingViewCounter ghi cột này (UPDATE cộng dồn bằng JDBC); không để các lần save cả entity
+    // (duyệt tin, thanh toán...) ghi đè giá trị cũ đã load lên các lượt xem vừa flush
+    @Column(name = "views_count", columnDefinition = "INT DEFAULT 0", updatable = false)
     private Integer viewsCount = 0;
 
     @Column(name = "expires_at", columnDefinition = "DATETIME2")
@@ -1,9 +1,14 @@
 package project.swp.spring.sebt_platform.model;
 
 import jakarta.persistence.*;
+import project.swp.spring.sebt_platform.util.VietnameseText;
 
 @Entity
-@Table(name = "location")
+@Table(name = "location",
+    indexes = {
+        @Index(name = "idx_location_province_district_norm", columnList = "province_norm, district_norm")
+    }
+)
 public class LocationEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,6 +27,20 @@ public class LocationEntity {
     @Column(name = "details", columnDefinition = "NVARCHAR(MAX)")
     private String details;
 
+    // Shadow columns: bỏ dấu/khoảng trắng/tiền tố hành chính, dùng cho filter (xem VietnameseText)
+    @Column(name = "province_norm", length = 60, columnDefinition = "VARCHAR(60)")
+    private String provinceNorm;
+
+    @Column(name = "district_norm", length = 100, columnDefinition = "VARCHAR(100)")
+    private String districtNorm;
+
+    @PrePersist
+    @PreUpdate
+    protected void normalize() {
+        this.provinceNorm = VietnameseText.locationKey(province);
+        this.districtNorm = VietnameseText.locationKey(district);
+    }
+
     // Constructors
     public LocationEntity() {}
 
@@ -61,6 +80,14 @@ public class LocationEntity {
         this.district = district;
     }
 
+    public String getProvinceNorm() {
+        return provinceNorm;
+    }
+
+    public String getDistrictNorm() {
+        return districtNorm;
+    }
+
     public String getDetails() {
         return details;
     }
@@ -0,0 +1,128 @@
+package project.swp.spring.sebt_platform.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả định giá AI đã lưu bền vững (tầng cache thứ hai sau cache trong bộ nhớ), để deploy/restart
+ * không làm mất các giá Gemini đã tính. Key là SHA-256 của cache key vì cache key có thể dài.
+ */
+@Entity
+@Table(name = "pricing_results",
+    indexes = {
+        @Index(name = "idx_pricing_results_prompt_version", columnList = "prompt_version"),
+        @Index(name = "idx_pricing_results_brand", columnList = "brand"),
+        @Index(name = "idx_pricing_results_updated_at", columnList = "updated_at")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_pricing_results_key_hash", columnNames = "key_hash")
+    }
+)
+public class PricingResultEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "key_hash", length = 64, nullable = false, unique = true, columnDefinition = "VARCHAR(64)")
+    private String keyHash;
+
+    @Column(name = "cache_key", nullable = false, columnDefinition = "NVARCHAR(MAX)")
+    private String cacheKey;
+
+    @Column(name = "brand", length = 100, columnDefinition = "NVARCHAR(100)")
+    private String brand;
+
+    @Column(name = "prompt_version", length = 20, nullable = false, columnDefinition = "VARCHAR(20)")
+    private String promptVersion;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "NVARCHAR(MAX)")
+    private String payload;
+
+    @Column(name = "expires_at", columnDefinition = "DATETIME2")
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false, columnDefinition = "DATETIME2")
+    private LocalDateTime updatedAt;
+
+    public PricingResultEntity() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getKeyHash() {
+        return keyHash;
+    }
+
+    public void setKeyHash(String keyHash) {
+        this.keyHash = keyHash;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
+    public void setPromptVersion(String promptVersion) {
+        this.promptVersion = promptVersion;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
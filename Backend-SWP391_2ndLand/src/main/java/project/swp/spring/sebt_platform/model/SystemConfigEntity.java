@@ -38,6 +38,13 @@ public class SystemConfigEntity {
     @Column(name = "is_active", columnDefinition = "BIT DEFAULT 1")
     private Boolean isActive = true;
 
+    // Tăng mỗi lần cập nhật; SystemConfigRegistry dùng để phát hiện thay đổi từ node khác.
+    // Không khởi tạo (giống WalletEntity): version null là dấu hiệu entity mới để save() persist thay vì merge;
+    // Hibernate ghi 0 khi insert
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
     private LocalDateTime createdAt;
@@ -111,6 +118,14 @@ public class SystemConfigEntity {
         this.isActive = isActive;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
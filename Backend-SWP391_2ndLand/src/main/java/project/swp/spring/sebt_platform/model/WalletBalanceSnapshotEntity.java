@@ -0,0 +1,61 @@
+package project.swp.spring.sebt_platform.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Số dư của một ví tính đến giao dịch có {@code ledger_seq = lastLedgerSeq} (ledger append-only).
+ * Số dư hiện tại = snapshot mới nhất + tổng amount của các giao dịch có ledger_seq lớn hơn. Chỉ thêm, không sửa.
+ */
+@Entity
+@Table(name = "wallet_balance_snapshots",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wallet_balance_snapshots_wallet_seq", columnNames = {"wallet_id", "last_ledger_seq"})
+    }
+)
+public class WalletBalanceSnapshotEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "last_ledger_seq", nullable = false)
+    private Long lastLedgerSeq;
+
+    @Column(name = "balance", nullable = false, precision = 18, scale = 2, columnDefinition = "DECIMAL(18,2)")
+    private BigDecimal balance;
+
+    // Số giao dịch được gộp từ snapshot trước
+    @Column(name = "compacted_entries", nullable = false)
+    private Long compactedEntries;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
+    private LocalDateTime createdAt;
+
+    public WalletBalanceSnapshotEntity() {
+    }
+
+    public WalletBalanceSnapshotEntity(Long walletId, Long lastLedgerSeq, BigDecimal balance, Long compactedEntries) {
+        this.walletId = walletId;
+        this.lastLedgerSeq = lastLedgerSeq;
+        this.balance = balance;
+        this.compactedEntries = compactedEntries;
+    }
+
+    public Long getId() { return id; }
+    public Long getWalletId() { return walletId; }
+    public void setWalletId(Long walletId) { this.walletId = walletId; }
+    public Long getLastLedgerSeq() { return lastLedgerSeq; }
+    public void setLastLedgerSeq(Long lastLedgerSeq) { this.lastLedgerSeq = lastLedgerSeq; }
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+    public Long getCompactedEntries() { return compactedEntries; }
+    public void setCompactedEntries(Long compactedEntries) { this.compactedEntries = compactedEntries; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -16,7 +16,10 @@ import java.time.LocalDateTime;
     @Index(name = "idx_wallet_transactions_status", columnList = "status"),
     @Index(name = "idx_wallet_transactions_purpose", columnList = "purpose"),
     @Index(name = "idx_wallet_transactions_user", columnList = "user_id"),
-    @Index(name = "idx_wallet_transactions_created_at", columnList = "created_at")})
+    @Index(name = "idx_wallet_transactions_created_at", columnList = "created_at"),
+    // Unique: ledger_seq được cấp MAX+1 và LedgerChainVerifier dựa vào thứ tự duy nhất trong ví. Cột nullable
+    // (PENDING/FAILED) nên trên SQL Server Hibernate tạo index có lọc "WHERE ledger_seq IS NOT NULL"
+    @Index(name = "uk_wallet_transactions_wallet_seq", columnList = "wallet_id, ledger_seq", unique = true)})
 public class WalletTransactionEntity {
 
     @Id
@@ -69,6 +72,11 @@ public class WalletTransactionEntity {
     @Column(name = "metadata", columnDefinition = "NVARCHAR(MAX)")
     private String metadata;
 
+    // Thứ tự ghi sổ trong ví (1, 2, 3...), gán khi giao dịch thực sự làm đổi số dư; null khi PENDING/FAILED.
+    // Top-up tạo trước nhưng hoàn tất sau nên thứ tự id không phải thứ tự số dư.
+    @Column(name = "ledger_seq")
+    private Long ledgerSeq;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false, columnDefinition = "DATETIME2")
     private LocalDateTime createdAt;
@@ -126,6 +134,8 @@ public class WalletTransactionEntity {
     public void setDescription(String description) { this.description = description; }
     public String getMetadata() { return metadata; }
     public void setMetadata(String metadata) { this.metadata = metadata; }
+    public Long getLedgerSeq() { return ledgerSeq; }
+    public void setLedgerSeq(Long ledgerSeq) { this.ledgerSeq = ledgerSeq; }
     public WalletEntity getWallet() { return wallet; }
     public void setWallet(WalletEntity wallet) { this.wallet = wallet; }
 
@@ -0,0 +1,84 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker đơn giản cho lời gọi Gemini.
+ * <p>
+ * CLOSED: cho qua mọi lời gọi, đếm số lần lỗi liên tiếp. Đạt {@code failureThreshold} thì chuyển OPEN:
+ * từ chối ngay (pricing dùng heuristic) trong {@code openMillis}. Hết thời gian thì HALF_OPEN: cho đúng
+ * một lời gọi thử; thành công thì đóng lại, thất bại thì mở thêm một chu kỳ.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Ảnh chụp trạng thái để hiển thị trên health endpoint.
+     */
+    public record Snapshot(State state, int consecutiveFailures, long rejected, long opened) {
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier ticker;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long rejected;
+    private long opened;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier ticker) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = Math.max(0, openMillis) * 1_000_000L;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return true nếu được phép gọi upstream; caller phải báo lại kết quả qua
+     * {@link #onSuccess()} hoặc {@link #onFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && ticker.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) opened++;
+            state = State.OPEN;
+            openedAt = ticker.getAsLong();
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(state, consecutiveFailures, rejected, opened);
+    }
+}
@@ -0,0 +1,431 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import project.swp.spring.sebt_platform.config.AiConfig;
+
+/**
+ * Client gọi Gemini {@code generateContent} không chặn thread, dựng trên httpclient5 async.
+ * <p>
+ * - Pool kết nối dùng chung, HTTP/2 khi server hỗ trợ (ALPN), timeout kết nối/attempt riêng.<br>
+ * - Retry lỗi tạm thời (429/5xx/IO) được hẹn giờ bằng {@link CompletableFuture#delayedExecutor},
+ *   không {@code Thread.sleep} trên thread của Tomcat; 500/503 chuyển sang fallback model.<br>
+ * - Mỗi lời gọi có deadline tổng (kể cả retry).<br>
+ * - {@link CircuitBreaker}: khi Gemini lỗi liên tục, lời gọi thất bại ngay bằng
+ *   {@link CircuitOpenException} để pricing dùng thẳng heuristic/baseline.<br>
+ * - {@link #streamGenerateContent}: đọc response SSE theo từng chunk bằng {@link GeminiStreamParser},
+ *   không giữ cả body trong bộ nhớ, báo giá ngay khi model viết xong {@code suggestedPrice}.
+ */
+@Component
+public class GeminiClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+    private static final String PATH_TEMPLATE = "/v1beta/models/%s:generateContent";
+    private static final String STREAM_PATH_TEMPLATE = "/v1beta/models/%s:streamGenerateContent?alt=sse";
+    private static final int MAX_ERROR_BODY_BYTES = 1024;
+    private static final long MAX_BACKOFF_MILLIS = 4000;
+
+    /**
+     * Phản hồi 2xx của Gemini: body thô, model đã trả lời (có thể là fallback model) và số attempt.
+     */
+    public record Reply(String body, String model, int attempts) {
+    }
+
+    /**
+     * Kết quả của lời gọi stream: text đã phân tích xong, model đã trả lời và số attempt.
+     */
+    public record StreamReply(GeminiResponseParser.ParseResult result, String model, int attempts) {
+    }
+
+    /**
+     * Bộ đếm từ lúc khởi động: lời gọi đã gửi đi (qua được breaker), số attempt HTTP, số lần retry
+     * ({@code attempts - calls}) và lời gọi kết thúc bằng lỗi (hết retry, quá deadline).
+     */
+    public record Stats(long calls, long attempts, long retries, long failures) {
+    }
+
+    /**
+     * Lời gọi thất bại sau khi hết retry; {@code status} = 0 nghĩa là lỗi kết nối/timeout.
+     */
+    public static class GeminiCallException extends RuntimeException {
+        private final int status;
+        private final int attempts;
+
+        public GeminiCallException(int status, int attempts, String message) {
+            super(message);
+            this.status = status;
+            this.attempts = attempts;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+
+    /**
+     * Circuit đang mở: không gọi upstream.
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        public CircuitOpenException() {
+            super("Gemini circuit breaker is open");
+        }
+    }
+
+    private final AiConfig aiConfig;
+    private final CircuitBreaker breaker;
+    private final CloseableHttpAsyncClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GeminiResponseParser responseParser = new GeminiResponseParser();
+    private final LongAdder callCount = new LongAdder();
+    private final LongAdder attemptCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    public GeminiClient(AiConfig aiConfig) {
+        this.aiConfig = aiConfig;
+        this.breaker = new CircuitBreaker(aiConfig.getBreakerFailureThreshold(), aiConfig.getBreakerOpenMillis());
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(Math.max(1, aiConfig.getMaxConnections()))
+                .setMaxConnPerRoute(Math.max(1, aiConfig.getMaxConnections()))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(aiConfig.getConnectTimeoutMillis()))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .build();
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoTimeout(Timeout.ofMilliseconds(aiConfig.getResponseTimeoutMillis()))
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(aiConfig.getConnectTimeoutMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(aiConfig.getResponseTimeoutMillis()))
+                        .build())
+                // Retry do client này tự quản lý (có backoff + đổi model)
+                .disableAutomaticRetries()
+                .build();
+        this.httpClient.start();
+    }
+
+    public boolean isConfigured() {
+        String key = aiConfig.getGeminiApiKey();
+        return key != null && !key.isBlank();
+    }
+
+    public CircuitBreaker.Snapshot breakerSnapshot() {
+        return breaker.snapshot();
+    }
+
+    public Stats stats() {
+        long sent = callCount.sum();
+        long tried = attemptCount.sum();
+        return new Stats(sent, tried, Math.max(0, tried - sent), failureCount.sum());
+    }
+
+    /**
+     * Gửi một prompt tới Gemini.
+     *
+     * @return future hoàn tất với {@link Reply}, hoặc lỗi {@link GeminiCallException},
+     * {@link CircuitOpenException}, {@link TimeoutException} (quá deadline)
+     */
+    public CompletableFuture<Reply> generateContent(String model, String prompt) {
+        return start(prompt, body -> new UnaryCall(model, body));
+    }
+
+    /**
+     * Gửi prompt tới {@code streamGenerateContent} (SSE). {@code onPrice} được gọi tối đa một lần, trên
+     * I/O thread của client, ngay khi {@code suggestedPrice} xuất hiện trong stream; kết quả đầy đủ
+     * (reasoning, evidence) có khi stream kết thúc. Retry, deadline và circuit breaker như
+     * {@link #generateContent}.
+     */
+    public CompletableFuture<StreamReply> streamGenerateContent(String model, String prompt, DoubleConsumer onPrice) {
+        return start(prompt, body -> new StreamCall(model, body, onPrice));
+    }
+
+    private <T> CompletableFuture<T> start(String prompt, Function<String, Call<T>> newCall) {
+        if (!isConfigured()) {
+            return CompletableFuture.failedFuture(new GeminiCallException(0, 0, "Gemini API key not configured"));
+        }
+        if (!breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new CircuitOpenException());
+        }
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(Map.of(
+                    "contents", List.of(Map.of("parts", List.of(Map.of("text", prompt))))));
+        } catch (JsonProcessingException e) {
+            breaker.onSuccess();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        Call<T> call = newCall.apply(body);
+        callCount.increment();
+        call.send();
+        return call.result
+                .orTimeout(Math.max(1, aiConfig.getDeadlineMillis()), TimeUnit.MILLISECONDS)
+                .whenComplete((reply, error) -> {
+                    if (error != null) {
+                        call.cancelPending();
+                        failureCount.increment();
+                    }
+                    if (isUpstreamFailure(error)) breaker.onFailure();
+                    else breaker.onSuccess();
+                });
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+    // 4xx (trừ 429) nghĩa là Gemini vẫn trả lời bình thường, không tính là "không khỏe"
+    private static boolean isUpstreamFailure(Throwable error) {
+        if (error == null) return false;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) return true;
+        if (cause instanceof GeminiCallException call) {
+            return call.getStatus() == 0 || call.getStatus() == 429 || call.getStatus() >= 500;
+        }
+        return true;
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 0 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static String snippet(String text) {
+        if (text == null) return "";
+        return text.length() <= 160 ? text : text.substring(0, 160) + "...";
+    }
+
+    /**
+     * Trạng thái của một lời gọi qua các attempt.
+     */
+    private abstract class Call<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final String body;
+        final String pathTemplate;
+        volatile String model;
+        volatile int attempts;
+        volatile Future<?> pending;
+
+        Call(String model, String body, String pathTemplate) {
+            this.model = model;
+            this.body = body;
+            this.pathTemplate = pathTemplate;
+        }
+
+        void send() {
+            if (result.isDone()) return;
+            int attempt = ++attempts;
+            attemptCount.increment();
+            String currentModel = model;
+            SimpleHttpRequest request = SimpleRequestBuilder
+                    .post(aiConfig.getGeminiBaseUrl() + String.format(pathTemplate, currentModel))
+                    // Key trong header thay vì query string để không lọt vào log/URL
+                    .addHeader("x-goog-api-key", aiConfig.getGeminiApiKey())
+                    .setBody(body, ContentType.APPLICATION_JSON)
+                    .build();
+            logger.debug("Calling Gemini attempt={} model='{}'", attempt, currentModel);
+            pending = execute(request, currentModel, attempt);
+        }
+
+        abstract Future<?> execute(SimpleHttpRequest request, String currentModel, int attempt);
+
+        void retryOrFail(int attempt, int status, String message) {
+            logger.warn("Gemini attempt={} model='{}' failed: {}", attempt, model, message);
+            if (!result.isDone() && isRetryable(status) && attempt < aiConfig.getRetryAttempts()) {
+                if ((status == 500 || status == 503) && aiConfig.getFallbackModel() != null
+                        && !aiConfig.getFallbackModel().isBlank()) {
+                    model = aiConfig.getFallbackModel().trim();
+                }
+                long delay = Math.min(MAX_BACKOFF_MILLIS,
+                        (long) (aiConfig.getInitialDelayMillis() * Math.pow(2, attempt - 1)));
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::send);
+                return;
+            }
+            result.completeExceptionally(new GeminiCallException(status, attempt, message));
+        }
+
+        void cancelPending() {
+            Future<?> inFlight = pending;
+            if (inFlight != null) inFlight.cancel(true);
+        }
+    }
+
+    /**
+     * {@code generateContent}: đọc cả body rồi trả về nguyên văn.
+     */
+    private final class UnaryCall extends Call<Reply> {
+
+        UnaryCall(String model, String body) {
+            super(model, body, PATH_TEMPLATE);
+        }
+
+        @Override
+        Future<?> execute(SimpleHttpRequest request, String currentModel, int attempt) {
+            return httpClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    int status = response.getCode();
+                    if (status >= 200 && status < 300) {
+                        result.complete(new Reply(response.getBodyText(), currentModel, attempt));
+                    } else {
+                        retryOrFail(attempt, status, "HTTP " + status + " " + snippet(response.getBodyText()));
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    retryOrFail(attempt, 0, ex.getClass().getSimpleName() + ": " + ex.getMessage());
+                }
+
+                @Override
+                public void cancelled() {
+                    result.completeExceptionally(new GeminiCallException(0, attempt, "cancelled"));
+                }
+            });
+        }
+    }
+
+    /**
+     * {@code streamGenerateContent?alt=sse}: chunk byte đi thẳng vào {@link GeminiStreamParser}.
+     * Giá chỉ được báo một lần cho cả lời gọi, kể cả khi attempt sau (retry) đọc lại từ đầu.
+     */
+    private final class StreamCall extends Call<StreamReply> {
+        final DoubleConsumer onPrice;
+        final AtomicBoolean priceSent = new AtomicBoolean();
+
+        StreamCall(String model, String body, DoubleConsumer onPrice) {
+            super(model, body, STREAM_PATH_TEMPLATE);
+            this.onPrice = onPrice;
+        }
+
+        @Override
+        Future<?> execute(SimpleHttpRequest request, String currentModel, int attempt) {
+            StreamConsumer consumer = new StreamConsumer(new GeminiStreamParser(responseParser, price -> {
+                if (onPrice != null && priceSent.compareAndSet(false, true)) onPrice.accept(price);
+            }));
+            return httpClient.execute(SimpleRequestProducer.create(request), consumer,
+                    new FutureCallback<GeminiResponseParser.ParseResult>() {
+                        @Override
+                        public void completed(GeminiResponseParser.ParseResult parsed) {
+                            int status = consumer.status;
+                            if (status >= 200 && status < 300) {
+                                result.complete(new StreamReply(parsed, currentModel, attempt));
+                            } else {
+                                retryOrFail(attempt, status, "HTTP " + status + " " + snippet(consumer.errorText()));
+                            }
+                        }
+
+                        @Override
+                        public void failed(Exception ex) {
+                            retryOrFail(attempt, 0, ex.getClass().getSimpleName() + ": " + ex.getMessage());
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            result.completeExceptionally(new GeminiCallException(0, attempt, "cancelled"));
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Response consumer của một attempt stream: 2xx thì đưa chunk cho parser, còn lại chỉ giữ đầu body lỗi để log.
+     */
+    private static final class StreamConsumer extends AbstractBinResponseConsumer<GeminiResponseParser.ParseResult> {
+        private final GeminiStreamParser parser;
+        private volatile int status;
+        private final ByteArrayOutputStream errorBody = new ByteArrayOutputStream();
+
+        StreamConsumer(GeminiStreamParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) {
+            status = response.getCode();
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return 8192;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            if (status >= 200 && status < 300) {
+                parser.accept(src);
+                return;
+            }
+            int n = Math.min(src.remaining(), MAX_ERROR_BODY_BYTES - errorBody.size());
+            if (n > 0) {
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                errorBody.write(bytes);
+            }
+            src.position(src.limit());
+        }
+
+        @Override
+        protected GeminiResponseParser.ParseResult buildResult() {
+            return status >= 200 && status < 300 ? parser.finish() : null;
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        String errorText() {
+            return errorBody.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package project.swp.spring.sebt_platform.pricing.ai;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Lớp phân tích phản hồi (JSON/Text) từ API Gemini.
  * Chịu trách nhiệm trích xuất giá đề xuất, lý do, và các thẻ bằng chứng (evidence tags).
+ * <p>
+ * Dùng {@link JsonParser} (streaming) thay vì dựng cây {@code JsonNode}: một lượt đọc envelope
+ * {@code candidates[*].content.parts[*].text}, rồi một lượt đọc object JSON trong text của model.
+ * Phản hồi dạng stream ({@code streamGenerateContent}) do {@link GeminiStreamParser} xử lý.
  */
 public class GeminiResponseParser {
     private static final Logger log = LoggerFactory.getLogger(GeminiResponseParser.class);
-    private final ObjectMapper mapper = new ObjectMapper();
+    // JsonFactory thread-safe, dùng chung cho mọi parser
+    static final JsonFactory JSON = new JsonFactory();
 
     /**
      * Record đại diện cho kết quả phân tích phản hồi của AI.
@@ -24,6 +33,14 @@ public class GeminiResponseParser {
             "baseline","depreciation","capacity","mileage","condition","health","market","adjustment","clamp","heuristic"
     );
 
+    // Các field cần trong object trả lời của model
+    private static final class Answer {
+        String id;
+        Double price;
+        String reasoning;
+        List<String> evidence = List.of();
+    }
+
     /**
      * Phân tích chuỗi phản hồi thô từ Gemini.
      * Ưu tiên tìm kiếm và phân tích JSON hợp lệ. Nếu thất bại, sẽ thử Fallback sang trích xuất số.
@@ -34,56 +51,227 @@ public class GeminiResponseParser {
     public ParseResult parse(String body) {
         if (body == null || body.isBlank()) return new ParseResult(null, null, List.of(), "", false, false);
         try {
-            JsonNode root = mapper.readTree(body);
-            JsonNode candidates = root.path("candidates");
-            if (candidates.isArray() && !candidates.isEmpty()) {
-                StringBuilder agg = new StringBuilder();
-                // 1. Tổng hợp tất cả các phần văn bản từ phản hồi AI
-                candidates.forEach(c -> {
-                    JsonNode parts = c.path("content").path("parts");
-                    if (parts.isArray()) {
-                        parts.forEach(p -> {
-                            String t = p.path("text").asText();
-                            if (!t.isBlank()) agg.append(t).append('\n');
-                        });
+            // 1. Tổng hợp tất cả các phần văn bản từ phản hồi AI
+            String aggregated = aggregateText(body);
+            if (aggregated != null) return parseText(aggregated);
+        } catch (Exception e) {
+            log.debug("Body parse root error: {}", e.getMessage());
+        }
+        return new ParseResult(null, "Invalid body", List.of(), body, false, false);
+    }
+
+    /**
+     * Phân tích phần text model đã trả lời (đã ghép các part).
+     */
+    ParseResult parseText(String aggregated) {
+        // 2. Đọc object JSON bắt đầu từ dấu '{' đầu tiên (text có thể bọc trong ```json ... ```)
+        int start = aggregated.indexOf('{');
+        int end = aggregated.lastIndexOf('}');
+        if (start >= 0 && end > start) {
+            try {
+                Answer answer = readAnswer(aggregated, start);
+                if (answer != null && answer.price != null && answer.price > 0) {
+                    return new ParseResult(answer.price, answer.reasoning, filterEvidence(answer.evidence), aggregated,
+                            true, false);
+                }
+            } catch (IOException ex) {
+                log.debug("JSON slice parse failed: {}", ex.getMessage());
+            }
+        }
+
+        // 3. Fallback: Trích xuất số đầu tiên nếu JSON parse thất bại
+        Double extracted = extractFirstNumber(aggregated);
+        if (extracted != null && extracted > 0) {
+            return new ParseResult(extracted, "Parsed number fallback", List.of(), aggregated, false, true);
+        }
+        return new ParseResult(null, "No price parsed", List.of(), aggregated, false, false);
+    }
+
+    /**
+     * Phân tích phản hồi của prompt nhiều item (batch pricing): AI trả về một mảng JSON
+     * {@code [{"id": "...", "suggestedPrice": <int>, "reasoning": "...", "evidence": [...]}, ...]}.
+     * Item thiếu, trùng id hoặc giá không hợp lệ bị bỏ qua; caller dùng heuristic cho các item đó.
+     * Mảng bị cắt ngang (hết token) vẫn giữ các item đã đọc trọn vẹn trước đó.
+     *
+     * @return map id -> {@link ParseResult}, giữ thứ tự xuất hiện
+     */
+    public Map<String, ParseResult> parseBatch(String body) {
+        Map<String, ParseResult> out = new LinkedHashMap<>();
+        if (body == null || body.isBlank()) return out;
+        try {
+            String aggregated = aggregateText(body);
+            if (aggregated == null) return out;
+            int start = aggregated.indexOf('[');
+            int end = aggregated.lastIndexOf(']');
+            if (start < 0 || end <= start) return out;
+            try (JsonParser p = parserAt(aggregated, start)) {
+                if (p.nextToken() != JsonToken.START_ARRAY) return out;
+                JsonToken t;
+                while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                    if (t != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
                     }
-                });
-                String aggregated = agg.toString().trim();
-
-                // 2. Cố gắng trích xuất và phân tích JSON Slice (phần nội dung JSON)
-                int start = aggregated.indexOf('{');
-                int end = aggregated.lastIndexOf('}');
-                if (start >= 0 && end > start) {
-                    String slice = aggregated.substring(start, end + 1);
-                    try {
-                        JsonNode obj = mapper.readTree(slice);
-                        Double price = obj.path("suggestedPrice").isNumber() ? obj.path("suggestedPrice").asDouble() : null;
-                        String reasoning = obj.path("reasoning").asText(null);
-                        List<String> evidenceRaw = new ArrayList<>();
-                        if (obj.path("evidence").isArray()) {
-                            obj.path("evidence").forEach(ev -> { if (ev.isTextual()) evidenceRaw.add(ev.asText()); });
-                        }
-                        List<String> filteredEvidence = filterEvidence(evidenceRaw);
-                        if (price != null && price > 0) {
-                            return new ParseResult(price, reasoning, filteredEvidence, aggregated, true, false);
+                    int from = start + (int) p.currentTokenLocation().getCharOffset();
+                    Answer answer = readAnswerFields(p);
+                    int to = start + (int) p.currentTokenLocation().getCharOffset() + 1;
+                    if (answer.id == null || answer.id.isBlank() || out.containsKey(answer.id)) continue;
+                    if (answer.price == null || answer.price <= 0) continue;
+                    out.put(answer.id, new ParseResult(answer.price, answer.reasoning, filterEvidence(answer.evidence),
+                            aggregated.substring(from, to), true, false));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Batch body parse error: {}", e.getMessage());
+        }
+        return out;
+    }
+
+    /**
+     * Ghép text của mọi part (mỗi part một dòng) bằng một lượt streaming qua envelope.
+     *
+     * @return null nếu body không có mảng {@code candidates} khác rỗng
+     */
+    static String aggregateText(String body) throws IOException {
+        TextCollector collector = new TextCollector();
+        try (JsonParser p = JSON.createParser(body)) {
+            if (!readPartTexts(p, collector)) return null;
+        }
+        return collector.result();
+    }
+
+    /**
+     * Đọc một GenerateContentResponse, gọi {@code sink} với text của từng part theo thứ tự.
+     * Field ngoài đường dẫn candidates/content/parts/text được bỏ qua bằng {@code skipChildren}.
+     *
+     * @return true nếu có mảng {@code candidates} khác rỗng
+     */
+    static boolean readPartTexts(JsonParser p, Consumer<String> sink) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) return false;
+        boolean hasCandidates = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (!"candidates".equals(field) || t != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                hasCandidates = true;
+                if (t == JsonToken.START_OBJECT) readCandidate(p, sink);
+                else p.skipChildren();
+            }
+        }
+        return hasCandidates;
+    }
+
+    private static void readCandidate(JsonParser p, Consumer<String> sink) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (!"content".equals(field) || t != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String contentField = p.currentName();
+                t = p.nextToken();
+                if (!"parts".equals(contentField) || t != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                    if (t == JsonToken.START_OBJECT) readPart(p, sink);
+                    else p.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void readPart(JsonParser p, Consumer<String> sink) throws IOException {
+        String text = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            if ("text".equals(field)) text = p.getValueAsString();
+            p.skipChildren();
+        }
+        if (text != null) sink.accept(text);
+    }
+
+    // Đọc object trả lời bắt đầu tại vị trí start của text
+    private static Answer readAnswer(String text, int start) throws IOException {
+        try (JsonParser p = parserAt(text, start)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            return readAnswerFields(p);
+        }
+    }
+
+    // Parser đang đứng ở START_OBJECT; đọc tới END_OBJECT tương ứng
+    private static Answer readAnswerFields(JsonParser p) throws IOException {
+        Answer answer = new Answer();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "id" -> answer.id = textOf(p, t);
+                case "suggestedPrice" -> answer.price = t.isNumeric() ? p.getDoubleValue() : null;
+                case "reasoning" -> answer.reasoning = textOf(p, t);
+                case "evidence" -> {
+                    if (t == JsonToken.START_ARRAY) {
+                        List<String> evidence = new ArrayList<>();
+                        while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+                            if (t == JsonToken.VALUE_STRING) evidence.add(p.getText());
+                            else p.skipChildren();
                         }
-                    } catch (Exception ex) {
-                        log.debug("JSON slice parse failed: {}", ex.getMessage());
+                        answer.evidence = evidence;
                     }
                 }
+                default -> { }
+            }
+            p.skipChildren();
+        }
+        return answer;
+    }
 
-                // 3. Fallback: Trích xuất số đầu tiên nếu JSON parse thất bại
-                Double extracted = extractFirstNumber(aggregated);
-                if (extracted != null && extracted > 0) {
-                    return new ParseResult(extracted, "Parsed number fallback", List.of(), aggregated, false, true);
-                }
+    // Như JsonNode.asText(null): null -> null, scalar -> text, object/array -> ""
+    private static String textOf(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.VALUE_NULL) return null;
+        return t.isScalarValue() ? p.getText() : "";
+    }
+
+    private static JsonParser parserAt(String text, int start) throws IOException {
+        StringReader reader = new StringReader(text);
+        reader.skip(start);
+        return JSON.createParser(reader);
+    }
 
-                return new ParseResult(null, "No price parsed", List.of(), aggregated, false, false);
+    /**
+     * Ghép text các part như trước đây (mỗi part khác rỗng + xuống dòng, trim cả chuỗi), nhưng không
+     * cấp StringBuilder khi chỉ có một part (trường hợp phổ biến).
+     */
+    private static final class TextCollector implements Consumer<String> {
+        private String single;
+        private StringBuilder many;
+
+        @Override
+        public void accept(String text) {
+            if (text.isBlank()) return;
+            if (single == null && many == null) {
+                single = text;
+                return;
             }
-        } catch (Exception e) {
-            log.debug("Body parse root error: {}", e.getMessage());
+            if (many == null) {
+                many = new StringBuilder(single.length() + text.length() + 2).append(single).append('\n');
+                single = null;
+            }
+            many.append(text).append('\n');
+        }
+
+        String result() {
+            if (many != null) return many.toString().trim();
+            return single == null ? "" : single.trim();
         }
-        return new ParseResult(null, "Invalid body", List.of(), body, false, false);
     }
 
     /**
@@ -119,4 +307,4 @@ public class GeminiResponseParser {
         } catch (Exception ignored) {}
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+/**
+ * Phân tích phản hồi {@code streamGenerateContent?alt=sse} của Gemini theo từng chunk byte.
+ * <p>
+ * Mỗi dòng {@code data:} là một GenerateContentResponse chứa một đoạn (delta) text của model. Các delta
+ * được nối lại, đồng thời phần text từ dấu '{' đầu tiên được đẩy vào parser JSON non-blocking của
+ * Jackson: ngay khi field {@code suggestedPrice} ở cấp ngoài cùng đọc xong (số dương), giá được báo
+ * qua {@code onPrice} — trước khi model viết xong {@code reasoning}/{@code evidence}.
+ * {@link #finish()} trả về kết quả đầy đủ giống {@link GeminiResponseParser#parse(String)}.
+ * <p>
+ * Không thread-safe: một instance cho một response.
+ */
+public class GeminiStreamParser {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiStreamParser.class);
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+
+    private final GeminiResponseParser responseParser;
+    private final DoubleConsumer onPrice;
+    private final StringBuilder text = new StringBuilder();
+
+    // Dòng SSE đang đọc dở (chunk có thể cắt giữa dòng)
+    private byte[] line = new byte[1024];
+    private int lineLength;
+
+    // Parser cho object JSON trong text của model; null khi chưa gặp '{' hoặc đã xong/lỗi
+    private JsonParser answerParser;
+    private boolean answerStarted;
+    private int depth;
+    private String field;
+    private Double earlyPrice;
+
+    public GeminiStreamParser(GeminiResponseParser responseParser, DoubleConsumer onPrice) {
+        this.responseParser = responseParser;
+        this.onPrice = onPrice;
+    }
+
+    /**
+     * Nhận thêm một chunk byte của response (đọc hết {@code chunk}).
+     */
+    public void accept(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            byte b = chunk.get();
+            if (b == '\n') {
+                endLine();
+            } else {
+                if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * Giá đã báo sớm qua {@code onPrice}, hoặc null nếu chưa có.
+     */
+    public Double earlyPrice() {
+        return earlyPrice;
+    }
+
+    /**
+     * Kết thúc stream: xử lý dòng cuối (nếu thiếu '\n') và phân tích toàn bộ text đã nhận.
+     */
+    public GeminiResponseParser.ParseResult finish() {
+        if (lineLength > 0) endLine();
+        closeAnswerParser();
+        return responseParser.parseText(text.toString().trim());
+    }
+
+    private void endLine() {
+        int length = lineLength;
+        lineLength = 0;
+        if (length > 0 && line[length - 1] == '\r') length--;
+        if (length < DATA_PREFIX.length || !Arrays.equals(line, 0, DATA_PREFIX.length, DATA_PREFIX, 0, DATA_PREFIX.length)) {
+            // Dòng trống (phân cách event), "event:", "id:", comment ":" ... không mang dữ liệu
+            return;
+        }
+        int from = DATA_PREFIX.length;
+        if (from < length && line[from] == ' ') from++;
+        try (JsonParser p = GeminiResponseParser.JSON.createParser(line, from, length - from)) {
+            GeminiResponseParser.readPartTexts(p, this::onDelta);
+        } catch (IOException e) {
+            log.debug("Skipping malformed stream event: {}", e.getMessage());
+        }
+    }
+
+    private void onDelta(String delta) {
+        if (delta.isEmpty()) return;
+        text.append(delta);
+        if (earlyPrice != null) return;
+        int start = 0;
+        if (!answerStarted) {
+            start = delta.indexOf('{');
+            if (start < 0) return;
+            answerStarted = true;
+            try {
+                answerParser = GeminiResponseParser.JSON.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                return;
+            }
+        }
+        if (answerParser == null) return;
+        byte[] bytes = delta.substring(start).getBytes(StandardCharsets.UTF_8);
+        try {
+            ((ByteArrayFeeder) answerParser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            drainAnswerTokens();
+        } catch (IOException e) {
+            // Text không phải JSON hợp lệ: bỏ báo sớm, finish() vẫn thử fallback như parser thường
+            log.debug("Stop early price detection: {}", e.getMessage());
+            closeAnswerParser();
+        }
+    }
+
+    private void drainAnswerTokens() throws IOException {
+        JsonToken t;
+        while (answerParser != null && (t = answerParser.nextToken()) != JsonToken.NOT_AVAILABLE && t != null) {
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                depth++;
+            } else if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+                if (--depth == 0) closeAnswerParser();
+            } else if (t == JsonToken.FIELD_NAME) {
+                if (depth == 1) field = answerParser.currentName();
+            } else if (depth == 1 && "suggestedPrice".equals(field) && t.isNumeric()) {
+                // Parser non-blocking chỉ trả token số khi đã thấy ký tự kết thúc số, nên giá là trọn vẹn
+                double price = answerParser.getDoubleValue();
+                if (price > 0) {
+                    earlyPrice = price;
+                    closeAnswerParser();
+                    onPrice.accept(price);
+                }
+            }
+        }
+    }
+
+    private void closeAnswerParser() {
+        if (answerParser == null) return;
+        try {
+            answerParser.close();
+        } catch (IOException ignored) {
+        }
+        answerParser = null;
+    }
+}
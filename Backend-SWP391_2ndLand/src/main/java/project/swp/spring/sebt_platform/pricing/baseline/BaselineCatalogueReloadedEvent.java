@@ -0,0 +1,20 @@
+package project.swp.spring.sebt_platform.pricing.baseline;
+
+import java.util.Set;
+
+/**
+ * Phát ra sau khi catalogue baseline được nạp lại và có brand thay đổi.
+ *
+ * @param source Nguồn đã nạp (đường dẫn file hoặc classpath).
+ * @param entries Số entry của catalogue mới.
+ * @param changedBrands Brand (đã chuẩn hóa) có entry thêm/bớt/thay đổi.
+ */
+public record BaselineCatalogueReloadedEvent(String source, int entries, Set<String> changedBrands) {
+
+    /**
+     * Brand (dạng người dùng nhập) có nằm trong các brand vừa thay đổi không.
+     */
+    public boolean affectsBrand(String brand) {
+        return changedBrands.contains(BaselinePriceRepository.normalize(brand));
+    }
+}
@@ -0,0 +1,185 @@
+package project.swp.spring.sebt_platform.pricing.baseline;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nạp lại catalogue baseline mà không cần restart.
+ * <p>
+ * Nếu cấu hình {@code app.pricing.baseline.file}, catalogue được đọc từ file ngoài đó (đè bản trong classpath)
+ * và file được theo dõi bằng {@link WatchService}; admin cũng có thể gọi reload thủ công. Mọi lần reload chạy
+ * tuần tự trên một thread nền: parse, dựng chỉ mục mới rồi thay bằng một phép gán nên lookup không bị chặn.
+ * File lỗi/đang ghi dở thì giữ nguyên catalogue cũ. Khi có brand thay đổi sẽ phát
+ * {@link BaselineCatalogueReloadedEvent} để cache định giá chỉ xóa giá của các brand đó.
+ */
+@Component
+public class BaselineCatalogueReloader {
+
+    private static final Logger log = LoggerFactory.getLogger(BaselineCatalogueReloader.class);
+    private static final String CLASSPATH_LOCATION = "pricing/baseline-prices.json";
+
+    /**
+     * Kết quả một lần reload (trả về cho admin endpoint).
+     */
+    public record ReloadResult(boolean success, String source, int entries, Set<String> changedBrands,
+                               String error, Instant reloadedAt) {
+    }
+
+    private final BaselinePriceRepository repository;
+    private final ApplicationEventPublisher events;
+    private final Path file;
+    private final boolean watch;
+    private final long debounceMillis;
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "baseline-reload");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile WatchService watchService;
+    private volatile Thread watcher;
+    private volatile ReloadResult lastResult;
+
+    public BaselineCatalogueReloader(BaselinePriceRepository repository,
+                                     ApplicationEventPublisher events,
+                                     @Value("${app.pricing.baseline.file:}") String file,
+                                     @Value("${app.pricing.baseline.watch:true}") boolean watch,
+                                     @Value("${app.pricing.baseline.watchDebounceMillis:500}") long debounceMillis) {
+        this.repository = repository;
+        this.events = events;
+        this.file = file == null || file.isBlank() ? null : Path.of(file.trim()).toAbsolutePath();
+        this.watch = watch;
+        this.debounceMillis = Math.max(0, debounceMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (file == null) return;
+        // Nạp file ngoài ngay lúc khởi động để request đầu tiên đã thấy giá mới nhất
+        reloadNow();
+        if (watch) startWatcher();
+    }
+
+    /**
+     * Xếp một lần reload vào thread nền (tuần tự với các lần reload khác).
+     */
+    public CompletableFuture<ReloadResult> reload() {
+        return CompletableFuture.supplyAsync(this::reloadNow, reloadExecutor);
+    }
+
+    public ReloadResult lastResult() {
+        return lastResult;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = watcher;
+        if (t != null) t.interrupt();
+        WatchService ws = watchService;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException e) {
+                log.debug("Closing baseline watch service failed: {}", e.getMessage());
+            }
+        }
+        reloadExecutor.shutdownNow();
+    }
+
+    private ReloadResult reloadNow() {
+        String source = file != null ? file.toString() : "classpath:" + CLASSPATH_LOCATION;
+        ReloadResult result;
+        try (InputStream is = file != null ? Files.newInputStream(file)
+                : new ClassPathResource(CLASSPATH_LOCATION).getInputStream()) {
+            List<BaselinePriceEntry> entries = BaselinePriceRepository.parse(is);
+            if (entries.isEmpty()) {
+                // Không thay catalogue bằng danh sách rỗng (thường là file đang được ghi dở)
+                result = new ReloadResult(false, source, 0, Set.of(), "catalogue rỗng, giữ bản cũ", Instant.now());
+            } else {
+                Set<String> changed = repository.replace(entries);
+                if (!changed.isEmpty()) {
+                    events.publishEvent(new BaselineCatalogueReloadedEvent(source, entries.size(), changed));
+                }
+                log.info("Reloaded {} baseline entries from {} changedBrands={}", entries.size(), source, changed);
+                result = new ReloadResult(true, source, entries.size(), changed, null, Instant.now());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to reload baseline catalogue from {}: {}", source, e.getMessage());
+            result = new ReloadResult(false, source, 0, Set.of(), e.getClass().getSimpleName() + ": " + e.getMessage(),
+                    Instant.now());
+        }
+        lastResult = result;
+        return result;
+    }
+
+    private void startWatcher() {
+        Path dir = file.getParent();
+        try {
+            WatchService ws = dir.getFileSystem().newWatchService();
+            // Editor/deploy thường ghi file tạm rồi rename -> bắt cả CREATE lẫn MODIFY
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = ws;
+        } catch (IOException e) {
+            log.error("Cannot watch baseline catalogue directory {}: {}", dir, e.getMessage());
+            return;
+        }
+        Thread t = new Thread(this::watchLoop, "baseline-watcher");
+        t.setDaemon(true);
+        watcher = t;
+        t.start();
+        log.info("Watching baseline catalogue {}", file);
+    }
+
+    private void watchLoop() {
+        WatchService ws = watchService;
+        Path name = file.getFileName();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!drain(ws.take(), name)) continue;
+                // Gom các event liên tiếp của cùng một lần ghi file
+                WatchKey more;
+                while ((more = ws.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more, name);
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stop() đã đóng watch service
+        }
+    }
+
+    // Đọc hết event của key; true nếu có event chạm tới file catalogue
+    private static boolean drain(WatchKey key, Path name) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+}
@@ -11,33 +11,50 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Repository lưu trữ và quản lý dữ liệu giá cơ sở (BaselinePriceEntry).
  * Dữ liệu được tải từ file JSON và lưu trữ trong bộ nhớ để tra cứu nhanh.
+ * <p>
+ * Khóa chuẩn hóa (normalize/compact) của mọi entry được tính sẵn lúc load: so khớp exact/compact là
+ * tra hash, so khớp "contains" đi qua chỉ mục trigram của khóa compact. Mỗi lần tra cứu chỉ chuẩn hóa
+ * input (không regex), không duyệt stream trên toàn bộ catalogue.
+ * <p>
+ * Khi không khớp exact/compact/contains, tên model được so khớp mờ (trigram + edit distance) thay vì lấy
+ * mù entry đầu tiên của brand; mỗi kết quả kèm {@link Match#confidence()} để phía định giá quyết định có
+ * dùng baseline hay không.
  */
 @Component
 public class BaselinePriceRepository {
     private static final Logger log = LoggerFactory.getLogger(BaselinePriceRepository.class);
-    // Lưu trữ dữ liệu theo Brand đã được chuẩn hóa để tra cứu hiệu suất cao.
-    private final Map<String, List<BaselinePriceEntry>> byBrand = new ConcurrentHashMap<>();
+    // Dưới ngưỡng này kết quả so khớp mờ bị bỏ, dùng fallback entry đầu tiên (confidence 0)
+    static final double MIN_FUZZY_SIMILARITY = 0.45;
+
+    /**
+     * Cách entry được chọn, theo thứ tự ưu tiên của {@link #findBestMatchScored}.
+     */
+    public enum MatchType { EXACT, COMPACT, CONTAINS, FUZZY, FALLBACK }
+
+    /**
+     * Entry khớp cùng độ tin cậy 0..1 (1 = khớp chính xác, 0 = chỉ là entry đầu tiên của brand).
+     */
+    public record Match(BaselinePriceEntry entry, MatchType type, double confidence) {
+    }
+
+    // Chỉ mục theo Brand đã được chuẩn hóa; thay cả map khi load lại
+    private volatile Map<String, BrandIndex> byBrand = Map.of();
 
     /**
      * Tải dữ liệu giá cơ sở từ file JSON sau khi Bean được khởi tạo (Post-Construct).
+     * Catalogue ngoài classpath (nếu cấu hình) do {@link BaselineCatalogueReloader} nạp đè sau đó.
      */
     @PostConstruct
     public void load() {
-        ObjectMapper mapper = new ObjectMapper();
         try (InputStream is = new ClassPathResource("pricing/baseline-prices.json").getInputStream()) {
-            String json = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-            BaselinePriceData data = mapper.readValue(json, BaselinePriceData.class);
-            if (data.getBaselinePrices() != null) {
-                data.getBaselinePrices().forEach(entry -> {
-                    String brandKey = normalize(entry.getBrand());
-                    byBrand.computeIfAbsent(brandKey, k -> new ArrayList<>()).add(entry);
-                });
-                log.info("Loaded {} baseline price entries for {} brands", data.getBaselinePrices().size(), byBrand.size());
+            List<BaselinePriceEntry> entries = parse(is);
+            if (!entries.isEmpty()) {
+                replace(entries);
+                log.info("Loaded {} baseline price entries for {} brands", entries.size(), byBrand.size());
             } else {
                 log.warn("No baselinePrices array found in JSON");
             }
@@ -47,13 +64,52 @@ public class BaselinePriceRepository {
         }
     }
 
+    /**
+     * Đọc danh sách entry từ JSON dạng {@code {"baselinePrices": [...]}}; rỗng nếu không có mảng.
+     */
+    static List<BaselinePriceEntry> parse(InputStream is) throws IOException {
+        String json = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        BaselinePriceData data = new ObjectMapper().readValue(json, BaselinePriceData.class);
+        return data.getBaselinePrices() == null ? List.of() : data.getBaselinePrices();
+    }
+
+    /**
+     * Dựng chỉ mục mới cho toàn bộ catalogue rồi thay chỉ mục cũ bằng một phép gán (copy-on-write):
+     * lookup đang chạy vẫn đọc chỉ mục cũ, không bao giờ bị chặn.
+     *
+     * @return các brand (đã chuẩn hóa) có entry thêm/bớt/thay đổi so với catalogue trước
+     */
+    public Set<String> replace(List<BaselinePriceEntry> entries) {
+        Map<String, List<BaselinePriceEntry>> grouped = new LinkedHashMap<>();
+        for (BaselinePriceEntry entry : entries) {
+            grouped.computeIfAbsent(normalize(entry.getBrand()), k -> new ArrayList<>()).add(entry);
+        }
+        Map<String, BrandIndex> built = new HashMap<>();
+        grouped.forEach((brand, list) -> built.put(brand, new BrandIndex(list)));
+
+        Map<String, BrandIndex> previous = byBrand;
+        byBrand = Map.copyOf(built);
+
+        Set<String> changed = new TreeSet<>();
+        for (String brand : built.keySet()) {
+            BrandIndex old = previous.get(brand);
+            if (old == null || !old.signatures.equals(built.get(brand).signatures)) changed.add(brand);
+        }
+        for (String brand : previous.keySet()) {
+            if (!built.containsKey(brand)) changed.add(brand);
+        }
+        return changed;
+    }
+
     /**
      * Tìm kiếm mục giá cơ sở phù hợp nhất dựa trên Brand, Model, và Variant.
      * Áp dụng logic so khớp (Matching) nhiều bước:
      * 1. Exact Model + Variant.
      * 2. Compact Model (xoá khoảng trắng).
      * 3. Contains (chứa tên Model).
-     * 4. Fallback (trả về mục đầu tiên của Brand nếu có).
+     * 4. Fuzzy (trigram + edit distance, đủ ngưỡng {@link #MIN_FUZZY_SIMILARITY}).
+     * 5. Fallback (trả về mục đầu tiên của Brand nếu có).
+     * Các bước 1-3 trả về entry đứng đầu (theo thứ tự trong file) thỏa điều kiện.
      *
      * @param brand Thương hiệu xe/pin.
      * @param model Mẫu xe/pin.
@@ -61,54 +117,283 @@ public class BaselinePriceRepository {
      * @return Optional chứa {@link BaselinePriceEntry} phù hợp nhất.
      */
     public Optional<BaselinePriceEntry> findBestMatch(String brand, String model, String variant) {
+        return findBestMatchScored(brand, model, variant).map(Match::entry);
+    }
+
+    /**
+     * Như {@link #findBestMatch} nhưng kèm loại so khớp và độ tin cậy. Trước bước fallback có thêm
+     * bước so khớp mờ (FUZZY) cho tên model viết sai/thiếu.
+     */
+    public Optional<Match> findBestMatchScored(String brand, String model, String variant) {
         if (brand == null) return Optional.empty();
-        List<BaselinePriceEntry> list = byBrand.get(normalize(brand));
-        if (list == null) return Optional.empty(); // Không tìm thấy thương hiệu
+        String brandNorm = normalize(brand);
+        BrandIndex index = byBrand.get(brandNorm);
+        if (index == null) return Optional.empty(); // Không tìm thấy thương hiệu
 
         String modelNorm = normalize(model);
         String variantNorm = normalize(variant);
         String modelCompact = compact(modelNorm);
+        // Người bán hay gõ cả brand vào model ("Vinfast VF 8"); chỉ dùng để chấm điểm bước 3-4
+        String modelQuery = stripPrefix(modelCompact, compact(brandNorm));
 
         // 1. So khớp Chính xác Model và Variant (nếu Variant không trống)
-        Optional<BaselinePriceEntry> exact = list.stream()
-                .filter(e -> modelNorm.equals(normalize(e.getModel())) &&
-                        (variantNorm.isBlank() || variantNorm.equals(normalize(e.getVariant()))))
-                .findFirst();
-        if (exact.isPresent()) return exact;
+        Integer exact = variantNorm.isBlank()
+                ? index.byModel.get(modelNorm)
+                : index.byModelVariant.get(modelVariantKey(modelNorm, variantNorm));
+        if (exact != null) return Optional.of(new Match(index.entries.get(exact), MatchType.EXACT, 1.0));
 
         // 2. So khớp Compact (loại bỏ khoảng trắng/ký tự không cần thiết)
-        Optional<BaselinePriceEntry> compactEq = list.stream()
-                .filter(e -> modelCompact.equals(compact(normalize(e.getModel()))))
-                .findFirst();
-        if (compactEq.isPresent()) return compactEq;
-
-        // 3. So khớp Chứa (Model nhập vào chứa Model trong DB, hoặc ngược lại)
-        Optional<BaselinePriceEntry> contains = list.stream().filter(e -> {
-            String em = normalize(e.getModel());
-            return modelNorm.contains(em) || em.contains(modelNorm) ||
-                    modelCompact.contains(compact(em)) || compact(em).contains(modelCompact);
-        }).findFirst();
-        if (contains.isPresent()) return contains;
-
-        // 4. Fallback: Trả về mục đầu tiên cho Brand đó (hành vi cũ)
-        if (!list.isEmpty()) {
+        Integer compactEq = index.byCompact.get(modelCompact);
+        if (compactEq != null) return Optional.of(new Match(index.entries.get(compactEq), MatchType.COMPACT, 0.95));
+
+        // 3. So khớp Chứa (Model nhập vào chứa Model trong DB, hoặc ngược lại); model trống thì không có gì để so
+        int contains = modelCompact.isEmpty() ? -1 : index.firstContaining(modelCompact);
+        if (contains >= 0) {
+            String key = index.compactKeys[contains];
+            double overlap = Math.min(key.length(), modelQuery.length())
+                    / (double) Math.max(key.length(), modelQuery.length());
+            return Optional.of(new Match(index.entries.get(contains), MatchType.CONTAINS, 0.6 + 0.3 * overlap));
+        }
+
+        // 4. So khớp mờ: trigram + edit distance trên tên model (bỏ tiền tố brand, vd "Vinfast VF 8")
+        if (!modelCompact.isEmpty()) {
+            Match fuzzy = index.mostSimilar(modelQuery, compact(variantNorm));
+            if (fuzzy != null && fuzzy.confidence() >= MIN_FUZZY_SIMILARITY) return Optional.of(fuzzy);
+        }
+
+        // 5. Fallback: Trả về mục đầu tiên cho Brand đó (hành vi cũ), độ tin cậy 0
+        if (!index.entries.isEmpty()) {
             log.debug("Baseline fallback to first entry for brand={} modelNorm={} modelCompact={}", brand, modelNorm, modelCompact);
             // Ghi chú: Logic này không lý tưởng nhưng được giữ lại để tương thích với hành vi cũ
-            return Optional.of(list.get(0));
+            return Optional.of(new Match(index.entries.get(0), MatchType.FALLBACK, 0.0));
         }
 
         return Optional.empty();
     }
 
     /** Chuẩn hóa chuỗi: lowercase, trim, thay thế multiple spaces bằng single space. */
-    private String normalize(String s) {
+    static String normalize(String s) {
         if (s == null) return "";
-        return s.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+        String t = s.toLowerCase(Locale.ROOT).trim();
+        // Tương đương replaceAll("\\s+", " ") nhưng không dùng regex; trả lại chính chuỗi nếu không đổi
+        StringBuilder sb = null;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (!isRegexSpace(c)) {
+                if (sb != null) sb.append(c);
+                continue;
+            }
+            int end = i + 1;
+            while (end < t.length() && isRegexSpace(t.charAt(end))) end++;
+            if (sb == null && (c != ' ' || end > i + 1)) {
+                sb = new StringBuilder(t.length()).append(t, 0, i);
+            }
+            if (sb != null) sb.append(' ');
+            i = end - 1;
+        }
+        return sb == null ? t : sb.toString();
     }
 
     /** Nén chuỗi: xóa tất cả ký tự không phải chữ cái/số. */
-    private String compact(String s) {
+    static String compact(String s) {
         if (s == null) return "";
-        return s.replaceAll("[^a-z0-9]", "");
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean keep = (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+            if (keep) {
+                if (sb != null) sb.append(c);
+            } else if (sb == null) {
+                sb = new StringBuilder(s.length()).append(s, 0, i);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    // Lớp ký tự \s của java.util.regex (không bật UNICODE_CHARACTER_CLASS)
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static String stripPrefix(String s, String prefix) {
+        return !prefix.isEmpty() && s.length() > prefix.length() && s.startsWith(prefix) ? s.substring(prefix.length()) : s;
+    }
+
+    /**
+     * Độ giống 0..1 giữa hai khóa compact: trung bình của hệ số Dice trên trigram (có đệm biên, để khóa ngắn
+     * như "vf8" vẫn có nhiều trigram) và 1 - edit distance / độ dài lớn hơn.
+     */
+    static double similarity(String a, int[] aTrigrams, String b, int[] bTrigrams) {
+        if (a.isEmpty() || b.isEmpty()) return a.equals(b) ? 1.0 : 0.0;
+        double dice = 2.0 * commonCount(aTrigrams, bTrigrams) / (aTrigrams.length + bTrigrams.length);
+        double edit = 1.0 - levenshtein(a, b) / (double) Math.max(a.length(), b.length());
+        return (dice + edit) / 2;
+    }
+
+    /** Tập trigram (đã sắp xếp, không trùng) của "$$" + key + "$". */
+    static int[] paddedTrigrams(String key) {
+        if (key.isEmpty()) return new int[0];
+        String padded = "$$" + key + "$";
+        int[] out = new int[padded.length() - 2];
+        for (int i = 0; i < out.length; i++) out[i] = BrandIndex.trigram(padded, i);
+        Arrays.sort(out);
+        int n = 0;
+        for (int i = 0; i < out.length; i++) {
+            if (i == 0 || out[i] != out[i - 1]) out[n++] = out[i];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int commonCount(int[] a, int[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) { common++; i++; j++; }
+            else if (a[i] < b[j]) i++;
+            else j++;
+        }
+        return common;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev; prev = cur; cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    private static String modelVariantKey(String modelNorm, String variantNorm) {
+        return modelNorm + '\u0000' + variantNorm;
+    }
+
+    /**
+     * Chỉ mục của một Brand. Map giữ vị trí entry đầu tiên cho mỗi khóa.
+     * <p>
+     * Bước "contains" cũ so cả dạng normalize lẫn compact theo hai chiều; vì xóa ký tự không làm mất
+     * tính liên tiếp, {@code a.contains(b)} kéo theo {@code compact(a).contains(compact(b))}, nên chỉ cần
+     * so khớp trên khóa compact. Trigram của khóa compact dùng để lọc ứng viên trước khi kiểm tra.
+     */
+    private static final class BrandIndex {
+        final List<BaselinePriceEntry> entries;
+        // Nội dung từng entry theo thứ tự, để so sánh khi reload
+        final List<String> signatures;
+        final String[] compactKeys;
+        final Map<String, Integer> byModel = new HashMap<>();
+        final Map<String, Integer> byModelVariant = new HashMap<>();
+        final Map<String, Integer> byCompact = new HashMap<>();
+        // trigram -> vị trí các entry (tăng dần) có khóa compact chứa trigram đó
+        final Map<Integer, int[]> byTrigram;
+        // entry có khóa compact ngắn hơn 3 ký tự, không có trigram
+        final int[] shortKeys;
+        // Cho so khớp mờ: trigram có đệm của model, khóa compact và trigram của variant
+        final int[][] modelTrigrams;
+        final String[] variantKeys;
+        final int[][] variantTrigrams;
+
+        BrandIndex(List<BaselinePriceEntry> list) {
+            this.entries = List.copyOf(list);
+            this.signatures = entries.stream()
+                    .map(e -> String.join("\u0000", String.valueOf(e.getBrand()), String.valueOf(e.getModel()),
+                            String.valueOf(e.getVariant()), String.valueOf(e.getCategory()),
+                            String.valueOf(e.getBaselinePrice()), String.valueOf(e.getNotes())))
+                    .toList();
+            this.compactKeys = new String[entries.size()];
+            this.modelTrigrams = new int[entries.size()][];
+            this.variantKeys = new String[entries.size()];
+            this.variantTrigrams = new int[entries.size()][];
+            Map<Integer, List<Integer>> postings = new HashMap<>();
+            List<Integer> shorts = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                BaselinePriceEntry e = entries.get(i);
+                String modelNorm = normalize(e.getModel());
+                String key = compact(modelNorm);
+                compactKeys[i] = key;
+                modelTrigrams[i] = paddedTrigrams(key);
+                variantKeys[i] = compact(normalize(e.getVariant()));
+                variantTrigrams[i] = paddedTrigrams(variantKeys[i]);
+                byModel.putIfAbsent(modelNorm, i);
+                byModelVariant.putIfAbsent(modelVariantKey(modelNorm, normalize(e.getVariant())), i);
+                byCompact.putIfAbsent(key, i);
+                if (key.length() < 3) {
+                    shorts.add(i);
+                    continue;
+                }
+                for (int p = 0; p + 3 <= key.length(); p++) {
+                    List<Integer> ids = postings.computeIfAbsent(trigram(key, p), k -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != i) ids.add(i);
+                }
+            }
+            Map<Integer, int[]> tri = new HashMap<>();
+            postings.forEach((k, ids) -> tri.put(k, ids.stream().mapToInt(Integer::intValue).toArray()));
+            this.byTrigram = tri;
+            this.shortKeys = shorts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Vị trí nhỏ nhất của entry mà khóa compact chứa {@code query} hoặc nằm trong {@code query}; -1 nếu không có.
+         */
+        int firstContaining(String query) {
+            if (query.length() < 3) {
+                // Query quá ngắn để lọc bằng trigram; duyệt khóa đã tính sẵn (không cấp phát)
+                for (int i = 0; i < compactKeys.length; i++) {
+                    if (matches(i, query)) return i;
+                }
+                return -1;
+            }
+            // Entry chứa query (hoặc nằm trong query, nếu dài >= 3) có chung ít nhất một trigram với query
+            int best = Integer.MAX_VALUE;
+            for (int i : shortKeys) {
+                if (i >= best) break;
+                if (matches(i, query)) best = i;
+            }
+            for (int p = 0; p + 3 <= query.length(); p++) {
+                int[] ids = byTrigram.get(trigram(query, p));
+                if (ids == null) continue;
+                for (int i : ids) {
+                    if (i >= best) break;
+                    if (matches(i, query)) best = i;
+                }
+            }
+            return best == Integer.MAX_VALUE ? -1 : best;
+        }
+
+        /**
+         * Entry có tên model giống {@code query} nhất. Khi có variant, độ giống của variant chiếm 15% để chọn
+         * đúng phiên bản giữa các entry cùng model; hòa điểm thì giữ entry đứng trước.
+         */
+        Match mostSimilar(String query, String variantQuery) {
+            int[] queryTrigrams = paddedTrigrams(query);
+            int[] variantQueryTrigrams = paddedTrigrams(variantQuery);
+            int best = -1;
+            double bestScore = -1;
+            for (int i = 0; i < compactKeys.length; i++) {
+                double score = similarity(query, queryTrigrams, compactKeys[i], modelTrigrams[i]);
+                if (!variantQuery.isEmpty()) {
+                    score = 0.85 * score
+                            + 0.15 * similarity(variantQuery, variantQueryTrigrams, variantKeys[i], variantTrigrams[i]);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            return best < 0 ? null : new Match(entries.get(best), MatchType.FUZZY, bestScore);
+        }
+
+        private boolean matches(int i, String query) {
+            String key = compactKeys[i];
+            return query.contains(key) || key.contains(query);
+        }
+
+        static int trigram(String s, int from) {
+            return (s.charAt(from) << 16) ^ (s.charAt(from + 1) << 8) ^ s.charAt(from + 2);
+        }
     }
-}
\ No newline at end of file
+}
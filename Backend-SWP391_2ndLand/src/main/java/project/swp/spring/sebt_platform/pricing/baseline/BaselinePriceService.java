@@ -29,10 +29,15 @@ public class BaselinePriceService {
      * @param entry Mục nhập giá cơ sở gốc.
      * @param depreciatedPrice Giá đã khấu hao (nếu có).
      * @param strategy Chiến lược khấu hao được áp dụng.
+     * @param matchType Cách entry được chọn (EXACT/COMPACT/CONTAINS/FUZZY/FALLBACK), null nếu không tìm thấy.
+     * @param matchConfidence Độ tin cậy 0..1 của việc so khớp tên model.
      */
-    public record LookupResult(boolean found, BaselinePriceEntry entry, long depreciatedPrice, DepreciationStrategy strategy) {
-        public static LookupResult notFound() { return new LookupResult(false, null, 0, DepreciationStrategy.none()); }
-        public static LookupResult found(BaselinePriceEntry e, long price, DepreciationStrategy s) { return new LookupResult(true, e, price, s); }
+    public record LookupResult(boolean found, BaselinePriceEntry entry, long depreciatedPrice, DepreciationStrategy strategy,
+                               BaselinePriceRepository.MatchType matchType, double matchConfidence) {
+        public static LookupResult notFound() { return new LookupResult(false, null, 0, DepreciationStrategy.none(), null, 0.0); }
+        public static LookupResult found(BaselinePriceRepository.Match m, long price, DepreciationStrategy s) {
+            return new LookupResult(true, m.entry(), price, s, m.type(), m.confidence());
+        }
     }
 
     public BaselinePriceService(BaselinePriceRepository repository) { this.repository = repository; }
@@ -47,23 +52,24 @@ public class BaselinePriceService {
      * @return {@link LookupResult} chứa giá cơ sở, giá đã khấu hao và chiến lược.
      */
     public LookupResult lookup(String brand, String model, String variant, int ageYears) {
-        Optional<BaselinePriceEntry> match = repository.findBestMatch(brand, model, variant);
+        Optional<BaselinePriceRepository.Match> match = repository.findBestMatchScored(brand, model, variant);
         if (match.isEmpty()) {
             log.debug("Baseline not found brand={} model={} variant={} ageYears={}", brand, model, variant, ageYears);
             return LookupResult.notFound();
         }
 
-        BaselinePriceEntry entry = match.get();
+        BaselinePriceEntry entry = match.get().entry();
         DepreciationStrategy strategy = parseStrategy(entry.getNotes());
         long depreciated = strategy.apply(entry.getBaselinePrice(), ageYears);
 
         // Đảm bảo giá trị đã khấu hao không vượt quá giá baseline ban đầu
         if (depreciated > entry.getBaselinePrice()) depreciated = entry.getBaselinePrice();
 
-        log.debug("Baseline resolved brand={} model={} variant={} base={} depreciated={} strategy={} rate={} maxDep={}",
+        log.debug("Baseline resolved brand={} model={} variant={} base={} depreciated={} strategy={} rate={} maxDep={} match={} confidence={}",
                 entry.getBrand(), entry.getModel(), entry.getVariant(), entry.getBaselinePrice(), depreciated,
-                strategy.type(), strategy.rate(), strategy.maxDepreciation()); // Dùng getter của Record
-        return LookupResult.found(entry, depreciated, strategy);
+                strategy.type(), strategy.rate(), strategy.maxDepreciation(), // Dùng getter của Record
+                match.get().type(), match.get().confidence());
+        return LookupResult.found(match.get(), depreciated, strategy);
     }
 
     /**
@@ -0,0 +1,73 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+/**
+ * Count-Min Sketch ước lượng tần suất truy cập gần đây của một key (dùng cho TinyLFU admission).
+ * <p>
+ * 4 hàng bộ đếm, mỗi bộ đếm bão hòa ở 15. Sau {@code sampleSize} lần tăng, mọi bộ đếm bị chia đôi
+ * để tần suất cũ "già" đi và key từng nóng nhưng nay không còn dùng không chiếm chỗ mãi.
+ * Không thread-safe: {@link TinyLfuCache} gọi trong khóa của nó.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xa1b2c3d5, 0x5bd1e995, 0x27d4eb2f};
+
+    private final int[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int width = Integer.highestOneBit(Math.max(16, maximumSize) * 2 - 1) << 1;
+        this.table = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(10, maximumSize * 10);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table[row][index(hash, row)]);
+        }
+        return min;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = index(hash, row);
+            if (table[row][i] < MAX_COUNT) {
+                table[row][i]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions >>>= 1;
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1b51;
+        return hash ^ (hash >>> 15);
+    }
+}
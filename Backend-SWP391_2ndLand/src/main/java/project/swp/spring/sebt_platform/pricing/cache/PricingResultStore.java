@@ -0,0 +1,208 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.model.PricingResultEntity;
+import project.swp.spring.sebt_platform.repository.PricingResultRepository;
+
+/**
+ * Tầng cache thứ hai, bền vững, cho kết quả định giá AI (bảng {@code pricing_results}).
+ * <p>
+ * Cache trong bộ nhớ mất sạch sau mỗi lần deploy/restart; store này giữ lại các giá Gemini đã tính để
+ * nạp lại lúc khởi động và trả lời khi cache trong bộ nhớ miss. Kết quả chỉ hợp lệ khi prompt version
+ * còn là version hiện tại và chưa quá TTL. Ghi chạy trên một thread nền nên không cộng thêm độ trễ
+ * cho request; DB lỗi thì chỉ log, pricing vẫn chạy như không có store.
+ */
+@Component
+public class PricingResultStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingResultStore.class);
+
+    /**
+     * Một kết quả đọc từ store, kèm thời gian sống còn lại (null = không hết hạn).
+     */
+    public record Stored(String cacheKey, PricingSuggestResponseDTO result, Duration remaining) {
+    }
+
+    private final PricingResultRepository repository;
+    private final boolean enabled;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pricing-result-store");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PricingResultStore(PricingResultRepository repository,
+                              @Value("${app.pricing.store.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Kết quả đã lưu của {@code cacheKey} nếu còn hợp lệ với các prompt version hiện tại.
+     */
+    public Optional<Stored> find(String cacheKey, Collection<String> promptVersions) {
+        if (!enabled) return Optional.empty();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            return repository.findByKeyHash(hash(cacheKey))
+                    .filter(e -> promptVersions.contains(e.getPromptVersion()) && isLive(e, now))
+                    .map(e -> decode(e, now));
+        } catch (Exception e) {
+            logger.warn("Pricing result store lookup failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Lưu (ghi đè) kết quả của {@code cacheKey}. DTO được serialize ngay trên thread gọi vì caller còn
+     * sửa nó sau đó (vd. cờ cacheHit); phần ghi DB chạy nền.
+     *
+     * @param ttl thời gian sống; null hoặc <= 0 = không hết hạn
+     */
+    public void save(String cacheKey, String brand, PricingSuggestResponseDTO result, Duration ttl) {
+        if (!enabled || result == null || result.getPromptVersion() == null) return;
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            logger.warn("Cannot serialize pricing result key={}: {}", cacheKey, e.getMessage());
+            return;
+        }
+        String version = result.getPromptVersion();
+        LocalDateTime expiresAt = ttl == null || ttl.isZero() || ttl.isNegative()
+                ? null : LocalDateTime.now().plus(ttl);
+        try {
+            writer.execute(() -> upsert(cacheKey, brand, version, payload, expiresAt));
+        } catch (RejectedExecutionException e) {
+            // Đang shutdown
+        }
+    }
+
+    /**
+     * Các kết quả hợp lệ mới nhất (tối đa {@code limit}) để làm nóng cache lúc khởi động.
+     */
+    public List<Stored> loadLatest(Collection<String> promptVersions, int limit) {
+        if (!enabled || limit <= 0) return List.of();
+        LocalDateTime now = LocalDateTime.now();
+        List<Stored> loaded = new ArrayList<>();
+        for (PricingResultEntity e : repository.findLatestValid(promptVersions, now, PageRequest.of(0, limit))) {
+            try {
+                loaded.add(decode(e, now));
+            } catch (RuntimeException ex) {
+                logger.warn("Skipping unreadable pricing result id={}: {}", e.getId(), ex.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Xóa kết quả của prompt version cũ: đổi prompt thì giá cũ không còn được dùng.
+     */
+    public int retainVersions(Collection<String> promptVersions) {
+        return enabled ? repository.deleteOtherVersions(promptVersions) : 0;
+    }
+
+    /**
+     * Xóa kết quả của các brand thỏa {@code affected} (vd. baseline của brand vừa đổi).
+     */
+    public int invalidateBrands(Predicate<String> affected) {
+        if (!enabled) return 0;
+        List<String> brands = repository.findDistinctBrands().stream().filter(affected).toList();
+        return brands.isEmpty() ? 0 : repository.deleteByBrandIn(brands);
+    }
+
+    @Scheduled(fixedDelayString = "${app.pricing.store.purgeIntervalMillis:3600000}")
+    public void purgeExpired() {
+        if (!enabled) return;
+        try {
+            int removed = repository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) logger.info("Purged {} expired pricing results", removed);
+        } catch (Exception e) {
+            logger.warn("Purging expired pricing results failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        // Cho các lần ghi đang chờ chạy xong trước khi tắt
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void upsert(String cacheKey, String brand, String version, String payload, LocalDateTime expiresAt) {
+        String keyHash = hash(cacheKey);
+        try {
+            PricingResultEntity entity = repository.findByKeyHash(keyHash).orElseGet(PricingResultEntity::new);
+            entity.setKeyHash(keyHash);
+            entity.setCacheKey(cacheKey);
+            entity.setBrand(brand == null || brand.isBlank() ? null : brand);
+            entity.setPromptVersion(version);
+            entity.setPayload(payload);
+            entity.setExpiresAt(expiresAt);
+            repository.save(entity);
+        } catch (DataIntegrityViolationException e) {
+            // Instance khác vừa ghi cùng key: bản của họ cũng mới như của mình
+            logger.debug("Concurrent pricing result write key={}", cacheKey);
+        } catch (Exception e) {
+            logger.warn("Saving pricing result failed key={}: {}", cacheKey, e.getMessage());
+        }
+    }
+
+    private Stored decode(PricingResultEntity e, LocalDateTime now) {
+        try {
+            PricingSuggestResponseDTO result = objectMapper.readValue(e.getPayload(), PricingSuggestResponseDTO.class);
+            Duration remaining = e.getExpiresAt() == null ? null : Duration.between(now, e.getExpiresAt());
+            return new Stored(e.getCacheKey(), result, remaining);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Corrupt pricing result payload", ex);
+        }
+    }
+
+    private static boolean isLive(PricingResultEntity e, LocalDateTime now) {
+        return e.getExpiresAt() == null || e.getExpiresAt().isAfter(now);
+    }
+
+    static String hash(String cacheKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(cacheKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Gộp các lời gọi đồng thời có cùng key thành một lần tính duy nhất ("single-flight").
+ * <p>
+ * Thread đầu tiên với một key trở thành leader và chạy {@code loader}; các thread đến sau trong
+ * lúc leader còn chạy chỉ chờ chung {@link CompletableFuture} và nhận cùng kết quả (hoặc cùng
+ * exception). Khi leader xong, key được gỡ khỏi map nên lần gọi sau sẽ tính lại (hoặc trúng cache).
+ * <p>
+ * {@link #executeAsync} làm tương tự cho loader trả về future: không thread nào phải chờ, người đến sau nhận
+ * một bản sao của future chung (hủy bản sao không ảnh hưởng người khác).
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Số liệu tích lũy: số lần thực sự chạy loader, số lời gọi được gộp, số key đang chạy.
+     */
+    public record Stats(long executions, long coalesced, int inFlight) {
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        executions.increment();
+        CompletableFuture<V> loading;
+        try {
+            loading = loader.get();
+        } catch (RuntimeException | Error e) {
+            loading = CompletableFuture.failedFuture(e);
+        }
+        loading.whenComplete((value, error) -> {
+            inFlight.remove(key, mine);
+            if (error == null) {
+                mine.complete(value);
+            } else {
+                mine.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+        return mine.copy();
+    }
+
+    public Stats stats() {
+        return new Stats(executions.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Ném lại đúng exception của leader thay vì bản bọc CompletionException
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Cache có giới hạn kích thước theo chính sách W-TinyLFU, kèm TTL cho từng entry.
+ * <p>
+ * Entry mới vào "window" LRU nhỏ (~1% dung lượng). Khi window đầy, entry cũ nhất của window trở
+ * thành ứng viên vào vùng chính (SLRU: probation + protected 80%) và chỉ được giữ lại nếu tần suất
+ * ước lượng ({@link FrequencySketch}) cao hơn nạn nhân ở đầu probation. Nhờ vậy một loạt key chỉ
+ * dùng một lần không đẩy được các key nóng ra ngoài như cách "xóa một nửa map" trước đây.
+ * <p>
+ * Mọi thao tác nằm trong một khóa: entry là kết quả định giá tốn hàng giây gọi AI, nên chi phí
+ * khóa không đáng kể so với một lần miss.
+ */
+public final class TinyLfuCache<K, V> {
+
+    /**
+     * Số liệu tích lũy từ lúc tạo cache.
+     */
+    public record Stats(long hits, long misses, long evictions, long expirations, int size, int maximumSize) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node<V> {
+        V value;
+        long expiresAt;
+        Region region;
+
+        Node(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.region = Region.WINDOW;
+        }
+    }
+
+    private final int maximumSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+    private final FrequencySketch sketch;
+
+    private final Map<K, Node<V>> data = new HashMap<>();
+    // LinkedHashSet giữ thứ tự LRU: đầu = cũ nhất, remove + add = đưa về cuối
+    private final LinkedHashSet<K> window = new LinkedHashSet<>();
+    private final LinkedHashSet<K> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<K> protectedRegion = new LinkedHashSet<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public TinyLfuCache(int maximumSize, Duration ttl) {
+        this(maximumSize, ttl, System::nanoTime);
+    }
+
+    TinyLfuCache(int maximumSize, Duration ttl, LongSupplier ticker) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+        this.maximumSize = maximumSize;
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.protectedMax = (int) ((maximumSize - windowMax) * 0.8);
+        this.ttlNanos = ttl == null || ttl.isZero() || ttl.isNegative() ? Long.MAX_VALUE : ttl.toNanos();
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(node, ticker.getAsLong())) {
+            remove(key, node);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(key, node);
+        return node.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        insert(key, value, expiry(ticker.getAsLong()));
+    }
+
+    /**
+     * Như {@link #put(Object, Object)} nhưng hết hạn sau {@code remaining} (không quá TTL của cache),
+     * dùng khi nạp lại một kết quả đã có tuổi từ store bền vững.
+     */
+    public synchronized void put(K key, V value, Duration remaining) {
+        long now = ticker.getAsLong();
+        long nanos = Math.max(0, Math.min(remaining.toNanos(), Long.MAX_VALUE >> 1));
+        insert(key, value, Math.min(expiry(now) - now, nanos) + now);
+    }
+
+    private void insert(K key, V value, long expiresAt) {
+        sketch.increment(key);
+        Node<V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            onAccess(key, node);
+            return;
+        }
+        data.put(key, new Node<>(value, expiresAt));
+        window.add(key);
+        if (window.size() > windowMax) {
+            K candidate = pollFirst(window);
+            data.get(candidate).region = Region.PROBATION;
+            probation.add(candidate);
+            if (data.size() > maximumSize) {
+                evict(candidate);
+            }
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        Node<V> node = data.get(key);
+        if (node != null) remove(key, node);
+    }
+
+    /**
+     * Xóa các entry có key thỏa {@code predicate} (vd. mọi giá của một brand có baseline vừa đổi).
+     *
+     * @return số entry đã xóa
+     */
+    public synchronized int invalidateIf(Predicate<? super K> predicate) {
+        List<K> matched = data.keySet().stream().filter(predicate).toList();
+        for (K key : matched) remove(key, data.get(key));
+        return matched.size();
+    }
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedRegion.clear();
+    }
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations, data.size(), maximumSize);
+    }
+
+    // TinyLFU admission: ứng viên từ window chỉ thay được nạn nhân ở đầu probation nếu được dùng nhiều hơn
+    private void evict(K candidate) {
+        K victim = probation.iterator().next();
+        if (victim.equals(candidate) && !protectedRegion.isEmpty()) {
+            // Probation chỉ còn ứng viên: so với entry cũ nhất của protected
+            victim = protectedRegion.iterator().next();
+        }
+        Node<V> victimNode = data.get(victim);
+        K evicted;
+        if (victim.equals(candidate) || isExpired(victimNode, ticker.getAsLong())) {
+            evicted = victim;
+        } else {
+            evicted = sketch.frequency(candidate) > sketch.frequency(victim) ? victim : candidate;
+        }
+        Node<V> evictedNode = data.get(evicted);
+        remove(evicted, evictedNode);
+        if (isExpired(evictedNode, ticker.getAsLong())) {
+            expirations++;
+        } else {
+            evictions++;
+        }
+    }
+
+    private void onAccess(K key, Node<V> node) {
+        switch (node.region) {
+            case WINDOW -> moveToTail(window, key);
+            case PROTECTED -> moveToTail(protectedRegion, key);
+            case PROBATION -> {
+                // Được dùng lại khi đang "thử việc" -> lên protected; protected tràn thì hạ entry cũ nhất xuống
+                probation.remove(key);
+                node.region = Region.PROTECTED;
+                protectedRegion.add(key);
+                if (protectedRegion.size() > protectedMax) {
+                    K demoted = pollFirst(protectedRegion);
+                    data.get(demoted).region = Region.PROBATION;
+                    probation.add(demoted);
+                }
+            }
+        }
+    }
+
+    private void remove(K key, Node<V> node) {
+        data.remove(key);
+        switch (node.region) {
+            case WINDOW -> window.remove(key);
+            case PROBATION -> probation.remove(key);
+            case PROTECTED -> protectedRegion.remove(key);
+        }
+    }
+
+    private boolean isExpired(Node<V> node, long now) {
+        return node.expiresAt - now <= 0;
+    }
+
+    private long expiry(long now) {
+        // Tránh tràn số khi không cấu hình TTL
+        return ttlNanos == Long.MAX_VALUE ? now + (Long.MAX_VALUE >> 1) : now + ttlNanos;
+    }
+
+    private static <K> void moveToTail(LinkedHashSet<K> order, K key) {
+        order.remove(key);
+        order.add(key);
+    }
+
+    private static <K> K pollFirst(LinkedHashSet<K> order) {
+        Iterator<K> it = order.iterator();
+        K first = it.next();
+        it.remove();
+        return first;
+    }
+}
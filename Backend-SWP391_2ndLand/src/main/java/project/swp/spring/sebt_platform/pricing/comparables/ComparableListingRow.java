@@ -0,0 +1,37 @@
+package project.swp.spring.sebt_platform.pricing.comparables;
+
+import java.math.BigDecimal;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+
+/**
+ * Giá và thông tin nhận diện xe/pin của một listing, đọc bằng constructor expression JPQL.
+ * Listing EV có các cột battery* = null và ngược lại.
+ */
+public record ComparableListingRow(Long id,
+                                   ListingStatus status,
+                                   BigDecimal price,
+                                   String evBrand,
+                                   String evModel,
+                                   Integer evYear,
+                                   String batteryBrand,
+                                   String batteryName,
+                                   Integer batteryYear) {
+
+    // Cùng brand/tên có thể là cả xe lẫn pin (VD "VinFast"), nên nhóm tách theo loại
+    String category() {
+        return evBrand != null ? "EV" : "BATTERY";
+    }
+
+    String brand() {
+        return evBrand != null ? evBrand : batteryBrand;
+    }
+
+    String model() {
+        return evBrand != null ? evModel : batteryName;
+    }
+
+    Integer year() {
+        return evBrand != null ? evYear : batteryYear;
+    }
+}
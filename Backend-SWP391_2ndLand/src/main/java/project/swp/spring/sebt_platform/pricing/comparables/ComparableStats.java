@@ -0,0 +1,26 @@
+package project.swp.spring.sebt_platform.pricing.comparables;
+
+/**
+ * Thống kê giá của một nhóm listing tương đương (cùng brand, model, khoảng năm).
+ *
+ * @param count Số listing ACTIVE + SOLD trong nhóm.
+ * @param soldCount Số listing đã bán (giá giao dịch thật).
+ * @param median Giá trung vị.
+ * @param q1 Tứ phân vị dưới.
+ * @param q3 Tứ phân vị trên.
+ * @param fromYear Năm đầu của khoảng năm.
+ * @param toYear Năm cuối của khoảng năm.
+ */
+public record ComparableStats(int count, int soldCount, long median, long q1, long q3, int fromYear, int toYear) {
+
+    public long iqr() {
+        return q3 - q1;
+    }
+
+    /**
+     * Độ phân tán tương đối IQR / median; càng nhỏ thì giá thị trường của nhóm càng thống nhất.
+     */
+    public double spread() {
+        return median <= 0 ? Double.MAX_VALUE : iqr() / (double) median;
+    }
+}
@@ -0,0 +1,215 @@
+package project.swp.spring.sebt_platform.pricing.comparables;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.listing.ListingChangeListener;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+/**
+ * Thống kê giá thị trường từ chính các listing ACTIVE/SOLD của sàn, theo nhóm
+ * (loại EV/BATTERY, brand, model, khoảng năm): median, IQR, số mẫu.
+ * <p>
+ * Dựng một lần khi khởi động, sau đó cập nhật tăng dần giống {@code ListingFacetCache}: listing bị
+ * đánh dấu qua {@link ListingChangeListener} được trừ đóng góp cũ rồi cộng đóng góp mới (nếu còn
+ * ACTIVE/SOLD). Listing chỉ được đánh dấu sau khi transaction commit, nên lần đọc lại luôn thấy giá/trạng
+ * thái đã commit. Thống kê của mỗi nhóm thay đổi được publish thành record bất biến nên
+ * {@link #lookup} không cần khóa và không bao giờ chạm DB.
+ */
+@Component
+public class ComparablesIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComparablesIndex.class);
+    private static final List<ListingStatus> STATUSES = List.of(ListingStatus.ACTIVE, ListingStatus.SOLD);
+
+    /**
+     * Số liệu hiển thị trên health endpoint.
+     */
+    public record Stats(boolean ready, int listings, int groups) {
+    }
+
+    // Đóng góp của một listing vào đúng một nhóm
+    private record Contribution(String key, long price, boolean sold) {
+    }
+
+    private static final class Group {
+        final SortedPrices prices = new SortedPrices();
+        int sold;
+    }
+
+    private final ListingRepository listingRepository;
+    private final int batchSize;
+    private final int yearBucketSize;
+
+    // Trạng thái nội bộ, chỉ sửa trong các method synchronized
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+
+    // Snapshot đã publish, đọc không cần khóa
+    private final Map<String, ComparableStats> published = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    public ComparablesIndex(ListingRepository listingRepository,
+                            @Value("${app.pricing.comparables.batchSize:1000}") int batchSize,
+                            @Value("${app.pricing.comparables.yearBucketSize:2}") int yearBucketSize) {
+        this.listingRepository = listingRepository;
+        this.batchSize = batchSize;
+        this.yearBucketSize = Math.max(1, yearBucketSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Không chặn khởi động; pricing vẫn chạy bằng baseline/AI cho tới lần rebuild sau
+            logger.error("[COMPARABLES] Warm-up failed", e);
+        }
+    }
+
+    /**
+     * Dựng toàn bộ thống kê từ DB (một lượt quét các listing ACTIVE/SOLD theo lô).
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        contributions.clear();
+        groups.clear();
+
+        long afterId = 0;
+        List<ComparableListingRow> batch;
+        do {
+            batch = listingRepository.findComparableRows(STATUSES, afterId, PageRequest.of(0, batchSize));
+            for (ComparableListingRow row : batch) {
+                add(row, null);
+                afterId = row.id();
+            }
+        } while (batch.size() == batchSize);
+
+        published.clear();
+        groups.keySet().forEach(this::publish);
+        ready = true;
+        logger.info("[COMPARABLES] Built {} comparable groups from {} listings in {} ms",
+                groups.size(), contributions.size(), System.currentTimeMillis() - start);
+    }
+
+    public void markDirty(Long listingId) {
+        if (listingId != null) {
+            dirty.add(listingId);
+        }
+    }
+
+    /**
+     * Áp dụng thay đổi của các listing dirty.
+     *
+     * @return số listing đã xử lý
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.comparables.refreshIntervalMillis:1000}")
+    public synchronized int refresh() {
+        if (!ready || dirty.isEmpty()) return 0;
+
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        List<ComparableListingRow> fresh;
+        try {
+            fresh = listingRepository.findComparableRowsByIds(ids);
+        } catch (Exception e) {
+            logger.error("[COMPARABLES] Refresh failed for {} listings, will retry", ids.size(), e);
+            dirty.addAll(ids);
+            return 0;
+        }
+
+        Map<Long, ComparableListingRow> byId = new HashMap<>();
+        fresh.forEach(row -> byId.put(row.id(), row));
+        Set<String> changed = new HashSet<>();
+        for (Long id : ids) {
+            Contribution previous = contributions.remove(id);
+            if (previous != null) removeContribution(previous, changed);
+            ComparableListingRow current = byId.get(id);
+            if (current != null && STATUSES.contains(current.status())) add(current, changed);
+        }
+        changed.forEach(this::publish);
+        return ids.size();
+    }
+
+    /**
+     * Thống kê của nhóm chứa (category, brand, model, year); rỗng nếu chưa dựng xong hoặc không có listing nào.
+     *
+     * @param category "EV" hoặc "BATTERY" (không phân biệt hoa thường)
+     */
+    public Optional<ComparableStats> lookup(String category, String brand, String model, Integer year) {
+        String key = key(category, brand, model, year);
+        return key == null ? Optional.empty() : Optional.ofNullable(published.get(key));
+    }
+
+    public Stats stats() {
+        return new Stats(ready, published.values().stream().mapToInt(ComparableStats::count).sum(), published.size());
+    }
+
+    private void add(ComparableListingRow row, Set<String> changed) {
+        String key = key(row.category(), row.brand(), row.model(), row.year());
+        if (key == null || row.price() == null || row.price().signum() <= 0) return;
+        Contribution c = new Contribution(key, row.price().longValue(), row.status() == ListingStatus.SOLD);
+        Group group = groups.computeIfAbsent(key, k -> new Group());
+        group.prices.add(c.price());
+        if (c.sold()) group.sold++;
+        contributions.put(row.id(), c);
+        if (changed != null) changed.add(key);
+    }
+
+    private void removeContribution(Contribution c, Set<String> changed) {
+        Group group = groups.get(c.key());
+        if (group == null || !group.prices.remove(c.price())) return;
+        if (c.sold()) group.sold--;
+        if (group.prices.size() == 0) groups.remove(c.key());
+        changed.add(c.key());
+    }
+
+    private void publish(String key) {
+        Group group = groups.get(key);
+        if (group == null) {
+            published.remove(key);
+            return;
+        }
+        int from = Integer.parseInt(key.substring(key.lastIndexOf('|') + 1));
+        published.put(key, new ComparableStats(group.prices.size(), group.sold,
+                group.prices.quantile(0.5), group.prices.quantile(0.25), group.prices.quantile(0.75),
+                from, from + yearBucketSize - 1));
+    }
+
+    private String key(String category, String brand, String model, Integer year) {
+        String c = compact(category);
+        String b = compact(brand);
+        String m = compact(model);
+        if (c.isEmpty() || b.isEmpty() || m.isEmpty() || year == null || year <= 0) return null;
+        return c + '|' + b + '|' + m + '|' + Math.floorDiv(year, yearBucketSize) * yearBucketSize;
+    }
+
+    // "VF 8", "vf-8", "VF8" cùng một nhóm
+    static String compact(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (Character.isLetterOrDigit(ch)) sb.append(Character.toLowerCase(ch));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package project.swp.spring.sebt_platform.pricing.comparables;
+
+import java.util.Arrays;
+
+/**
+ * Multiset giá đã sắp xếp của một nhóm so sánh: thêm/bớt bằng binary search, median và tứ phân vị
+ * đọc trực tiếp theo vị trí. Mỗi nhóm (brand, model, khoảng năm) chỉ vài chục-vài trăm listing nên
+ * dịch mảng khi chèn rẻ hơn dựng lại thống kê từ đầu.
+ */
+final class SortedPrices {
+
+    private long[] values = new long[8];
+    private int size;
+
+    void add(long price) {
+        int at = insertionPoint(price);
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        System.arraycopy(values, at, values, at + 1, size - at);
+        values[at] = price;
+        size++;
+    }
+
+    boolean remove(long price) {
+        int at = Arrays.binarySearch(values, 0, size, price);
+        if (at < 0) return false;
+        System.arraycopy(values, at + 1, values, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Phân vị {@code q} (0..1) theo nội suy tuyến tính giữa hai phần tử kề nhau.
+     */
+    long quantile(double q) {
+        if (size == 0) throw new IllegalStateException("empty");
+        double pos = q * (size - 1);
+        int lower = (int) Math.floor(pos);
+        int upper = Math.min(size - 1, lower + 1);
+        return Math.round(values[lower] + (values[upper] - values[lower]) * (pos - lower));
+    }
+
+    private int insertionPoint(long price) {
+        int at = Arrays.binarySearch(values, 0, size, price);
+        return at < 0 ? -at - 1 : at;
+    }
+}
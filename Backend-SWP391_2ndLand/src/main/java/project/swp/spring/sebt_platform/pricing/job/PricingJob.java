@@ -0,0 +1,92 @@
+package project.swp.spring.sebt_platform.pricing.job;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import project.swp.spring.sebt_platform.dto.response.PricingJobResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+
+/**
+ * Một lần định giá chạy nền. Chuyển trạng thái RUNNING -> COMPLETED/FAILED đúng một lần,
+ * trong khóa của chính job (cùng khóa với việc đăng ký SSE subscriber).
+ */
+public final class PricingJob {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final Long ownerId;
+    private final Instant createdAt;
+    private final PricingSuggestResponseDTO provisional;
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile Long aiPrice;
+    private volatile PricingSuggestResponseDTO result;
+    private volatile String error;
+    private volatile Instant updatedAt;
+
+    PricingJob(String id, Long ownerId, PricingSuggestResponseDTO provisional) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.provisional = provisional;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+
+    public Long getAiPrice() {
+        return aiPrice;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    List<SseEmitter> subscribers() {
+        return subscribers;
+    }
+
+    // Gọi trong synchronized (job); chỉ nhận giá AI sớm đầu tiên và khi job còn chạy
+    boolean reportAiPrice(long price) {
+        if (isDone() || aiPrice != null) return false;
+        this.aiPrice = price;
+        this.updatedAt = Instant.now();
+        return true;
+    }
+
+    // Gọi trong synchronized (job)
+    boolean finish(PricingSuggestResponseDTO result, String error) {
+        if (isDone()) return false;
+        this.result = result;
+        this.error = error;
+        this.updatedAt = Instant.now();
+        this.status = result != null ? Status.COMPLETED : Status.FAILED;
+        return true;
+    }
+
+    public PricingJobResponseDTO toResponse() {
+        PricingJobResponseDTO response = new PricingJobResponseDTO(id, status.name(), provisional, result, error,
+                createdAt, updatedAt);
+        response.setAiPrice(aiPrice);
+        return response;
+    }
+}
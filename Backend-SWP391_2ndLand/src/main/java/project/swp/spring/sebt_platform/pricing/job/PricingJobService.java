@@ -0,0 +1,161 @@
+package project.swp.spring.sebt_platform.pricing.job;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.service.PricingService;
+
+/**
+ * Pricing bất đồng bộ: tạo job trả về ngay giá tạm tính (baseline/heuristic), còn bước gọi AI
+ * (retry, semantic retry) chạy trên {@code pricingJobExecutor} có giới hạn thay vì giữ thread của
+ * Tomcat. Client lấy kết quả cuối bằng cách poll job hoặc nghe SSE; khi Gemini được gọi dạng stream,
+ * giá AI được gửi sớm bằng event "ai-price" trước khi có kết quả đầy đủ.
+ * <p>
+ * Job giữ trong bộ nhớ và bị dọn sau {@code app.pricing.jobs.retentionSeconds} kể từ lần cập nhật cuối.
+ */
+@Component
+public class PricingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingJobService.class);
+    private static final long SSE_TIMEOUT_MILLIS = 120_000;
+
+    public static final String EVENT_PROVISIONAL = "provisional";
+    public static final String EVENT_AI_PRICE = "ai-price";
+    public static final String EVENT_RESULT = "result";
+
+    private final PricingService pricingService;
+    private final Executor executor;
+    private final long retentionMillis;
+    private final Map<String, PricingJob> jobs = new ConcurrentHashMap<>();
+
+    public PricingJobService(PricingService pricingService,
+                             @Qualifier("pricingJobExecutor") Executor executor,
+                             @Value("${app.pricing.jobs.retentionSeconds:900}") long retentionSeconds) {
+        this.pricingService = pricingService;
+        this.executor = executor;
+        this.retentionMillis = retentionSeconds * 1000;
+    }
+
+    /**
+     * Tạo job: tính giá tạm ngay trên thread hiện tại (không I/O) rồi đẩy bước AI vào executor.
+     *
+     * @throws RejectedExecutionException khi hàng đợi pricing đã đầy
+     */
+    public PricingJob submit(PricingSuggestRequestDTO request, Long ownerId) {
+        PricingSuggestResponseDTO provisional = pricingService.heuristicSuggestion(request);
+        PricingJob job = new PricingJob(UUID.randomUUID().toString(), ownerId, provisional);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Job của đúng người tạo; job của người khác coi như không tồn tại.
+     */
+    public Optional<PricingJob> find(String jobId, Long ownerId) {
+        PricingJob job = jobs.get(jobId);
+        if (job == null || !Objects.equals(job.getOwnerId(), ownerId)) return Optional.empty();
+        return Optional.of(job);
+    }
+
+    /**
+     * SSE: gửi ngay event "provisional", event "ai-price" khi có giá AI sớm, rồi event "result" khi job xong
+     * (gửi luôn những gì đã có nếu subscribe muộn).
+     */
+    public SseEmitter subscribe(PricingJob job) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MILLIS);
+        emitter.onCompletion(() -> job.subscribers().remove(emitter));
+        emitter.onTimeout(() -> job.subscribers().remove(emitter));
+        emitter.onError(e -> job.subscribers().remove(emitter));
+        synchronized (job) {
+            if (!send(emitter, EVENT_PROVISIONAL, job)) return emitter;
+            if (job.getAiPrice() != null && !send(emitter, EVENT_AI_PRICE, job)) return emitter;
+            if (job.isDone()) {
+                if (send(emitter, EVENT_RESULT, job)) emitter.complete();
+            } else {
+                job.subscribers().add(emitter);
+            }
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.pricing.jobs.cleanupIntervalMillis:60000}")
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.isDone() && job.getUpdatedAt().isBefore(cutoff));
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    private void run(PricingJob job, PricingSuggestRequestDTO request) {
+        PricingSuggestResponseDTO result = null;
+        String error = null;
+        try {
+            result = pricingService.suggestPrice(request, price -> dispatchAiPrice(job, price));
+        } catch (Exception e) {
+            logger.error("[PRICING_JOB] job={} failed: {}", job.getId(), e.getMessage(), e);
+            error = "Không thể định giá bằng AI, vui lòng dùng giá tạm tính";
+        }
+        synchronized (job) {
+            if (!job.finish(result, error)) return;
+            for (SseEmitter emitter : job.subscribers()) {
+                if (send(emitter, EVENT_RESULT, job)) emitter.complete();
+            }
+            job.subscribers().clear();
+        }
+    }
+
+    // Giá sớm đến trên I/O reactor thread của httpclient5 (xem GeminiClient.streamGenerateContent): không khóa job
+    // hay gửi SSE ở đó, vì một client SSE chậm sẽ chặn reactor và mọi kết nối Gemini trên nó
+    private void dispatchAiPrice(PricingJob job, long price) {
+        try {
+            executor.execute(() -> reportAiPrice(job, price));
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy: bỏ event sớm, kết quả cuối vẫn được gửi khi job xong
+            logger.debug("[PRICING_JOB] job={} early AI price dropped: queue full", job.getId());
+        }
+    }
+
+    private void reportAiPrice(PricingJob job, long price) {
+        synchronized (job) {
+            if (!job.reportAiPrice(price)) return;
+            logger.debug("[PRICING_JOB] job={} early AI price={}", job.getId(), price);
+            job.subscribers().removeIf(emitter -> !send(emitter, EVENT_AI_PRICE, job));
+        }
+    }
+
+    private static boolean send(SseEmitter emitter, String event, PricingJob job) {
+        try {
+            emitter.send(SseEmitter.event().name(event).id(job.getId()).data(job.toResponse()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client đã ngắt kết nối
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package project.swp.spring.sebt_platform.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import project.swp.spring.sebt_platform.model.ListingImageEntity;
 
@@ -9,4 +11,8 @@ import java.util.List;
 @Repository
 public interface ListingImageRepository extends JpaRepository<ListingImageEntity, Long> {
     List<ListingImageEntity> findByListingId(Long listingId);
+
+    // Chỉ lấy URL (dùng cho trang chi tiết), tránh hydrate entity ảnh
+    @Query("SELECT i.imageUrl FROM ListingImageEntity i WHERE i.listing.id = :listingId ORDER BY i.displayOrder, i.id")
+    List<String> findImageUrlsByListingId(@Param("listingId") Long listingId);
 }
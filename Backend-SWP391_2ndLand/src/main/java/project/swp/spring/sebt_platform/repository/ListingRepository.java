@@ -1,21 +1,31 @@
 package project.swp.spring.sebt_platform.repository;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import project.swp.spring.sebt_platform.listing.ListingCartRow;
+import project.swp.spring.sebt_platform.listing.ListingDetailGraph;
+import project.swp.spring.sebt_platform.listing.ListingFacetRow;
+import project.swp.spring.sebt_platform.listing.ListingSearchDocument;
 import project.swp.spring.sebt_platform.model.ListingEntity;
-import project.swp.spring.sebt_platform.model.enums.BatteryCondition;
+import project.swp.spring.sebt_platform.model.LocationEntity;
 import project.swp.spring.sebt_platform.model.enums.ListingStatus;
-import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
+import project.swp.spring.sebt_platform.model.enums.UserRole;
 import project.swp.spring.sebt_platform.model.enums.VehicleType;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparableListingRow;
 
 @Repository
 public interface ListingRepository extends JpaRepository<ListingEntity, Long>, JpaSpecificationExecutor<ListingEntity> {
@@ -46,88 +56,236 @@ public interface ListingRepository extends JpaRepository<ListingEntity, Long>, J
 
     Page<ListingEntity> findBySellerIdOrderByCreatedAtDesc(Long sellerId, Pageable pageable);
 
+    // ===== Card projections: 1 SELECT (listing JOIN seller), không hydrate entity =====
+
+    @Query(value = "SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.status = :status " +
+            "AND l.product.evVehicle IS NOT NULL " +
+            "ORDER BY l.createdAt DESC",
+            countQuery = "SELECT COUNT(l) FROM ListingEntity l " +
+                    "WHERE l.status = :status " +
+                    "AND l.product.evVehicle IS NOT NULL")
+    Page<ListingCartRow> findEvCartRowsByStatus(@Param("status") ListingStatus status, Pageable pageable);
+
+    @Query(value = "SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.status = :status " +
+            "AND l.product.battery IS NOT NULL " +
+            "ORDER BY l.createdAt DESC",
+            countQuery = "SELECT COUNT(l) FROM ListingEntity l " +
+                    "WHERE l.status = :status " +
+                    "AND l.product.battery IS NOT NULL")
+    Page<ListingCartRow> findBatteryCartRowsByStatus(@Param("status") ListingStatus status, Pageable pageable);
+
+    @Query(value = "SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.status = :status " +
+            "AND LOWER(l.title) LIKE LOWER(CONCAT('%', :keyword, '%'))",
+            countQuery = "SELECT COUNT(l) FROM ListingEntity l " +
+                    "WHERE l.status = :status " +
+                    "AND LOWER(l.title) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    Page<ListingCartRow> findCartRowsByKeyword(@Param("keyword") String keyword,
+                                               @Param("status") ListingStatus status,
+                                               Pageable pageable);
+
+    @Query(value = "SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE s.id = :sellerId " +
+            "ORDER BY l.createdAt DESC",
+            countQuery = "SELECT COUNT(l) FROM ListingEntity l WHERE l.seller.id = :sellerId")
+    Page<ListingCartRow> findCartRowsBySeller(@Param("sellerId") Long sellerId, Pageable pageable);
+
+    // Card của các listing trả về từ search index (thứ tự do index quyết định)
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.id IN :ids AND l.status = :status")
+    List<ListingCartRow> findCartRowsByIds(@Param("ids") Collection<Long> ids,
+                                           @Param("status") ListingStatus status);
+
+    // ===== Search index: đọc các trường văn bản (listing + EV/pin + location) trong một SELECT =====
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingSearchDocument(" +
+            "l.id, l.status, l.title, l.description, ev.brand, ev.name, b.brand, b.name, " +
+            "loc.province, loc.district, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "LEFT JOIN LocationEntity loc ON loc.listing.id = l.id " +
+            "WHERE l.status = :status AND l.id > :afterId " +
+            "ORDER BY l.id")
+    List<ListingSearchDocument> findSearchDocuments(@Param("status") ListingStatus status,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingSearchDocument(" +
+            "l.id, l.status, l.title, l.description, ev.brand, ev.name, b.brand, b.name, " +
+            "loc.province, loc.district, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "LEFT JOIN LocationEntity loc ON loc.listing.id = l.id " +
+            "WHERE l.id IN :ids")
+    List<ListingSearchDocument> findSearchDocumentsByIds(@Param("ids") Collection<Long> ids);
+
+    // ===== Facet cache: giá trị filter của từng listing (xe/pin + location) =====
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingFacetRow(" +
+            "l.id, l.status, ev.brand, ev.year, b.brand, b.name, b.year, b.compatibleVehicles, " +
+            "loc.province, loc.district) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "LEFT JOIN LocationEntity loc ON loc.listing.id = l.id " +
+            "WHERE l.status = :status AND l.id > :afterId " +
+            "ORDER BY l.id")
+    List<ListingFacetRow> findFacetRows(@Param("status") ListingStatus status,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingFacetRow(" +
+            "l.id, l.status, ev.brand, ev.year, b.brand, b.name, b.year, b.compatibleVehicles, " +
+            "loc.province, loc.district) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "LEFT JOIN LocationEntity loc ON loc.listing.id = l.id " +
+            "WHERE l.id IN :ids")
+    List<ListingFacetRow> findFacetRowsByIds(@Param("ids") Collection<Long> ids);
+
+    // ===== Filter data khi facet cache chưa dựng xong: cùng phạm vi với cache (chỉ listing theo status) =====
+
+    @Query("SELECT DISTINCT loc.province FROM LocationEntity loc JOIN loc.listing l " +
+            "WHERE l.status = :status AND loc.province IS NOT NULL ORDER BY loc.province ASC")
+    List<String> findDistinctProvincesByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT loc.district FROM LocationEntity loc JOIN loc.listing l " +
+            "WHERE l.status = :status AND loc.district IS NOT NULL ORDER BY loc.district ASC")
+    List<String> findDistinctDistrictsByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT loc.district FROM LocationEntity loc JOIN loc.listing l " +
+            "WHERE l.status = :status AND loc.province = :province AND loc.district IS NOT NULL " +
+            "ORDER BY loc.district ASC")
+    List<String> findDistinctDistrictsByStatusAndProvince(@Param("status") ListingStatus status,
+                                                          @Param("province") String province);
+
+    @Query("SELECT DISTINCT ev.brand FROM ListingEntity l JOIN l.product p JOIN p.evVehicle ev " +
+            "WHERE l.status = :status AND ev.brand IS NOT NULL ORDER BY ev.brand ASC")
+    List<String> findDistinctEvBrandsByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT ev.year FROM ListingEntity l JOIN l.product p JOIN p.evVehicle ev " +
+            "WHERE l.status = :status AND ev.year IS NOT NULL ORDER BY ev.year DESC")
+    List<Integer> findDistinctEvYearsByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT b.brand FROM ListingEntity l JOIN l.product p JOIN p.battery b " +
+            "WHERE l.status = :status AND b.brand IS NOT NULL ORDER BY b.brand ASC")
+    List<String> findDistinctBatteryBrandsByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT b.name FROM ListingEntity l JOIN l.product p JOIN p.battery b " +
+            "WHERE l.status = :status AND b.name IS NOT NULL ORDER BY b.name ASC")
+    List<String> findDistinctBatteryNamesByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT DISTINCT b.year FROM ListingEntity l JOIN l.product p JOIN p.battery b " +
+            "WHERE l.status = :status AND b.year IS NOT NULL ORDER BY b.year DESC")
+    List<Integer> findDistinctBatteryYearsByStatus(@Param("status") ListingStatus status);
+
+    @Query("SELECT b.compatibleVehicles FROM ListingEntity l JOIN l.product p JOIN p.battery b " +
+            "WHERE l.status = :status AND b.compatibleVehicles IS NOT NULL")
+    List<String> findCompatibleVehiclesByStatus(@Param("status") ListingStatus status);
+
+    // ===== Comparables: giá + brand/model/năm của từng listing để thống kê giá thị trường =====
+
+    @Query("SELECT new project.swp.spring.sebt_platform.pricing.comparables.ComparableListingRow(" +
+            "l.id, l.status, l.price, ev.brand, ev.name, ev.year, b.brand, b.name, b.year) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "WHERE l.status IN :statuses AND l.id > :afterId " +
+            "ORDER BY l.id")
+    List<ComparableListingRow> findComparableRows(@Param("statuses") Collection<ListingStatus> statuses,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable pageable);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.pricing.comparables.ComparableListingRow(" +
+            "l.id, l.status, l.price, ev.brand, ev.name, ev.year, b.brand, b.name, b.year) " +
+            "FROM ListingEntity l JOIN l.product p " +
+            "LEFT JOIN p.evVehicle ev LEFT JOIN p.battery b " +
+            "WHERE l.id IN :ids")
+    List<ComparableListingRow> findComparableRowsByIds(@Param("ids") Collection<Long> ids);
+
+    // ===== Keyset (seek) pagination trên (createdAt DESC, id DESC): không OFFSET, không COUNT(*) =====
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.status = :status " +
+            "AND l.product.evVehicle IS NOT NULL " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    Slice<ListingCartRow> seekEvCartRows(@Param("status") ListingStatus status,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE l.status = :status " +
+            "AND l.product.battery IS NOT NULL " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    Slice<ListingCartRow> seekBatteryCartRows(@Param("status") ListingStatus status,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable pageable);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.listing.ListingCartRow(" +
+            "l.id, l.title, l.thumbnailImage, l.price, l.viewsCount, l.status, s.phoneNumber, l.createdAt) " +
+            "FROM ListingEntity l JOIN l.seller s " +
+            "WHERE s.id = :sellerId " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    Slice<ListingCartRow> seekCartRowsBySeller(@Param("sellerId") Long sellerId,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    /**
+     * Trang chi tiết: 1 query fetch join listing + seller + product + EV/battery + location,
+     * kèm role của người xem (subquery) để không phải gọi thêm userRepository.
+     * Dùng qua {@link #findDetailGraph(Long, Long)}.
+     */
+    @Query("SELECT l, loc, (SELECT u.role FROM UserEntity u WHERE u.id = :viewerId) " +
+            "FROM ListingEntity l " +
+            "JOIN FETCH l.seller " +
+            "LEFT JOIN FETCH l.product p " +
+            "LEFT JOIN FETCH p.evVehicle " +
+            "LEFT JOIN FETCH p.battery " +
+            "LEFT JOIN LocationEntity loc ON loc.listing.id = l.id " +
+            "WHERE l.id = :listingId")
+    List<Object[]> findDetailGraphRows(@Param("listingId") Long listingId, @Param("viewerId") Long viewerId);
+
+    default Optional<ListingDetailGraph> findDetailGraph(Long listingId, Long viewerId) {
+        List<Object[]> rows = findDetailGraphRows(listingId, viewerId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        return Optional.of(new ListingDetailGraph((ListingEntity) row[0], (LocationEntity) row[1], (UserRole) row[2]));
+    }
+
     @Query("SELECT l FROM ListingEntity l " +
             "WHERE l.status = 'ACTIVE' " +
             "AND LOWER(l.title) LIKE LOWER(CONCAT('%', :title, '%'))")
     List<ListingEntity> findByTitleContaining(@Param("title") String title);
 
-    @Query(
-            "SELECT l FROM ListingEntity l " +
-                    "JOIN LocationEntity lt ON l.id = lt.listing.id " +
-                    "WHERE l.status = 'ACTIVE' " +
-                    "AND (:year IS NULL OR l.product.evVehicle.year = :year) " +
-                    "AND (:minYear IS NULL OR l.product.evVehicle.year >= :minYear) " +
-                    "AND (:maxYear IS NULL OR l.product.evVehicle.year <= :maxYear) " +
-                    "AND (:type IS NULL OR l.product.evVehicle.type = :type) " +
-                    "AND (:brand IS NULL OR LOWER(l.product.evVehicle.brand) = LOWER(:brand)) " +
-                    "AND (:province IS NULL OR LOWER(lt.province) LIKE LOWER(CONCAT('%', :province, '%'))) " +
-                    "AND (:district IS NULL OR LOWER(lt.district) LIKE LOWER(CONCAT('%', :district, '%'))) " +
-                    "AND (:conditionStatus IS NULL OR l.product.evVehicle.conditionStatus = :conditionStatus) " +
-                    "AND (:minMileage IS NULL OR l.product.evVehicle.mileage >= :minMileage) " +
-                    "AND (:maxMileage IS NULL OR l.product.evVehicle.mileage <= :maxMileage) " +
-                    "AND (:minBatteryCapacity IS NULL OR l.product.evVehicle.batteryCapacity >= :minBatteryCapacity) " +
-                    "AND (:maxBatteryCapacity IS NULL OR l.product.evVehicle.batteryCapacity <= :maxBatteryCapacity) " +
-                    "AND (:minPrice IS NULL OR l.price >= :minPrice) " +
-                    "AND (:maxPrice IS NULL OR l.price <= :maxPrice) " +
-                    "AND l.product.evVehicle IS NOT NULL " +
-                    "ORDER BY l.createdAt DESC"
-    )
-    Page<ListingEntity> filterEvListings(
-            @Param("year") Integer year,
-            @Param("minYear") Integer minYear,
-            @Param("maxYear") Integer maxYear,
-            @Param("type") VehicleType type,
-            @Param("brand") String brand,
-            @Param("province") String province,
-            @Param("district") String district,
-            @Param("conditionStatus") VehicleCondition conditionStatus,
-            @Param("minMileage") Integer minMileage,
-            @Param("maxMileage") Integer maxMileage,
-            @Param("minBatteryCapacity") Integer minBatteryCapacity,
-            @Param("maxBatteryCapacity") Integer maxBatteryCapacity,
-            @Param("minPrice") BigDecimal minPrice,
-            @Param("maxPrice") BigDecimal maxPrice,
-            Pageable pageable);
-
-    @Query(
-            "SELECT l FROM ListingEntity l " +
-                    "JOIN LocationEntity lt ON l.id = lt.listing.id " +
-                    "WHERE l.status = 'ACTIVE' " +
-                    "AND (:brand IS NULL OR LOWER(l.product.battery.brand) = LOWER(:brand)) " +
-                    "AND (:name IS NULL OR LOWER(l.product.battery.name) LIKE LOWER(CONCAT('%', :name, '%'))) " +
-                    "AND (:year IS NULL OR l.product.battery.year = :year) " +
-                    "AND (:minYear IS NULL OR l.product.battery.year >= :minYear) " +
-                    "AND (:maxYear IS NULL OR l.product.battery.year <= :maxYear) " +
-                    "AND (:province IS NULL OR LOWER(lt.province) LIKE LOWER(CONCAT('%', :province, '%'))) " +
-                    "AND (:district IS NULL OR LOWER(lt.district) LIKE LOWER(CONCAT('%', :district, '%'))) " +
-                    "AND (:conditionStatus IS NULL OR l.product.battery.conditionStatus = :conditionStatus) " +
-                    "AND (:compatibility IS NULL OR LOWER(l.product.battery.compatibleVehicles) LIKE LOWER(CONCAT('%', :compatibility, '%'))) " +
-                    "AND (:minBatteryCapacity IS NULL OR l.product.battery.capacity >= :minBatteryCapacity) " +
-                    "AND (:maxBatteryCapacity IS NULL OR l.product.battery.capacity <= :maxBatteryCapacity) " +
-                    "AND (:minHealthPercentage IS NULL OR l.product.battery.healthPercentage >= :minHealthPercentage) " +
-                    "AND (:maxHealthPercentage IS NULL OR l.product.battery.healthPercentage <= :maxHealthPercentage) " +
-                    "AND (:minPrice IS NULL OR l.price >= :minPrice) " +
-                    "AND (:maxPrice IS NULL OR l.price <= :maxPrice) " +
-                    "AND l.product.battery IS NOT NULL " +
-                    "ORDER BY l.createdAt DESC"
-    )
-    Page<ListingEntity> filterBatteryListings(
-            @Param("brand") String brand,
-            @Param("name") String name,
-            @Param("year") Integer year,
-            @Param("minYear") Integer minYear,
-            @Param("maxYear") Integer maxYear,
-            @Param("province") String province,
-            @Param("district") String district,
-            @Param("conditionStatus") BatteryCondition conditionStatus,
-            @Param("compatibility") String compatibility,
-            @Param("minBatteryCapacity") Integer minBatteryCapacity,
-            @Param("maxBatteryCapacity") Integer maxBatteryCapacity,
-            @Param("minHealthPercentage") Integer minHealthPercentage,
-            @Param("maxHealthPercentage") Integer maxHealthPercentage,
-            @Param("minPrice") BigDecimal minPrice,
-            @Param("maxPrice") BigDecimal maxPrice,
-            Pageable pageable);
+    /**
+     * Filter động (xem ListingFilterSpecifications): seller được nạp cùng trang qua entity graph
+     * để dựng card không phát sinh lazy load; COUNT query không bị ảnh hưởng.
+     */
+    @Override
+    @EntityGraph(attributePaths = "seller")
+    Page<ListingEntity> findAll(Specification<ListingEntity> spec, Pageable pageable);
 
          @Query("SELECT l FROM ListingEntity l " +
             "WHERE l.status = :status " +
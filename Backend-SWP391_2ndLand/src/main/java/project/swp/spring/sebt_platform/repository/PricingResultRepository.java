@@ -0,0 +1,46 @@
+package project.swp.spring.sebt_platform.repository;
+
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import project.swp.spring.sebt_platform.model.PricingResultEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PricingResultRepository extends JpaRepository<PricingResultEntity, Long> {
+
+    Optional<PricingResultEntity> findByKeyHash(String keyHash);
+
+    @Query("SELECT r FROM PricingResultEntity r " +
+            "WHERE r.promptVersion IN :versions AND (r.expiresAt IS NULL OR r.expiresAt > :now) " +
+            "ORDER BY r.updatedAt DESC")
+    List<PricingResultEntity> findLatestValid(@Param("versions") Collection<String> versions,
+                                              @Param("now") LocalDateTime now,
+                                              Pageable pageable);
+
+    @Query("SELECT DISTINCT r.brand FROM PricingResultEntity r WHERE r.brand IS NOT NULL")
+    List<String> findDistinctBrands();
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM PricingResultEntity r WHERE r.promptVersion NOT IN :versions")
+    int deleteOtherVersions(@Param("versions") Collection<String> versions);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM PricingResultEntity r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM PricingResultEntity r WHERE r.brand IN :brands")
+    int deleteByBrandIn(@Param("brands") Collection<String> brands);
+}
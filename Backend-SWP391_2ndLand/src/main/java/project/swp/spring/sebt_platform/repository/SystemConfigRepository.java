@@ -3,6 +3,7 @@ package project.swp.spring.sebt_platform.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import project.swp.spring.sebt_platform.model.SystemConfigEntity;
+import project.swp.spring.sebt_platform.systemconfig.SystemConfigVersion;
 
 public interface SystemConfigRepository extends JpaRepository<SystemConfigEntity, Long> {
 
@@ -19,4 +20,9 @@ public interface SystemConfigRepository extends JpaRepository<SystemConfigEntity
     @Query("SELECT s FROM SystemConfigEntity s " +
             "WHERE s.configKey = 'PRICING_FEE' ")
     SystemConfigEntity findByPricingFee();
+
+    @Query("SELECT new project.swp.spring.sebt_platform.systemconfig.SystemConfigVersion(" +
+            "COUNT(s), COALESCE(SUM(s.version), 0L), COALESCE(MAX(s.id), 0L)) " +
+            "FROM SystemConfigEntity s")
+    SystemConfigVersion findVersion();
 }
@@ -0,0 +1,26 @@
+package project.swp.spring.sebt_platform.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import project.swp.spring.sebt_platform.model.WalletBalanceSnapshotEntity;
+
+import java.util.List;
+
+public interface WalletBalanceSnapshotRepository extends JpaRepository<WalletBalanceSnapshotEntity, Long> {
+
+    WalletBalanceSnapshotEntity findTopByWalletIdOrderByLastLedgerSeqDesc(Long walletId);
+
+    // Ví đã từng ghi sổ ở chế độ APPEND, theo thứ tự id ví (seek từ afterWalletId)
+    @Query("SELECT DISTINCT s.walletId FROM WalletBalanceSnapshotEntity s WHERE s.walletId > :afterWalletId ORDER BY s.walletId")
+    List<Long> findWalletIdsAfter(@Param("afterWalletId") Long afterWalletId, Pageable pageable);
+
+    // Snapshot không khớp balanceAfter của giao dịch mà nó chốt tới (hoặc giao dịch đó không tồn tại)
+    @Query("SELECT s FROM WalletBalanceSnapshotEntity s " +
+            "WHERE s.lastLedgerSeq > 0 AND NOT EXISTS (" +
+            "SELECT t.id FROM WalletTransactionEntity t " +
+            "WHERE t.wallet.id = s.walletId AND t.ledgerSeq = s.lastLedgerSeq AND t.balanceAfter = s.balance)")
+    Page<WalletBalanceSnapshotEntity> findInconsistent(Pageable pageable);
+}
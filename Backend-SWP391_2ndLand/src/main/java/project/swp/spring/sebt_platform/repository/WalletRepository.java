@@ -1,13 +1,22 @@
 package project.swp.spring.sebt_platform.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import project.swp.spring.sebt_platform.model.WalletEntity;
 
+import java.math.BigDecimal;
+
 public interface WalletRepository extends JpaRepository<WalletEntity, Long> {
     WalletEntity findByUserId(Long userId);
 
+    @Query("SELECT w.id FROM WalletEntity w WHERE w.user.id = :userId")
+    Long findIdByUserId(@Param("userId") Long userId);
+
     // Find wallet by a transaction orderId (joins wallet -> transactions)
     @Query("""
         SELECT w FROM WalletEntity w 
@@ -16,4 +25,17 @@ public interface WalletRepository extends JpaRepository<WalletEntity, Long> {
        """)
     WalletEntity findByOrderId(@Param("orderId") String orderId);
 
+    // Khóa dòng ví tới hết transaction (SQL Server: UPDLOCK/HOLDLOCK) để ghi sổ tuần tự trong ledger append-only
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WalletEntity w WHERE w.id = :id")
+    WalletEntity findByIdForUpdate(@Param("id") Long id);
+
+    // Trừ tiền bằng một câu UPDATE có điều kiện: không đọc-sửa-ghi nên không xung đột @Version.
+    // Vẫn tăng version để các thao tác đang giữ bản WalletEntity cũ bị phát hiện xung đột thay vì ghi đè số dư.
+    // Trả về 0 nếu không đủ số dư.
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Transactional
+    @Query("UPDATE WalletEntity w SET w.balance = w.balance - :amount, w.version = w.version + 1, " +
+            "w.updatedAt = CURRENT_TIMESTAMP WHERE w.id = :walletId AND w.balance >= :amount")
+    int debitIfSufficient(@Param("walletId") Long walletId, @Param("amount") BigDecimal amount);
 }
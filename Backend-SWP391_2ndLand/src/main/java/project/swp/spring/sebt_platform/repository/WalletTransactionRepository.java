@@ -2,20 +2,58 @@ package project.swp.spring.sebt_platform.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
 import project.swp.spring.sebt_platform.model.enums.WalletPurpose;
+import project.swp.spring.sebt_platform.wallet.LedgerEntryRow;
+import project.swp.spring.sebt_platform.wallet.LedgerTail;
+
+import java.util.List;
 
 public interface WalletTransactionRepository extends JpaRepository<WalletTransactionEntity, Long> {
 
     @Query("SELECT w FROM WalletTransactionEntity w WHERE w.orderId = :orderId")
     WalletTransactionEntity findByOrderId(@Param("orderId") String orderId);
 
+    @Query("SELECT w.wallet.id FROM WalletTransactionEntity w WHERE w.orderId = :orderId")
+    Long findWalletIdByOrderId(@Param("orderId") String orderId);
+
     @Query("SELECT w FROM WalletTransactionEntity w WHERE w.userId = :userId ORDER BY w.createdAt DESC")
     Page<WalletTransactionEntity> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId, Pageable pageable);
 
     @Query("SELECT w FROM WalletTransactionEntity w WHERE w.userId = :userId AND w.purpose = :purpose ORDER BY w.createdAt DESC")
     Page<WalletTransactionEntity> findByUserIdAndPurposeOrderByCreatedAtDesc(@Param("userId") Long userId, @Param("purpose") WalletPurpose purpose, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(t.ledgerSeq), 0L) FROM WalletTransactionEntity t WHERE t.wallet.id = :walletId")
+    Long findMaxLedgerSeq(@Param("walletId") Long walletId);
+
+    @Query("SELECT new project.swp.spring.sebt_platform.wallet.LedgerTail(COUNT(t), SUM(t.amount), MAX(t.ledgerSeq)) " +
+            "FROM WalletTransactionEntity t WHERE t.wallet.id = :walletId AND t.ledgerSeq > :afterSeq")
+    LedgerTail findTail(@Param("walletId") Long walletId, @Param("afterSeq") Long afterSeq);
+
+    // Ví có từ minTail giao dịch trở lên sau snapshot mới nhất, theo thứ tự id ví (seek từ afterWalletId)
+    @Query("SELECT t.wallet.id FROM WalletTransactionEntity t " +
+            "WHERE t.ledgerSeq IS NOT NULL AND t.wallet.id > :afterWalletId " +
+            "GROUP BY t.wallet.id " +
+            "HAVING MAX(t.ledgerSeq) - COALESCE((SELECT MAX(s.lastLedgerSeq) FROM WalletBalanceSnapshotEntity s " +
+            "WHERE s.walletId = t.wallet.id), 0L) >= :minTail " +
+            "ORDER BY t.wallet.id")
+    List<Long> findWalletIdsToCompact(@Param("afterWalletId") Long afterWalletId,
+                                      @Param("minTail") Long minTail,
+                                      Pageable pageable);
+
+    // ===== Keyset (seek) trên (walletId, ledgerSeq) cho đối soát: một lượt quét, không OFFSET =====
+
+    @Query("SELECT new project.swp.spring.sebt_platform.wallet.LedgerEntryRow(" +
+            "w.id, t.id, t.ledgerSeq, t.amount, t.balanceBefore, t.balanceAfter, w.balance) " +
+            "FROM WalletTransactionEntity t JOIN t.wallet w " +
+            "WHERE t.ledgerSeq IS NOT NULL " +
+            "AND (w.id > :walletId OR (w.id = :walletId AND t.ledgerSeq > :ledgerSeq)) " +
+            "ORDER BY w.id, t.ledgerSeq")
+    Slice<LedgerEntryRow> seekLedgerEntries(@Param("walletId") Long walletId,
+                                            @Param("ledgerSeq") Long ledgerSeq,
+                                            Pageable pageable);
 }
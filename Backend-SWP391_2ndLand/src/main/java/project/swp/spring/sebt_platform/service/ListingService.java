@@ -9,8 +9,12 @@ import project.swp.spring.sebt_platform.dto.object.Image;
 import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
 import project.swp.spring.sebt_platform.dto.request.CreateListingFormDTO;
 import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.response.CursorPageResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.FacetedSearchResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingDetailResponseDTO;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.Facet;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.FacetDictionary;
 
 public interface ListingService {
 
@@ -26,6 +30,17 @@ public interface ListingService {
             Long userId,
             Pageable pageable);
 
+    // Trang kết quả filter + số lượng theo facet, đếm trong một query GROUP BY
+    FacetedSearchResponseDTO<ListingCartResponseDTO> filterEvListingsWithFacets(
+            EvFilterFormDTO evFilterFormDTO,
+            Long userId,
+            Pageable pageable);
+
+    FacetedSearchResponseDTO<ListingCartResponseDTO> filterBatteryListingsWithFacets(
+            BatteryFilterFormDTO batteryFilterFormDTO,
+            Long userId,
+            Pageable pageable);
+
     boolean createListing(
             CreateListingFormDTO createListingForm,
             Long sellerId,
@@ -42,9 +57,21 @@ public interface ListingService {
 
     Page<ListingCartResponseDTO> getListingCartsBySeller(Long sellerId, Pageable pageable);
 
+    // Keyset pagination: cursor rỗng = trang đầu; cursor sai định dạng -> IllegalArgumentException
+    CursorPageResponseDTO<ListingCartResponseDTO> getEvListingCartsByCursor(Long userId, String cursor, int size);
+
+    CursorPageResponseDTO<ListingCartResponseDTO> getBatteryListingCartsByCursor(Long userId, String cursor, int size);
+
+    CursorPageResponseDTO<ListingCartResponseDTO> getListingCartsBySellerByCursor(Long sellerId, String cursor, int size);
+
     int deleteListingImages(List<String> publicIds);
 
     // Filter data endpoints - Cung cấp dữ liệu cho filter UI
+    // Danh sách kèm ETag/Last-Modified; etag/lastModified null khi cache chưa dựng xong và dữ liệu đọc thẳng DB
+    FacetDictionary<?> getFilterData(Facet facet);
+
+    FacetDictionary<String> getDistrictFilterData(String province);
+
     List<String> getAllProvinces();
     
     List<String> getAllDistricts(String province);
@@ -1,8 +1,40 @@
 package project.swp.spring.sebt_platform.service;
 
 import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.pricing.ai.CircuitBreaker;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiClient;
+import project.swp.spring.sebt_platform.pricing.cache.SingleFlight;
+import project.swp.spring.sebt_platform.pricing.cache.TinyLfuCache;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparablesIndex;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 public interface PricingService {
     PricingSuggestResponseDTO suggestPrice(PricingSuggestRequestDTO request);
+
+    // Như trên; nếu gọi AI thì onEarlyPrice nhận giá ngay khi Gemini stream trả về, trước kết quả đầy đủ
+    PricingSuggestResponseDTO suggestPrice(PricingSuggestRequestDTO request, LongConsumer onEarlyPrice);
+
+    // Như suggestPrice nhưng không chặn thread gọi trong lúc chờ Gemini (dùng cho request HTTP)
+    CompletableFuture<PricingSuggestResponseDTO> suggestPriceAsync(PricingSuggestRequestDTO request);
+
+    // Giá tạm tính (baseline/heuristic), không gọi AI
+    PricingSuggestResponseDTO heuristicSuggestion(PricingSuggestRequestDTO request);
+
+    // Định giá nhiều xe: cache/dedupe trước, phần còn lại gộp vào ít lời gọi Gemini nhất có thể
+    PricingBatchResponseDTO suggestPrices(List<PricingSuggestRequestDTO> requests);
+
+    TinyLfuCache.Stats cacheStats();
+
+    SingleFlight.Stats inFlightStats();
+
+    CircuitBreaker.Snapshot circuitBreakerStats();
+
+    GeminiClient.Stats geminiStats();
+
+    ComparablesIndex.Stats comparablesStats();
 }
@@ -30,9 +30,25 @@ public interface WalletLedgerService {
 
     WalletEntity getWalletByUserId(Long userId);
 
+    /**
+     * Current balance of the user's wallet, whichever ledger mode is active (null if the user has no wallet).
+     */
+    BigDecimal getBalance(Long userId);
+
     Page<WalletTransactionEntity> getTransactions(Long userId, WalletPurpose purpose, Pageable pageable);
 
     WalletTransactionEntity getTransactionByOrderId(String orderId);
 
     WalletTransactionEntity pricingFee(Long userId);
+
+    /**
+     * Debit the pricing fee for {@code units} suggestions in a single ledger entry (batch pricing).
+     * @return created transaction entity, or null when the balance is insufficient
+     */
+    WalletTransactionEntity pricingFee(Long userId, int units);
+
+    /**
+     * Fee that {@link #pricingFee(Long, int)} would debit for {@code units} suggestions.
+     */
+    BigDecimal pricingFeeAmount(int units);
 }
@@ -19,7 +19,9 @@ import project.swp.spring.sebt_platform.repository.PostRequestRepository;
 import project.swp.spring.sebt_platform.repository.SystemConfigRepository;
 import project.swp.spring.sebt_platform.repository.UserRepository;
 import project.swp.spring.sebt_platform.service.AdminService;
+import project.swp.spring.sebt_platform.systemconfig.SystemConfigRegistry;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,15 +34,18 @@ public class AdminServiceImpl implements AdminService {
     private final ListingRepository listingRepository;
     private final SystemConfigRepository systemConfigRepository;
     private final UserRepository userRepository;
+    private final SystemConfigRegistry systemConfigRegistry;
 
     @Autowired
     public AdminServiceImpl(PostRequestRepository postRequestRepository,
                             ListingRepository listingRepository,
-                            SystemConfigRepository systemConfigRepository, UserRepository userRepository) {
+                            SystemConfigRepository systemConfigRepository, UserRepository userRepository,
+                            SystemConfigRegistry systemConfigRegistry) {
         this.listingRepository = listingRepository;
         this.postRequestRepository = postRequestRepository;
         this.systemConfigRepository = systemConfigRepository;
         this.userRepository = userRepository;
+        this.systemConfigRegistry = systemConfigRegistry;
     }
 
     @Override
@@ -124,6 +129,8 @@ public class AdminServiceImpl implements AdminService {
             systemConfigEntity.setDescription(description);
 
             systemConfigRepository.save(systemConfigEntity);
+            // Node này thấy giá trị mới ngay, các node khác nhận qua poll của registry
+            systemConfigRegistry.reload();
 
             return true;
         } catch (Exception e) {
@@ -140,6 +147,7 @@ public class AdminServiceImpl implements AdminService {
             systemConfigEntity.setConfigValue(value);
 
             systemConfigRepository.save(systemConfigEntity);
+            systemConfigRegistry.reload();
 
             return true;
         } catch (Exception e){
@@ -152,14 +160,14 @@ public class AdminServiceImpl implements AdminService {
     public Map<String, Object> getConfigValue(String key) {
         Map<String, Object> result = new HashMap<>();
         try {
-            SystemConfigEntity systemConfigEntity = systemConfigRepository.findByConfigKey(key);
-            if (systemConfigEntity == null) {
+            SystemConfigRegistry.ConfigValue config = systemConfigRegistry.get(key).orElse(null);
+            if (config == null) {
                 result.put("error", "Config not found");
                 return result;
             }
 
-            ConfigDataType configDataType = systemConfigEntity.getDataType();
-            String value = systemConfigEntity.getConfigValue();
+            ConfigDataType configDataType = config.type();
+            String value = config.raw();
 
             switch (configDataType) {
                 case STRING:
@@ -168,11 +176,11 @@ public class AdminServiceImpl implements AdminService {
                     break;
                 case NUMBER:
                     result.put("type", "NUMBER");
-                    result.put("value", Double.parseDouble(value));
+                    result.put("value", ((BigDecimal) Objects.requireNonNull(config.value(), "Invalid number: " + value)).doubleValue());
                     break;
                 case BOOLEAN:
                     result.put("type", "BOOLEAN");
-                    result.put("value", Boolean.parseBoolean(value));
+                    result.put("value", config.value());
                     break;
                 default:
                     result.put("type", "UNKNOWN");
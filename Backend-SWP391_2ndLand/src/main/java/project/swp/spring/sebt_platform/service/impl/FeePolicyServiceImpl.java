@@ -2,8 +2,8 @@ package project.swp.spring.sebt_platform.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import project.swp.spring.sebt_platform.repository.SystemConfigRepository;
 import project.swp.spring.sebt_platform.service.FeePolicyService;
+import project.swp.spring.sebt_platform.systemconfig.SystemConfigRegistry;
 
 import java.math.BigDecimal;
 
@@ -12,24 +12,25 @@ import java.math.BigDecimal;
  *  - Battery only listing: 50,000 VND
  *  - EV listing: if price < 500,000,000 VND => 100,000; else 200,000 VND
  *  - Mixed (if both present) choose higher rule (treat as EV)
+ * Các mức phí đọc từ SystemConfigRegistry (không truy vấn DB), giá trị trên là mặc định khi thiếu cấu hình.
  */
 @Service
 public class FeePolicyServiceImpl implements FeePolicyService {
 
-    SystemConfigRepository systemConfig;
+    SystemConfigRegistry systemConfig;
 
     @Autowired
-    public FeePolicyServiceImpl(SystemConfigRepository systemConfig) {
+    public FeePolicyServiceImpl(SystemConfigRegistry systemConfig) {
         this.systemConfig = systemConfig;
     }
 
     @Override
     public BigDecimal computeListingFee(boolean hasEv, boolean hasBattery, Long price) {
 
-        long BATTERY_FEE = Long.parseLong(systemConfig.findByConfigKey("BATTERY_FEE").getConfigValue());
-        long EV_THRESHOLD = Long.parseLong(systemConfig.findByConfigKey("EV_THRESHOLD").getConfigValue());
-        long EV_LOW_FEE = Long.parseLong(systemConfig.findByConfigKey("EV_LOW_FEE").getConfigValue());
-        long EV_HIGH_FEE = Long.parseLong(systemConfig.findByConfigKey("EV_HIGH_FEE").getConfigValue());
+        long BATTERY_FEE = systemConfig.getLong("BATTERY_FEE", 50_000L);
+        long EV_THRESHOLD = systemConfig.getLong("EV_THRESHOLD", 500_000_000L);
+        long EV_LOW_FEE = systemConfig.getLong("EV_LOW_FEE", 100_000L);
+        long EV_HIGH_FEE = systemConfig.getLong("EV_HIGH_FEE", 200_000L);
 
         if (hasEv) {
             if (price == null) return BigDecimal.valueOf(EV_LOW_FEE) ; // fallback
@@ -2,18 +2,23 @@ package project.swp.spring.sebt_platform.service.impl;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,8 +31,22 @@ import project.swp.spring.sebt_platform.dto.object.Seller;
 import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
 import project.swp.spring.sebt_platform.dto.request.CreateListingFormDTO;
 import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.response.CursorPageResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.FacetCountDTO;
+import project.swp.spring.sebt_platform.dto.response.FacetedSearchResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingDetailResponseDTO;
+import project.swp.spring.sebt_platform.listing.ListingCartAssembler;
+import project.swp.spring.sebt_platform.listing.ListingCartRow;
+import project.swp.spring.sebt_platform.listing.ListingCursor;
+import project.swp.spring.sebt_platform.listing.ListingDetailGraph;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.Facet;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.FacetDictionary;
+import project.swp.spring.sebt_platform.listing.ListingFacetCounter;
+import project.swp.spring.sebt_platform.listing.ListingFilterSpecifications;
+import project.swp.spring.sebt_platform.listing.ListingSearchIndex;
+import project.swp.spring.sebt_platform.listing.ListingViewCounter;
 import project.swp.spring.sebt_platform.model.BatteryEntity;
 import project.swp.spring.sebt_platform.model.EvVehicleEntity;
 import project.swp.spring.sebt_platform.model.ListingEntity;
@@ -42,7 +61,6 @@ import project.swp.spring.sebt_platform.model.enums.UserRole;
 import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
 import project.swp.spring.sebt_platform.repository.BatteryRepository;
 import project.swp.spring.sebt_platform.repository.EvVehicleRepository;
-import project.swp.spring.sebt_platform.repository.FavoriteRepository;
 import project.swp.spring.sebt_platform.repository.ListingImageRepository;
 import project.swp.spring.sebt_platform.repository.ListingRepository;
 import project.swp.spring.sebt_platform.repository.LocationRepository;
@@ -64,7 +82,11 @@ public class ListingServiceImpl implements ListingService {
     private final ListingRepository listingRepository;
     private final ListingImageRepository listingImageRepository;
     private final LocationRepository locationRepository;
-    private final FavoriteRepository favoriteRepository;
+    private final ListingCartAssembler listingCartAssembler;
+    private final ListingViewCounter listingViewCounter;
+    private final ListingSearchIndex listingSearchIndex;
+    private final ListingFacetCache listingFacetCache;
+    private final ListingFacetCounter listingFacetCounter;
 
     @Autowired
     public ListingServiceImpl(PostRequestRepository postRequestRepository,
@@ -75,7 +97,11 @@ public class ListingServiceImpl implements ListingService {
                               ListingRepository listingRepository,
                               ListingImageRepository listingImageRepository,
                               LocationRepository locationRepository,
-                              FavoriteRepository favoriteRepository) {
+                              ListingCartAssembler listingCartAssembler,
+                              ListingViewCounter listingViewCounter,
+                              ListingSearchIndex listingSearchIndex,
+                              ListingFacetCache listingFacetCache,
+                              ListingFacetCounter listingFacetCounter) {
         this.postRequestRepository = postRequestRepository;
         this.userRepository = userRepository;
         this.listingRepository = listingRepository;
@@ -84,7 +110,11 @@ public class ListingServiceImpl implements ListingService {
         this.evVehicleRepository = evVehicleRepository;
         this.batteryRepository = batteryRepository;
     this.productRepository = productRepository;
-    this.favoriteRepository = favoriteRepository;
+    this.listingCartAssembler = listingCartAssembler;
+    this.listingViewCounter = listingViewCounter;
+    this.listingSearchIndex = listingSearchIndex;
+    this.listingFacetCache = listingFacetCache;
+    this.listingFacetCounter = listingFacetCounter;
     }
 
     @Override
@@ -95,27 +125,25 @@ public class ListingServiceImpl implements ListingService {
                 return Page.empty(pageable);
             }
 
+            if (!listingSearchIndex.isReady()) {
+                // Index chưa dựng xong (vừa khởi động) -> tạm dùng LIKE trên DB
+                Page<ListingCartRow> rows = listingRepository.findCartRowsByKeyword(
+                        keyWord.trim(), ListingStatus.ACTIVE, pageable);
+                return listingCartAssembler.toCartRowPage(rows, userId);
+            }
 
-            Page<ListingEntity> listingsPage = listingRepository.findByTitleContainingIgnoreCaseAndStatus(
-                    keyWord.trim(), ListingStatus.ACTIVE, pageable);
-
+            ListingSearchIndex.Hits hits = listingSearchIndex.search(
+                    keyWord, (int) pageable.getOffset(), pageable.getPageSize());
+            if (hits.ids().isEmpty()) {
+                return new PageImpl<>(List.of(), pageable, hits.total());
+            }
 
-            return listingsPage.map(listing -> {
-                boolean isFavorited = userId != null &&
-                        favoriteRepository.findByUserIdAndListingId(userId, listing.getId()) != null;
+            // Giữ thứ tự xếp hạng của index; listing vừa đổi trạng thái (chưa refresh) bị loại bởi điều kiện status
+            Map<Long, ListingCartRow> byId = listingRepository.findCartRowsByIds(hits.ids(), ListingStatus.ACTIVE)
+                    .stream().collect(Collectors.toMap(ListingCartRow::id, Function.identity()));
+            List<ListingCartRow> ranked = hits.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
 
-        ListingCartResponseDTO dto = new ListingCartResponseDTO(
-            listing.getId(),
-            listing.getTitle(),
-            listing.getThumbnailImage(),
-            listing.getPrice().doubleValue(),
-            listing.getViewsCount(),
-            listing.getSeller().getPhoneNumber(),
-            isFavorited
-        );
-        if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-        return dto;
-            });
+            return listingCartAssembler.toCartRowPage(new PageImpl<>(ranked, pageable, hits.total()), userId);
         } catch (Exception e) {
             logger.error("Error searching listings by keyword: " + keyWord, e);
             return Page.empty(pageable);
@@ -282,14 +310,14 @@ public class ListingServiceImpl implements ListingService {
 
     @Override
     public ListingDetailResponseDTO getListingDetailById(Long listingId, Long userId) {
-        ListingEntity listing = listingRepository.findById(listingId).orElse(null);
-        List<ListingImageEntity> listingImageEntities = listingImageRepository.findByListingId(listingId);
-        UserEntity user = userRepository.findById(userId).orElse(null);
+        // Round trip 1: listing + seller + product + EV/battery + location + role người xem
+        ListingDetailGraph graph = listingRepository.findDetailGraph(listingId, userId).orElse(null);
 
-        if (listing == null) {
+        if (graph == null) {
             logger.warn("Listing not found with ID: " + listingId);
             return null;
         }
+        ListingEntity listing = graph.listing();
 
         boolean isOwner = listing.getSeller() != null && Objects.equals(listing.getSeller().getId(), userId);
         // Chỉ chặn nếu không phải chủ sở hữu và listing chưa ACTIVE
@@ -298,94 +326,20 @@ public class ListingServiceImpl implements ListingService {
             return null;
         }
 
-        // Increment views count
-        if (user != null && !Objects.equals(listing.getSeller().getId(), userId) && user.getRole() == UserRole.MEMBER) {
-            listing.setViewsCount(listing.getViewsCount() + 1);
-            listingRepository.save(listing);
-        }
-
-        // Convert to DTO
-        ListingDetailResponseDTO detailDTO = new ListingDetailResponseDTO();
-
-        detailDTO.setTitle(listing.getTitle());
-        detailDTO.setDescription(listing.getDescription());
-        detailDTO.setListingType(listing.getListingType());
-        detailDTO.setId(listing.getId());
-        detailDTO.setCreatedAt(listing.getCreatedAt().toString());
-        detailDTO.setUpdatedAt(listing.getUpdatedAt().toString());
-        detailDTO.setStatus(listing.getStatus().toString());
-        detailDTO.setListingType(listing.getListingType());
-        detailDTO.setPrice(listing.getPrice().doubleValue());
-        detailDTO.setThumbnail(listing.getThumbnailImage());
-
-        List<String> images = new ArrayList<>();
-        for (ListingImageEntity listingImageEntity : listingImageEntities) {
-            images.add(listingImageEntity.getImageUrl());
-        }
-
-        detailDTO.setImages(images);
-
-        ProductEntity product = listing.getProduct();
-        EvVehicleEntity evVehicleEntity = listing.getProduct().getEvVehicle();
-        BatteryEntity batteryEntity = listing.getProduct().getBattery();
-
-        Product productResp;
-        if (product.getEvVehicle() != null) {
-            productResp = new Product(new Ev(evVehicleEntity.getType(),
-                    evVehicleEntity.getName(),
-                    evVehicleEntity.getBrand(),
-                    evVehicleEntity.getYear(),
-                    evVehicleEntity.getMileage(),
-                    evVehicleEntity.getBatteryCapacity().doubleValue(),
-                    evVehicleEntity.getConditionStatus()), null);
-        } else {
-            productResp = new Product(null,
-                    new Battery(batteryEntity.getBrand(),
-                            batteryEntity.getCapacity().doubleValue(),
-                            batteryEntity.getHealthPercentage(),
-                            batteryEntity.getCompatibleVehicles(),
-                            batteryEntity.getConditionStatus()
-                    ));
-        }
-
-        // Set location
-        LocationEntity location = locationRepository.findByListingId(listingId);
-        if (location != null) {
-            detailDTO.setLocation(new Location(
-                    location.getProvince(),
-                    location.getDistrict(),
-                    location.getDetails()
-            ));
-        } else {
-            detailDTO.setLocation(null);
+        // Increment views count (đệm trong bộ nhớ, flush định kỳ bằng batch UPDATE)
+        if (userId != null && !isOwner && graph.viewerRole() == UserRole.MEMBER) {
+            listingViewCounter.record(listingId);
         }
 
-        // Set seller info
-        UserEntity seller = listing.getSeller();
-        if (seller != null) {
-            detailDTO.setSeller(new Seller(
-                    seller.getId(),
-                    seller.getUsername(),
-                    seller.getEmail(),
-                    seller.getPhoneNumber(),
-                    seller.getAvatar()
-            ));
-        } else {
-            detailDTO.setSeller(null);
-
-        }
-
-        detailDTO.setProduct(productResp);
-
-        return detailDTO;
+        // Round trip 2: danh sách URL ảnh
+        return toDetailDTO(graph, listingImageRepository.findImageUrlsByListingId(listingId));
     }
 
     @Override
     public ListingDetailResponseDTO getListingDetailByIdForAdmin(Long listingId) {
-        ListingEntity listing = listingRepository.findById(listingId).orElse(null);
-        List<ListingImageEntity> listingImageEntities = listingImageRepository.findByListingId(listingId);
+        ListingDetailGraph graph = listingRepository.findDetailGraph(listingId, null).orElse(null);
 
-        if (listing == null) {
+        if (graph == null) {
             logger.warn("Listing not found with ID: " + listingId);
             return null;
         }
@@ -393,12 +347,19 @@ public class ListingServiceImpl implements ListingService {
         // DO NOT check status - admin can see all listings
         // DO NOT increment views count - admin viewing
 
-        // Convert to DTO
+        return toDetailDTO(graph, listingImageRepository.findImageUrlsByListingId(listingId));
+    }
+
+    /**
+     * Convert listing graph (đã fetch đầy đủ) + danh sách ảnh thành DTO chi tiết.
+     * Không phát sinh thêm query nào vì mọi association đã được fetch join.
+     */
+    private ListingDetailResponseDTO toDetailDTO(ListingDetailGraph graph, List<String> images) {
+        ListingEntity listing = graph.listing();
         ListingDetailResponseDTO detailDTO = new ListingDetailResponseDTO();
 
         detailDTO.setTitle(listing.getTitle());
         detailDTO.setDescription(listing.getDescription());
-        detailDTO.setListingType(listing.getListingType());
         detailDTO.setId(listing.getId());
         detailDTO.setCreatedAt(listing.getCreatedAt().toString());
         detailDTO.setUpdatedAt(listing.getUpdatedAt().toString());
@@ -406,20 +367,14 @@ public class ListingServiceImpl implements ListingService {
         detailDTO.setListingType(listing.getListingType());
         detailDTO.setPrice(listing.getPrice().doubleValue());
         detailDTO.setThumbnail(listing.getThumbnailImage());
-
-        List<String> images = new ArrayList<>();
-        for (ListingImageEntity listingImageEntity : listingImageEntities) {
-            images.add(listingImageEntity.getImageUrl());
-        }
-
         detailDTO.setImages(images);
 
         ProductEntity product = listing.getProduct();
-        EvVehicleEntity evVehicleEntity = listing.getProduct().getEvVehicle();
-        BatteryEntity batteryEntity = listing.getProduct().getBattery();
+        EvVehicleEntity evVehicleEntity = product.getEvVehicle();
+        BatteryEntity batteryEntity = product.getBattery();
 
         Product productResp;
-        if (product.getEvVehicle() != null) {
+        if (evVehicleEntity != null) {
             productResp = new Product(new Ev(evVehicleEntity.getType(),
                     evVehicleEntity.getName(),
                     evVehicleEntity.getBrand(),
@@ -436,9 +391,10 @@ public class ListingServiceImpl implements ListingService {
                             batteryEntity.getConditionStatus()
                     ));
         }
+        detailDTO.setProduct(productResp);
 
         // Set location
-        LocationEntity location = locationRepository.findByListingId(listingId);
+        LocationEntity location = graph.location();
         if (location != null) {
             detailDTO.setLocation(new Location(
                     location.getProvince(),
@@ -461,37 +417,19 @@ public class ListingServiceImpl implements ListingService {
             ));
         } else {
             detailDTO.setSeller(null);
-
         }
 
-        detailDTO.setProduct(productResp);
-
         return detailDTO;
     }
 
     @Override
     public Page<ListingCartResponseDTO> getEvListingCarts(Long userId, Pageable pageable) {
         try {
-            // Sử dụng repository method trả về Page
-            Page<ListingEntity> listingsPage = listingRepository.findEvListingsByStatus(ListingStatus.ACTIVE, pageable);
-
-            // Convert Page<ListingEntity> thành Page<ListingCartResponseDTO>
-            return listingsPage.map(listing -> {
-                boolean isFavorited = userId != null &&
-                        favoriteRepository.findByUserIdAndListingId(userId, listing.getId()) != null;
-
-        ListingCartResponseDTO dto = new ListingCartResponseDTO(
-            listing.getId(),
-            listing.getTitle(),
-            listing.getThumbnailImage(),
-            listing.getPrice().doubleValue(),
-            listing.getViewsCount(),
-            listing.getSeller().getPhoneNumber(),
-            isFavorited
-        );
-        if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-        return dto;
-            });
+            // Projection 1 SELECT (listing + seller phone), không hydrate entity
+            Page<ListingCartRow> rows = listingRepository.findEvCartRowsByStatus(ListingStatus.ACTIVE, pageable);
+
+            // Convert Page<ListingCartRow> thành Page<ListingCartResponseDTO>
+            return listingCartAssembler.toCartRowPage(rows, userId);
         } catch (Exception e) {
             logger.error("Error getting EV listing carts", e);
             return Page.empty(pageable);
@@ -501,26 +439,11 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public Page<ListingCartResponseDTO> getBatteryListingCarts(Long userId, Pageable pageable) {
         try {
-            // Sử dụng repository method trả về Page
-            Page<ListingEntity> listingsPage = listingRepository.findBatteryListingsByStatus(ListingStatus.ACTIVE, pageable);
-
-            // Convert Page<ListingEntity> thành Page<ListingCartResponseDTO>
-            return listingsPage.map(listing -> {
-                boolean isFavorited = userId != null &&
-                        favoriteRepository.findByUserIdAndListingId(userId, listing.getId()) != null;
-
-        ListingCartResponseDTO dto = new ListingCartResponseDTO(
-            listing.getId(),
-            listing.getTitle(),
-            listing.getThumbnailImage(),
-            listing.getPrice().doubleValue(),
-            listing.getViewsCount(),
-            listing.getSeller().getPhoneNumber(),
-            isFavorited
-        );
-        if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-        return dto;
-            });
+            // Projection 1 SELECT (listing + seller phone), không hydrate entity
+            Page<ListingCartRow> rows = listingRepository.findBatteryCartRowsByStatus(ListingStatus.ACTIVE, pageable);
+
+            // Convert Page<ListingCartRow> thành Page<ListingCartResponseDTO>
+            return listingCartAssembler.toCartRowPage(rows, userId);
         } catch (Exception e) {
             logger.error("Error getting battery listing carts", e);
             return Page.empty(pageable);
@@ -530,30 +453,58 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public Page<ListingCartResponseDTO> getListingCartsBySeller(Long sellerId, Pageable pageable) {
         try {
-            // Sử dụng repository method trả về Page
-            Page<ListingEntity> listingsPage = listingRepository.findBySellerIdOrderByCreatedAtDesc(sellerId, pageable);
-
-            // Convert Page<ListingEntity> thành Page<ListingCartResponseDTO>
-                return listingsPage.map(listing -> {
-                    boolean isFavorited = false; // Seller doesn't favorite their own listings
-                    ListingCartResponseDTO dto = new ListingCartResponseDTO(
-                            listing.getId(),
-                            listing.getTitle(),
-                            listing.getThumbnailImage(),
-                            listing.getPrice().doubleValue(),
-                            listing.getViewsCount(),
-                            listing.getSeller().getPhoneNumber(),
-                            isFavorited
-                    );
-                    if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-                    return dto;
-            });
+            // Projection 1 SELECT (listing + seller phone), không hydrate entity
+            Page<ListingCartRow> rows = listingRepository.findCartRowsBySeller(sellerId, pageable);
+
+            // Convert Page<ListingCartRow> thành Page<ListingCartResponseDTO>
+            // Seller doesn't favorite their own listings
+            return rows.map(row -> listingCartAssembler.toCart(row, false));
         } catch (Exception e) {
             logger.error("Error getting listings by seller ID: " + sellerId, e);
         }
         return Page.empty(pageable);
     }
 
+    @Override
+    public CursorPageResponseDTO<ListingCartResponseDTO> getEvListingCartsByCursor(Long userId, String cursor, int size) {
+        ListingCursor seek = ListingCursor.decode(cursor);
+        try {
+            Slice<ListingCartRow> rows = listingRepository.seekEvCartRows(
+                    ListingStatus.ACTIVE, seek.createdAt(), seek.id(), PageRequest.of(0, size));
+            return listingCartAssembler.toCursorPage(rows, userId);
+        } catch (Exception e) {
+            logger.error("Error getting EV listing carts by cursor", e);
+            return CursorPageResponseDTO.empty(size);
+        }
+    }
+
+    @Override
+    public CursorPageResponseDTO<ListingCartResponseDTO> getBatteryListingCartsByCursor(Long userId, String cursor, int size) {
+        ListingCursor seek = ListingCursor.decode(cursor);
+        try {
+            Slice<ListingCartRow> rows = listingRepository.seekBatteryCartRows(
+                    ListingStatus.ACTIVE, seek.createdAt(), seek.id(), PageRequest.of(0, size));
+            return listingCartAssembler.toCursorPage(rows, userId);
+        } catch (Exception e) {
+            logger.error("Error getting battery listing carts by cursor", e);
+            return CursorPageResponseDTO.empty(size);
+        }
+    }
+
+    @Override
+    public CursorPageResponseDTO<ListingCartResponseDTO> getListingCartsBySellerByCursor(Long sellerId, String cursor, int size) {
+        ListingCursor seek = ListingCursor.decode(cursor);
+        try {
+            Slice<ListingCartRow> rows = listingRepository.seekCartRowsBySeller(
+                    sellerId, seek.createdAt(), seek.id(), PageRequest.of(0, size));
+            // Seller doesn't favorite their own listings -> không truy vấn favorite
+            return listingCartAssembler.toCursorPage(rows, null);
+        } catch (Exception e) {
+            logger.error("Error getting listings by seller ID with cursor: " + sellerId, e);
+            return CursorPageResponseDTO.empty(size);
+        }
+    }
+
     @Override
     public int deleteListingImages(List<String> publicIds) {
         return 0;
@@ -567,41 +518,12 @@ public class ListingServiceImpl implements ListingService {
         try {
             logger.info("[FILTER_EV_SERVICE] Starting EV filter with criteria: {}", evFilterFormDTO);
             
-            return listingRepository.filterEvListings(
-                evFilterFormDTO.year(),
-                evFilterFormDTO.minYear(),
-                evFilterFormDTO.maxYear(),
-                evFilterFormDTO.vehicleType(),
-                evFilterFormDTO.brand(),
-                evFilterFormDTO.province(),
-                evFilterFormDTO.district(),
-                evFilterFormDTO.conditionStatus(),
-                evFilterFormDTO.minMileage(),
-                evFilterFormDTO.maxMileage(),
-                evFilterFormDTO.minBatteryCapacity(),
-                evFilterFormDTO.maxBatteryCapacity(),
-                evFilterFormDTO.minPrice() != null ? BigDecimal.valueOf(evFilterFormDTO.minPrice()) : null,
-                evFilterFormDTO.maxPrice() != null ? BigDecimal.valueOf(evFilterFormDTO.maxPrice()) : null,
-                pageable
-            ).map(listing -> {
-                        // Kiểm tra favorite status cho user hiện tại
-                        boolean isFavorited = userId != null &&
-                                favoriteRepository.findByUserIdAndListingId(userId, listing.getId()) != null;
-                        
-            // Tạo response DTO với thông tin đầy đủ kèm status
-            ListingCartResponseDTO dto = new ListingCartResponseDTO(
-                listing.getId(),
-                listing.getTitle(),
-                listing.getThumbnailImage(),
-                listing.getPrice().doubleValue(),
-                listing.getViewsCount(),
-                listing.getSeller().getPhoneNumber(),
-                isFavorited
-            );
-            if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-            return dto;
-                    }
-            );
+            // Chỉ các tiêu chí được truyền mới sinh predicate -> mỗi hình dạng filter có plan riêng
+            Page<ListingEntity> listingsPage = listingRepository.findAll(
+                    ListingFilterSpecifications.ev(evFilterFormDTO), newestFirst(pageable));
+
+            // Tạo response DTO kèm favorite status cho user hiện tại
+            return listingCartAssembler.toCartPage(listingsPage, userId);
         } catch (Exception e) {
             logger.error("Error in filterEvListings: ", e);
             return Page.empty(pageable);
@@ -615,52 +537,111 @@ public class ListingServiceImpl implements ListingService {
         try {
             logger.info("[FILTER_BATTERY_SERVICE] Starting battery filter with criteria: {}", batteryFilterFormDTO);
             
-            return listingRepository.filterBatteryListings(
-                    batteryFilterFormDTO.brand(),
-                    batteryFilterFormDTO.name(),
-                    batteryFilterFormDTO.year(),
-                    batteryFilterFormDTO.minYear(),
-                    batteryFilterFormDTO.maxYear(),
-                    batteryFilterFormDTO.province(),
-                    batteryFilterFormDTO.district(),
-                    batteryFilterFormDTO.conditionStatus(),
-                    batteryFilterFormDTO.compatibility(),
-                    batteryFilterFormDTO.minBatteryCapacity(),
-                    batteryFilterFormDTO.maxBatteryCapacity(),
-                    batteryFilterFormDTO.minHealthPercentage(),
-                    batteryFilterFormDTO.maxHealthPercentage(),
-                    batteryFilterFormDTO.minPrice() != null ? BigDecimal.valueOf(batteryFilterFormDTO.minPrice()) : null,
-                    batteryFilterFormDTO.maxPrice() != null ? BigDecimal.valueOf(batteryFilterFormDTO.maxPrice()) : null,
-                    pageable
-            ).map(listing -> {
-                        // Kiểm tra favorite status cho user hiện tại
-                        boolean isFavorited = userId != null &&
-                                favoriteRepository.findByUserIdAndListingId(userId, listing.getId()) != null;
-
-            // Tạo response DTO với thông tin đầy đủ kèm status
-            ListingCartResponseDTO dto = new ListingCartResponseDTO(
-                listing.getId(),
-                listing.getTitle(),
-                listing.getThumbnailImage(),
-                listing.getPrice().doubleValue(),
-                listing.getViewsCount(),
-                listing.getSeller().getPhoneNumber(),
-                isFavorited
-            );
-            if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-            return dto;
-                    }
-            );
+            Page<ListingEntity> listingsPage = listingRepository.findAll(
+                    ListingFilterSpecifications.battery(batteryFilterFormDTO), newestFirst(pageable));
+
+            // Tạo response DTO kèm favorite status cho user hiện tại
+            return listingCartAssembler.toCartPage(listingsPage, userId);
         } catch (Exception e) {
             logger.error("Error in filterBatteryListings: ", e);
             return Page.empty(pageable);
         }
     }
 
+    @Override
+    public FacetedSearchResponseDTO<ListingCartResponseDTO> filterEvListingsWithFacets(EvFilterFormDTO evFilterFormDTO,
+                                                                                       Long userId,
+                                                                                       Pageable pageable) {
+        Page<ListingCartResponseDTO> results = filterEvListings(evFilterFormDTO, userId, pageable);
+        Map<String, List<FacetCountDTO>> facets;
+        try {
+            facets = listingFacetCounter.countEv(evFilterFormDTO);
+        } catch (Exception e) {
+            // Lỗi đếm facet không làm mất kết quả lọc
+            logger.error("Error counting EV facets: ", e);
+            facets = Map.of();
+        }
+        return new FacetedSearchResponseDTO<>(results, facets);
+    }
+
+    @Override
+    public FacetedSearchResponseDTO<ListingCartResponseDTO> filterBatteryListingsWithFacets(BatteryFilterFormDTO batteryFilterFormDTO,
+                                                                                            Long userId,
+                                                                                            Pageable pageable) {
+        Page<ListingCartResponseDTO> results = filterBatteryListings(batteryFilterFormDTO, userId, pageable);
+        Map<String, List<FacetCountDTO>> facets;
+        try {
+            facets = listingFacetCounter.countBattery(batteryFilterFormDTO);
+        } catch (Exception e) {
+            logger.error("Error counting battery facets: ", e);
+            facets = Map.of();
+        }
+        return new FacetedSearchResponseDTO<>(results, facets);
+    }
+
+    // Thứ tự giống các query filter cũ: mới nhất trước
+    private Pageable newestFirst(Pageable pageable) {
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                Sort.by(Sort.Direction.DESC, "createdAt"));
+    }
+
+    // ===== Filter data: phục vụ từ ListingFacetCache (listing ACTIVE), không SELECT DISTINCT mỗi request =====
+
+    @Override
+    public FacetDictionary<?> getFilterData(Facet facet) {
+        if (listingFacetCache.isReady()) {
+            return listingFacetCache.dictionary(facet);
+        }
+        // Cache đang dựng (vừa khởi động): đọc thẳng DB, cùng phạm vi listing ACTIVE như cache, không có ETag
+        return new FacetDictionary<>(loadFilterData(facet), null, null);
+    }
+
+    @Override
+    public FacetDictionary<String> getDistrictFilterData(String province) {
+        if (listingFacetCache.isReady()) {
+            return listingFacetCache.districts(province);
+        }
+        List<String> districts = province != null && !province.trim().isEmpty()
+                ? listingRepository.findDistinctDistrictsByStatusAndProvince(ListingStatus.ACTIVE, province.trim())
+                : listingRepository.findDistinctDistrictsByStatus(ListingStatus.ACTIVE);
+        return new FacetDictionary<>(districts, null, null);
+    }
+
+    private List<?> loadFilterData(Facet facet) {
+        ListingStatus active = ListingStatus.ACTIVE;
+        return switch (facet) {
+            case PROVINCES -> listingRepository.findDistinctProvincesByStatus(active);
+            case DISTRICTS -> listingRepository.findDistinctDistrictsByStatus(active);
+            case EV_BRANDS -> listingRepository.findDistinctEvBrandsByStatus(active);
+            case BATTERY_BRANDS -> listingRepository.findDistinctBatteryBrandsByStatus(active);
+            case BATTERY_NAMES -> listingRepository.findDistinctBatteryNamesByStatus(active);
+            case COMPATIBLE_VEHICLES -> splitCompatibleVehicles(listingRepository.findCompatibleVehiclesByStatus(active));
+            case EV_YEARS -> listingRepository.findDistinctEvYearsByStatus(active);
+            case BATTERY_YEARS -> listingRepository.findDistinctBatteryYearsByStatus(active);
+        };
+    }
+
+    // Tách các chuỗi CSV "VF 8, VF 9" thành danh sách duy nhất, sắp xếp ABC
+    private static List<String> splitCompatibleVehicles(List<String> csvValues) {
+        Set<String> vehicles = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String csv : csvValues) {
+            if (csv == null) continue;
+            for (String vehicle : csv.split(",")) {
+                if (!vehicle.trim().isEmpty()) vehicles.add(vehicle.trim());
+            }
+        }
+        return new ArrayList<>(vehicles);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> filterValues(Facet facet) {
+        return (List<T>) getFilterData(facet).values();
+    }
+
     @Override
     public List<String> getAllProvinces() {
         try {
-            return locationRepository.findDistinctProvinces();
+            return filterValues(Facet.PROVINCES);
         } catch (Exception e) {
             logger.error("Error getting all provinces: ", e);
             return List.of();
@@ -670,11 +651,7 @@ public class ListingServiceImpl implements ListingService {
     @Override 
     public List<String> getAllDistricts(String province) {
         try {
-            if (province != null && !province.trim().isEmpty()) {
-                return locationRepository.findDistinctDistrictsByProvince(province.trim());
-            } else {
-                return locationRepository.findDistinctDistricts();
-            }
+            return getDistrictFilterData(province).values();
         } catch (Exception e) {
             logger.error("Error getting districts for province {}: ", province, e);
             return List.of();
@@ -684,7 +661,7 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<String> getAllEvBrands() {
         try {
-            return evVehicleRepository.findDistinctBrands();
+            return filterValues(Facet.EV_BRANDS);
         } catch (Exception e) {
             logger.error("Error getting all EV brands: ", e);
             return List.of();
@@ -694,7 +671,7 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<String> getAllBatteryBrands() {
         try {
-            return batteryRepository.findDistinctBrands();
+            return filterValues(Facet.BATTERY_BRANDS);
         } catch (Exception e) {
             logger.error("Error getting all battery brands: ", e);
             return List.of();
@@ -704,7 +681,7 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<String> getAllBatteryNames() {
         try {
-            return batteryRepository.findDistinctBatteryNames();
+            return filterValues(Facet.BATTERY_NAMES);
         } catch (Exception e) {
             logger.error("Error getting all battery names: ", e);
             return List.of();
@@ -714,23 +691,8 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<String> getAllCompatibleVehicles() {
         try {
-            List<String> allCompatibleVehicles = batteryRepository.findAllCompatibleVehicles();
-            Set<String> uniqueVehicles = new HashSet<>();
-            
-            // Parse comma-separated compatible vehicles and extract unique values
-            for (String compatibleVehiclesStr : allCompatibleVehicles) {
-                if (compatibleVehiclesStr != null && !compatibleVehiclesStr.trim().isEmpty()) {
-                    String[] vehicles = compatibleVehiclesStr.split(",");
-                    for (String vehicle : vehicles) {
-                        String trimmedVehicle = vehicle.trim();
-                        if (!trimmedVehicle.isEmpty()) {
-                            uniqueVehicles.add(trimmedVehicle);
-                        }
-                    }
-                }
-            }
-            
-            return new ArrayList<>(uniqueVehicles);
+            // CSV đã được tách sẵn khi dựng cache
+            return filterValues(Facet.COMPATIBLE_VEHICLES);
         } catch (Exception e) {
             logger.error("Error getting all compatible vehicles: ", e);
             return List.of();
@@ -740,7 +702,7 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<Integer> getAllEvYears() {
         try {
-            return evVehicleRepository.findDistinctYears();
+            return filterValues(Facet.EV_YEARS);
         } catch (Exception e) {
             logger.error("Error getting all EV years: ", e);
             return List.of();
@@ -750,10 +712,7 @@ public class ListingServiceImpl implements ListingService {
     @Override
     public List<Integer> getAllBatteryYears() {
         try {
-            return batteryRepository.findDistinctBatteryYears()
-                    .stream()
-                    .sorted(Collections.reverseOrder()) // Latest years first
-                    .collect(Collectors.toList());
+            return filterValues(Facet.BATTERY_YEARS); // Latest years first
         } catch (Exception e) {
             logger.error("Error getting all battery years: ", e);
             return List.of();
@@ -9,6 +9,7 @@ import project.swp.spring.sebt_platform.dto.request.UpdateProfileFormDTO;
 import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.PostAnoucementResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.UserProfileResponseDTO;
+import project.swp.spring.sebt_platform.listing.ListingCartAssembler;
 import project.swp.spring.sebt_platform.model.*;
 import project.swp.spring.sebt_platform.model.enums.ListingStatus;
 import project.swp.spring.sebt_platform.repository.*;
@@ -30,22 +31,22 @@ public class MemberServiceImpl implements MemberService {
 
     private final ListingRepository listingRepository;
 
-    private final WalletRepository walletRepository;
-
     // Legacy repositories (postRequestRepository, systemConfigRepository) không còn dùng cho luồng thanh toán phí mới
     private final WalletLedgerService walletLedgerService;
 
+    private final ListingCartAssembler listingCartAssembler;
+
     @Autowired
     public MemberServiceImpl(UserRepository userRepository,
                              FavoriteRepository favoriteRepository,
                              ListingRepository listingRepository,
-                             WalletRepository walletRepository,
-                             WalletLedgerService walletLedgerService) {
+                             WalletLedgerService walletLedgerService,
+                             ListingCartAssembler listingCartAssembler) {
         this.userRepository = userRepository;
         this.favoriteRepository = favoriteRepository;
         this.listingRepository = listingRepository;
-        this.walletRepository = walletRepository;
         this.walletLedgerService = walletLedgerService;
+        this.listingCartAssembler = listingCartAssembler;
 
     }
 
@@ -198,20 +199,8 @@ public class MemberServiceImpl implements MemberService {
     public Page<ListingCartResponseDTO> getUserFavoriteCartListings(Long userId, Pageable pageable) {
         try {
             Page<FavoriteEntity> favorites = favoriteRepository.findByUserId(userId, pageable);
-            return favorites.map(fav -> {
-                ListingEntity listing = fav.getListing();
-                ListingCartResponseDTO dto = new ListingCartResponseDTO(
-                        listing.getId(),
-                        listing.getTitle(),
-                        listing.getThumbnailImage(),
-                        listing.getPrice().doubleValue(),
-                        listing.getViewsCount(),
-                        listing.getSeller().getPhoneNumber(),
-                        true
-                );
-                if (listing.getStatus() != null) dto.setStatus(listing.getStatus().name());
-                return dto;
-            });
+            // Cùng cách dựng card với các trang listing khác (lượt xem gồm cả phần chưa flush)
+            return favorites.map(fav -> listingCartAssembler.toCart(fav.getListing(), true));
         } catch (Exception e) {
             System.err.println("Get user favorite cart listings error: " + e.getMessage());
         }
@@ -220,8 +209,7 @@ public class MemberServiceImpl implements MemberService {
 
     @Override
     public BigDecimal getBalance(Long userId) {
-        WalletEntity wallet = walletRepository.findByUserId(userId);
-        return wallet.getBalance();
+        return walletLedgerService.getBalance(userId);
     }
 
     @Override
@@ -246,10 +234,9 @@ public class MemberServiceImpl implements MemberService {
             if (listing.getStatus() != ListingStatus.PAY_WAITING) {
                 // Idempotent: nếu đã ACTIVE thì coi như đã thanh toán
                 if (listing.getStatus() == ListingStatus.ACTIVE) {
-                    WalletEntity wallet = walletRepository.findByUserId(userId);
                     return new ListingFeePaymentResponseDTO(listingId, fee,
                             false, listing.getStatus().name(),
-                            false, wallet.getBalance(),
+                            false, walletLedgerService.getBalance(userId),
                             "Already active");
                 }
                 return new ListingFeePaymentResponseDTO(listingId, fee, false,
@@ -257,17 +244,17 @@ public class MemberServiceImpl implements MemberService {
                         null, "Listing not in PAY_WAITING state");
             }
 
-            WalletEntity wallet = walletRepository.findByUserId(userId);
-            if (wallet == null) {
+            BigDecimal balance = walletLedgerService.getBalance(userId);
+            if (balance == null) {
                 return new ListingFeePaymentResponseDTO(listingId, fee,
                         false, listing.getStatus().name(), false,
                         null, "Wallet not found");
             }
 
-            if (wallet.getBalance().compareTo(fee) < 0) {
+            if (balance.compareTo(fee) < 0) {
                 return new ListingFeePaymentResponseDTO(listingId, fee,
                         false, listing.getStatus().name(),
-                        true, wallet.getBalance(),
+                        true, balance,
                         "Insufficient balance");
             }
 
@@ -275,16 +262,15 @@ public class MemberServiceImpl implements MemberService {
             if (tx == null) {
                 return new ListingFeePaymentResponseDTO(listingId, fee,
                         false, listing.getStatus().name(),
-                        false, wallet.getBalance(),
+                        false, balance,
                         "Debit failed");
             }
 
             listing.setStatus(ListingStatus.ACTIVE);
             listingRepository.save(listing);
-            WalletEntity updatedWallet = walletRepository.findByUserId(userId);
             return new ListingFeePaymentResponseDTO(listingId, fee,
                     true, listing.getStatus().name(),
-                    false, updatedWallet.getBalance(),
+                    false, tx.getBalanceAfter(),
                     "Listing activated");
         } catch (Exception e) {
             return new ListingFeePaymentResponseDTO(listingId, fee,
@@ -3,22 +3,34 @@ package project.swp.spring.sebt_platform.service.impl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier; // Dùng nếu có nhiều RestTemplate
-import org.springframework.http.*;
-import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import project.swp.spring.sebt_platform.config.AiConfig;
 import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchResponseDTO;
 import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.pricing.ai.CircuitBreaker;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiClient;
 import project.swp.spring.sebt_platform.pricing.ai.GeminiResponseParser;
+import project.swp.spring.sebt_platform.pricing.cache.PricingResultStore;
+import project.swp.spring.sebt_platform.pricing.cache.SingleFlight;
+import project.swp.spring.sebt_platform.pricing.cache.TinyLfuCache;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparableStats;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparablesIndex;
 import project.swp.spring.sebt_platform.service.PricingService;
+import project.swp.spring.sebt_platform.pricing.baseline.BaselineCatalogueReloadedEvent;
 import project.swp.spring.sebt_platform.pricing.baseline.BaselinePriceService;
 import project.swp.spring.sebt_platform.pricing.baseline.BaselinePriceService.LookupResult;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongConsumer;
 
 /**
  * Triển khai dịch vụ định giá xe điện, kết hợp Heuristic nội bộ (baseline,
@@ -33,38 +45,252 @@ public class PricingServiceImpl implements PricingService {
     // Logger riêng cho các sự kiện định giá có cấu trúc
     private static final Logger pricingLogger = LoggerFactory.getLogger("PRICING_EVENT");
 
-    @Autowired
-    private AiConfig aiConfig;
+    private final AiConfig aiConfig;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    private static final String GEMINI_BASE = "https://generativelanguage.googleapis.com";
-    private static final String GEMINI_API_PATH_TEMPLATE = "/v1beta/models/%s:generateContent?key="; // model injected
 
     private final BaselinePriceService baselinePriceService;
-    // Cache đơn giản trong bộ nhớ
-    private static final Map<String, PricingSuggestResponseDTO> CACHE = new ConcurrentHashMap<>();
+    private final GeminiClient geminiClient;
+    private final ComparablesIndex comparablesIndex;
+    // Tầng cache bền vững: giữ kết quả AI qua các lần restart
+    private final PricingResultStore resultStore;
+    // Cache có giới hạn (W-TinyLFU) + TTL để giá thị trường cũ tự hết hạn
+    private final TinyLfuCache<String, PricingSuggestResponseDTO> cache;
+    // Các request trùng cacheKey đang chạy song song dùng chung một lần gọi Gemini
+    private final SingleFlight<String, PricingSuggestResponseDTO> inFlight = new SingleFlight<>();
     private static final String PROMPT_VERSION = "v3";
+    private static final String BATCH_PROMPT_VERSION = "v3-batch";
+    // Kết quả đã lưu với version khác (prompt đã đổi) bị bỏ
+    private static final Set<String> PROMPT_VERSIONS = Set.of(PROMPT_VERSION, BATCH_PROMPT_VERSION);
 
-    public PricingServiceImpl(BaselinePriceService baselinePriceService) {
+    public PricingServiceImpl(BaselinePriceService baselinePriceService, AiConfig aiConfig, GeminiClient geminiClient,
+                              ComparablesIndex comparablesIndex, PricingResultStore resultStore) {
         this.baselinePriceService = baselinePriceService;
+        this.aiConfig = aiConfig;
+        this.geminiClient = geminiClient;
+        this.comparablesIndex = comparablesIndex;
+        this.resultStore = resultStore;
+        this.cache = new TinyLfuCache<>(Math.max(1, aiConfig.getCacheMaxSize()),
+                Duration.ofSeconds(aiConfig.getCacheTtlSeconds()));
     }
 
     /**
      * Đề xuất mức giá bán cho một chiếc xe điện.
-     * Áp dụng Cache -> Heuristic -> AI Call (với Retry/Fallback).
+     * Áp dụng Cache -> Comparables (listing tương đương trên sàn) -> Heuristic -> AI Call (với Retry/Fallback).
      */
     @Override
     public PricingSuggestResponseDTO suggestPrice(PricingSuggestRequestDTO request) {
+        return suggestPrice(request, null);
+    }
+
+    /**
+     * Như {@link #suggestPrice(PricingSuggestRequestDTO)}, nhưng khi phải gọi AI thì dùng Gemini stream:
+     * {@code onEarlyPrice} nhận giá AI (đã làm tròn và clamp như giá cuối) ngay khi model trả về
+     * {@code suggestedPrice}, trước khi có reasoning/evidence. Không được gọi khi kết quả đến từ cache,
+     * comparables, heuristic, hoặc khi request này chờ chung một lời gọi đang chạy của request khác.
+     * <p>
+     * Chặn thread gọi tới khi có kết quả; chỉ dùng trên thread của pricing job, request HTTP dùng
+     * {@link #suggestPriceAsync}.
+     */
+    @Override
+    public PricingSuggestResponseDTO suggestPrice(PricingSuggestRequestDTO request, LongConsumer onEarlyPrice) {
+        try {
+            return suggestPriceAsync(request, onEarlyPrice).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<PricingSuggestResponseDTO> suggestPriceAsync(PricingSuggestRequestDTO request) {
+        return suggestPriceAsync(request, null);
+    }
+
+    /**
+     * Bản không chặn của {@link #suggestPrice(PricingSuggestRequestDTO, LongConsumer)}: cache, store, heuristic và
+     * comparables chạy trên thread gọi; khi phải gọi Gemini, future hoàn thành trên thread của {@link GeminiClient}
+     * (phần xử lý sau đó chỉ tính toán trong bộ nhớ), nên không thread nào phải chờ lời gọi AI.
+     */
+    private CompletableFuture<PricingSuggestResponseDTO> suggestPriceAsync(PricingSuggestRequestDTO request,
+            LongConsumer onEarlyPrice) {
         String cacheKey = buildCacheKey(request);
-        PricingSuggestResponseDTO cached = CACHE.get(cacheKey);
+        PricingSuggestResponseDTO cached = aiConfig.isCacheEnabled() ? cache.get(cacheKey) : null;
 
         // 1. Kiểm tra Cache
         if (cached != null) {
             logger.debug("Pricing cache hit key={}", cacheKey);
-            cached.setCacheHit(true);
-            return cached;
+            return CompletableFuture.completedFuture(asCacheHit(cached));
+        }
+
+        // Miss: nếu đã có request cùng key đang gọi AI thì chờ kết quả của nó thay vì gọi thêm
+        return inFlight.executeAsync(cacheKey, () -> computeSuggestion(request, cacheKey, onEarlyPrice));
+    }
+
+    /**
+     * Giá tạm tính chỉ từ baseline + heuristic (không gọi AI), dùng làm câu trả lời ngay cho pricing job.
+     */
+    @Override
+    public PricingSuggestResponseDTO heuristicSuggestion(PricingSuggestRequestDTO request) {
+        HeuristicResult heur = heuristicSuggestImproved(request);
+        Long heuristic = heur.heuristicRounded;
+        double pct = heur.dynamicClampPercent;
+        Long min = Math.round(heuristic * (1 - pct) / 1000.0) * 1000L;
+        Long max = Math.round(heuristic * (1 + pct) / 1000.0) * 1000L;
+        PricingSuggestResponseDTO resp = baseResponseFromHeuristic(heuristic, min, max, PROMPT_VERSION,
+                "Giá tạm tính từ baseline/heuristic, đang chờ AI tinh chỉnh");
+        enrichBreakdown(resp, heur, pct);
+        resp.setCacheHit(false);
+        return resp;
+    }
+
+    /**
+     * Định giá nhiều xe một lần (dealer).
+     * <p>
+     * - Item thiếu product: INVALID. Item trùng cacheKey với item đứng trước dùng chung kết quả.<br>
+     * - Cache hit và item đủ listing tương đương (comparables) trả ngay; khi AI không cấu hình thì trả ngay
+     *   baseline/heuristic cho mọi item.<br>
+     * - Các item còn lại được gộp {@code app.pricing.batch.itemsPerCall} item vào một prompt, các lời gọi
+     *   Gemini chạy song song trên pool của {@link GeminiClient}. Item AI bỏ sót hoặc lời gọi lỗi dùng heuristic
+     *   (không cache, giống {@link #suggestPrice}).
+     */
+    @Override
+    public PricingBatchResponseDTO suggestPrices(List<PricingSuggestRequestDTO> requests) {
+        List<PricingBatchItemDTO> items = new ArrayList<>(requests.size());
+        Map<String, Integer> firstIndexByKey = new HashMap<>();
+        List<BatchItem> pending = new ArrayList<>();
+        int cacheHits = 0;
+        int deduplicated = 0;
+        int comparableHits = 0;
+
+        // 1. Phân loại: invalid / trùng key / cache hit / comparables / cần định giá
+        for (int i = 0; i < requests.size(); i++) {
+            PricingSuggestRequestDTO req = requests.get(i);
+            PricingBatchItemDTO item = new PricingBatchItemDTO(i, null, null, null);
+            items.add(item);
+            if (req == null || req.getProduct() == null || req.getProduct().isEmpty()) {
+                item.setStatus(PricingBatchItemDTO.Status.INVALID);
+                item.setError("thiếu thông tin sản phẩm");
+                continue;
+            }
+            String cacheKey = buildCacheKey(req);
+            Integer first = firstIndexByKey.putIfAbsent(cacheKey, i);
+            if (first != null) {
+                item.setDuplicateOf(first);
+                deduplicated++;
+                continue;
+            }
+            PricingSuggestResponseDTO cached = aiConfig.isCacheEnabled() ? cache.get(cacheKey) : null;
+            if (cached == null) cached = loadStored(cacheKey);
+            if (cached != null) {
+                item.setStatus(PricingBatchItemDTO.Status.CACHED);
+                item.setResult(asCacheHit(cached));
+                cacheHits++;
+                continue;
+            }
+            HeuristicResult heur = heuristicSuggestImproved(req);
+            PricingSuggestResponseDTO market = comparablesSuggestion(req, heur, heur.dynamicClampPercent,
+                    BATCH_PROMPT_VERSION);
+            if (market != null) {
+                item.setStatus(PricingBatchItemDTO.Status.COMPARABLES);
+                item.setResult(market);
+                logStructured(market, cacheKey, 0, null);
+                comparableHits++;
+                continue;
+            }
+            pending.add(new BatchItem(item, req, cacheKey, heur));
+        }
+
+        // 2. Định giá các item còn lại
+        int aiCalls = 0;
+        if (!pending.isEmpty()) {
+            if (aiConfig.getGeminiApiKey() == null || aiConfig.getGeminiApiKey().isBlank()) {
+                for (BatchItem p : pending) {
+                    PricingSuggestResponseDTO resp = p.heuristicResponse("Heuristic (không dùng AI)");
+                    putCache(p.cacheKey, resp);
+                    p.complete(PricingBatchItemDTO.Status.HEURISTIC, resp, 0, null);
+                }
+            } else {
+                aiCalls = priceWithAi(pending);
+            }
+        }
+
+        // 3. Item trùng key nhận kết quả của item đầu tiên
+        for (PricingBatchItemDTO item : items) {
+            if (item.getDuplicateOf() == null) continue;
+            PricingBatchItemDTO first = items.get(item.getDuplicateOf());
+            item.setStatus(first.getStatus());
+            item.setResult(first.getResult());
+            item.setError(first.getError());
+        }
+        PricingBatchResponseDTO response = new PricingBatchResponseDTO(items, cacheHits, deduplicated, aiCalls);
+        response.setComparableHits(comparableHits);
+        return response;
+    }
+
+    /**
+     * Gộp item thành các prompt nhiều item, gửi song song rồi ghép kết quả theo id.
+     *
+     * @return số lời gọi generateContent đã gửi
+     */
+    private int priceWithAi(List<BatchItem> pending) {
+        int perCall = Math.max(1, aiConfig.getBatchItemsPerCall());
+        String model = defaultModel();
+        List<List<BatchItem>> chunks = new ArrayList<>();
+        List<CompletableFuture<GeminiClient.Reply>> calls = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += perCall) {
+            List<BatchItem> chunk = pending.subList(from, Math.min(pending.size(), from + perCall));
+            chunks.add(chunk);
+            calls.add(geminiClient.generateContent(model, buildBatchPrompt(chunk)));
+        }
+
+        GeminiResponseParser parser = new GeminiResponseParser();
+        for (int c = 0; c < chunks.size(); c++) {
+            List<BatchItem> chunk = chunks.get(c);
+            GeminiClient.Reply reply;
+            try {
+                reply = calls.get(c).join();
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                int attempts = cause instanceof GeminiClient.GeminiCallException callEx ? callEx.getAttempts() : 0;
+                logger.warn("Gemini batch call failed items={} reason={}", chunk.size(), cause.getMessage());
+                String reason = aiFailureReason(cause);
+                for (BatchItem p : chunk) {
+                    p.complete(PricingBatchItemDTO.Status.HEURISTIC, p.heuristicResponse(reason), attempts, model);
+                }
+                continue;
+            }
+
+            Map<String, GeminiResponseParser.ParseResult> parsed = parser.parseBatch(reply.body());
+            for (BatchItem p : chunk) {
+                GeminiResponseParser.ParseResult r = parsed.get(p.id);
+                PricingSuggestResponseDTO dto = r == null ? null
+                        : fromParsedAi(r, reply.model(), p.heuristic, p.min, p.max, BATCH_PROMPT_VERSION, null,
+                                p.heur, p.pct);
+                if (dto == null) {
+                    p.complete(PricingBatchItemDTO.Status.HEURISTIC,
+                            p.heuristicResponse("AI không trả về giá cho xe này → dùng heuristic"),
+                            reply.attempts(), reply.model());
+                    continue;
+                }
+                dto.setCacheHit(false);
+                putCache(p.cacheKey, dto);
+                p.complete(PricingBatchItemDTO.Status.AI, dto, reply.attempts(), reply.model());
+            }
+        }
+        return chunks.size();
+    }
+
+    // Kết quả một lời gọi Gemini đã parse (kể cả semantic retry)
+    private record AiOutcome(PricingSuggestResponseDTO result, int attempts, String model) {
+    }
+
+    private CompletableFuture<PricingSuggestResponseDTO> computeSuggestion(PricingSuggestRequestDTO request,
+            String cacheKey, LongConsumer onEarlyPrice) {
+        // 1b. Kết quả AI đã lưu từ trước lần restart gần nhất
+        PricingSuggestResponseDTO stored = loadStored(cacheKey);
+        if (stored != null) {
+            return CompletableFuture.completedFuture(asCacheHit(stored));
         }
 
         // 2. Tính toán Heuristic và Clamp Range
@@ -74,6 +300,13 @@ public class PricingServiceImpl implements PricingService {
         Long min = Math.round(heuristic * (1 - pct) / 1000.0) * 1000L;
         Long max = Math.round(heuristic * (1 + pct) / 1000.0) * 1000L;
 
+        // 2b. Đủ listing tương đương trên sàn: dùng giá thị trường, không tốn lời gọi Gemini
+        PricingSuggestResponseDTO market = comparablesSuggestion(request, heur, pct, PROMPT_VERSION);
+        if (market != null) {
+            logStructured(market, cacheKey, 0, null);
+            return CompletableFuture.completedFuture(market);
+        }
+
         // 3. Fallback khi AI Key không khả dụng
         if (aiConfig.getGeminiApiKey() == null || aiConfig.getGeminiApiKey().isBlank()) {
             logger.warn("Gemini API key not configured. Using heuristic fallback only.");
@@ -82,120 +315,149 @@ public class PricingServiceImpl implements PricingService {
             enrichBreakdown(resp, heur, pct);
             resp.setPrompt(null);
             resp.setCacheHit(false);
-            CACHE.put(cacheKey, resp);
+            putCache(cacheKey, resp);
             logStructured(resp, cacheKey, 0, null); // Log sự kiện heuristic
-            return resp;
+            return CompletableFuture.completedFuture(resp);
         }
 
-        // 4. Gọi AI với Retry Loop
-        String modelInUse = (aiConfig.getGeminiModel() == null || aiConfig.getGeminiModel().isBlank())
-                ? "gemini-2.5-flash"
-                : aiConfig.getGeminiModel().trim();
+        // 4. Gọi AI qua GeminiClient (retry có backoff, deadline và circuit breaker nằm trong client)
+        String model = defaultModel();
         String prompt = buildPromptV3(request, heuristic, min, max, PROMPT_VERSION, heur, pct);
 
-        int attempts = 0;
-        while (true) {
-            attempts++;
-            try {
-                // Thực hiện gọi API
-                String endpoint = GEMINI_BASE + String.format(GEMINI_API_PATH_TEMPLATE, modelInUse)
-                        + aiConfig.getGeminiApiKey();
-                logger.debug("Calling Gemini attempt={} model='{}' endpoint='{}'", attempts, modelInUse,
-                        endpoint.replace(aiConfig.getGeminiApiKey(), "***"));
-                Map<String, Object> body = Map.of(
-                        "contents", List.of(Map.of(
-                                "parts", List.of(Map.of("text", prompt)))));
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-                HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-                ResponseEntity<String> response = restTemplate.exchange(endpoint, HttpMethod.POST, entity,
-                        String.class);
-
-                PricingSuggestResponseDTO result;
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    // Thành công: Xử lý và làm giàu DTO
-                    result = postProcessGeminiResponse(response.getBody(), modelInUse, heuristic, min, max,
-                            PROMPT_VERSION, prompt, heur, pct);
-                    enrichBreakdown(result, heur, pct);
-                } else {
-                    // API trả về lỗi non-2xx: kiểm tra retry
-                    String code = String.valueOf(response.getStatusCode().value());
-                    logger.warn("Gemini non-2xx attempt={} status={} snippet={}", attempts, code,
-                            truncate(response.getBody(), 160));
-                    if (shouldRetry(response.getStatusCode().value(), attempts)) {
-                        sleepBackoff(attempts);
-                        // Đổi sang fallback model nếu lỗi 503/500 liên tục
-                        if ((response.getStatusCode().value() == 503 || response.getStatusCode().value() == 500)
-                                && aiConfig.getFallbackModel() != null && !aiConfig.getFallbackModel().isBlank()) {
-                            modelInUse = aiConfig.getFallbackModel();
-                        }
-                        continue; // Retry
-                    }
-                    // Fallback cuối cùng sau khi hết retry
-                    result = baseResponseFromHeuristic(heuristic, min, max, PROMPT_VERSION,
-                            "Fallback heuristic HTTP=" + response.getStatusCode().value());
-                    enrichBreakdown(result, heur, pct);
-                }
-
-                // 5. Hoàn tất và Cache/Log
-                result.setPrompt(truncate(prompt, 4000));
-                result.setCacheHit(false);
-                putCache(cacheKey, result);
-                logStructured(result, cacheKey, attempts, modelInUse);
-                return result;
-
-            } catch (HttpStatusCodeException httpEx) {
-                // Xử lý lỗi HTTP (4xx, 5xx)
-                int code = httpEx.getStatusCode().value();
-                logger.warn("Gemini HTTP ex attempt={} status={} snippet={}", attempts, code,
-                        truncate(httpEx.getResponseBodyAsString(), 160));
-                if (shouldRetry(code, attempts)) {
-                    sleepBackoff(attempts);
-                    if ((code == 503 || code == 500) && aiConfig.getFallbackModel() != null
-                            && !aiConfig.getFallbackModel().isBlank()) {
-                        modelInUse = aiConfig.getFallbackModel();
-                    }
-                    continue; // Retry
-                }
+        CompletableFuture<AiOutcome> call;
+        if (onEarlyPrice != null && aiConfig.isGeminiStreaming()) {
+            // Stream: báo giá ngay khi model viết xong suggestedPrice, phần còn lại xử lý như bình thường
+            call = geminiClient.streamGenerateContent(model, prompt,
+                            price -> emitEarlyPrice(onEarlyPrice, price, min, max, heur))
+                    .thenCompose(reply -> postProcessGeminiResponse(reply.result(), reply.model(), heuristic, min,
+                            max, PROMPT_VERSION, prompt, heur, pct)
+                            .thenApply(dto -> new AiOutcome(dto, reply.attempts(), reply.model())));
+        } else {
+            call = geminiClient.generateContent(model, prompt)
+                    .thenCompose(reply -> postProcessGeminiResponse(new GeminiResponseParser().parse(reply.body()),
+                            reply.model(), heuristic, min, max, PROMPT_VERSION, prompt, heur, pct)
+                            .thenApply(dto -> new AiOutcome(dto, reply.attempts(), reply.model())));
+        }
 
-                // Fallback sau khi hết retry hoặc lỗi không retry
-                String userReason;
-                if (code == 503)
-                    userReason = "Dịch vụ AI tạm thời quá tải (503) → dùng heuristic";
-                else if (code == 429)
-                    userReason = "AI quota / rate limit (429) → dùng heuristic";
-                else
-                    userReason = "Fallback heuristic after HTTP error: " + code;
-                PricingSuggestResponseDTO resp = baseResponseFromHeuristic(heuristic, min, max, PROMPT_VERSION,
-                        userReason);
-                enrichBreakdown(resp, heur, pct);
-                resp.setPrompt(truncate(prompt, 4000));
-                resp.setCacheHit(false);
-                putCache(cacheKey, resp);
-                logStructured(resp, cacheKey, attempts, modelInUse);
-                return resp;
-
-            } catch (Exception e) {
-                // Xử lý các Exception khác (kết nối, parse nội bộ)
-                logger.error("Gemini exception attempt={} type={} msg={}", attempts, e.getClass().getSimpleName(),
-                        e.getMessage());
-                if (attempts < aiConfig.getRetryAttempts()) {
-                    sleepBackoff(attempts);
-                    continue;
-                }
-                // Fallback cuối cùng
-                PricingSuggestResponseDTO resp = baseResponseFromHeuristic(heuristic, min, max, PROMPT_VERSION,
-                        "Fallback exception=" + e.getClass().getSimpleName());
-                enrichBreakdown(resp, heur, pct);
-                resp.setPrompt(truncate(prompt, 4000));
-                resp.setCacheHit(false);
-                putCache(cacheKey, resp);
-                logStructured(resp, cacheKey, attempts, modelInUse);
-                return resp;
+        return call.handle((outcome, error) -> {
+            PricingSuggestResponseDTO result;
+            int attempts = 0;
+            String modelInUse = model;
+            if (error == null) {
+                result = outcome.result();
+                attempts = outcome.attempts();
+                modelInUse = outcome.model();
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof GeminiClient.GeminiCallException callEx) attempts = callEx.getAttempts();
+                logger.warn("Gemini call failed attempts={} reason={}", attempts, cause.getMessage());
+                result = baseResponseFromHeuristic(heuristic, min, max, PROMPT_VERSION, aiFailureReason(cause));
             }
+
+            // 5. Hoàn tất và Cache/Log
+            enrichBreakdown(result, heur, pct);
+            result.setPrompt(truncate(prompt, 4000));
+            result.setCacheHit(false);
+            // Không cache kết quả fallback do AI lỗi: Gemini hồi phục thì request sau sẽ có giá AI
+            if (error == null) putCache(cacheKey, result);
+            logStructured(result, cacheKey, attempts, modelInUse);
+            return result;
+        });
+    }
+
+    /**
+     * Giá từ các listing ACTIVE/SOLD cùng loại, brand, model, khoảng năm: trung vị làm giá đề xuất, Q1..Q3 làm
+     * khoảng giá. Null khi nhóm quá ít mẫu hoặc giá quá phân tán (để AI/heuristic quyết định).
+     * <p>
+     * Kết quả không đưa vào cache giá (TTL nhiều giờ): lookup chỉ đọc bộ nhớ, và như vậy giá theo kịp index
+     * ngay khi listing được bán/đổi giá thay vì giữ giá cũ tới khi hết TTL.
+     */
+    private PricingSuggestResponseDTO comparablesSuggestion(PricingSuggestRequestDTO req, HeuristicResult heur,
+            double pct, String promptVersion) {
+        Map<String, Object> p = req.getProduct();
+        if (!aiConfig.isComparablesEnabled() || p == null)
+            return null;
+        Optional<ComparableStats> found = comparablesIndex.lookup(req.getCategory(), optString(p.get("brand")),
+                optString(p.get("model")), optInt(p.get("year")));
+        if (found.isEmpty())
+            return null;
+        ComparableStats stats = found.get();
+        if (stats.count() < Math.max(1, aiConfig.getComparablesMinSamples())
+                || stats.spread() > aiConfig.getComparablesMaxSpread())
+            return null;
+
+        // Nhóm so sánh chỉ theo brand/model/năm: áp cùng nhân tố tình trạng/số km/pin như heuristic để xe
+        // chạy nhiều hay pin chai không nhận giá trung vị của cả nhóm
+        double adjustment = heur.conditionFactor * heur.mileageFactor * heur.healthFactor;
+        long price = roundToThousand(stats.median() * adjustment);
+        Long heuristic = heur.heuristicRounded > 0 ? heur.heuristicRounded : null;
+        Double deltaPercent = heuristic == null ? null : (price - heuristic) * 100.0 / heuristic;
+        // Nhiều mẫu và giá tập trung -> tin cậy cao
+        double confidence = Math.min(1.0, 0.5 + stats.count() / 40.0) * Math.max(0.0, 1.0 - stats.spread());
+        String reason = String.format(Locale.US, "Giá trung vị của %d tin đăng %s đời %d-%d trên sàn (%d đã bán), "
+                + "điều chỉnh x%.2f theo tình trạng/số km/pin", stats.count(), optString(p.get("model")),
+                stats.fromYear(), stats.toYear(), stats.soldCount(), adjustment);
+        PricingSuggestResponseDTO dto = new PricingSuggestResponseDTO(price, reason, null, "comparables", heuristic,
+                roundToThousand(stats.q1() * adjustment), roundToThousand(stats.q3() * adjustment), false,
+                Math.round(confidence * 100) / 100.0, deltaPercent, promptVersion);
+        dto.setEvidence(new ArrayList<>(List.of("market", "comparables")));
+        dto.setComparableCount(stats.count());
+        dto.setComparableSoldCount(stats.soldCount());
+        dto.setComparableMedian(stats.median());
+        enrichBreakdown(dto, heur, pct);
+        dto.setCacheHit(false);
+        return dto;
+    }
+
+    /**
+     * Giá AI sớm cho client: cùng cách làm tròn/clamp/trần baseline với giá cuối (enrichedFinalFromAi).
+     * Chạy trên I/O thread của GeminiClient nên không để lỗi của callback lan ra.
+     */
+    private void emitEarlyPrice(LongConsumer onEarlyPrice, double aiPrice, Long min, Long max, HeuristicResult heur) {
+        long price = roundToThousand(aiPrice);
+        if (min != null && price < min)
+            price = min;
+        if (max != null && price > max)
+            price = max;
+        if (heur.baseline > 0 && price > heur.baseline)
+            price = heur.baseline;
+        try {
+            onEarlyPrice.accept(price);
+        } catch (RuntimeException e) {
+            logger.warn("Early price callback failed: {}", e.getMessage());
         }
     }
 
+    private String defaultModel() {
+        return (aiConfig.getGeminiModel() == null || aiConfig.getGeminiModel().isBlank())
+                ? "gemini-2.5-flash"
+                : aiConfig.getGeminiModel().trim();
+    }
+
+    /**
+     * Lý do hiển thị cho người dùng khi lời gọi Gemini thất bại và phải dùng heuristic.
+     */
+    private String aiFailureReason(Throwable cause) {
+        if (cause instanceof GeminiClient.CircuitOpenException) {
+            return "Dịch vụ AI đang tạm ngưng do lỗi liên tục → dùng heuristic";
+        }
+        if (cause instanceof GeminiClient.GeminiCallException callEx) {
+            int code = callEx.getStatus();
+            if (code == 503)
+                return "Dịch vụ AI tạm thời quá tải (503) → dùng heuristic";
+            if (code == 429)
+                return "AI quota / rate limit (429) → dùng heuristic";
+            if (code == 0)
+                return "Không kết nối được dịch vụ AI → dùng heuristic";
+            return "Fallback heuristic after HTTP error: " + code;
+        }
+        if (cause instanceof TimeoutException) {
+            return "AI phản hồi quá thời gian cho phép → dùng heuristic";
+        }
+        return "Fallback exception=" + cause.getClass().getSimpleName();
+    }
+
     private String truncate(String s, int max) {
         return s == null ? null : (s.length() <= max ? s : s.substring(0, max) + "...");
     }
@@ -204,80 +466,82 @@ public class PricingServiceImpl implements PricingService {
      * Xử lý phản hồi thành công từ Gemini, bao gồm cả Semantic Retry (thử parse
      * lại).
      */
-    private PricingSuggestResponseDTO postProcessGeminiResponse(String body, String model, Long heuristic, Long min,
-            Long max, String promptVersion, String prompt,
+    private CompletableFuture<PricingSuggestResponseDTO> postProcessGeminiResponse(
+            GeminiResponseParser.ParseResult parsed, String model, Long heuristic, Long min, Long max,
+            String promptVersion, String prompt, HeuristicResult heur, double pct) {
+        PricingSuggestResponseDTO dto = parsedOrNull(parsed, model, heuristic, min, max, promptVersion, prompt, heur,
+                pct);
+        if (dto != null)
+            return CompletableFuture.completedFuture(dto);
+
+        // Semantic Retry (một lần): Prompt chỉnh sửa yêu cầu CHỈ trả về JSON hợp lệ
+        String corrective = prompt
+                + "\nCHỈ TRẢ VỀ JSON HỢP LỆ duy nhất dạng: {\\\"suggestedPrice\\\": <int>, \\\"reasoning\\\": \\\"<=2 câu\\\", \\\"evidence\\\":[...]}";
+        return geminiClient.generateContent(model, corrective)
+                .thenApply(reply -> parsedOrNull(new GeminiResponseParser().parse(reply.body()), model, heuristic,
+                        min, max, promptVersion, prompt, heur, pct))
+                .exceptionally(inner -> {
+                    logger.warn("Semantic retry failed: {}", inner.getMessage());
+                    return null;
+                })
+                .thenApply(retried -> {
+                    if (retried != null)
+                        return retried;
+                    // Fallback Heuristic nếu parse thất bại sau 2 lần thử
+                    PricingSuggestResponseDTO fallback = enrichedFinalFromAi(null, "Unable to parse Gemini response",
+                            model, heuristic, min, max, promptVersion, prompt, heur, pct);
+                    enrichBreakdown(fallback, heur, pct);
+                    return fallback;
+                });
+    }
+
+    private PricingSuggestResponseDTO parsedOrNull(GeminiResponseParser.ParseResult parsed, String model,
+            Long heuristic, Long min, Long max, String promptVersion, String prompt, HeuristicResult heur,
+            double pct) {
+        try {
+            return fromParsedAi(parsed, model, heuristic, min, max, promptVersion, prompt, heur, pct);
+        } catch (Exception e) {
+            logger.error("Parse Gemini response error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * DTO cuối từ một kết quả parse của AI; null nếu AI không đưa ra giá dùng được.
+     */
+    private PricingSuggestResponseDTO fromParsedAi(GeminiResponseParser.ParseResult result, String model,
+            Long heuristic, Long min, Long max, String promptVersion, String prompt,
             HeuristicResult heur, double pct) {
-        boolean attemptedSemanticRetry = false;
-        String workingBody = body;
-        // Vòng lặp 2 lần: Thử parse body gốc; Thử parse body sau khi Semantic Retry
-        for (int semanticAttempt = 0; semanticAttempt < 2; semanticAttempt++) {
-            try {
-                GeminiResponseParser parser = new GeminiResponseParser();
-                var result = parser.parse(workingBody);
-                if (result.price() != null && result.price() > 0) {
-                    PricingSuggestResponseDTO dto = enrichedFinalFromAi(result.price(),
-                            Optional.ofNullable(result.reasoning()).orElse("AI JSON parsed"), model, heuristic, min,
-                            max, promptVersion, prompt, heur, pct);
-
-                    // Ghép các evidence tags
-                    if (dto.getEvidence() == null)
-                        dto.setEvidence(new ArrayList<>());
-                    for (String ev : result.evidence())
-                        if (!dto.getEvidence().contains(ev))
-                            dto.getEvidence().add(ev);
-
-                    // Kiểm tra và thêm tag 'clamp' nếu giá cuối bị giới hạn
-                    if (dto.getSuggestedPrice() != null && min != null && max != null) {
-                        long sp = dto.getSuggestedPrice();
-                        if ((sp < min || sp > max) && !dto.getEvidence().contains("clamp"))
-                            dto.getEvidence().add("clamp");
-                    }
-                    enrichBreakdown(dto, heur, pct);
-                    return dto;
-                }
+        if (result.price() != null && result.price() > 0) {
+            PricingSuggestResponseDTO dto = enrichedFinalFromAi(result.price(),
+                    Optional.ofNullable(result.reasoning()).orElse("AI JSON parsed"), model, heuristic, min,
+                    max, promptVersion, prompt, heur, pct);
 
-                // Fallback khi AI chỉ trả về số
-                if (result.numberFallback()) {
-                    PricingSuggestResponseDTO dto = enrichedFinalFromAi(result.price(), result.reasoning(), model,
-                            heuristic, min, max, promptVersion, prompt, heur, pct);
-                    enrichBreakdown(dto, heur, pct);
-                    return dto;
-                }
-            } catch (Exception e) {
-                logger.error("Parse Gemini response error: {}", e.getMessage());
-            }
+            // Ghép các evidence tags
+            if (dto.getEvidence() == null)
+                dto.setEvidence(new ArrayList<>());
+            for (String ev : result.evidence())
+                if (!dto.getEvidence().contains(ev))
+                    dto.getEvidence().add(ev);
 
-            // Semantic Retry: Chỉ chạy lần đầu tiên (semanticAttempt == 0)
-            if (!attemptedSemanticRetry) {
-                attemptedSemanticRetry = true;
-                // Prompt chỉnh sửa: yêu cầu CHỈ trả về JSON hợp lệ
-                String corrective = prompt
-                        + "\nCHỈ TRẢ VỀ JSON HỢP LỆ duy nhất dạng: {\\\"suggestedPrice\\\": <int>, \\\"reasoning\\\": \\\"<=2 câu\\\", \\\"evidence\\\":[...]}";
-                try {
-                    String endpoint = GEMINI_BASE + String.format(GEMINI_API_PATH_TEMPLATE, model)
-                            + aiConfig.getGeminiModel();
-                    Map<String, Object> bodyMap = Map.of(
-                            "contents", List.of(Map.of(
-                                    "parts", List.of(Map.of("text", corrective)))));
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setContentType(MediaType.APPLICATION_JSON);
-                    HttpEntity<Map<String, Object>> entity = new HttpEntity<>(bodyMap, headers);
-                    ResponseEntity<String> resp = restTemplate.exchange(endpoint, HttpMethod.POST, entity,
-                            String.class);
-                    if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
-                        workingBody = resp.getBody();
-                        continue; // Thử parse lại
-                    }
-                } catch (Exception inner) {
-                    logger.warn("Semantic retry failed: {}", inner.getMessage());
-                }
+            // Kiểm tra và thêm tag 'clamp' nếu giá cuối bị giới hạn
+            if (dto.getSuggestedPrice() != null && min != null && max != null) {
+                long sp = dto.getSuggestedPrice();
+                if ((sp < min || sp > max) && !dto.getEvidence().contains("clamp"))
+                    dto.getEvidence().add("clamp");
             }
+            enrichBreakdown(dto, heur, pct);
+            return dto;
         }
-        // Fallback Heuristic nếu parse thất bại sau 2 lần thử
-        PricingSuggestResponseDTO dto = enrichedFinalFromAi(null, "Unable to parse Gemini response", model, heuristic,
-                min, max, promptVersion, prompt, heur, pct);
-        enrichBreakdown(dto, heur, pct);
-        return dto;
+
+        // Fallback khi AI chỉ trả về số
+        if (result.numberFallback()) {
+            PricingSuggestResponseDTO dto = enrichedFinalFromAi(result.price(), result.reasoning(), model,
+                    heuristic, min, max, promptVersion, prompt, heur, pct);
+            enrichBreakdown(dto, heur, pct);
+            return dto;
+        }
+        return null;
     }
 
     /**
@@ -295,26 +559,64 @@ public class PricingServiceImpl implements PricingService {
         sb.append(
                 "DO NOT include any extra text. DO NOT format numbers with dots. DO NOT explain anything outside the JSON.\n");
         if (heuristic != null) {
-            sb.append("HEURISTIC_RESULT=").append(heuristic).append('\n');
-            sb.append("ALLOWED_RANGE=[").append(min).append(',').append(max).append("]\n");
-            if (heur != null) {
-                sb.append("BASELINE_NEW=").append(heur.baseline).append('\n');
-                if (heur.strategyType != null) {
-                    sb.append("DEPRECIATION_STRATEGY=").append(heur.strategyType)
-                            .append("(rate=").append(heur.strategyRate).append(",maxDep=").append(heur.strategyMaxDep)
-                            .append(")\n");
-                }
-                // Sử dụng các trường double mới
-                sb.append(String.format(java.util.Locale.US,
-                        "FACTORS: age=%.3f,cap=%.3f,cond=%.3f,km=%.3f,health=%.3f clampPercent=%.2f%%",
-                        heur.ageFactor, heur.capacityFactor, heur.conditionFactor, heur.mileageFactor,
-                        heur.healthFactor, clampPct * 100))
-                        .append('\n');
-            }
+            appendHeuristicContext(sb, heuristic, min, max, heur, clampPct);
             sb.append(
                     "If the result exceeds the allowed range, keep it within the range and give a short explanation.\n");
             sb.append("Answering by VietNamese.\n");
         }
+        appendItemData(sb, req);
+        return sb.toString();
+    }
+
+    /**
+     * Prompt nhiều item cho batch pricing: mỗi item có id, heuristic/khoảng cho phép và dữ liệu riêng;
+     * AI trả về một mảng JSON, mỗi phần tử ứng với một id.
+     */
+    private String buildBatchPrompt(List<BatchItem> chunk) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PROMPT_VERSION=").append(BATCH_PROMPT_VERSION).append('\n');
+        sb.append("ROLE: You are an expert in electric vehicle and battery valuation in Vietnam.\n");
+        sb.append("TASK: Price each ITEM below independently.\n");
+        sb.append(
+                "OUTPUT: Return only ONE valid JSON array with exactly one object per ITEM, in the format: [{\"id\": \"<ITEM id>\", \"suggestedPrice\": <int>, \"reasoning\": \"<=2 short sentences explaining the difference from heuristic\", \"evidence\": [\"tag1\",\"tag2\",...] }, ...]\n");
+        sb.append(
+                "Valid evidence tags (only use from this list, select 2–6 tags describing your logic): baseline, depreciation, capacity, mileage, condition, health, market, adjustment, clamp.\n");
+        sb.append(
+                "DO NOT include any extra text. DO NOT format numbers with dots. DO NOT explain anything outside the JSON.\n");
+        sb.append(
+                "If an item's result exceeds its allowed range, keep it within the range and give a short explanation.\n");
+        sb.append("Answering by VietNamese.\n");
+        for (BatchItem item : chunk) {
+            sb.append("### ITEM id=").append(item.id).append('\n');
+            appendHeuristicContext(sb, item.heuristic, item.min, item.max, item.heur, item.pct);
+            appendItemData(sb, item.request);
+        }
+        return sb.toString();
+    }
+
+    private void appendHeuristicContext(StringBuilder sb, Long heuristic, Long min, Long max, HeuristicResult heur,
+            double clampPct) {
+        sb.append("HEURISTIC_RESULT=").append(heuristic).append('\n');
+        sb.append("ALLOWED_RANGE=[").append(min).append(',').append(max).append("]\n");
+        if (heur != null) {
+            sb.append("BASELINE_NEW=").append(heur.baseline).append('\n');
+            sb.append(String.format(java.util.Locale.US, "BASELINE_MATCH=%s confidence=%.2f",
+                    heur.baselineMatch, heur.baselineConfidence)).append('\n');
+            if (heur.strategyType != null) {
+                sb.append("DEPRECIATION_STRATEGY=").append(heur.strategyType)
+                        .append("(rate=").append(heur.strategyRate).append(",maxDep=").append(heur.strategyMaxDep)
+                        .append(")\n");
+            }
+            // Sử dụng các trường double mới
+            sb.append(String.format(java.util.Locale.US,
+                    "FACTORS: age=%.3f,cap=%.3f,cond=%.3f,km=%.3f,health=%.3f clampPercent=%.2f%%",
+                    heur.ageFactor, heur.capacityFactor, heur.conditionFactor, heur.mileageFactor,
+                    heur.healthFactor, clampPct * 100))
+                    .append('\n');
+        }
+    }
+
+    private void appendItemData(StringBuilder sb, PricingSuggestRequestDTO req) {
         sb.append("DỮ LIỆU:\n");
         sb.append("category=").append(req.getCategory()).append('\n');
         if (req.getProduct() != null)
@@ -323,7 +625,6 @@ public class PricingServiceImpl implements PricingService {
             req.getLocation().forEach((k, v) -> sb.append("location.").append(k).append('=').append(v).append('\n'));
         sb.append("title=").append(req.getTitle()).append('\n');
         sb.append("description=").append(req.getDescription()).append('\n');
-        return sb.toString();
     }
 
     // ===== Improved heuristic with breakdown & dynamic clamp (Đã cập nhật
@@ -362,9 +663,20 @@ public class PricingServiceImpl implements PricingService {
             int ageYears = (year == null || year > currentYear) ? 0 : Math.max(0, currentYear - year);
             LookupResult lr = baselinePriceService.lookup(brand, model, variant, ageYears);
 
+            if (lr.found()) {
+                r.baselineMatch = lr.matchType().name();
+                r.baselineConfidence = lr.matchConfidence();
+            }
+            // Baseline khớp mờ/fallback với độ tin cậy thấp dễ sai lệch lớn: bỏ qua, dùng heuristic cũ
+            boolean trustedBaseline = lr.found() && lr.matchConfidence() >= aiConfig.getBaselineMinConfidence();
+            if (lr.found() && !trustedBaseline) {
+                logger.debug("Ignoring low-confidence baseline brand={} model={} match={} confidence={}",
+                        brand, model, lr.matchType(), lr.matchConfidence());
+            }
+
             double base;
             double ageFactor = 1.0;
-            if (lr.found()) {
+            if (trustedBaseline) {
                 r.baseline = lr.entry().getBaselinePrice();
                 base = lr.depreciatedPrice();
                 ageFactor = 1.0; // đã được áp dụng trong lookup
@@ -486,7 +798,9 @@ public class PricingServiceImpl implements PricingService {
                     || model.toLowerCase().contains("vf9") || model.toLowerCase().contains("e34"));
             double adj = specificModel ? -0.02 : 0.0;
             double spreadAdj = (1 - completeness) * 0.05;
-            r.dynamicClampPercent = Math.max(0.07, Math.min(0.18, baseClamp + adj + spreadAdj));
+            // Baseline không chắc chắn (khớp mờ hoặc không dùng được) -> nới biên để AI điều chỉnh
+            double matchAdj = trustedBaseline && r.baselineConfidence >= 0.8 ? 0.0 : 0.03;
+            r.dynamicClampPercent = Math.max(0.07, Math.min(0.18, baseClamp + adj + spreadAdj + matchAdj));
 
             // Đã xóa r.factorSummary
             return r;
@@ -529,34 +843,116 @@ public class PricingServiceImpl implements PricingService {
         return Math.round(v / 1000.0) * 1000L;
     }
 
-    private boolean shouldRetry(int statusCode, int attempts) {
-        if (attempts >= aiConfig.getRetryAttempts())
-            return false;
-        return statusCode == 503 || statusCode == 500 || statusCode == 429; // Lỗi tạm thời (transient)
+    // Object trong cache dùng chung giữa các request nên không sửa trực tiếp
+    private static PricingSuggestResponseDTO asCacheHit(PricingSuggestResponseDTO cached) {
+        PricingSuggestResponseDTO hit = new PricingSuggestResponseDTO(cached);
+        hit.setCacheHit(true);
+        return hit;
     }
 
-    private void sleepBackoff(int attempts) {
-        try {
-            long delay = (long) (aiConfig.getInitialDelayMillis() * Math.pow(2, Math.max(0, attempts - 1)));
-            Thread.sleep(Math.min(delay, 4000));
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt(); // Best practice khi bắt InterruptedException
+    private void putCache(String key, PricingSuggestResponseDTO value) {
+        if (!aiConfig.isCacheEnabled())
+            return;
+        // Eviction theo tần suất + TTL do TinyLfuCache đảm nhiệm
+        cache.put(key, value);
+        // Chỉ giá từ Gemini mới đắt để tính lại -> lưu bền vững
+        if ("gemini".equals(value.getMode())) {
+            resultStore.save(key, brandOfCacheKey(key), value, Duration.ofSeconds(aiConfig.getCacheTtlSeconds()));
         }
     }
 
-    private void putCache(String key, PricingSuggestResponseDTO value) {
+    /**
+     * Đọc kết quả từ store bền vững khi cache trong bộ nhớ miss, rồi đưa lại vào cache trong bộ nhớ.
+     */
+    private PricingSuggestResponseDTO loadStored(String key) {
         if (!aiConfig.isCacheEnabled())
+            return null;
+        Optional<PricingResultStore.Stored> stored = resultStore.find(key, PROMPT_VERSIONS);
+        if (stored.isEmpty())
+            return null;
+        PricingResultStore.Stored s = stored.get();
+        if (s.remaining() == null)
+            cache.put(key, s.result());
+        else
+            cache.put(key, s.result(), s.remaining());
+        logger.debug("Pricing store hit key={}", key);
+        return s.result();
+    }
+
+    /**
+     * Làm nóng cache lúc khởi động bằng các kết quả AI mới nhất còn hợp lệ; kết quả của prompt version cũ bị xóa.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmCacheFromStore() {
+        if (!aiConfig.isCacheEnabled() || !resultStore.isEnabled())
             return;
-        if (CACHE.size() >= aiConfig.getCacheMaxSize()) {
-            // Cơ chế eviction đơn giản
-            int removeCount = CACHE.size() / 2;
-            Iterator<String> it = CACHE.keySet().iterator();
-            while (removeCount-- > 0 && it.hasNext()) {
-                it.next();
-                it.remove();
+        try {
+            int dropped = resultStore.retainVersions(PROMPT_VERSIONS);
+            List<PricingResultStore.Stored> latest = resultStore.loadLatest(PROMPT_VERSIONS,
+                    Math.max(1, aiConfig.getCacheMaxSize()));
+            // Mới nhất vào sau cùng để nằm ở cuối window LRU
+            for (int i = latest.size() - 1; i >= 0; i--) {
+                PricingResultStore.Stored s = latest.get(i);
+                if (s.remaining() == null)
+                    cache.put(s.cacheKey(), s.result());
+                else
+                    cache.put(s.cacheKey(), s.result(), s.remaining());
             }
+            logger.info("Warmed pricing cache with {} stored results (dropped {} from old prompt versions)",
+                    latest.size(), dropped);
+        } catch (Exception e) {
+            // Không chặn khởi động; cache sẽ đầy dần như trước
+            logger.error("Warming pricing cache from store failed", e);
         }
-        CACHE.put(key, value);
+    }
+
+    /**
+     * Catalogue baseline vừa reload: chỉ xóa giá đã cache của các brand có baseline thay đổi,
+     * các brand khác giữ nguyên cache.
+     */
+    @EventListener
+    public void onBaselineCatalogueReloaded(BaselineCatalogueReloadedEvent event) {
+        int removed = cache.invalidateIf(key -> event.affectsBrand(brandOfCacheKey(key)));
+        int removedStored = 0;
+        try {
+            removedStored = resultStore.invalidateBrands(event::affectsBrand);
+        } catch (Exception e) {
+            logger.warn("Invalidating stored pricing results failed: {}", e.getMessage());
+        }
+        logger.info("Baseline catalogue reloaded from {}: invalidated {} cached and {} stored prices for brands {}",
+                event.source(), removed, removedStored, event.changedBrands());
+    }
+
+    // Brand là segment thứ 2 của cache key (xem buildCacheKey)
+    private static String brandOfCacheKey(String key) {
+        int start = key.indexOf('|');
+        int end = start < 0 ? -1 : key.indexOf('|', start + 1);
+        return end < 0 ? "" : key.substring(start + 1, end);
+    }
+
+    @Override
+    public TinyLfuCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public SingleFlight.Stats inFlightStats() {
+        return inFlight.stats();
+    }
+
+    @Override
+    public CircuitBreaker.Snapshot circuitBreakerStats() {
+        return geminiClient.breakerSnapshot();
+    }
+
+    @Override
+    public GeminiClient.Stats geminiStats() {
+        return geminiClient.stats();
+    }
+
+    @Override
+    public ComparablesIndex.Stats comparablesStats() {
+        return comparablesIndex.stats();
     }
 
     /**
@@ -670,10 +1066,52 @@ public class PricingServiceImpl implements PricingService {
         double healthFactor = 1.0;
 
         String strategyType; // LINEAR / EXPONENTIAL / NONE
+        String baselineMatch = "NONE"; // EXACT / COMPACT / CONTAINS / FUZZY / FALLBACK / NONE
+        double baselineConfidence;
         Double strategyRate;
         Double strategyMaxDep;
     }
 
+    /**
+     * Một item đang chờ định giá trong batch (đã tính heuristic và khoảng cho phép).
+     */
+    private final class BatchItem {
+        final PricingBatchItemDTO item;
+        final PricingSuggestRequestDTO request;
+        final String cacheKey;
+        final String id;
+        final HeuristicResult heur;
+        final Long heuristic;
+        final double pct;
+        final Long min;
+        final Long max;
+
+        BatchItem(PricingBatchItemDTO item, PricingSuggestRequestDTO request, String cacheKey, HeuristicResult heur) {
+            this.item = item;
+            this.request = request;
+            this.cacheKey = cacheKey;
+            this.id = "i" + item.getIndex();
+            this.heur = heur;
+            this.heuristic = heur.heuristicRounded;
+            this.pct = heur.dynamicClampPercent;
+            this.min = Math.round(heuristic * (1 - pct) / 1000.0) * 1000L;
+            this.max = Math.round(heuristic * (1 + pct) / 1000.0) * 1000L;
+        }
+
+        PricingSuggestResponseDTO heuristicResponse(String reason) {
+            PricingSuggestResponseDTO resp = baseResponseFromHeuristic(heuristic, min, max, BATCH_PROMPT_VERSION, reason);
+            enrichBreakdown(resp, heur, pct);
+            resp.setCacheHit(false);
+            return resp;
+        }
+
+        void complete(PricingBatchItemDTO.Status status, PricingSuggestResponseDTO result, int attempts, String model) {
+            item.setStatus(status);
+            item.setResult(result);
+            logStructured(result, cacheKey, attempts, model);
+        }
+    }
+
     /**
      * Làm giàu DTO phản hồi với chi tiết phân tích Heuristic.
      * Đã loại bỏ logic parse chuỗi, gán trực tiếp các nhân tố.
@@ -682,6 +1120,8 @@ public class PricingServiceImpl implements PricingService {
         if (dto == null || heur == null)
             return;
         dto.setBaselinePrice(heur.baseline);
+        dto.setBaselineMatch(heur.baselineMatch);
+        dto.setBaselineMatchConfidence(heur.baselineConfidence);
         dto.setClampPercent(clampPct);
         if (heur.strategyType != null) {
             dto.setStrategyType(heur.strategyType);
@@ -716,10 +1156,14 @@ public class PricingServiceImpl implements PricingService {
             m.put("deltaPercent", dto.getDeltaPercent());
             m.put("confidence", dto.getConfidence());
             m.put("baselinePrice", dto.getBaselinePrice());
+            m.put("baselineMatch", dto.getBaselineMatch());
+            m.put("baselineMatchConfidence", dto.getBaselineMatchConfidence());
             m.put("strategyType", dto.getStrategyType());
             m.put("strategyRate", dto.getStrategyRate());
             m.put("strategyMaxDep", dto.getStrategyMaxDep());
             m.put("clampPercent", dto.getClampPercent());
+            m.put("comparableCount", dto.getComparableCount());
+            m.put("comparableSoldCount", dto.getComparableSoldCount());
             m.put("fAge", dto.getFactorAge());
             m.put("fCap", dto.getFactorCapacity());
             m.put("fCond", dto.getFactorCondition());
@@ -4,17 +4,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import project.swp.spring.sebt_platform.model.SystemConfigEntity;
 import project.swp.spring.sebt_platform.model.WalletEntity;
 import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
 import project.swp.spring.sebt_platform.model.enums.TransactionStatus;
 import project.swp.spring.sebt_platform.model.enums.WalletPurpose;
 import project.swp.spring.sebt_platform.model.enums.WalletEntryType;
-import project.swp.spring.sebt_platform.repository.SystemConfigRepository;
 import project.swp.spring.sebt_platform.repository.WalletRepository;
 import project.swp.spring.sebt_platform.repository.WalletTransactionRepository;
 import project.swp.spring.sebt_platform.service.WalletLedgerService;
+import project.swp.spring.sebt_platform.systemconfig.SystemConfigRegistry;
 import project.swp.spring.sebt_platform.util.Utils;
+import project.swp.spring.sebt_platform.wallet.WalletBalances;
+import project.swp.spring.sebt_platform.wallet.WalletLedgerExecutor;
 
 import java.math.BigDecimal;
 
@@ -23,14 +24,20 @@ public class WalletLedgerServiceImpl implements WalletLedgerService {
 
     private final WalletRepository walletRepository;
     private final WalletTransactionRepository walletTransactionRepository;
-    private final SystemConfigRepository systemConfigRepository;
+    private final SystemConfigRegistry systemConfigRegistry;
+    private final WalletLedgerExecutor ledgerExecutor;
+    private final WalletBalances walletBalances;
 
     public WalletLedgerServiceImpl(WalletRepository walletRepository,
                                    WalletTransactionRepository walletTransactionRepository,
-                                   SystemConfigRepository systemConfigRepository) {
+                                   SystemConfigRegistry systemConfigRegistry,
+                                   WalletLedgerExecutor ledgerExecutor,
+                                   WalletBalances walletBalances) {
         this.walletRepository = walletRepository;
         this.walletTransactionRepository = walletTransactionRepository;
-        this.systemConfigRepository = systemConfigRepository;
+        this.systemConfigRegistry = systemConfigRegistry;
+        this.ledgerExecutor = ledgerExecutor;
+        this.walletBalances = walletBalances;
     }
 
     @Override
@@ -47,9 +54,19 @@ public class WalletLedgerServiceImpl implements WalletLedgerService {
         return tx;
     }
 
+    // Transaction do WalletLedgerExecutor mở cho từng lần thử
     @Override
-    @Transactional
     public WalletTransactionEntity completeTopUp(String orderId, boolean success, String metadataJson, BigDecimal callbackAmount) {
+        return ledgerExecutor.execute("completeTopUp",
+                () -> applyTopUp(orderId, success, metadataJson, callbackAmount));
+    }
+
+    private WalletTransactionEntity applyTopUp(String orderId, boolean success, String metadataJson, BigDecimal callbackAmount) {
+        if (walletBalances.appendOnly()) {
+            // Khóa ví trước khi đọc giao dịch: hai callback đồng thời không thể cùng thấy PENDING
+            Long walletId = walletTransactionRepository.findWalletIdByOrderId(orderId);
+            if (walletId != null) walletRepository.findByIdForUpdate(walletId);
+        }
         WalletTransactionEntity tx = walletTransactionRepository.findByOrderId(orderId);
         if (tx == null) {
             return null;
@@ -67,13 +84,21 @@ public class WalletLedgerServiceImpl implements WalletLedgerService {
                 walletTransactionRepository.save(tx);
                 return tx;
             }
-            tx.setBalanceBefore(wallet.getBalance());
-            wallet.setBalance(wallet.getBalance().add(tx.getAmount()));
-            tx.setBalanceAfter(wallet.getBalance());
+            if (walletBalances.appendOnly()) {
+                WalletBalances.LedgerPosition position = walletBalances.position(wallet);
+                tx.setBalanceBefore(position.balance());
+                tx.setBalanceAfter(position.balance().add(tx.getAmount()));
+                tx.setLedgerSeq(position.nextSeq());
+            } else {
+                tx.setLedgerSeq(walletBalances.nextRowSeq(wallet.getId()));
+                tx.setBalanceBefore(wallet.getBalance());
+                wallet.setBalance(wallet.getBalance().add(tx.getAmount()));
+                tx.setBalanceAfter(wallet.getBalance());
+                walletRepository.save(wallet); // optimistic lock via @Version
+            }
             tx.setStatus(TransactionStatus.COMPLETED);
             tx.setDescription("VNPay top-up completed");
             tx.setMetadata(metadataJson);
-            walletRepository.save(wallet); // optimistic lock via @Version
         } else {
             tx.setStatus(TransactionStatus.FAILED);
             tx.setDescription("VNPay top-up failed");
@@ -84,39 +109,22 @@ public class WalletLedgerServiceImpl implements WalletLedgerService {
     }
 
     @Override
-    @Transactional
     public WalletTransactionEntity debitListingFee(Long userId, Long listingId, BigDecimal fee) {
-        WalletEntity wallet = walletRepository.findByUserId(userId);
-        if (wallet == null) return null;
-        if (wallet.getBalance().compareTo(fee) < 0) {
-            return null; // or throw new InsufficientFundsException("Insufficient balance for listing fee");
-        }
-        String orderId = Utils.createOrderId(WalletPurpose.LISTING_FEE, userId);
-        WalletTransactionEntity tx = new WalletTransactionEntity();
-        tx.setOrderId(orderId);
-        tx.setWallet(wallet);
-        tx.setAmount(fee.negate()); // store negative to represent debit OR keep positive with entryType=DEBIT
-        tx.setBalanceBefore(wallet.getBalance());
-        wallet.setBalance(wallet.getBalance().subtract(fee));
-        tx.setBalanceAfter(wallet.getBalance());
-        tx.setStatus(TransactionStatus.COMPLETED);
-        tx.setPurpose(WalletPurpose.LISTING_FEE);
-        tx.setEntryType(WalletEntryType.DEBIT);
-        tx.setUserId(userId);
-        tx.setListingId(listingId);
-        tx.setDescription("Listing publication fee");
-        walletRepository.save(wallet);
-        walletTransactionRepository.save(tx);
-        return tx;
+        return ledgerExecutor.execute("debitListingFee",
+                () -> debit(userId, fee, WalletPurpose.LISTING_FEE, listingId, "Listing publication fee"));
     }
 
-
-
     @Override
     public WalletEntity getWalletByUserId(Long userId) {
         return walletRepository.findByUserId(userId);
     }
 
+    @Override
+    public BigDecimal getBalance(Long userId) {
+        WalletEntity wallet = walletRepository.findByUserId(userId);
+        return wallet != null ? walletBalances.balance(wallet) : null;
+    }
+
     @Override
     public Page<WalletTransactionEntity> getTransactions(Long userId, WalletPurpose purpose, Pageable pageable) {
         if (purpose != null) {
@@ -132,29 +140,69 @@ public class WalletLedgerServiceImpl implements WalletLedgerService {
 
     @Override
     public WalletTransactionEntity pricingFee(Long userId) {
-        WalletEntity wallet = walletRepository.findByUserId(userId);
-        SystemConfigEntity config = systemConfigRepository.findByPricingFee();
-        BigDecimal feeAmount = config != null ? new BigDecimal(config.getConfigValue()) : new BigDecimal("20000.00");
-        if (wallet != null && wallet.getBalance().compareTo(feeAmount) >= 0) {
-            String orderId = Utils.createOrderId(WalletPurpose.PRICING_FEE, userId);
-            WalletTransactionEntity tx = new WalletTransactionEntity();
-            tx.setOrderId(orderId);
-            tx.setWallet(wallet);
-            tx.setAmount(feeAmount.negate()); // store negative to represent debit OR keep positive with entryType=DEBIT
-            tx.setBalanceBefore(wallet.getBalance());
-            wallet.setBalance(wallet.getBalance().subtract(feeAmount));
-            tx.setBalanceAfter(wallet.getBalance());
-            tx.setStatus(TransactionStatus.COMPLETED);
-            tx.setPurpose(WalletPurpose.PRICING_FEE);
-            tx.setEntryType(WalletEntryType.DEBIT);
-            tx.setUserId(userId);
-            tx.setDescription("Pricing feature fee");
-            walletRepository.save(wallet);
-            walletTransactionRepository.save(tx);
-            return tx;
-        }
-        return null;
+        return pricingFee(userId, 1);
+    }
+
+    @Override
+    public WalletTransactionEntity pricingFee(Long userId, int units) {
+        if (units <= 0) return null;
+        BigDecimal feeAmount = pricingFeeAmount(units);
+        String description = units == 1 ? "Pricing feature fee" : "Pricing feature fee x" + units + " (batch)";
+        return ledgerExecutor.execute("pricingFee",
+                () -> debit(userId, feeAmount, WalletPurpose.PRICING_FEE, null, description));
     }
 
+    @Override
+    public BigDecimal pricingFeeAmount(int units) {
+        BigDecimal unitFee = systemConfigRegistry.getNumber("PRICING_FEE", new BigDecimal("20000.00"));
+        return unitFee.multiply(BigDecimal.valueOf(Math.max(0, units)));
+    }
+
+    /**
+     * Trừ {@code amount} và ghi bút toán DEBIT.
+     * ROW: {@link WalletRepository#debitIfSufficient}, số dư trước/sau lấy từ ví đọc lại sau UPDATE (dòng ví đang bị
+     * khóa bởi transaction này). APPEND: khóa ví, tính số dư từ snapshot + đuôi, chỉ thêm giao dịch.
+     * @return null nếu không có ví hoặc không đủ số dư
+     */
+    private WalletTransactionEntity debit(Long userId, BigDecimal amount, WalletPurpose purpose, Long listingId, String description) {
+        WalletEntity wallet;
+        BigDecimal balanceAfter;
+        long ledgerSeq;
+        if (walletBalances.appendOnly()) {
+            Long walletId = walletRepository.findIdByUserId(userId);
+            if (walletId == null) return null;
+            wallet = walletRepository.findByIdForUpdate(walletId);
+            WalletBalances.LedgerPosition position = walletBalances.position(wallet);
+            if (position.balance().compareTo(amount) < 0) {
+                return null;
+            }
+            balanceAfter = position.balance().subtract(amount);
+            ledgerSeq = position.nextSeq();
+        } else {
+            wallet = walletRepository.findByUserId(userId);
+            if (wallet == null) return null;
+            if (walletRepository.debitIfSufficient(wallet.getId(), amount) == 0) {
+                return null; // or throw new InsufficientFundsException(...)
+            }
+            wallet = walletRepository.findById(wallet.getId()).orElseThrow();
+            balanceAfter = wallet.getBalance();
+            ledgerSeq = walletBalances.nextRowSeq(wallet.getId());
+        }
 
+        WalletTransactionEntity tx = new WalletTransactionEntity();
+        tx.setOrderId(Utils.createOrderId(purpose, userId));
+        tx.setWallet(wallet);
+        tx.setAmount(amount.negate()); // store negative to represent debit OR keep positive with entryType=DEBIT
+        tx.setBalanceBefore(balanceAfter.add(amount));
+        tx.setBalanceAfter(balanceAfter);
+        tx.setLedgerSeq(ledgerSeq);
+        tx.setStatus(TransactionStatus.COMPLETED);
+        tx.setPurpose(purpose);
+        tx.setEntryType(WalletEntryType.DEBIT);
+        tx.setUserId(userId);
+        tx.setListingId(listingId);
+        tx.setDescription(description);
+        walletTransactionRepository.save(tx);
+        return tx;
+    }
 }
@@ -0,0 +1,15 @@
+package project.swp.spring.sebt_platform.systemconfig;
+
+import java.util.Set;
+
+/**
+ * Phát ra sau khi {@link SystemConfigRegistry} nạp lại và có key thay đổi.
+ *
+ * @param changedKeys Key được thêm, xóa hoặc đổi giá trị/kiểu.
+ */
+public record SystemConfigChangedEvent(Set<String> changedKeys) {
+
+    public boolean affects(String key) {
+        return changedKeys.contains(key);
+    }
+}
@@ -0,0 +1,164 @@
+package project.swp.spring.sebt_platform.systemconfig;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.model.SystemConfigEntity;
+import project.swp.spring.sebt_platform.model.enums.ConfigDataType;
+import project.swp.spring.sebt_platform.repository.SystemConfigRepository;
+
+/**
+ * Bản sao trong bộ nhớ của bảng system_configs, giá trị đã parse sẵn theo {@link ConfigDataType}.
+ * <p>
+ * Đọc không khóa và không truy vấn DB: mỗi lần nạp dựng một snapshot bất biến rồi thay bằng một lệnh ghi
+ * volatile, nên người đọc luôn thấy trọn bộ cấu hình cũ hoặc mới. {@link #reload()} được gọi ngay sau khi admin
+ * thêm/sửa cấu hình trên node này; các node khác phát hiện thay đổi qua {@link #poll()} — so
+ * {@link SystemConfigVersion} (một truy vấn aggregate) và chỉ nạp lại khi nó khác. Có key thay đổi thì phát
+ * {@link SystemConfigChangedEvent}.
+ */
+@Component
+public class SystemConfigRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemConfigRegistry.class);
+
+    /**
+     * Một cấu hình đã parse. {@code value} là {@link BigDecimal} (NUMBER), {@link Boolean} (BOOLEAN),
+     * {@link LocalDateTime} (LOCAL_TIME_DATE) hoặc String; null nếu chuỗi gốc không parse được theo kiểu khai báo.
+     */
+    public record ConfigValue(String key, ConfigDataType type, String raw, Object value) {
+    }
+
+    private record Snapshot(SystemConfigVersion version, Map<String, ConfigValue> values) {
+    }
+
+    private final SystemConfigRepository systemConfigRepository;
+    private final ApplicationEventPublisher events;
+
+    private volatile Snapshot snapshot;
+
+    public SystemConfigRegistry(SystemConfigRepository systemConfigRepository, ApplicationEventPublisher events) {
+        this.systemConfigRepository = systemConfigRepository;
+        this.events = events;
+    }
+
+    public Optional<ConfigValue> get(String key) {
+        return Optional.ofNullable(snapshot().values().get(key));
+    }
+
+    public String getString(String key, String defaultValue) {
+        return get(key).map(ConfigValue::raw).orElse(defaultValue);
+    }
+
+    public BigDecimal getNumber(String key, BigDecimal defaultValue) {
+        return typed(key, BigDecimal.class, defaultValue);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        BigDecimal number = typed(key, BigDecimal.class, null);
+        return number != null ? number.longValue() : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return typed(key, Boolean.class, defaultValue);
+    }
+
+    /**
+     * Nạp lại toàn bộ bảng và thay snapshot. Trả về các key đã thay đổi so với snapshot trước.
+     */
+    public synchronized Set<String> reload() {
+        // Đọc version trước dữ liệu: thay đổi chen vào giữa hai truy vấn sẽ bị poll sau bắt lại
+        SystemConfigVersion version = systemConfigRepository.findVersion();
+        Map<String, ConfigValue> values = new HashMap<>();
+        for (SystemConfigEntity entity : systemConfigRepository.findAll()) {
+            values.put(entity.getConfigKey(), parse(entity));
+        }
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(version, Map.copyOf(values));
+
+        Set<String> changed = previous == null ? Set.of() : diff(previous.values(), values);
+        if (!changed.isEmpty()) {
+            logger.info("[SYSTEM_CONFIG] Reloaded {} configs, changed={}", values.size(), changed);
+            events.publishEvent(new SystemConfigChangedEvent(changed));
+        }
+        return changed;
+    }
+
+    /**
+     * Nạp lại nếu bảng đã đổi (kể cả do node khác ghi).
+     */
+    @Scheduled(fixedDelayString = "${app.config.refreshIntervalMillis:5000}")
+    public void poll() {
+        Snapshot current = snapshot;
+        try {
+            if (current == null || !Objects.equals(current.version(), systemConfigRepository.findVersion())) {
+                reload();
+            }
+        } catch (Exception e) {
+            // Giữ snapshot cũ, thử lại ở chu kỳ sau
+            logger.warn("[SYSTEM_CONFIG] Poll failed: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) reload();
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private <T> T typed(String key, Class<T> type, T defaultValue) {
+        ConfigValue config = snapshot().values().get(key);
+        if (config == null) return defaultValue;
+        if (!type.isInstance(config.value())) {
+            logger.warn("[SYSTEM_CONFIG] {} is not a valid {} ({}='{}'), using default", key, type.getSimpleName(),
+                    config.type(), config.raw());
+            return defaultValue;
+        }
+        return type.cast(config.value());
+    }
+
+    static ConfigValue parse(SystemConfigEntity entity) {
+        ConfigDataType type = entity.getDataType() != null ? entity.getDataType() : ConfigDataType.STRING;
+        String raw = entity.getConfigValue();
+        Object value;
+        try {
+            value = switch (type) {
+                case NUMBER -> new BigDecimal(raw.trim());
+                case BOOLEAN -> Boolean.parseBoolean(raw.trim());
+                case LOCAL_TIME_DATE -> LocalDateTime.parse(raw.trim());
+                case STRING -> raw;
+            };
+        } catch (RuntimeException e) {
+            logger.warn("[SYSTEM_CONFIG] Cannot parse {} as {}: '{}'", entity.getConfigKey(), type, raw);
+            value = null;
+        }
+        return new ConfigValue(entity.getConfigKey(), type, raw, value);
+    }
+
+    private static Set<String> diff(Map<String, ConfigValue> before, Map<String, ConfigValue> after) {
+        Set<String> changed = new HashSet<>();
+        before.forEach((key, value) -> {
+            if (!value.equals(after.get(key))) changed.add(key);
+        });
+        after.keySet().forEach(key -> {
+            if (!before.containsKey(key)) changed.add(key);
+        });
+        return changed;
+    }
+}
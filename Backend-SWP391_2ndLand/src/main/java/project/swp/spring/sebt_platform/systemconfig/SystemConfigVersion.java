@@ -0,0 +1,8 @@
+package project.swp.spring.sebt_platform.systemconfig;
+
+/**
+ * Dấu vân tay của bảng system_configs: update làm tăng {@code versionSum}, thêm dòng làm tăng
+ * {@code entries}/{@code maxId}, xóa làm giảm {@code entries}. Không dựa vào đồng hồ của các node.
+ */
+public record SystemConfigVersion(Long entries, Long versionSum, Long maxId) {
+}
@@ -0,0 +1,71 @@
+package project.swp.spring.sebt_platform.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa văn bản tiếng Việt cho tìm kiếm và lọc: bỏ dấu, đ -> d, chữ thường,
+ * gộp mọi ký tự không phải chữ/số thành một khoảng trắng.
+ * <p>
+ * "Hà Nội", "ha noi" và "HANOI" đều có cùng {@link #key(String)} là {@code "hanoi"},
+ * nên cột shadow lưu key có thể tra bằng so sánh bằng hoặc prefix trên index.
+ */
+public final class VietnameseText {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Tiền tố hành chính bị bỏ khi so khớp địa điểm ("TP. Hồ Chí Minh" == "Hồ Chí Minh")
+    private static final Set<String> ADMIN_PREFIXES = Set.of("thanh pho", "tp", "tinh", "quan", "huyen", "thi xa", "thi tran", "q");
+
+    private VietnameseText() {
+    }
+
+    /**
+     * Bỏ dấu và chuẩn hóa khoảng trắng: "  Thành  phố Hồ Chí Minh " -> "thanh pho ho chi minh".
+     */
+    public static String fold(String text) {
+        if (text == null) return "";
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return NON_ALNUM.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Các token đã bỏ dấu, dùng cho inverted index.
+     */
+    public static List<String> tokens(String text) {
+        String folded = fold(text);
+        if (folded.isEmpty()) return List.of();
+        return Arrays.asList(folded.split(" "));
+    }
+
+    /**
+     * Key so khớp không phân biệt dấu, hoa/thường và khoảng trắng: "Vin Fast" -> "vinfast".
+     * Trả về null nếu đầu vào rỗng để cột shadow giữ NULL như cột gốc.
+     */
+    public static String key(String text) {
+        String folded = fold(text);
+        return folded.isEmpty() ? null : folded.replace(" ", "");
+    }
+
+    /**
+     * Key cho tỉnh/quận: như {@link #key(String)} nhưng bỏ tiền tố hành chính ở đầu.
+     */
+    public static String locationKey(String text) {
+        String folded = fold(text);
+        for (String prefix : ADMIN_PREFIXES) {
+            if (folded.startsWith(prefix + " ")) {
+                folded = folded.substring(prefix.length() + 1);
+                break;
+            }
+        }
+        return folded.isEmpty() ? null : folded.replace(" ", "");
+    }
+}
@@ -0,0 +1,97 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Kiểm tra chuỗi balanceBefore/balanceAfter trong một lượt duyệt các giao dịch đã ghi sổ theo thứ tự
+ * (walletId, ledgerSeq). Chỉ giữ giao dịch liền trước nên bộ nhớ không phụ thuộc số giao dịch.
+ * <p>
+ * Với mỗi ví: ledgerSeq chạy liên tục từ 1; {@code balanceBefore + amount = balanceAfter};
+ * {@code balanceBefore} bằng {@code balanceAfter} của giao dịch trước; nếu bật {@code checkWalletBalance}
+ * (chế độ ROW) thì {@code balanceAfter} cuối cùng bằng {@code wallets.balance}.
+ */
+public class LedgerChainVerifier {
+
+    private static final int MAX_SAMPLES = 20;
+
+    public record Result(long wallets, long entries, long sequenceGaps, long chainBreaks, long arithmeticErrors,
+                         long balanceMismatches, List<String> samples) {
+
+        public boolean consistent() {
+            return sequenceGaps == 0 && chainBreaks == 0 && arithmeticErrors == 0 && balanceMismatches == 0;
+        }
+    }
+
+    private final boolean checkWalletBalance;
+
+    private LedgerEntryRow previous;
+    private long wallets;
+    private long entries;
+    private long sequenceGaps;
+    private long chainBreaks;
+    private long arithmeticErrors;
+    private long balanceMismatches;
+    private final List<String> samples = new ArrayList<>();
+
+    public LedgerChainVerifier(boolean checkWalletBalance) {
+        this.checkWalletBalance = checkWalletBalance;
+    }
+
+    public void accept(LedgerEntryRow row) {
+        entries++;
+        boolean sameWallet = previous != null && Objects.equals(previous.walletId(), row.walletId());
+        if (!sameWallet) {
+            finishWallet();
+            wallets++;
+        }
+
+        long expectedSeq = sameWallet ? previous.ledgerSeq() + 1 : 1;
+        if (row.ledgerSeq() != expectedSeq) {
+            sequenceGaps++;
+            sample(row, "ledgerSeq " + row.ledgerSeq() + ", expected " + expectedSeq);
+        }
+        if (sameWallet && !equal(previous.balanceAfter(), row.balanceBefore())) {
+            chainBreaks++;
+            sample(row, "balanceBefore " + row.balanceBefore() + " != previous balanceAfter " + previous.balanceAfter()
+                    + " (tx " + previous.transactionId() + ")");
+        }
+        if (!equal(add(row.balanceBefore(), row.amount()), row.balanceAfter())) {
+            arithmeticErrors++;
+            sample(row, row.balanceBefore() + " + " + row.amount() + " != balanceAfter " + row.balanceAfter());
+        }
+        previous = row;
+    }
+
+    public Result finish() {
+        finishWallet();
+        previous = null;
+        return new Result(wallets, entries, sequenceGaps, chainBreaks, arithmeticErrors, balanceMismatches,
+                List.copyOf(samples));
+    }
+
+    private void finishWallet() {
+        if (previous == null || !checkWalletBalance) return;
+        if (!equal(previous.balanceAfter(), previous.walletBalance())) {
+            balanceMismatches++;
+            sample(previous, "last balanceAfter " + previous.balanceAfter() + " != wallet balance " + previous.walletBalance());
+        }
+    }
+
+    private void sample(LedgerEntryRow row, String problem) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add("wallet " + row.walletId() + " tx " + row.transactionId() + " seq " + row.ledgerSeq() + ": " + problem);
+        }
+    }
+
+    private static BigDecimal add(BigDecimal a, BigDecimal b) {
+        return a == null || b == null ? null : a.add(b);
+    }
+
+    // So sánh theo giá trị (20000 == 20000.00); null chỉ bằng null
+    private static boolean equal(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+}
@@ -0,0 +1,23 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.math.BigDecimal;
+
+/**
+ * Một giao dịch đã ghi sổ, đọc theo thứ tự (walletId, ledgerSeq) cho đối soát; không hydrate entity.
+ *
+ * @param walletId      ví
+ * @param transactionId id giao dịch
+ * @param ledgerSeq     thứ tự ghi sổ trong ví
+ * @param amount        số tiền (debit âm)
+ * @param balanceBefore số dư trước giao dịch
+ * @param balanceAfter  số dư sau giao dịch
+ * @param walletBalance {@code wallets.balance} hiện tại của ví
+ */
+public record LedgerEntryRow(Long walletId,
+                             Long transactionId,
+                             Long ledgerSeq,
+                             BigDecimal amount,
+                             BigDecimal balanceBefore,
+                             BigDecimal balanceAfter,
+                             BigDecimal walletBalance) {
+}
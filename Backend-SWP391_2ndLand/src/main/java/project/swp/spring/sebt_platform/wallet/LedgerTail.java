@@ -0,0 +1,19 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.math.BigDecimal;
+
+/**
+ * Các giao dịch đã ghi sổ sau một snapshot (projection JPQL).
+ *
+ * @param entries số giao dịch
+ * @param sum     tổng amount (debit âm, credit dương)
+ * @param maxSeq  ledger_seq lớn nhất, 0 nếu không có giao dịch
+ */
+public record LedgerTail(Long entries, BigDecimal sum, Long maxSeq) {
+
+    public LedgerTail {
+        entries = entries != null ? entries : 0L;
+        sum = sum != null ? sum : BigDecimal.ZERO;
+        maxSeq = maxSeq != null ? maxSeq : 0L;
+    }
+}
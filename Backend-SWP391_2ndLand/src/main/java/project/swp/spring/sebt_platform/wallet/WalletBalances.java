@@ -0,0 +1,86 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.math.BigDecimal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.model.WalletBalanceSnapshotEntity;
+import project.swp.spring.sebt_platform.model.WalletEntity;
+import project.swp.spring.sebt_platform.repository.WalletBalanceSnapshotRepository;
+import project.swp.spring.sebt_platform.repository.WalletTransactionRepository;
+
+/**
+ * Số dư ví theo {@link WalletLedgerMode}.
+ * <p>
+ * Ở chế độ APPEND, số dư = snapshot mới nhất + tổng amount các giao dịch có ledger_seq sau snapshot. Ví chưa có
+ * snapshot thì chưa từng ghi sổ ở chế độ APPEND, nên {@code wallets.balance} (do chế độ ROW duy trì) là số dư
+ * đầu kỳ: lần ghi sổ APPEND đầu tiên tạo snapshot mở đầu từ giá trị đó, cùng transaction với giao dịch.
+ */
+@Component
+public class WalletBalances {
+
+    /**
+     * Vị trí hiện tại của sổ: số dư và ledger_seq của giao dịch cuối.
+     */
+    public record LedgerPosition(BigDecimal balance, long lastSeq, long tailEntries) {
+
+        public long nextSeq() {
+            return lastSeq + 1;
+        }
+    }
+
+    private final WalletLedgerMode mode;
+    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+
+    public WalletBalances(@Value("${app.wallet.ledger.mode:ROW}") WalletLedgerMode mode,
+                          WalletTransactionRepository walletTransactionRepository,
+                          WalletBalanceSnapshotRepository snapshotRepository) {
+        this.mode = mode;
+        this.walletTransactionRepository = walletTransactionRepository;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    public WalletLedgerMode mode() {
+        return mode;
+    }
+
+    public boolean appendOnly() {
+        return mode == WalletLedgerMode.APPEND;
+    }
+
+    /**
+     * Số dư để hiển thị; không khóa ví.
+     */
+    public BigDecimal balance(WalletEntity wallet) {
+        if (!appendOnly()) return wallet.getBalance();
+        WalletBalanceSnapshotEntity snapshot = snapshotRepository.findTopByWalletIdOrderByLastLedgerSeqDesc(wallet.getId());
+        if (snapshot == null) return wallet.getBalance();
+        LedgerTail tail = walletTransactionRepository.findTail(wallet.getId(), snapshot.getLastLedgerSeq());
+        return snapshot.getBalance().add(tail.sum());
+    }
+
+    /**
+     * Vị trí sổ của ví ở chế độ APPEND; phải gọi khi đang giữ khóa ví ({@code findByIdForUpdate}).
+     * Tạo snapshot mở đầu nếu ví chưa có.
+     */
+    public LedgerPosition position(WalletEntity lockedWallet) {
+        Long walletId = lockedWallet.getId();
+        WalletBalanceSnapshotEntity snapshot = snapshotRepository.findTopByWalletIdOrderByLastLedgerSeqDesc(walletId);
+        if (snapshot == null) {
+            snapshot = snapshotRepository.save(new WalletBalanceSnapshotEntity(walletId,
+                    walletTransactionRepository.findMaxLedgerSeq(walletId), lockedWallet.getBalance(), 0L));
+        }
+        LedgerTail tail = walletTransactionRepository.findTail(walletId, snapshot.getLastLedgerSeq());
+        return new LedgerPosition(snapshot.getBalance().add(tail.sum()),
+                Math.max(snapshot.getLastLedgerSeq(), tail.maxSeq()), tail.entries());
+    }
+
+    /**
+     * ledger_seq tiếp theo ở chế độ ROW; dòng ví phải đang bị khóa hoặc được bảo vệ bởi {@code @Version}.
+     */
+    public long nextRowSeq(Long walletId) {
+        return walletTransactionRepository.findMaxLedgerSeq(walletId) + 1;
+    }
+}
@@ -0,0 +1,116 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Chạy các thao tác ghi ví, mỗi lần thử trong một transaction mới (REQUIRES_NEW).
+ * <p>
+ * Khi hai thao tác cùng sửa một ví (ví dụ callback nạp tiền VNPay đến đúng lúc đang trừ phí), bên commit sau
+ * nhận {@link ConcurrencyFailureException} — xung đột {@code @Version} của {@code WalletEntity} hoặc deadlock
+ * bị SQL Server chọn làm nạn nhân. Thao tác đó được chạy lại từ đầu (đọc lại ví) sau một khoảng chờ ngẫu nhiên
+ * trong [0, min(maxBackoff, initialBackoff * 2^(lần thử - 1))] để các bên tranh chấp không thử lại cùng lúc.
+ * Lỗi khác không được thử lại. Vì mỗi lần thử tự commit, không gọi từ trong một transaction đang mở nếu cần
+ * thao tác ví rollback cùng transaction đó.
+ */
+@Component
+public class WalletLedgerExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerExecutor.class);
+
+    /**
+     * Bộ đếm từ lúc khởi động: {@code conflicts} là số lần thử gặp xung đột, {@code retries} là số lần chạy lại,
+     * {@code exhausted} là số thao tác vẫn xung đột sau lần thử cuối.
+     */
+    public record Stats(long executions, long conflicts, long retries, long exhausted) {
+    }
+
+    private final TransactionOperations transactions;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    @Autowired
+    public WalletLedgerExecutor(PlatformTransactionManager transactionManager,
+                                @Value("${app.wallet.retry.maxAttempts:5}") int maxAttempts,
+                                @Value("${app.wallet.retry.initialBackoffMillis:10}") long initialBackoffMillis,
+                                @Value("${app.wallet.retry.maxBackoffMillis:200}") long maxBackoffMillis) {
+        this(requiresNew(transactionManager), maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+
+    WalletLedgerExecutor(TransactionOperations transactions, int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        this.transactions = transactions;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Chạy {@code mutation} trong transaction mới, thử lại khi xung đột đồng thời.
+     *
+     * @param operation tên thao tác, chỉ dùng cho log
+     * @throws ConcurrencyFailureException nếu vẫn xung đột sau {@code maxAttempts} lần thử
+     */
+    public <T> T execute(String operation, Supplier<T> mutation) {
+        executions.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactions.execute(status -> mutation.get());
+            } catch (ConcurrencyFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    logger.warn("[WALLET] {} still conflicting after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                long backoff = backoffMillis(attempt);
+                logger.debug("[WALLET] {} conflicted on attempt {}, retrying in {} ms", operation, attempt, backoff);
+                if (!sleep(backoff)) throw e;
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(executions.sum(), conflicts.sum(), retries.sum(), exhausted.sum());
+    }
+
+    // Full jitter: ngẫu nhiên đều trong [0, trần]
+    long backoffMillis(int attempt) {
+        long ceiling = initialBackoffMillis << Math.min(attempt - 1, 20);
+        return ThreadLocalRandom.current().nextLong(Math.min(maxBackoffMillis, ceiling) + 1);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static TransactionTemplate requiresNew(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
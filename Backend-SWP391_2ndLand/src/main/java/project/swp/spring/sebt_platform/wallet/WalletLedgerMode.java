@@ -0,0 +1,16 @@
+package project.swp.spring.sebt_platform.wallet;
+
+/**
+ * Cách ghi số dư ví ({@code app.wallet.ledger.mode}).
+ */
+public enum WalletLedgerMode {
+    /**
+     * Mỗi giao dịch cập nhật {@code wallets.balance}; cột này là số dư thật.
+     */
+    ROW,
+    /**
+     * Giao dịch chỉ được thêm vào {@code wallet_transactions}; số dư = snapshot mới nhất + tổng phần đuôi.
+     * {@code wallets.balance} chỉ là bản sao cập nhật khi compaction.
+     */
+    APPEND
+}
@@ -0,0 +1,151 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import project.swp.spring.sebt_platform.model.WalletBalanceSnapshotEntity;
+import project.swp.spring.sebt_platform.model.WalletEntity;
+import project.swp.spring.sebt_platform.repository.WalletBalanceSnapshotRepository;
+import project.swp.spring.sebt_platform.repository.WalletRepository;
+import project.swp.spring.sebt_platform.repository.WalletTransactionRepository;
+
+/**
+ * Job nền của ledger append-only: gộp phần đuôi (giao dịch sau snapshot mới nhất) của các ví có từ
+ * {@code minTail} giao dịch trở lên thành snapshot mới, để việc tính số dư chỉ phải cộng một đuôi ngắn.
+ * <p>
+ * Mỗi ví được gộp trong một transaction riêng qua {@link WalletLedgerExecutor}, giữ khóa ví để không có giao dịch
+ * nào chen vào giữa lúc cộng đuôi và lúc ghi snapshot. {@code wallets.balance} được cập nhật theo snapshot
+ * như một bản sao để các màn hình đọc thẳng cột này không lệch quá xa.
+ * <p>
+ * Khi chuyển từ APPEND về ROW, {@code wallets.balance} thiếu các giao dịch sau lần gộp cuối. Lúc khởi động ở chế
+ * độ ROW, trước khi web server nhận request, số dư của mọi ví có snapshot được tính lại từ snapshot + đuôi và ghi
+ * vào {@code wallets.balance}. Giao dịch ROW cũng nằm trong đuôi với đúng amount, nên bước này chạy lại ở mỗi lần
+ * khởi động vẫn cho cùng kết quả. Nếu không gộp được thì ứng dụng không khởi động, thay vì trừ tiền trên số dư cũ.
+ */
+@Component
+public class WalletSnapshotCompactor implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletSnapshotCompactor.class);
+
+    private final WalletBalances walletBalances;
+    private final WalletLedgerExecutor ledgerExecutor;
+    private final WalletRepository walletRepository;
+    private final WalletTransactionRepository walletTransactionRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final long minTail;
+    private final int batchSize;
+
+    public WalletSnapshotCompactor(WalletBalances walletBalances,
+                                   WalletLedgerExecutor ledgerExecutor,
+                                   WalletRepository walletRepository,
+                                   WalletTransactionRepository walletTransactionRepository,
+                                   WalletBalanceSnapshotRepository snapshotRepository,
+                                   @Value("${app.wallet.ledger.compactMinTail:50}") long minTail,
+                                   @Value("${app.wallet.ledger.compactBatchSize:500}") int batchSize) {
+        this.walletBalances = walletBalances;
+        this.ledgerExecutor = ledgerExecutor;
+        this.walletRepository = walletRepository;
+        this.walletTransactionRepository = walletTransactionRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.minTail = Math.max(1, minTail);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (walletBalances.appendOnly()) return;
+        int folded = foldIntoRowBalances();
+        if (folded > 0) {
+            logger.warn("[WALLET] Ledger mode is ROW: folded append-only tails into wallets.balance for {} wallets", folded);
+        }
+    }
+
+    /**
+     * Đưa số dư theo sổ (snapshot + đuôi) của mọi ví có snapshot vào {@code wallets.balance}. Trả về số ví bị sửa.
+     */
+    public int foldIntoRowBalances() {
+        int folded = 0;
+        long afterWalletId = 0;
+        List<Long> walletIds;
+        do {
+            walletIds = snapshotRepository.findWalletIdsAfter(afterWalletId, PageRequest.of(0, batchSize));
+            for (Long walletId : walletIds) {
+                if (Boolean.TRUE.equals(ledgerExecutor.execute("foldWalletTail", () -> fold(walletId)))) folded++;
+                afterWalletId = walletId;
+            }
+        } while (walletIds.size() == batchSize);
+        return folded;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.ledger.compactIntervalMillis:300000}")
+    public void scheduledCompact() {
+        if (!walletBalances.appendOnly()) return;
+        try {
+            compactAll();
+        } catch (Exception e) {
+            // Chu kỳ sau quét lại từ đầu; các ví đã gộp xong không bị ảnh hưởng
+            logger.error("[WALLET] Snapshot compaction failed", e);
+        }
+    }
+
+    /**
+     * Gộp đuôi của mọi ví đủ dài. Trả về số snapshot đã tạo.
+     */
+    public int compactAll() {
+        long start = System.currentTimeMillis();
+        int created = 0;
+        long afterWalletId = 0;
+        List<Long> walletIds;
+        do {
+            walletIds = walletTransactionRepository.findWalletIdsToCompact(afterWalletId, minTail, PageRequest.of(0, batchSize));
+            for (Long walletId : walletIds) {
+                if (Boolean.TRUE.equals(ledgerExecutor.execute("compactWallet", () -> compact(walletId)))) created++;
+                afterWalletId = walletId;
+            }
+        } while (walletIds.size() == batchSize);
+        if (created > 0) {
+            logger.info("[WALLET] Created {} balance snapshots in {} ms", created, System.currentTimeMillis() - start);
+        }
+        return created;
+    }
+
+    // true chỉ khi thực sự gộp một đuôi thành snapshot; mở sổ (snapshot đầu, đuôi rỗng) không tính
+    private boolean compact(Long walletId) {
+        WalletEntity wallet = walletRepository.findByIdForUpdate(walletId);
+        if (wallet == null) return false;
+        boolean hadSnapshot = snapshotRepository.findTopByWalletIdOrderByLastLedgerSeqDesc(walletId) != null;
+        WalletBalances.LedgerPosition position = walletBalances.position(wallet);
+        if (hadSnapshot && position.tailEntries() < minTail) return false;
+        boolean compacted = writeSnapshot(walletId, position);
+        wallet.setBalance(position.balance());
+        walletRepository.save(wallet);
+        return compacted;
+    }
+
+    // true nếu wallets.balance lệch với sổ và đã được sửa
+    private boolean fold(Long walletId) {
+        WalletEntity wallet = walletRepository.findByIdForUpdate(walletId);
+        if (wallet == null) return false;
+        WalletBalances.LedgerPosition position = walletBalances.position(wallet);
+        // Chốt luôn đuôi để lần khởi động sau chỉ phải cộng các giao dịch ROW mới
+        writeSnapshot(walletId, position);
+        if (wallet.getBalance() != null && wallet.getBalance().compareTo(position.balance()) == 0) return false;
+        wallet.setBalance(position.balance());
+        walletRepository.save(wallet);
+        return true;
+    }
+
+    private boolean writeSnapshot(Long walletId, WalletBalances.LedgerPosition position) {
+        if (position.tailEntries() == 0) return false;
+        snapshotRepository.save(new WalletBalanceSnapshotEntity(walletId, position.lastSeq(), position.balance(),
+                position.tailEntries()));
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+package project.swp.spring.sebt_platform.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import project.swp.spring.sebt_platform.config.AiConfig;
+import project.swp.spring.sebt_platform.dto.request.PricingBatchRequestDTO;
+import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO.Status;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
+import project.swp.spring.sebt_platform.service.PricingService;
+import project.swp.spring.sebt_platform.service.WalletLedgerService;
+
+class PricingControllerTests {
+
+    private static final Long USER_ID = 7L;
+    private static final BigDecimal FEE = new BigDecimal("20000.00");
+
+    private final PricingService pricingService = mock(PricingService.class);
+    private final WalletLedgerService walletLedgerService = mock(WalletLedgerService.class);
+    private final PricingController controller = new PricingController();
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @BeforeEach
+    void setUp() {
+        AiConfig config = new AiConfig();
+        config.setBatchMaxItems(20);
+        ReflectionTestUtils.setField(controller, "pricingService", pricingService);
+        ReflectionTestUtils.setField(controller, "walletLedgerService", walletLedgerService);
+        ReflectionTestUtils.setField(controller, "environment", config);
+        request.getSession(true).setAttribute("userId", USER_ID);
+        when(walletLedgerService.pricingFeeAmount(anyInt()))
+                .thenAnswer(inv -> FEE.multiply(BigDecimal.valueOf(inv.<Integer>getArgument(0))));
+    }
+
+    @Test
+    void chargesOnlyBillableItemsAfterPricingSucceeded() {
+        when(walletLedgerService.getBalance(USER_ID)).thenReturn(new BigDecimal("120000"));
+        when(pricingService.suggestPrices(anyList())).thenReturn(batch(
+                item(0, Status.AI, null), item(1, Status.AI, 0), item(2, Status.CACHED, null),
+                item(3, Status.COMPARABLES, null), item(4, Status.INVALID, null), item(5, Status.HEURISTIC, null)));
+        WalletTransactionEntity feeTx = new WalletTransactionEntity();
+        feeTx.setAmount(new BigDecimal("-40000.00"));
+        feeTx.setOrderId("PRICING-1");
+        when(walletLedgerService.pricingFee(USER_ID, 2)).thenReturn(feeTx);
+
+        ResponseEntity<?> response = controller.suggestBatch(body(6), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        PricingBatchResponseDTO result = (PricingBatchResponseDTO) response.getBody();
+        assertThat(result.getBillableItems()).isEqualTo(2);
+        assertThat(result.getFeeCharged()).isEqualByComparingTo("40000");
+        assertThat(result.getFeeOrderId()).isEqualTo("PRICING-1");
+    }
+
+    @Test
+    void nothingIsChargedWhenPricingFails() {
+        when(walletLedgerService.getBalance(USER_ID)).thenReturn(new BigDecimal("100000"));
+        when(pricingService.suggestPrices(anyList())).thenThrow(new IllegalStateException("boom"));
+
+        ResponseEntity<?> response = controller.suggestBatch(body(2), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        verify(walletLedgerService, never()).pricingFee(anyLong(), anyInt());
+    }
+
+    @Test
+    void batchFullyServedFromCacheIsFree() {
+        when(walletLedgerService.getBalance(USER_ID)).thenReturn(new BigDecimal("100000"));
+        when(pricingService.suggestPrices(anyList())).thenReturn(batch(
+                item(0, Status.CACHED, null), item(1, Status.CACHED, 0)));
+
+        ResponseEntity<?> response = controller.suggestBatch(body(2), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(((PricingBatchResponseDTO) response.getBody()).getFeeCharged()).isNull();
+        verify(walletLedgerService, never()).pricingFee(anyLong(), anyInt());
+    }
+
+    @Test
+    void rejectsBeforePricingWhenBalanceCannotCoverEveryValidItem() {
+        when(walletLedgerService.getBalance(USER_ID)).thenReturn(new BigDecimal("50000"));
+
+        ResponseEntity<?> response = controller.suggestBatch(body(3), request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(pricingService, never()).suggestPrices(any());
+        verify(walletLedgerService, never()).pricingFee(anyLong(), anyInt());
+    }
+
+    @Test
+    void suggestReturnsBeforeTheAiAnswerArrives() {
+        CompletableFuture<PricingSuggestResponseDTO> pricing = new CompletableFuture<>();
+        when(pricingService.suggestPriceAsync(any())).thenReturn(pricing);
+
+        CompletableFuture<ResponseEntity<?>> response = controller.suggest(body(1).getItems().get(0), request);
+
+        assertThat(response).isNotDone();
+        PricingSuggestResponseDTO result = new PricingSuggestResponseDTO();
+        pricing.complete(result);
+        assertThat(response.join().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.join().getBody()).isSameAs(result);
+    }
+
+    @Test
+    void suggestMapsAFailedPricingToServerError() {
+        when(pricingService.suggestPriceAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        ResponseEntity<?> response = controller.suggest(body(1).getItems().get(0), request).join();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static PricingBatchRequestDTO body(int size) {
+        PricingSuggestRequestDTO item = new PricingSuggestRequestDTO();
+        item.setCategory("EV");
+        item.setProduct(Map.of("brand", "VinFast", "model", "VF 8", "year", 2022));
+        PricingBatchRequestDTO dto = new PricingBatchRequestDTO();
+        dto.setItems(Collections.nCopies(size, item));
+        return dto;
+    }
+
+    private static PricingBatchItemDTO item(int index, Status status, Integer duplicateOf) {
+        PricingBatchItemDTO item = new PricingBatchItemDTO(index, status, new PricingSuggestResponseDTO(), null);
+        item.setDuplicateOf(duplicateOf);
+        return item;
+    }
+
+    private static PricingBatchResponseDTO batch(PricingBatchItemDTO... items) {
+        return new PricingBatchResponseDTO(List.of(items), 0, 0, 0);
+    }
+}
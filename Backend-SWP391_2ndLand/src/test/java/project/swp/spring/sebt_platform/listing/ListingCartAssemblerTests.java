@@ -0,0 +1,133 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import project.swp.spring.sebt_platform.dto.response.CursorPageResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.ListingCartResponseDTO;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.UserEntity;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.FavoriteRepository;
+
+class ListingCartAssemblerTests {
+
+    private final FavoriteRepository favoriteRepository = mock(FavoriteRepository.class);
+    private final ListingViewCounter viewCounter = new ListingViewCounter(mock(JdbcTemplate.class));
+    private final ListingCartAssembler assembler = new ListingCartAssembler(favoriteRepository, viewCounter);
+
+    @Test
+    void resolvesFavoritesWithOneQueryPerPage() {
+        for (int size : new int[]{1, 12, 50}) {
+            FavoriteRepository repo = mock(FavoriteRepository.class);
+            ListingCartAssembler pageAssembler = new ListingCartAssembler(repo, viewCounter);
+            when(repo.findFavoritedListingIds(eq(7L), anyList())).thenReturn(List.of(2L));
+
+            Page<ListingCartResponseDTO> cards = pageAssembler.toCartPage(page(size), 7L);
+
+            assertThat(cards.getContent()).hasSize(size);
+            verify(repo, times(1)).findFavoritedListingIds(eq(7L), anyList());
+            verify(repo, never()).findByUserIdAndListingId(anyLong(), anyLong());
+        }
+    }
+
+    @Test
+    void marksOnlyFavoritedListings() {
+        when(favoriteRepository.findFavoritedListingIds(eq(7L), anyList())).thenReturn(List.of(2L, 4L));
+
+        List<ListingCartResponseDTO> cards = assembler.toCartPage(page(5), 7L).getContent();
+
+        assertThat(cards).extracting(ListingCartResponseDTO::isFavorite)
+                .containsExactly(false, true, false, true, false);
+        assertThat(cards.get(0).getSellerPhoneNumber()).isEqualTo("0900000000");
+        assertThat(cards.get(0).getStatus()).isEqualTo("ACTIVE");
+    }
+
+    @Test
+    void buildsCardsFromProjectionRows() {
+        when(favoriteRepository.findFavoritedListingIds(eq(7L), anyList())).thenReturn(List.of(1L));
+        List<ListingCartRow> rows = List.of(
+                new ListingCartRow(1L, "VF 8", "thumb-1", BigDecimal.valueOf(900_000_000L), 3, ListingStatus.ACTIVE, "0911111111", null),
+                new ListingCartRow(2L, "VF 9", "thumb-2", BigDecimal.valueOf(1_300_000_000L), null, ListingStatus.ACTIVE, "0922222222", null));
+
+        List<ListingCartResponseDTO> cards = assembler
+                .toCartRowPage(new PageImpl<>(rows, PageRequest.of(0, 12), rows.size()), 7L)
+                .getContent();
+
+        verify(favoriteRepository, times(1)).findFavoritedListingIds(eq(7L), anyList());
+        assertThat(cards).extracting(ListingCartResponseDTO::isFavorite).containsExactly(true, false);
+        assertThat(cards.get(1).getViewCount()).isZero();
+        assertThat(cards.get(0).getViewCount()).isEqualTo(3);
+        assertThat(cards.get(1).getSellerPhoneNumber()).isEqualTo("0922222222");
+    }
+
+    @Test
+    void emitsCursorFromLastRowOnlyWhenMoreRowsFollow() {
+        LocalDateTime t = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        List<ListingCartRow> rows = List.of(
+                new ListingCartRow(9L, "VF 8", "thumb-9", BigDecimal.ONE, 0, ListingStatus.ACTIVE, "0911111111", t),
+                new ListingCartRow(8L, "VF 9", "thumb-8", BigDecimal.TEN, 0, ListingStatus.ACTIVE, "0922222222", t));
+
+        CursorPageResponseDTO<ListingCartResponseDTO> first =
+                assembler.toCursorPage(new SliceImpl<>(rows, PageRequest.of(0, 2), true), null);
+        CursorPageResponseDTO<ListingCartResponseDTO> last =
+                assembler.toCursorPage(new SliceImpl<>(rows, PageRequest.of(0, 2), false), null);
+
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(ListingCursor.decode(first.getNextCursor())).isEqualTo(new ListingCursor(t, 8L));
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+        verifyNoInteractions(favoriteRepository);
+    }
+
+    @Test
+    void rejectsMalformedCursorAndStartsFromTopWhenBlank() {
+        assertThat(ListingCursor.decode(null)).isEqualTo(ListingCursor.start());
+        assertThat(ListingCursor.decode(" ")).isEqualTo(ListingCursor.start());
+        assertThatThrownBy(() -> ListingCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void skipsFavoriteQueryForAnonymousOrEmptyPage() {
+        assembler.toCartPage(page(12), null);
+        assembler.toCartPage(page(0), 7L);
+
+        verifyNoInteractions(favoriteRepository);
+    }
+
+    private Page<ListingEntity> page(int size) {
+        UserEntity seller = new UserEntity();
+        seller.setPhoneNumber("0900000000");
+        List<ListingEntity> listings = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            ListingEntity listing = new ListingEntity(seller, null, "Listing " + id, BigDecimal.valueOf(1_000_000L * id));
+            listing.setId(id);
+            listing.setStatus(ListingStatus.ACTIVE);
+            listings.add(listing);
+        }
+        return new PageImpl<>(listings, PageRequest.of(0, Math.max(1, size)), size);
+    }
+}
@@ -0,0 +1,92 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparablesIndex;
+
+class ListingChangeListenerTests {
+
+    private final ListingSearchIndex searchIndex = mock(ListingSearchIndex.class);
+    private final ListingFacetCache facetCache = mock(ListingFacetCache.class);
+    private final ComparablesIndex comparables = mock(ComparablesIndex.class);
+    private final ListingChangeListener listener;
+
+    ListingChangeListenerTests() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("searchIndex", searchIndex);
+        beans.addBean("facetCache", facetCache);
+        beans.addBean("comparables", comparables);
+        listener = new ListingChangeListener(beans.getBeanProvider(ListingSearchIndex.class),
+                beans.getBeanProvider(ListingFacetCache.class), beans.getBeanProvider(ComparablesIndex.class));
+    }
+
+    @AfterEach
+    void clearTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(listener);
+    }
+
+    @Test
+    void marksDirtyOnlyAfterTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        listener.onChange(listing(7L));
+        listener.onChange(listing(7L));
+        listener.onChange(listing(8L));
+
+        // Flush xong nhưng chưa commit: refresh lúc này sẽ đọc bản cũ, nên chưa được đánh dấu
+        verify(searchIndex, never()).markDirty(7L);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(searchIndex, times(1)).markDirty(7L);
+        verify(facetCache).markDirty(8L);
+        verify(comparables).markDirty(8L);
+    }
+
+    @Test
+    void rollbackMarksNothing() {
+        TransactionSynchronizationManager.initSynchronization();
+        listener.onChange(listing(7L));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(searchIndex, never()).markDirty(7L);
+    }
+
+    @Test
+    void marksImmediatelyOutsideATransaction() {
+        listener.onChange(listing(7L));
+
+        verify(searchIndex).markDirty(7L);
+        verify(facetCache).markDirty(7L);
+    }
+
+    private static void complete(int status) {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, status);
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static ListingEntity listing(Long id) {
+        ListingEntity listing = mock(ListingEntity.class);
+        when(listing.getId()).thenReturn(id);
+        return listing;
+    }
+}
@@ -0,0 +1,94 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.Facet;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.FacetDictionary;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+class ListingFacetCacheTests {
+
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final ListingFacetCache cache = new ListingFacetCache(listingRepository, 1000);
+
+    @BeforeEach
+    void setUp() {
+        when(listingRepository.findFacetRows(eq(ListingStatus.ACTIVE), anyLong(), any(Pageable.class))).thenReturn(List.of(
+                ev(1L, ListingStatus.ACTIVE, "VinFast", 2023, "Hà Nội", "Cầu Giấy"),
+                ev(2L, ListingStatus.ACTIVE, "Yadea", 2021, "Hà Nội", "Đống Đa"),
+                battery(3L, ListingStatus.ACTIVE, "CATL", "VF 8, VF 9", "Đà Nẵng", "Hải Châu")));
+        cache.rebuild();
+    }
+
+    @Test
+    void buildsSortedDictionariesFromActiveListings() {
+        assertThat(cache.<String>values(Facet.EV_BRANDS)).containsExactly("VinFast", "Yadea");
+        assertThat(cache.<Integer>values(Facet.EV_YEARS)).containsExactly(2023, 2021);
+        assertThat(cache.<String>values(Facet.COMPATIBLE_VEHICLES)).containsExactly("VF 8", "VF 9");
+        assertThat(cache.districts("Hà Nội").values()).containsExactly("Cầu Giấy", "Đống Đa");
+        assertThat(cache.districts(null).values()).hasSize(3);
+    }
+
+    @Test
+    void appliesListingChangesIncrementallyAndRotatesEtag() {
+        FacetDictionary<?> brandsBefore = cache.dictionary(Facet.EV_BRANDS);
+        FacetDictionary<?> provincesBefore = cache.dictionary(Facet.PROVINCES);
+
+        // Listing 2 hết ACTIVE, listing 4 (brand mới) vừa được kích hoạt
+        when(listingRepository.findFacetRowsByIds(anyCollection())).thenReturn(List.of(
+                ev(2L, ListingStatus.SOLD, "Yadea", 2021, "Hà Nội", "Đống Đa"),
+                ev(4L, ListingStatus.ACTIVE, "Pega", 2024, "Hà Nội", "Cầu Giấy")));
+        cache.markDirty(2L);
+        cache.markDirty(4L);
+
+        assertThat(cache.refresh()).isEqualTo(2);
+        FacetDictionary<?> brandsAfter = cache.dictionary(Facet.EV_BRANDS);
+        assertThat(cache.<String>values(Facet.EV_BRANDS)).containsExactly("Pega", "VinFast");
+        assertThat(brandsAfter.etag()).isNotEqualTo(brandsBefore.etag());
+        assertThat(cache.districts("Hà Nội").values()).containsExactly("Cầu Giấy");
+        // Danh sách tỉnh không đổi -> giữ nguyên ETag để trình duyệt nhận 304
+        assertThat(cache.dictionary(Facet.PROVINCES)).isSameAs(provincesBefore);
+    }
+
+    @Test
+    void scheduledRefreshBuildsTheCacheWhenWarmUpFailed() {
+        ListingFacetCache cold = new ListingFacetCache(listingRepository, 1000);
+        when(listingRepository.findFacetRows(eq(ListingStatus.ACTIVE), anyLong(), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("database not reachable"))
+                .thenReturn(List.of(ev(1L, ListingStatus.ACTIVE, "VinFast", 2023, "Hà Nội", "Cầu Giấy")));
+
+        cold.warmUp();
+        assertThat(cold.isReady()).isFalse();
+        // Request không tự dựng cache (không chặn trên monitor), caller đọc DB cho tới khi sẵn sàng
+        assertThatThrownBy(() -> cold.dictionary(Facet.EV_BRANDS)).isInstanceOf(IllegalStateException.class);
+
+        cold.refresh();
+
+        assertThat(cold.isReady()).isTrue();
+        assertThat(cold.<String>values(Facet.EV_BRANDS)).containsExactly("VinFast");
+    }
+
+    private static ListingFacetRow ev(Long id, ListingStatus status, String brand, Integer year,
+                                      String province, String district) {
+        return new ListingFacetRow(id, status, brand, year, null, null, null, null, province, district);
+    }
+
+    private static ListingFacetRow battery(Long id, ListingStatus status, String brand, String compatible,
+                                           String province, String district) {
+        return new ListingFacetRow(id, status, null, null, brand, "LFP 60kWh", 2022, compatible, province, district);
+    }
+}
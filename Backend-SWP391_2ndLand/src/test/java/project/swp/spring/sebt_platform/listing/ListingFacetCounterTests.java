@@ -0,0 +1,69 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import project.swp.spring.sebt_platform.dto.response.FacetCountDTO;
+import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
+import project.swp.spring.sebt_platform.model.enums.VehicleType;
+
+class ListingFacetCounterTests {
+
+    private static final List<String> EV_FACETS = List.of(
+            ListingFacetCounter.BRAND, ListingFacetCounter.TYPE, ListingFacetCounter.YEAR,
+            ListingFacetCounter.PROVINCE, ListingFacetCounter.CONDITION);
+
+    // [brand, type, year, province, condition, COUNT, price<50tr, 50-200tr, 200-500tr, 500tr-1ty, >=1ty]
+    private static Object[] row(String brand, VehicleType type, Integer year, String province,
+                                VehicleCondition condition, long count, int... prices) {
+        return new Object[]{brand, type, year, province, condition, count,
+                prices[0], prices[1], prices[2], prices[3], prices[4]};
+    }
+
+    @Test
+    void rollsGroupedRowsUpIntoPerFacetCounts() {
+        List<Object[]> rows = List.of(
+                row("VinFast", VehicleType.CAR, 2025, "Hà Nội", VehicleCondition.GOOD, 3, 0, 0, 1, 2, 0),
+                row("vinfast", VehicleType.MOTORBIKE, 2021, "Ha Noi", VehicleCondition.EXCELLENT, 1, 1, 0, 0, 0, 0),
+                row("Tesla", VehicleType.CAR, 2015, "TP. Hồ Chí Minh", VehicleCondition.GOOD, 2, 0, 0, 0, 0, 2));
+
+        Map<String, List<FacetCountDTO>> facets = ListingFacetCounter.rollUp(rows, EV_FACETS, 2026);
+
+        assertThat(facets).containsOnlyKeys("brand", "type", "year", "province", "condition", "price");
+        // Các cách viết khác nhau gộp chung một giá trị, nhãn lấy từ nhóm lớn nhất
+        assertThat(facets.get("brand")).containsExactly(
+                new FacetCountDTO("VinFast", 4), new FacetCountDTO("Tesla", 2));
+        assertThat(facets.get("province")).containsExactly(
+                new FacetCountDTO("Hà Nội", 4), new FacetCountDTO("TP. Hồ Chí Minh", 2));
+        assertThat(facets.get("type")).containsExactly(
+                new FacetCountDTO("CAR", 5), new FacetCountDTO("MOTORBIKE", 1));
+        assertThat(facets.get("year")).containsExactly(
+                new FacetCountDTO("2025+", 3), new FacetCountDTO("2019-2021", 1), new FacetCountDTO("<2019", 2));
+        assertThat(facets.get("price")).containsExactly(
+                new FacetCountDTO("0-50000000", 1),
+                new FacetCountDTO("200000000-500000000", 1),
+                new FacetCountDTO("500000000-1000000000", 2),
+                new FacetCountDTO("1000000000+", 2));
+    }
+
+    @Test
+    void yearBucketsFollowTheCurrentYear() {
+        assertThat(ListingFacetCounter.yearBucket(2026, 2026)).isZero();
+        assertThat(ListingFacetCounter.yearBucket(2024, 2026)).isEqualTo(1);
+        assertThat(ListingFacetCounter.yearBucket(2019, 2026)).isEqualTo(2);
+        assertThat(ListingFacetCounter.yearBucket(2018, 2026)).isEqualTo(3);
+        assertThat(ListingFacetCounter.yearLabel(1, 2026)).isEqualTo("2022-2024");
+    }
+
+    @Test
+    void emptyResultStillListsEveryFacet() {
+        Map<String, List<FacetCountDTO>> facets = ListingFacetCounter.rollUp(List.of(), EV_FACETS, 2026);
+
+        assertThat(facets).hasSize(6);
+        assertThat(facets.values()).allMatch(List::isEmpty);
+    }
+}
@@ -0,0 +1,72 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
+import project.swp.spring.sebt_platform.model.enums.VehicleType;
+
+@SuppressWarnings("unchecked")
+class ListingFilterSpecificationsTests {
+
+    private final Root<ListingEntity> root = mock(Root.class, RETURNS_DEEP_STUBS);
+    private final CriteriaQuery<?> query = mock(CriteriaQuery.class, RETURNS_DEEP_STUBS);
+    private final CriteriaBuilder cb = mock(CriteriaBuilder.class, RETURNS_DEEP_STUBS);
+
+    @Test
+    void emptyEvFilterOnlyKeepsBasePredicates() {
+        EvFilterFormDTO filter = new EvFilterFormDTO(null, null, null, null, "  ", null, "", null,
+                null, null, null, null, null, null);
+
+        List<Predicate> predicates = ListingFilterSpecifications.evPredicates(filter, root, query, cb);
+
+        // status = ACTIVE + EXISTS(location)
+        assertThat(predicates).hasSize(2);
+        verify(cb, never()).like(any(Expression.class), anyString());
+    }
+
+    @Test
+    void fullEvFilterAddsOnePredicatePerSuppliedCriterion() {
+        EvFilterFormDTO filter = new EvFilterFormDTO(VehicleType.CAR, 2023, 2020, 2024, "VinFast", "Hà Nội",
+                "Cầu Giấy", VehicleCondition.GOOD, 0, 50_000, 40, 90, 100_000_000.0, 900_000_000.0);
+
+        List<Predicate> predicates = ListingFilterSpecifications.evPredicates(filter, root, query, cb);
+
+        assertThat(predicates).hasSize(14);
+        // province/district: prefix trên cột *_norm trong subquery EXISTS; brand so sánh bằng (không LIKE)
+        verify(cb, times(2)).like(any(Expression.class), anyString());
+        verify(cb).like(any(Expression.class), eq("hanoi%"));
+        verify(cb).like(any(Expression.class), eq("caugiay%"));
+    }
+
+    @Test
+    void batteryFilterComposesOnlySuppliedCriteria() {
+        BatteryFilterFormDTO filter = new BatteryFilterFormDTO("CATL", null, null, null, null, null, null,
+                null, "vf 8", null, null, 80, null, null, null);
+
+        List<Predicate> predicates = ListingFilterSpecifications.batteryPredicates(filter, root, query, cb);
+
+        // status + brand + compatibility + minHealth + EXISTS(location)
+        assertThat(predicates).hasSize(5);
+        verify(cb, times(1)).like(any(Expression.class), eq("%vf 8%"));
+    }
+}
@@ -0,0 +1,176 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import project.swp.spring.sebt_platform.dto.request.BatteryFilterFormDTO;
+import project.swp.spring.sebt_platform.dto.request.EvFilterFormDTO;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+import project.swp.spring.sebt_platform.model.enums.VehicleCondition;
+import project.swp.spring.sebt_platform.model.enums.VehicleType;
+
+/**
+ * Chạy Specification qua Hibernate thật (mapping entity thật, dialect SQL Server) và kiểm tra câu SQL sinh
+ * ra. Không có DB nhúng trong build nên JDBC là một connection giả chỉ ghi lại SQL và trả result set rỗng.
+ */
+class ListingFilterSqlTests {
+
+    private static final List<String> statements = new ArrayList<>();
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void buildSessionFactory() throws Exception {
+        Configuration configuration = new Configuration();
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        for (BeanDefinition entity : scanner.findCandidateComponents("project.swp.spring.sebt_platform.model")) {
+            configuration.addAnnotatedClass(Class.forName(entity.getBeanClassName()));
+        }
+        Properties settings = new Properties();
+        settings.put(AvailableSettings.DIALECT, "org.hibernate.dialect.SQLServerDialect");
+        settings.put(AvailableSettings.ALLOW_METADATA_ON_BOOT, "false");
+        settings.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName());
+        settings.put(AvailableSettings.CONNECTION_PROVIDER, recordingConnectionProvider());
+        // Như Spring Boot: entity listener (ListingChangeListener) được tạo qua bean factory
+        settings.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(new DefaultListableBeanFactory()));
+        configuration.addProperties(settings);
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterAll
+    static void close() {
+        if (sessionFactory != null) sessionFactory.close();
+    }
+
+    @BeforeEach
+    void clear() {
+        statements.clear();
+    }
+
+    @Test
+    void emptyEvFilterOnlyFiltersOnStatusAndLocation() {
+        String sql = render(ListingFilterSpecifications.ev(new EvFilterFormDTO(null, null, null, null, "  ", null, "",
+                null, null, null, null, null, null, null)));
+
+        assertThat(sql).contains("join ev_vehicles").contains("exists(select").doesNotContain(" like ");
+        assertThat(whereClause(sql)).doesNotContain("brand_norm").doesNotContain("year");
+        assertThat(parameters(sql)).isEqualTo(1);
+    }
+
+    @Test
+    void fullEvFilterIsSargableOnTheNormalisedColumns() {
+        String sql = render(ListingFilterSpecifications.ev(new EvFilterFormDTO(VehicleType.CAR, 2023, 2020, 2024,
+                "VinFast", "Hà Nội", "Cầu Giấy", VehicleCondition.GOOD, 0, 50_000, 40, 90, 100_000_000.0,
+                900_000_000.0)));
+
+        String where = whereClause(sql);
+        // Cột không bị bọc trong hàm, brand so sánh bằng, tỉnh/quận là prefix LIKE trong EXISTS
+        assertThat(where).contains(".brand_norm=?").contains(".province_norm like ?").contains(".district_norm like ?");
+        assertThat(where).doesNotContain("lower(").doesNotContain("upper(");
+        // status + 14 tiêu chí (tỉnh và quận nằm chung một EXISTS)
+        assertThat(parameters(sql)).isEqualTo(15);
+    }
+
+    @Test
+    void batteryFilterOnlyBindsSuppliedCriteria() {
+        String sql = render(ListingFilterSpecifications.battery(new BatteryFilterFormDTO("CATL", null, null, null,
+                null, null, null, null, "vf 8", null, null, 80, null, null, null)));
+
+        String where = whereClause(sql);
+        assertThat(sql).contains("join batteries");
+        assertThat(where).contains(".brand_norm=?").contains(".health_percentage>=?")
+                .contains("lower(").doesNotContain("province_norm");
+        // status + brand + compatibility + minHealth
+        assertThat(parameters(sql)).isEqualTo(4);
+    }
+
+    private static String render(Specification<ListingEntity> specification) {
+        try (EntityManager em = sessionFactory.createEntityManager()) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<ListingEntity> query = cb.createQuery(ListingEntity.class);
+            Root<ListingEntity> root = query.from(ListingEntity.class);
+            query.select(root).where(specification.toPredicate(root, query, cb));
+            assertThat(em.createQuery(query).getResultList()).isEmpty();
+        }
+        assertThat(statements).hasSize(1);
+        return statements.get(0).toLowerCase();
+    }
+
+    private static String whereClause(String sql) {
+        return sql.substring(sql.indexOf(" where "));
+    }
+
+    private static long parameters(String sql) {
+        return sql.chars().filter(c -> c == '?').count();
+    }
+
+    private static ConnectionProvider recordingConnectionProvider() throws Exception {
+        ResultSet empty = mock(ResultSet.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(empty);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            return statement;
+        });
+        when(connection.getAutoCommit()).thenReturn(true);
+        return new RecordingConnectionProvider(connection);
+    }
+
+    private record RecordingConnectionProvider(Connection connection) implements ConnectionProvider {
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public void closeConnection(Connection conn) {
+        }
+
+        @Override
+        public boolean supportsAggressiveRelease() {
+            return false;
+        }
+
+        @Override
+        public boolean isUnwrappableAs(Class<?> unwrapType) {
+            return false;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> unwrapType) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+class ListingSearchIndexTests {
+
+    private static final LocalDateTime T = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final ListingSearchIndex index = new ListingSearchIndex(listingRepository, 1000);
+
+    @Test
+    void ranksTitleMatchesAboveDescriptionMatches() {
+        index.indexAll(List.of(
+                ev(1L, "Bán xe máy điện", "Xe VinFast Klara còn mới", "Yadea", T),
+                ev(2L, "VinFast Klara S 2022", "Chính chủ", "VinFast", T.minusDays(1)),
+                ev(3L, "Pin lithium", "Không liên quan", null, T)));
+
+        ListingSearchIndex.Hits hits = index.search("vinfast klara", 0, 10);
+
+        assertThat(hits.total()).isEqualTo(2);
+        assertThat(hits.ids()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void expandsLastTermAsPrefixAndPaginates() {
+        index.indexAll(List.of(
+                ev(1L, "VinFast VF8", null, "VinFast", T.minusDays(2)),
+                ev(2L, "VinFast VF9", null, "VinFast", T.minusDays(1)),
+                ev(3L, "VinFast Evo200", null, "VinFast", T)));
+
+        assertThat(index.search("vinf", 0, 10).total()).isEqualTo(3);
+        // Cùng điểm -> bài mới nhất trước
+        assertThat(index.search("vinfast", 0, 2).ids()).containsExactly(3L, 2L);
+        assertThat(index.search("vinfast", 2, 2).ids()).containsExactly(1L);
+        assertThat(index.search("vinfast tesla", 0, 10).total()).isZero();
+    }
+
+    @Test
+    void refreshDropsListingsThatAreNoLongerActive() {
+        index.indexAll(List.of(ev(1L, "VinFast VF8", null, "VinFast", T)));
+        when(listingRepository.findSearchDocumentsByIds(anyCollection())).thenReturn(List.of(
+                new ListingSearchDocument(1L, ListingStatus.SOLD, "VinFast VF8", null, "VinFast", null,
+                        null, null, null, null, T)));
+
+        index.markDirty(1L);
+
+        assertThat(index.refresh()).isEqualTo(1);
+        assertThat(index.search("vf8", 0, 10).total()).isZero();
+        assertThat(index.size()).isZero();
+    }
+
+    private static ListingSearchDocument ev(Long id, String title, String description, String brand, LocalDateTime createdAt) {
+        return new ListingSearchDocument(id, ListingStatus.ACTIVE, title, description, brand, null,
+                null, null, "Hà Nội", "Cầu Giấy", createdAt);
+    }
+}
@@ -0,0 +1,119 @@
+package project.swp.spring.sebt_platform.listing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.persistence.Column;
+import project.swp.spring.sebt_platform.model.ListingEntity;
+
+class ListingViewCounterTests {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ListingViewCounter counter = new ListingViewCounter(jdbcTemplate);
+
+    @Test
+    void fullListingSavesCannotOverwriteFlushedViews() throws Exception {
+        // Duyệt tin / thanh toán save cả ListingEntity: nếu cột được update, giá trị load từ trước
+        // sẽ xóa mất các lượt xem mà flush() vừa cộng vào DB
+        Column column = ListingEntity.class.getDeclaredField("viewsCount").getAnnotation(Column.class);
+
+        assertThat(column.name()).isEqualTo("views_count");
+        assertThat(column.updatable()).isFalse();
+    }
+
+    @Test
+    void coalescesConcurrentViewsIntoOneBatch() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            long id = i % 2 == 0 ? 1L : 2L;
+            pool.submit(() -> counter.record(id));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(counter.merge(1L, 10)).isEqualTo(510);
+        assertThat(counter.flush()).isEqualTo(2);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertThat(batch.getValue()).extracting(row -> row[0]).containsOnly(500L);
+        assertThat(counter.pending(1L)).isZero();
+        assertThat(counter.flush()).isZero();
+    }
+
+    @Test
+    void requeuesDeltasWhenFlushFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("timeout"));
+        counter.record(5L);
+        counter.record(5L);
+
+        assertThat(counter.flush()).isZero();
+        assertThat(counter.pending(5L)).isEqualTo(2);
+    }
+
+    @Test
+    void dropsAddersThatStayedIdleForAFlushCycle() {
+        counter.record(1L);
+        counter.record(2L);
+
+        assertThat(counter.flush()).isEqualTo(2);
+        assertThat(counter.tracked()).isEqualTo(2);
+
+        counter.record(2L);
+        assertThat(counter.flush()).isEqualTo(1);
+        // Listing 1 không có lượt xem mới trong chu kỳ này
+        assertThat(counter.tracked()).isEqualTo(1);
+
+        assertThat(counter.flush()).isZero();
+        assertThat(counter.tracked()).isZero();
+        counter.record(1L);
+        assertThat(counter.pending(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void viewsRecordedWhileAddersArePrunedAreNotLost() throws Exception {
+        AtomicLong written = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            rows.forEach(row -> written.addAndGet((Long) row[0]));
+            return new int[rows.size()];
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService flushThread = Executors.newSingleThreadExecutor();
+        Future<?> flusher = flushThread.submit(() -> {
+            while (!done.get()) counter.flush();
+        });
+        for (int i = 0; i < 20_000; i++) {
+            long id = i % 50;
+            pool.submit(() -> counter.record(id));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        done.set(true);
+        flusher.get(10, TimeUnit.SECONDS);
+        flushThread.shutdown();
+        counter.flush();
+
+        assertThat(written.get()).isEqualTo(20_000);
+    }
+}
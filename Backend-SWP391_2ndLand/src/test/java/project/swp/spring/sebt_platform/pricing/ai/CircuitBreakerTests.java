@@ -0,0 +1,63 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000, now::get);
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsUntilCoolDown() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            breaker.onFailure();
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.snapshot().rejected()).isEqualTo(1);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenLetsOneTrialThroughAndClosesOnSuccess() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        now.addAndGet(1_000_000_000L);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // Lời gọi thử đang chạy: các lời gọi khác vẫn bị từ chối
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void failedTrialReopensForAnotherPeriod() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        now.addAndGet(1_000_000_000L);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.snapshot().opened()).isEqualTo(2);
+    }
+}
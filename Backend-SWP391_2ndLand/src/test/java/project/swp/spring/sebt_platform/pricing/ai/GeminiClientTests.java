@@ -0,0 +1,217 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import project.swp.spring.sebt_platform.config.AiConfig;
+
+/**
+ * Chạy {@link GeminiClient} thật với một stub server HTTP cục bộ thay cho Gemini.
+ */
+class GeminiClientTests {
+
+    private static final String OK_BODY =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"{\\\"suggestedPrice\\\": 520000000}\"}]}}]}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final List<String> paths = new CopyOnWriteArrayList<>();
+    private final AtomicReference<String> apiKeyHeader = new AtomicReference<>();
+    private final AtomicLong responseDelayMillis = new AtomicLong();
+    // Stream giữ phần sau của câu trả lời cho tới khi test cho phép
+    private final CountDownLatch streamTail = new CountDownLatch(1);
+    private AiConfig config;
+    private GeminiClient client;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1beta/models/", exchange -> {
+            paths.add(exchange.getRequestURI().getPath());
+            apiKeyHeader.set(exchange.getRequestHeaders().getFirst("x-goog-api-key"));
+            exchange.getRequestBody().readAllBytes();
+            sleep(responseDelayMillis.get());
+            Integer status = statuses.poll();
+            int code = status == null ? 200 : status;
+            if (code == 200 && exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")) {
+                exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(sseEvent("{\\\"suggestedPrice\\\": 520000000, "));
+                    out.flush();
+                    await(streamTail);
+                    out.write(sseEvent("\\\"reasoning\\\": \\\"ok\\\"}"));
+                }
+                return;
+            }
+            byte[] body = (code == 200 ? OK_BODY : "{\"error\":{\"code\":" + code + "}}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        config = new AiConfig();
+        config.setGeminiApiKey("test-key");
+        config.setGeminiBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setConnectTimeoutMillis(1_000);
+        config.setResponseTimeoutMillis(3_000);
+        config.setDeadlineMillis(5_000);
+        config.setMaxConnections(4);
+        config.setRetryAttempts(3);
+        config.setInitialDelayMillis(10);
+        config.setFallbackModel("fallback-model");
+        config.setBreakerFailureThreshold(2);
+        config.setBreakerOpenMillis(60_000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        if (client != null) client.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void returnsGeminiBodyAndSendsKeyInHeader() {
+        client = new GeminiClient(config);
+
+        GeminiClient.Reply reply = client.generateContent("gemini-test", "prompt").join();
+
+        assertThat(reply.body()).contains("suggestedPrice");
+        assertThat(reply.model()).isEqualTo("gemini-test");
+        assertThat(reply.attempts()).isEqualTo(1);
+        assertThat(paths).containsExactly("/v1beta/models/gemini-test:generateContent");
+        assertThat(apiKeyHeader.get()).isEqualTo("test-key");
+    }
+
+    @Test
+    void retriesTransientErrorsOnTheFallbackModel() {
+        statuses.add(503);
+        client = new GeminiClient(config);
+
+        GeminiClient.Reply reply = client.generateContent("gemini-test", "prompt").join();
+
+        assertThat(reply.attempts()).isEqualTo(2);
+        assertThat(reply.model()).isEqualTo("fallback-model");
+        assertThat(paths).containsExactly(
+                "/v1beta/models/gemini-test:generateContent",
+                "/v1beta/models/fallback-model:generateContent");
+        assertThat(client.breakerSnapshot().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void clientErrorsAreNotRetriedAndDoNotTripTheBreaker() {
+        statuses.add(400);
+        client = new GeminiClient(config);
+
+        assertThatThrownBy(() -> client.generateContent("gemini-test", "prompt").join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(GeminiClient.GeminiCallException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(400));
+        assertThat(paths).hasSize(1);
+        assertThat(client.breakerSnapshot().consecutiveFailures()).isZero();
+    }
+
+    @Test
+    void openCircuitFailsFastWithoutCallingUpstream() {
+        config.setRetryAttempts(1);
+        statuses.add(503);
+        statuses.add(503);
+        client = new GeminiClient(config);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> client.generateContent("gemini-test", "prompt").join())
+                    .hasCauseInstanceOf(GeminiClient.GeminiCallException.class);
+        }
+        assertThatThrownBy(() -> client.generateContent("gemini-test", "prompt").join())
+                .hasCauseInstanceOf(GeminiClient.CircuitOpenException.class);
+
+        assertThat(paths).hasSize(2);
+        assertThat(client.breakerSnapshot().state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void deadlineBoundsTheWholeCall() {
+        config.setDeadlineMillis(200);
+        responseDelayMillis.set(1_500);
+        client = new GeminiClient(config);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> client.generateContent("gemini-test", "prompt").join())
+                .hasCauseInstanceOf(TimeoutException.class);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1_500);
+        assertThat(client.breakerSnapshot().consecutiveFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void streamReportsPriceBeforeTheAnswerIsComplete() throws Exception {
+        client = new GeminiClient(config);
+        CompletableFuture<Double> earlyPrice = new CompletableFuture<>();
+
+        CompletableFuture<GeminiClient.StreamReply> call =
+                client.streamGenerateContent("gemini-test", "prompt", earlyPrice::complete);
+
+        assertThat(earlyPrice.get(3, TimeUnit.SECONDS)).isEqualTo(520_000_000d);
+        assertThat(call).isNotDone();
+        streamTail.countDown();
+
+        GeminiClient.StreamReply reply = call.join();
+        assertThat(reply.result().price()).isEqualTo(520_000_000d);
+        assertThat(reply.result().reasoning()).isEqualTo("ok");
+        assertThat(paths).containsExactly("/v1beta/models/gemini-test:streamGenerateContent");
+    }
+
+    private static byte[] sseEvent(String escapedText) {
+        return ("data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escapedText + "\"}]}}]}\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Micro-benchmark của {@link GeminiResponseParser} / {@link GeminiStreamParser} trên các phản hồi Gemini
+ * đã ghi lại trong {@code src/test/resources/pricing/gemini}. Không chạy cùng {@code mvn test}
+ * (surefire chỉ lấy *Tests); chạy {@link #main} sau {@code mvn test-compile}.
+ * {@code gc.alloc.rate.norm} của {@link GCProfiler} cho biết số byte cấp phát mỗi lần parse.
+ * <p>
+ * {@link #treeBaseline} và {@link #batchTreeBaseline} là cách parse cũ (readTree envelope + readTree object/mảng),
+ * giữ lại để so sánh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeminiResponseParserBenchmark {
+
+    // Kích thước chunk mạng điển hình của một response stream
+    private static final int STREAM_CHUNK_BYTES = 512;
+
+    private final GeminiResponseParser parser = new GeminiResponseParser();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String unary;
+    private String batch;
+    private byte[] stream;
+
+    @Setup
+    public void load() throws IOException {
+        unary = new String(resource("unary-v3.json"), StandardCharsets.UTF_8);
+        batch = new String(resource("unary-batch.json"), StandardCharsets.UTF_8);
+        stream = resource("stream-v3.sse");
+    }
+
+    @Benchmark
+    public GeminiResponseParser.ParseResult parseUnary() {
+        return parser.parse(unary);
+    }
+
+    @Benchmark
+    public Map<String, GeminiResponseParser.ParseResult> parseBatch() {
+        return parser.parseBatch(batch);
+    }
+
+    @Benchmark
+    public GeminiResponseParser.ParseResult parseStream() {
+        GeminiStreamParser streamParser = new GeminiStreamParser(parser, price -> { });
+        for (int from = 0; from < stream.length; from += STREAM_CHUNK_BYTES) {
+            streamParser.accept(ByteBuffer.wrap(stream, from, Math.min(STREAM_CHUNK_BYTES, stream.length - from)));
+        }
+        return streamParser.finish();
+    }
+
+    @Benchmark
+    public double treeBaseline() throws IOException {
+        JsonNode candidates = mapper.readTree(unary).path("candidates");
+        StringBuilder text = new StringBuilder();
+        candidates.forEach(c -> c.path("content").path("parts").forEach(p -> text.append(p.path("text").asText()).append('\n')));
+        String aggregated = text.toString().trim();
+        JsonNode answer = mapper.readTree(aggregated.substring(aggregated.indexOf('{'), aggregated.lastIndexOf('}') + 1));
+        return answer.path("suggestedPrice").asDouble();
+    }
+
+    @Benchmark
+    public int batchTreeBaseline() throws IOException {
+        JsonNode candidates = mapper.readTree(batch).path("candidates");
+        StringBuilder text = new StringBuilder();
+        candidates.forEach(c -> c.path("content").path("parts").forEach(p -> text.append(p.path("text").asText()).append('\n')));
+        String aggregated = text.toString().trim();
+        JsonNode array = mapper.readTree(aggregated.substring(aggregated.indexOf('['), aggregated.lastIndexOf(']') + 1));
+        int priced = 0;
+        for (JsonNode item : array) {
+            if (item.path("suggestedPrice").isNumber()) priced++;
+            item.toString(); // parser cũ giữ raw JSON của từng item
+        }
+        return priced;
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = GeminiResponseParserBenchmark.class.getResourceAsStream("/pricing/gemini/" + name)) {
+            if (in == null) throw new IOException("Missing benchmark resource " + name);
+            return in.readAllBytes();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeminiResponseParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class GeminiResponseParserTests {
+
+    private final GeminiResponseParser parser = new GeminiResponseParser();
+
+    @Test
+    void parseReadsJsonAnswerWrappedInMarkdownAndSkipsEnvelopeMetadata() {
+        String text = "```json\n{\"suggestedPrice\": 515000000, \"reasoning\": \"pin tốt\","
+                + " \"evidence\": [\"Market\", \"age\", 3]}\n```";
+        // Field khác (metadata) trước candidates phải được bỏ qua nguyên cây con
+        String body = "{\"usageMetadata\":{\"details\":[1,{\"text\":\"999999\"}]}," + body(text).substring(1);
+
+        GeminiResponseParser.ParseResult result = parser.parse(body);
+
+        assertThat(result.jsonParsed()).isTrue();
+        assertThat(result.price()).isEqualTo(515_000_000d);
+        assertThat(result.reasoning()).isEqualTo("pin tốt");
+        assertThat(result.evidence()).containsExactly("market", "depreciation");
+    }
+
+    @Test
+    void parseFallsBackToFirstNumberOrReportsInvalidBody() {
+        GeminiResponseParser.ParseResult number = parser.parse(body("Giá đề xuất: 512.000.000 VND"));
+        assertThat(number.numberFallback()).isTrue();
+        assertThat(number.price()).isEqualTo(512_000_000d);
+
+        assertThat(parser.parse(body("{\"suggestedPrice\": \"abc\"}")).price()).isNull();
+        assertThat(parser.parse("{\"candidates\":[]}").reasoning()).isEqualTo("Invalid body");
+        assertThat(parser.parse("not json").reasoning()).isEqualTo("Invalid body");
+    }
+
+    @Test
+    void parseBatchMapsEachItemById() {
+        String text = "```json\n[{\"id\":\"i0\",\"suggestedPrice\":520000000,\"reasoning\":\"ok\",\"evidence\":[\"market\",\"age\",\"foo\"]},"
+                + "{\"id\":\"i2\",\"suggestedPrice\":310000000}]\n```";
+
+        Map<String, GeminiResponseParser.ParseResult> parsed = parser.parseBatch(body(text));
+
+        assertThat(parsed).containsOnlyKeys("i0", "i2");
+        assertThat(parsed.get("i0").price()).isEqualTo(520_000_000d);
+        assertThat(parsed.get("i0").reasoning()).isEqualTo("ok");
+        assertThat(parsed.get("i0").evidence()).containsExactly("market", "depreciation");
+        assertThat(parsed.get("i2").price()).isEqualTo(310_000_000d);
+    }
+
+    @Test
+    void parseBatchSkipsItemsWithoutUsablePrice() {
+        String text = "[{\"id\":\"i0\",\"suggestedPrice\":0},{\"suggestedPrice\":1000000},"
+                + "{\"id\":\"i1\",\"suggestedPrice\":\"abc\"},{\"id\":\"i3\",\"suggestedPrice\":45000000},"
+                + "{\"id\":\"i3\",\"suggestedPrice\":99000000}]";
+
+        Map<String, GeminiResponseParser.ParseResult> parsed = parser.parseBatch(body(text));
+
+        assertThat(parsed).containsOnlyKeys("i3");
+        assertThat(parsed.get("i3").price()).isEqualTo(45_000_000d);
+    }
+
+    @Test
+    void parseBatchReturnsEmptyForNonArrayAnswers() {
+        assertThat(parser.parseBatch(body("{\"suggestedPrice\": 520000000}"))).isEmpty();
+        assertThat(parser.parseBatch("not json")).isEmpty();
+        assertThat(parser.parseBatch(null)).isEmpty();
+    }
+
+    private static String body(String text) {
+        String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escaped + "\"}]}}]}";
+    }
+}
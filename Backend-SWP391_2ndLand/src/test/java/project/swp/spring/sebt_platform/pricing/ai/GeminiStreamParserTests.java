@@ -0,0 +1,86 @@
+package project.swp.spring.sebt_platform.pricing.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class GeminiStreamParserTests {
+
+    private static final String ANSWER = "```json\n{\"suggestedPrice\": 515000000, \"reasoning\": \"Xe còn mới, pin tốt\","
+            + " \"evidence\": [\"market\", \"health\"]}\n```";
+
+    private final GeminiResponseParser responseParser = new GeminiResponseParser();
+
+    @Test
+    void emitsPriceBeforeReasoningIsComplete() {
+        List<Double> prices = new ArrayList<>();
+        GeminiStreamParser parser = new GeminiStreamParser(responseParser, prices::add);
+
+        StringBuilder received = new StringBuilder();
+        for (String delta : deltas(ANSWER, 7)) {
+            parser.accept(utf8(event(delta)));
+            received.append(delta);
+            if (!prices.isEmpty()) break;
+        }
+
+        assertThat(prices).containsExactly(515_000_000d);
+        assertThat(received.toString()).doesNotContain("pin tốt");
+    }
+
+    @Test
+    void chunkBoundariesAnywhereGiveTheSameResultAsTheUnaryParser() {
+        StringBuilder sse = new StringBuilder();
+        for (String delta : deltas(ANSWER, 5)) sse.append(event(delta));
+        byte[] bytes = sse.toString().getBytes(StandardCharsets.UTF_8);
+        GeminiResponseParser.ParseResult expected = responseParser.parse(envelope(ANSWER));
+
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            List<Double> prices = new ArrayList<>();
+            GeminiStreamParser parser = new GeminiStreamParser(responseParser, prices::add);
+            parser.accept(ByteBuffer.wrap(bytes, 0, cut));
+            parser.accept(ByteBuffer.wrap(bytes, cut, bytes.length - cut));
+
+            assertThat(parser.finish()).isEqualTo(expected);
+            assertThat(prices).containsExactly(515_000_000d);
+        }
+    }
+
+    @Test
+    void nonJsonAnswerFallsBackWithoutEarlyPrice() {
+        List<Double> prices = new ArrayList<>();
+        GeminiStreamParser parser = new GeminiStreamParser(responseParser, prices::add);
+
+        parser.accept(utf8(": keep-alive\n\n" + event("Giá đề xuất: 512.000.000") + "data: not json\n\n"));
+        // Dòng cuối thiếu '\n' vẫn được xử lý khi kết thúc stream
+        parser.accept(utf8("data: " + envelope(" VND")));
+        GeminiResponseParser.ParseResult result = parser.finish();
+
+        assertThat(prices).isEmpty();
+        assertThat(result.numberFallback()).isTrue();
+        assertThat(result.price()).isEqualTo(512_000_000d);
+    }
+
+    private static List<String> deltas(String text, int size) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) out.add(text.substring(i, Math.min(text.length(), i + size)));
+        return out;
+    }
+
+    private static String event(String delta) {
+        return "data: " + envelope(delta) + "\r\n\r\n";
+    }
+
+    private static String envelope(String text) {
+        String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escaped + "\"}],\"role\":\"model\"}}]}";
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package project.swp.spring.sebt_platform.pricing.baseline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BaselineCatalogueReloaderTests {
+
+    private static final String VINFAST =
+            "{\"brand\":\"VinFast\",\"model\":\"VF 8\",\"variant\":\"Eco\",\"category\":\"EV\",\"baselinePrice\":%d,\"notes\":\"\"}";
+    private static final String TESLA =
+            "{\"brand\":\"Tesla\",\"model\":\"Model 3\",\"variant\":\"Standard\",\"category\":\"EV\",\"baselinePrice\":1200000000,\"notes\":\"\"}";
+
+    @TempDir
+    Path dir;
+
+    private final BaselinePriceRepository repository = new BaselinePriceRepository();
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private BaselineCatalogueReloader reloader;
+
+    @AfterEach
+    void stop() {
+        if (reloader != null) reloader.stop();
+    }
+
+    @Test
+    void reloadSwapsCatalogueAndReportsOnlyChangedBrands() throws Exception {
+        Path file = writeCatalogue(dir.resolve("baseline.json"), 1_050_000_000L);
+        reloader = new BaselineCatalogueReloader(repository, events::add, file.toString(), false, 0);
+        reloader.start();
+        assertThat(price("VinFast", "VF 8")).isEqualTo(1_050_000_000L);
+        events.clear();
+
+        writeCatalogue(file, 990_000_000L);
+        BaselineCatalogueReloader.ReloadResult result = reloader.reload().get(5, TimeUnit.SECONDS);
+
+        assertThat(result.success()).isTrue();
+        assertThat(result.changedBrands()).containsExactly("vinfast");
+        assertThat(price("VinFast", "VF 8")).isEqualTo(990_000_000L);
+        assertThat(events).singleElement()
+                .isInstanceOfSatisfying(BaselineCatalogueReloadedEvent.class, e -> {
+                    assertThat(e.affectsBrand("VINFAST")).isTrue();
+                    assertThat(e.affectsBrand("Tesla")).isFalse();
+                });
+    }
+
+    @Test
+    void invalidFileKeepsThePreviousCatalogue() throws Exception {
+        Path file = writeCatalogue(dir.resolve("baseline.json"), 1_050_000_000L);
+        reloader = new BaselineCatalogueReloader(repository, events::add, file.toString(), false, 0);
+        reloader.start();
+
+        Files.writeString(file, "{\"baselinePrices\": [", StandardCharsets.UTF_8);
+        BaselineCatalogueReloader.ReloadResult result = reloader.reload().get(5, TimeUnit.SECONDS);
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.error()).isNotBlank();
+        assertThat(price("VinFast", "VF 8")).isEqualTo(1_050_000_000L);
+    }
+
+    @Test
+    void watcherReloadsWhenTheFileChanges() throws Exception {
+        Path file = writeCatalogue(dir.resolve("baseline.json"), 1_050_000_000L);
+        reloader = new BaselineCatalogueReloader(repository, events::add, file.toString(), true, 50);
+        reloader.start();
+
+        writeCatalogue(file, 990_000_000L);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (price("VinFast", "VF 8") != 990_000_000L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(price("VinFast", "VF 8")).isEqualTo(990_000_000L);
+    }
+
+    private long price(String brand, String model) {
+        return repository.findBestMatch(brand, model, null).map(BaselinePriceEntry::getBaselinePrice).orElse(-1L);
+    }
+
+    private static Path writeCatalogue(Path file, long vinfastPrice) throws IOException {
+        String json = "{\"baselinePrices\": [" + String.format(VINFAST, vinfastPrice) + "," + TESLA + "]}";
+        return Files.writeString(file, json, StandardCharsets.UTF_8);
+    }
+}
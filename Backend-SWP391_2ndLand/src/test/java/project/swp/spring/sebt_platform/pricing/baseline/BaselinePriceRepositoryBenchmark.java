@@ -0,0 +1,119 @@
+package project.swp.spring.sebt_platform.pricing.baseline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Micro-benchmark tra cứu giá baseline trên catalogue đóng gói sẵn ({@code pricing/baseline-prices.json}),
+ * mỗi {@link #query} ứng với một bước so khớp. Không chạy cùng {@code mvn test} (surefire chỉ lấy *Tests);
+ * chạy {@link #main} sau {@code mvn test-compile}. {@code gc.alloc.rate.norm} của {@link GCProfiler} cho biết
+ * số byte cấp phát mỗi lần tra cứu.
+ * <p>
+ * {@link #linearScanBaseline} là cách tra cứu cũ (lọc stream + regex normalize trên từng entry), giữ lại để so
+ * sánh. Với MISS cách cũ trả thẳng entry đầu tiên, còn chỉ mục chạy thêm bước so khớp mờ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaselinePriceRepositoryBenchmark {
+
+    @Param({"EXACT", "COMPACT", "CONTAINS", "MISS"})
+    public String query;
+
+    private final BaselinePriceRepository repository = new BaselinePriceRepository();
+    private List<BaselinePriceEntry> catalogue;
+    private String brand;
+    private String model;
+    private String variant;
+
+    @Setup
+    public void load() throws IOException {
+        try (InputStream in = BaselinePriceRepositoryBenchmark.class.getResourceAsStream("/pricing/baseline-prices.json")) {
+            if (in == null) throw new IOException("Missing baseline catalogue");
+            catalogue = new ObjectMapper().readValue(in, BaselinePriceData.class).getBaselinePrices();
+        }
+        repository.replace(catalogue);
+        // VinFast là brand nhiều entry nhất trong catalogue
+        brand = "VinFast";
+        switch (query) {
+            case "EXACT" -> { model = "VF 8"; variant = "Standard"; }
+            case "COMPACT" -> { model = "vf8"; variant = null; }
+            case "CONTAINS" -> { model = "Vinfast VF8 Eco 2023"; variant = null; }
+            default -> { model = "Klara X"; variant = null; }
+        }
+    }
+
+    @Benchmark
+    public BaselinePriceEntry indexed() {
+        return repository.findBestMatch(brand, model, variant).orElse(null);
+    }
+
+    @Benchmark
+    public BaselinePriceEntry linearScanBaseline() {
+        return linearScan(brand, model, variant).orElse(null);
+    }
+
+    private Optional<BaselinePriceEntry> linearScan(String brand, String model, String variant) {
+        if (brand == null) return Optional.empty();
+        List<BaselinePriceEntry> list = catalogue.stream().filter(e -> norm(e.getBrand()).equals(norm(brand))).toList();
+        if (list.isEmpty()) return Optional.empty();
+        String modelNorm = norm(model);
+        String variantNorm = norm(variant);
+        String modelCompact = comp(modelNorm);
+        Optional<BaselinePriceEntry> exact = list.stream()
+                .filter(e -> modelNorm.equals(norm(e.getModel()))
+                        && (variantNorm.isBlank() || variantNorm.equals(norm(e.getVariant()))))
+                .findFirst();
+        if (exact.isPresent()) return exact;
+        Optional<BaselinePriceEntry> compactEq = list.stream()
+                .filter(e -> modelCompact.equals(comp(norm(e.getModel())))).findFirst();
+        if (compactEq.isPresent()) return compactEq;
+        Optional<BaselinePriceEntry> contains = list.stream().filter(e -> {
+            String em = norm(e.getModel());
+            return modelNorm.contains(em) || em.contains(modelNorm)
+                    || modelCompact.contains(comp(em)) || comp(em).contains(modelCompact);
+        }).findFirst();
+        if (contains.isPresent()) return contains;
+        return Optional.of(list.get(0));
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String comp(String s) {
+        return s.replaceAll("[^a-z0-9]", "");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BaselinePriceRepositoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package project.swp.spring.sebt_platform.pricing.baseline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class BaselinePriceRepositoryTests {
+
+    private List<BaselinePriceEntry> catalogue;
+    private final BaselinePriceRepository repository = new BaselinePriceRepository();
+
+    @BeforeEach
+    void loadCatalogue() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream("/pricing/baseline-prices.json")) {
+            catalogue = new ObjectMapper().readValue(is, BaselinePriceData.class).getBaselinePrices();
+        }
+        repository.replace(catalogue);
+    }
+
+    @Test
+    void normalizeAndCompactMatchTheRegexVersions() {
+        for (String s : List.of("", "  VF 8 ", "VF\t\t8  Plus", "Model  3\nLong Range", "ioniq-5 (N)", "vf8", "A\u000B B", "Ô tô điện")) {
+            String regexNorm = s.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+            assertThat(BaselinePriceRepository.normalize(s)).isEqualTo(regexNorm);
+            assertThat(BaselinePriceRepository.compact(regexNorm)).isEqualTo(regexNorm.replaceAll("[^a-z0-9]", ""));
+        }
+    }
+
+    @Test
+    void indexedLookupReturnsTheSameEntryAsTheLinearScan() {
+        List<String[]> queries = new ArrayList<>();
+        for (BaselinePriceEntry e : catalogue) {
+            String model = e.getModel() == null ? "" : e.getModel();
+            queries.add(new String[]{e.getBrand(), model, e.getVariant()});
+            queries.add(new String[]{e.getBrand().toUpperCase(Locale.ROOT), model.replace(" ", ""), null});
+            queries.add(new String[]{" " + e.getBrand() + " ", model + " 2023 cũ", "khác"});
+            queries.add(new String[]{e.getBrand(), model.length() > 2 ? model.substring(0, 2) : model, null});
+            queries.add(new String[]{e.getBrand(), model.length() > 3 ? model.substring(1) : "x", ""});
+        }
+        queries.add(new String[]{"VinFast", null, null});
+        queries.add(new String[]{"VinFast", "vf", null});
+        queries.add(new String[]{"VinFast", "không có", null});
+        queries.add(new String[]{"Unknown", "VF 8", null});
+        queries.add(new String[]{null, "VF 8", null});
+
+        for (String[] q : queries) {
+            Optional<BaselinePriceEntry> expected = linearScan(q[0], q[1], q[2]);
+            Optional<BaselinePriceRepository.Match> actual = repository.findBestMatchScored(q[0], q[1], q[2]);
+            if (expected == null) {
+                // Thuật toán cũ rơi xuống fallback: giờ là FUZZY hoặc FALLBACK
+                assertThat(actual).get().extracting(BaselinePriceRepository.Match::type)
+                        .isIn(BaselinePriceRepository.MatchType.FUZZY, BaselinePriceRepository.MatchType.FALLBACK);
+                continue;
+            }
+            assertThat(actual.map(BaselinePriceRepository.Match::entry))
+                    .as("brand=%s model=%s variant=%s", q[0], q[1], q[2])
+                    .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void misspelledModelsResolveByFuzzyMatchInsteadOfTheFirstEntry() {
+        BaselinePriceRepository.Match vf9 = repository.findBestMatchScored("VinFast", "VF-09", null).orElseThrow();
+        assertThat(vf9.entry().getModel()).isEqualTo("VF 9");
+        assertThat(vf9.type()).isEqualTo(BaselinePriceRepository.MatchType.FUZZY);
+        assertThat(vf9.confidence()).isBetween(BaselinePriceRepository.MIN_FUZZY_SIMILARITY, 1.0);
+
+        assertThat(repository.findBestMatchScored("VinFast", "Vinfast Nerio Gren", null).orElseThrow().entry().getModel())
+                .isEqualTo("Nerio Green");
+
+        // Variant chọn đúng phiên bản giữa các entry cùng model
+        BaselinePriceRepository.Match tesla = repository.findBestMatchScored("Tesla", "Modle 3", "Perfomance").orElseThrow();
+        assertThat(tesla.entry().getModel()).isEqualTo("Model 3");
+        assertThat(tesla.entry().getVariant()).isEqualTo("Performance");
+    }
+
+    @Test
+    void confidenceReflectsHowTheEntryWasMatched() {
+        assertThat(repository.findBestMatchScored("VinFast", "VF 8", "Standard").orElseThrow())
+                .extracting(BaselinePriceRepository.Match::type, BaselinePriceRepository.Match::confidence)
+                .containsExactly(BaselinePriceRepository.MatchType.EXACT, 1.0);
+        assertThat(repository.findBestMatchScored("VinFast", "vf8", null).orElseThrow().type())
+                .isEqualTo(BaselinePriceRepository.MatchType.COMPACT);
+        assertThat(repository.findBestMatchScored("VinFast", "VF8 Eco", null).orElseThrow().type())
+                .isEqualTo(BaselinePriceRepository.MatchType.CONTAINS);
+
+        BaselinePriceRepository.Match unknown = repository.findBestMatchScored("VinFast", "zzzz", null).orElseThrow();
+        assertThat(unknown.type()).isEqualTo(BaselinePriceRepository.MatchType.FALLBACK);
+        assertThat(unknown.confidence()).isZero();
+        assertThat(repository.findBestMatchScored("VinFast", null, null).orElseThrow().type())
+                .isEqualTo(BaselinePriceRepository.MatchType.FALLBACK);
+    }
+
+    // Thuật toán cũ (duyệt stream + regex trên từng entry), dùng làm chuẩn so sánh cho bước 1-3;
+    // null nghĩa là thuật toán cũ rơi xuống bước fallback
+    private Optional<BaselinePriceEntry> linearScan(String brand, String model, String variant) {
+        if (brand == null) return Optional.empty();
+        List<BaselinePriceEntry> list = catalogue.stream().filter(e -> norm(e.getBrand()).equals(norm(brand))).toList();
+        if (list.isEmpty()) return Optional.empty();
+        String modelNorm = norm(model);
+        String variantNorm = norm(variant);
+        String modelCompact = comp(modelNorm);
+        Optional<BaselinePriceEntry> exact = list.stream()
+                .filter(e -> modelNorm.equals(norm(e.getModel()))
+                        && (variantNorm.isBlank() || variantNorm.equals(norm(e.getVariant()))))
+                .findFirst();
+        if (exact.isPresent()) return exact;
+        Optional<BaselinePriceEntry> compactEq = list.stream()
+                .filter(e -> modelCompact.equals(comp(norm(e.getModel())))).findFirst();
+        if (compactEq.isPresent()) return compactEq;
+        Optional<BaselinePriceEntry> contains = list.stream().filter(e -> {
+            String em = norm(e.getModel());
+            return modelNorm.contains(em) || em.contains(modelNorm)
+                    || modelCompact.contains(comp(em)) || comp(em).contains(modelCompact);
+        }).findFirst();
+        if (contains.isPresent()) return contains;
+        return null;
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static String comp(String s) {
+        return s.replaceAll("[^a-z0-9]", "");
+    }
+}
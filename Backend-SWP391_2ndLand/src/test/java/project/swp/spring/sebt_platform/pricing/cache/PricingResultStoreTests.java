@@ -0,0 +1,90 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.model.PricingResultEntity;
+import project.swp.spring.sebt_platform.repository.PricingResultRepository;
+
+class PricingResultStoreTests {
+
+    private static final String KEY = "ev|vinfast|vf 8|2022||good||35000|hà nội|cầu giấy";
+
+    private final PricingResultRepository repository = mock(PricingResultRepository.class);
+    private final PricingResultStore store = new PricingResultStore(repository, true);
+
+    @Test
+    void savesASnapshotOfTheResultUnderTheHashedKey() throws Exception {
+        when(repository.findByKeyHash(any())).thenReturn(Optional.empty());
+        PricingSuggestResponseDTO result = aiResult("v3");
+
+        store.save(KEY, "vinfast", result, Duration.ofHours(6));
+        // Caller sửa DTO sau khi lưu: bản đã lưu không bị ảnh hưởng
+        result.setCacheHit(true);
+        store.close();
+
+        ArgumentCaptor<PricingResultEntity> saved = ArgumentCaptor.forClass(PricingResultEntity.class);
+        verify(repository).save(saved.capture());
+        PricingResultEntity entity = saved.getValue();
+        assertThat(entity.getKeyHash()).hasSize(64).isEqualTo(PricingResultStore.hash(KEY));
+        assertThat(entity.getCacheKey()).isEqualTo(KEY);
+        assertThat(entity.getBrand()).isEqualTo("vinfast");
+        assertThat(entity.getPromptVersion()).isEqualTo("v3");
+        assertThat(entity.getPayload()).contains("\"suggestedPrice\":520000000").doesNotContain("\"cacheHit\":true");
+        assertThat(entity.getExpiresAt()).isAfter(LocalDateTime.now().plusHours(5));
+    }
+
+    @Test
+    void findIgnoresOldPromptVersionsAndExpiredResults() {
+        PricingResultEntity current = entity("v3", LocalDateTime.now().plusHours(1));
+        when(repository.findByKeyHash(PricingResultStore.hash(KEY))).thenReturn(Optional.of(current));
+
+        PricingResultStore.Stored stored = store.find(KEY, Set.of("v3", "v3-batch")).orElseThrow();
+        assertThat(stored.result().getSuggestedPrice()).isEqualTo(520_000_000L);
+        assertThat(stored.result().getEvidence()).containsExactly("market", "mileage");
+        assertThat(stored.remaining()).isPositive().isLessThanOrEqualTo(Duration.ofHours(1));
+
+        assertThat(store.find(KEY, Set.of("v4"))).isEmpty();
+
+        current.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        assertThat(store.find(KEY, Set.of("v3"))).isEmpty();
+    }
+
+    @Test
+    void repositoryFailuresDoNotBreakPricing() {
+        when(repository.findByKeyHash(any())).thenThrow(new IllegalStateException("db down"));
+
+        assertThat(store.find(KEY, Set.of("v3"))).isEmpty();
+    }
+
+    private static PricingSuggestResponseDTO aiResult(String version) {
+        PricingSuggestResponseDTO dto = new PricingSuggestResponseDTO(520_000_000L, "AI JSON parsed", "gemini-2.5-flash",
+                "gemini", 500_000_000L, 440_000_000L, 560_000_000L, false, 0.96, 4.0, version);
+        dto.setEvidence(List.of("market", "mileage"));
+        return dto;
+    }
+
+    private static PricingResultEntity entity(String version, LocalDateTime expiresAt) {
+        PricingResultEntity e = new PricingResultEntity();
+        e.setKeyHash(PricingResultStore.hash(KEY));
+        e.setCacheKey(KEY);
+        e.setPromptVersion(version);
+        e.setPayload("{\"suggestedPrice\":520000000,\"mode\":\"gemini\",\"promptVersion\":\"" + version
+                + "\",\"evidence\":[\"market\",\"mileage\"]}");
+        e.setExpiresAt(expiresAt);
+        return e;
+    }
+}
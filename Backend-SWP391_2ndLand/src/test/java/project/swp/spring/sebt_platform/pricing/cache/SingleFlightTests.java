@@ -0,0 +1,125 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTests {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallsWithSameKeyShareOneExecution() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(pool.submit(() -> flight.execute("ev|vinfast|vf e34|2022", () -> {
+                    upstreamCalls.incrementAndGet();
+                    await(release);
+                    return "520000000";
+                })));
+            }
+            // Chờ cả 6 request vào: 1 leader đang chạy + 5 request chờ
+            waitUntil(() -> flight.stats().coalesced() == 5);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("520000000");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(flight.stats()).isEqualTo(new SingleFlight.Stats(1, 5, 0));
+    }
+
+    @Test
+    void followersSeeTheLeadersFailureAndNextCallRunsAgain() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.execute("k", () -> {
+                await(release);
+                throw new IllegalStateException("gemini down");
+            }));
+            waitUntil(() -> flight.stats().inFlight() == 1);
+            Future<String> follower = pool.submit(() -> flight.execute("k", () -> "unused"));
+            waitUntil(() -> flight.stats().coalesced() == 1);
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(flight.execute("k", () -> "ok")).isEqualTo("ok");
+        assertThat(flight.stats().executions()).isEqualTo(2);
+    }
+
+    @Test
+    void asyncCallsShareOneLoaderWithoutBlockingAndCancellingACopyDoesNotAffectOthers() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.executeAsync("k", () -> {
+            upstreamCalls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = flight.executeAsync("k", () -> CompletableFuture.completedFuture("unused"));
+        assertThat(first).isNotDone();
+        second.cancel(true);
+
+        upstream.complete("520000000");
+
+        assertThat(first).isCompletedWithValue("520000000");
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(flight.stats()).isEqualTo(new SingleFlight.Stats(1, 1, 0));
+    }
+
+    @Test
+    void asyncFailureIsSharedUnwrappedAndNextCallRunsAgain() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<String> leader = flight.executeAsync("k", () -> upstream);
+        CompletableFuture<String> follower = flight.executeAsync("k", () -> upstream);
+
+        upstream.completeExceptionally(new IllegalStateException("gemini down"));
+
+        assertThatThrownBy(leader::join).hasCauseExactlyInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(follower::join).hasCauseExactlyInstanceOf(IllegalStateException.class);
+        assertThat(flight.executeAsync("k", () -> CompletableFuture.completedFuture("ok"))).isCompletedWithValue("ok");
+        assertThat(flight.stats().executions()).isEqualTo(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("timed out");
+            Thread.sleep(5);
+        }
+    }
+}
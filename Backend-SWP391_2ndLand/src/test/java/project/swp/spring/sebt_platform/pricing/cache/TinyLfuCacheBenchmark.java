@@ -0,0 +1,144 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Micro-benchmark hit rate và thông lượng của {@link TinyLfuCache} với dung lượng mặc định của cache định giá
+ * ({@code app.pricing.cache.maxSize=500}). Không chạy cùng {@code mvn test} (surefire chỉ lấy *Tests); chạy
+ * {@link #main} sau {@code mvn test-compile}.
+ * <p>
+ * Trace truy cập: key theo phân phối Zipf (s=0.9) trên 5.000 model, cứ mỗi 4.096 request lại chen một loạt
+ * 500 key chỉ dùng một lần (vd. một dealer định giá cả kho xe). Mỗi thao tác là get, miss thì put. Số hit/miss
+ * nằm trong các cột {@code hits}/{@code misses} của {@link Counters}.
+ * <p>
+ * {@link #dropHalfBaseline} là cách cũ (ConcurrentHashMap, đầy thì xóa một nửa map tùy ý), giữ lại để so sánh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TinyLfuCacheBenchmark {
+
+    private static final int MAXIMUM_SIZE = 500;
+    private static final int DISTINCT_MODELS = 5_000;
+    private static final double ZIPF_EXPONENT = 0.9;
+    private static final int SCAN_EVERY = 4_096;
+    private static final int SCAN_LENGTH = 500;
+    private static final int TRACE_LENGTH = 1 << 20;
+
+    private String[] trace;
+    private TinyLfuCache<String, String> tinyLfu;
+    private Map<String, String> dropHalf;
+
+    /**
+     * Vị trí trong trace và số hit/miss của từng thread; JMH in các field public thành cột riêng.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long hits;
+        public long misses;
+        int cursor;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup
+    public void buildTrace() {
+        double[] cdf = new double[DISTINCT_MODELS];
+        double sum = 0;
+        for (int rank = 0; rank < DISTINCT_MODELS; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cdf[rank] = sum;
+        }
+        Random random = new Random(42);
+        trace = new String[TRACE_LENGTH];
+        int oneOff = 0;
+        for (int i = 0; i < TRACE_LENGTH; ) {
+            if (i > 0 && i % SCAN_EVERY == 0) {
+                for (int s = 0; s < SCAN_LENGTH && i < TRACE_LENGTH; s++) {
+                    trace[i++] = "scan|" + oneOff++;
+                }
+                if (i >= TRACE_LENGTH) break;
+            }
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            trace[i++] = "ev|model-" + (rank < 0 ? -rank - 1 : rank);
+        }
+        tinyLfu = new TinyLfuCache<>(MAXIMUM_SIZE, Duration.ofHours(6));
+        dropHalf = new ConcurrentHashMap<>();
+    }
+
+    @Benchmark
+    public String tinyLfu(Counters counters) {
+        String key = next(counters);
+        String value = tinyLfu.get(key);
+        if (value != null) {
+            counters.hits++;
+            return value;
+        }
+        counters.misses++;
+        tinyLfu.put(key, key);
+        return key;
+    }
+
+    @Benchmark
+    public String dropHalfBaseline(Counters counters) {
+        String key = next(counters);
+        String value = dropHalf.get(key);
+        if (value != null) {
+            counters.hits++;
+            return value;
+        }
+        counters.misses++;
+        if (dropHalf.size() >= MAXIMUM_SIZE) {
+            int removeCount = dropHalf.size() / 2;
+            Iterator<String> it = dropHalf.keySet().iterator();
+            while (removeCount-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        dropHalf.put(key, key);
+        return key;
+    }
+
+    private String next(Counters counters) {
+        String key = trace[counters.cursor];
+        counters.cursor = (counters.cursor + 1) & (TRACE_LENGTH - 1);
+        return key;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TinyLfuCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,137 @@
+package project.swp.spring.sebt_platform.pricing.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTests {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void neverGrowsPastMaximumSize() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(50, Duration.ZERO, now::get);
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("k" + i, i);
+        }
+
+        assertThat(cache.size()).isEqualTo(50);
+        assertThat(cache.stats().evictions()).isEqualTo(950);
+    }
+
+    @Test
+    void hotKeysSurviveAScanOfOneOffKeys() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, Duration.ZERO, now::get);
+        for (int i = 0; i < 20; i++) {
+            cache.put("hot" + i, i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                cache.get("hot" + i);
+            }
+        }
+
+        // Xen giữa traffic thường là một loạt key chỉ hỏi một lần (mẫu xe hiếm)
+        for (int i = 0; i < 5_000; i++) {
+            cache.get("hot" + (i % 20));
+            String key = "once" + i;
+            if (cache.get(key) == null) cache.put(key, i);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(cache.get("hot" + i)).as("hot%d", i).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, Duration.ofMinutes(5), now::get);
+        cache.put("vf-e34", "520000000");
+
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertThat(cache.get("vf-e34")).isEqualTo("520000000");
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertThat(cache.get("vf-e34")).isNull();
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.expirations()).isEqualTo(1);
+        assertThat(stats.size()).isZero();
+        assertThat(stats.hitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void putWithRemainingLifetimeNeverOutlivesTheCacheTtl() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, Duration.ofMinutes(5), now::get);
+        cache.put("short", "a", Duration.ofMinutes(1));
+        cache.put("long", "b", Duration.ofHours(1));
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertThat(cache.get("short")).isNull();
+        assertThat(cache.get("long")).isEqualTo("b");
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(4));
+        assertThat(cache.get("long")).isNull();
+    }
+
+    @Test
+    void invalidateIfRemovesOnlyMatchingKeys() {
+        TinyLfuCache<String, Integer> cache = new TinyLfuCache<>(100, Duration.ZERO, now::get);
+        cache.put("car|vinfast|vf 8", 1);
+        cache.put("car|vinfast|vf 9", 2);
+        cache.put("car|tesla|model 3", 3);
+
+        int removed = cache.invalidateIf(key -> key.startsWith("car|vinfast|"));
+
+        assertThat(removed).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get("car|vinfast|vf 8")).isNull();
+        assertThat(cache.get("car|tesla|model 3")).isEqualTo(3);
+        // Slot đã xóa có thể dùng lại
+        cache.put("car|vinfast|vf 8", 4);
+        assertThat(cache.get("car|vinfast|vf 8")).isEqualTo(4);
+    }
+
+    @Test
+    void staysConsistentUnderConcurrentAccess() throws Exception {
+        TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(64, Duration.ofSeconds(30));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        // Phân bố lệch: phần lớn request rơi vào ít key
+                        int key = (int) Math.abs(ThreadLocalRandom.current().nextGaussian() * 40);
+                        Integer value = cache.get(key);
+                        if (value == null) cache.put(key, key);
+                        else assertThat(value).isEqualTo(key);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertThat(stats.size()).isLessThanOrEqualTo(64);
+        assertThat(stats.hits() + stats.misses()).isEqualTo(8 * 20_000);
+        assertThat(stats.hitRate()).isGreaterThan(0.5);
+    }
+}
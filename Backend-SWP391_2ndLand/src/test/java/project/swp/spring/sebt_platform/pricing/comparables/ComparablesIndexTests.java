@@ -0,0 +1,95 @@
+package project.swp.spring.sebt_platform.pricing.comparables;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+class ComparablesIndexTests {
+
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final ComparablesIndex index = new ComparablesIndex(listingRepository, 1000, 2);
+
+    @BeforeEach
+    void setUp() {
+        when(listingRepository.findComparableRows(anyCollection(), anyLong(), any(Pageable.class))).thenReturn(List.of(
+                ev(1L, ListingStatus.ACTIVE, "VinFast", "VF 8", 2022, 800_000_000L),
+                ev(2L, ListingStatus.SOLD, "VinFast", "VF8", 2023, 820_000_000L),
+                ev(3L, ListingStatus.ACTIVE, "vinfast", "vf-8", 2022, 900_000_000L),
+                ev(4L, ListingStatus.SOLD, "VinFast", "VF 8", 2023, 760_000_000L),
+                ev(5L, ListingStatus.ACTIVE, "VinFast", "VF 8", 2020, 600_000_000L),
+                battery(6L, ListingStatus.ACTIVE, "CATL", "LFP 60kWh", 2022, 90_000_000L)));
+        index.rebuild();
+    }
+
+    @Test
+    void groupsByNormalizedBrandModelAndYearBucket() {
+        ComparableStats stats = index.lookup("EV", "VINFAST", "vf 8", 2023).orElseThrow();
+
+        assertThat(stats.count()).isEqualTo(4);
+        assertThat(stats.soldCount()).isEqualTo(2);
+        assertThat(stats.median()).isEqualTo(810_000_000L);
+        assertThat(stats.q1()).isEqualTo(790_000_000L);
+        assertThat(stats.q3()).isEqualTo(840_000_000L);
+        assertThat(stats.fromYear()).isEqualTo(2022);
+        assertThat(stats.toYear()).isEqualTo(2023);
+        assertThat(index.lookup("EV", "VinFast", "VF 8", 2020).orElseThrow().count()).isEqualTo(1);
+        assertThat(index.lookup("BATTERY", "CATL", "LFP 60kWh", 2022).orElseThrow().median()).isEqualTo(90_000_000L);
+        assertThat(index.lookup("EV", "VinFast", "VF 8", null)).isEmpty();
+        assertThat(index.lookup("EV", "Tesla", "Model 3", 2022)).isEmpty();
+        assertThat(index.lookup("BATTERY", "VinFast", "VF 8", 2022)).isEmpty();
+        assertThat(index.lookup(null, "VinFast", "VF 8", 2022)).isEmpty();
+    }
+
+    @Test
+    void batteriesAndVehiclesWithTheSameNameAreSeparateGroups() {
+        when(listingRepository.findComparableRowsByIds(anyCollection())).thenReturn(List.of(
+                battery(8L, ListingStatus.ACTIVE, "VinFast", "VF 8", 2022, 150_000_000L)));
+        index.markDirty(8L);
+        index.refresh();
+
+        assertThat(index.lookup("battery", "VinFast", "VF 8", 2022).orElseThrow().median()).isEqualTo(150_000_000L);
+        assertThat(index.lookup("EV", "VinFast", "VF 8", 2022).orElseThrow().count()).isEqualTo(4);
+    }
+
+    @Test
+    void appliesListingChangesIncrementally() {
+        // Listing 3 bị gỡ, listing 1 bán với giá mới, listing 7 vừa được duyệt
+        when(listingRepository.findComparableRowsByIds(anyCollection())).thenReturn(List.of(
+                ev(1L, ListingStatus.SOLD, "VinFast", "VF 8", 2022, 780_000_000L),
+                ev(3L, ListingStatus.REMOVED, "VinFast", "VF 8", 2022, 900_000_000L),
+                ev(7L, ListingStatus.ACTIVE, "VinFast", "VF 8", 2023, 830_000_000L)));
+        index.markDirty(1L);
+        index.markDirty(3L);
+        index.markDirty(7L);
+
+        assertThat(index.refresh()).isEqualTo(3);
+        ComparableStats stats = index.lookup("EV", "VinFast", "VF 8", 2022).orElseThrow();
+        assertThat(stats.count()).isEqualTo(4);
+        assertThat(stats.soldCount()).isEqualTo(3);
+        assertThat(stats.median()).isEqualTo(800_000_000L);
+        assertThat(index.stats().listings()).isEqualTo(6);
+    }
+
+    private static ComparableListingRow ev(Long id, ListingStatus status, String brand, String model, int year,
+                                           long price) {
+        return new ComparableListingRow(id, status, BigDecimal.valueOf(price), brand, model, year, null, null, null);
+    }
+
+    private static ComparableListingRow battery(Long id, ListingStatus status, String brand, String name, int year,
+                                                long price) {
+        return new ComparableListingRow(id, status, BigDecimal.valueOf(price), null, null, null, brand, name, year);
+    }
+}
@@ -0,0 +1,161 @@
+package project.swp.spring.sebt_platform.pricing.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingJobResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.service.PricingService;
+
+class PricingJobServiceTests {
+
+    private final PricingService pricingService = mock(PricingService.class);
+    private final List<Runnable> queued = new ArrayList<>();
+    private PricingSuggestRequestDTO request;
+
+    @BeforeEach
+    void setUp() {
+        request = new PricingSuggestRequestDTO();
+        request.setProduct(Map.of("ev", Map.of("brand", "VinFast", "model", "VF e34", "year", 2022)));
+        when(pricingService.heuristicSuggestion(any()))
+                .thenReturn(new PricingSuggestResponseDTO(480_000_000L, "heuristic", "gemini", "baseline"));
+    }
+
+    @Test
+    void submitReturnsProvisionalPriceBeforeTheAiStepRuns() {
+        when(pricingService.suggestPrice(any(), any()))
+                .thenReturn(new PricingSuggestResponseDTO(520_000_000L, "ai", "gemini", "gemini"));
+        PricingJobService service = new PricingJobService(pricingService, queued::add, 900);
+
+        PricingJob job = service.submit(request, 7L);
+
+        PricingJobResponseDTO pending = job.toResponse();
+        assertThat(pending.getStatus()).isEqualTo("RUNNING");
+        assertThat(pending.getProvisional().getSuggestedPrice()).isEqualTo(480_000_000L);
+        assertThat(pending.getResult()).isNull();
+
+        queued.forEach(Runnable::run);
+
+        PricingJobResponseDTO done = service.find(job.getId(), 7L).orElseThrow().toResponse();
+        assertThat(done.getStatus()).isEqualTo("COMPLETED");
+        assertThat(done.getResult().getSuggestedPrice()).isEqualTo(520_000_000L);
+    }
+
+    @Test
+    void earlyAiPriceCallbackDoesNotTouchTheJobOnTheCallingThread() {
+        AtomicReference<PricingJob> submitted = new AtomicReference<>();
+        AtomicReference<PricingJobResponseDTO> duringCall = new AtomicReference<>();
+        when(pricingService.suggestPrice(any(), any())).thenAnswer(invocation -> {
+            LongConsumer onEarlyPrice = invocation.getArgument(1);
+            onEarlyPrice.accept(515_000_000L);
+            onEarlyPrice.accept(999_000_000L); // chỉ giá sớm đầu tiên được nhận
+            duringCall.set(submitted.get().toResponse());
+            return new PricingSuggestResponseDTO(520_000_000L, "ai", "gemini", "gemini");
+        });
+        PricingJobService service = new PricingJobService(pricingService, queued::add, 900);
+        submitted.set(service.submit(request, 7L));
+
+        queued.remove(0).run();
+
+        // Callback (chạy trên I/O thread của Gemini) chỉ đẩy việc báo giá sang executor
+        assertThat(duringCall.get().getAiPrice()).isNull();
+        assertThat(queued).hasSize(2);
+        PricingJob job = submitted.get();
+        assertThat(job.toResponse().getStatus()).isEqualTo("COMPLETED");
+        queued.forEach(Runnable::run);
+        // Báo giá đến sau khi job xong thì bị bỏ qua; giá cuối vẫn là kết quả đầy đủ
+        assertThat(job.toResponse().getAiPrice()).isNull();
+        assertThat(job.toResponse().getResult().getSuggestedPrice()).isEqualTo(520_000_000L);
+    }
+
+    @Test
+    void earlyAiPriceIsReportedOnTheExecutorWhileTheJobIsStillRunning() {
+        AtomicReference<PricingJob> submitted = new AtomicReference<>();
+        AtomicReference<PricingJobResponseDTO> duringCall = new AtomicReference<>();
+        when(pricingService.suggestPrice(any(), any())).thenAnswer(invocation -> {
+            LongConsumer onEarlyPrice = invocation.getArgument(1);
+            onEarlyPrice.accept(515_000_000L);
+            onEarlyPrice.accept(999_000_000L); // chỉ giá sớm đầu tiên được nhận
+            // Executor chạy việc báo giá trong lúc lời gọi AI vẫn đang chờ phần còn lại của stream
+            while (!queued.isEmpty()) queued.remove(0).run();
+            duringCall.set(submitted.get().toResponse());
+            return new PricingSuggestResponseDTO(520_000_000L, "ai", "gemini", "gemini");
+        });
+        PricingJobService service = new PricingJobService(pricingService, queued::add, 900);
+        submitted.set(service.submit(request, 7L));
+
+        queued.remove(0).run();
+
+        assertThat(duringCall.get().getStatus()).isEqualTo("RUNNING");
+        assertThat(duringCall.get().getAiPrice()).isEqualTo(515_000_000L);
+        PricingJobResponseDTO done = submitted.get().toResponse();
+        assertThat(done.getAiPrice()).isEqualTo(515_000_000L);
+        assertThat(done.getResult().getSuggestedPrice()).isEqualTo(520_000_000L);
+    }
+
+    @Test
+    void failedAiStepKeepsProvisionalAndReportsError() {
+        when(pricingService.suggestPrice(any(), any())).thenThrow(new IllegalStateException("boom"));
+        PricingJobService service = new PricingJobService(pricingService, Runnable::run, 900);
+
+        PricingJobResponseDTO response = service.submit(request, 7L).toResponse();
+
+        assertThat(response.getStatus()).isEqualTo("FAILED");
+        assertThat(response.getProvisional()).isNotNull();
+        assertThat(response.getError()).isNotBlank();
+    }
+
+    @Test
+    void jobsAreOnlyVisibleToTheirOwner() {
+        PricingJobService service = new PricingJobService(pricingService, queued::add, 900);
+
+        PricingJob job = service.submit(request, 7L);
+
+        assertThat(service.find(job.getId(), 7L)).contains(job);
+        assertThat(service.find(job.getId(), 8L)).isEmpty();
+        assertThat(service.find("missing", 7L)).isEmpty();
+    }
+
+    @Test
+    void rejectedSubmissionIsNotKept() {
+        Executor full = task -> {
+            throw new RejectedExecutionException("queue full");
+        };
+        PricingJobService service = new PricingJobService(pricingService, full, 900);
+
+        assertThatThrownBy(() -> service.submit(request, 7L)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(service.size()).isZero();
+    }
+
+    @Test
+    void finishedJobsAreEvictedAfterRetention() {
+        when(pricingService.suggestPrice(any(), any()))
+                .thenReturn(new PricingSuggestResponseDTO(520_000_000L, "ai", "gemini", "gemini"));
+        // retention âm: mọi job đã xong đều coi như quá hạn
+        PricingJobService service = new PricingJobService(pricingService, Runnable::run, -1);
+        service.submit(request, 7L);
+        PricingJobService running = new PricingJobService(pricingService, queued::add, -1);
+        running.submit(request, 7L);
+
+        service.evictExpired();
+        running.evictExpired();
+
+        assertThat(service.size()).isZero();
+        assertThat(running.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,50 @@
+package project.swp.spring.sebt_platform.pricing.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tham số dạng {@code --name=value} (hoặc {@code --flag}) cho main() của stub và load harness.
+ */
+final class CommandLine {
+
+    private final Map<String, String> values;
+
+    private CommandLine(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static CommandLine parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            int eq = arg.indexOf('=');
+            if (eq < 0) values.put(arg.substring(2), "true");
+            else values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return new CommandLine(values);
+    }
+
+    String value(String name, String fallback) {
+        return values.getOrDefault(name, fallback);
+    }
+
+    int intValue(String name, int fallback) {
+        String v = values.get(name);
+        return v == null ? fallback : Integer.parseInt(v);
+    }
+
+    long longValue(String name, long fallback) {
+        String v = values.get(name);
+        return v == null ? fallback : Long.parseLong(v);
+    }
+
+    double doubleValue(String name, double fallback) {
+        String v = values.get(name);
+        return v == null ? fallback : Double.parseDouble(v);
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+}
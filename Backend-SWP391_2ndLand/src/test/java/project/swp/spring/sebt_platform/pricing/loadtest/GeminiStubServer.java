@@ -0,0 +1,287 @@
+package project.swp.spring.sebt_platform.pricing.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stub Gemini chạy cục bộ để load-test pricing mà không gọi Google.
+ * <p>
+ * Phát lại các phản hồi đã ghi trong {@code src/test/resources/pricing/gemini}:
+ * {@code generateContent} trả {@code unary-v3.json} (prompt một xe) hoặc câu trả lời của
+ * {@code unary-batch.json} gán lại id theo các {@code ### ITEM id=} trong prompt (batch);
+ * {@code streamGenerateContent} phát {@code stream-v3.sse} theo từng event.
+ * Độ trễ (cố định + jitter ngẫu nhiên), tỉ lệ lỗi 429/500 và tỉ lệ body hỏng chỉnh được lúc đang chạy.
+ * <p>
+ * Chạy độc lập: {@code GeminiStubServer --port=8089 --latencyMillis=800 --jitterMillis=400 --rate429=0.05
+ * --rate500=0.02 --malformedRate=0.01}, rồi chạy app với profile {@code gemini-stub}.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    private static final Pattern ITEM_ID = Pattern.compile("### ITEM id=(\\S+)");
+    private static final String REFUSAL_TEXT = "Xin lỗi, tôi chưa đủ thông tin để định giá chiếc xe này.";
+
+    static {
+        // HttpServer của JDK mặc định bật Nagle: header và body ghi riêng gặp delayed ACK, cộng ~40ms vào mỗi
+        // response và làm sai độ trễ giả lập. Phải đặt trước khi HttpServer đầu tiên được tạo trong JVM.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Số request stub đã nhận theo kết quả trả về.
+     */
+    public record Stats(long requests, long ok, long throttled, long serverErrors, long malformed) {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] unaryBody;
+    private final ArrayNode batchItems;
+    private final List<byte[]> streamEvents;
+
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double rate429;
+    private volatile double rate500;
+    private volatile double malformedRate;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+
+    /**
+     * @param port cổng lắng nghe, 0 = cổng trống bất kỳ
+     */
+    public GeminiStubServer(int port) throws IOException {
+        unaryBody = resource("unary-v3.json");
+        batchItems = (ArrayNode) mapper.readTree(answerJson(new String(resource("unary-batch.json"), StandardCharsets.UTF_8)));
+        streamEvents = splitEvents(new String(resource("stream-v3.sse"), StandardCharsets.UTF_8));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 256);
+        server.createContext("/v1beta/models/", this::handle);
+        // Mỗi request ngủ theo độ trễ giả lập nên cần nhiều thread
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "gemini-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+    }
+
+    public GeminiStubServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Base URL cho {@code app.pricing.gemini.baseUrl}.
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public GeminiStubServer latency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+        return this;
+    }
+
+    /**
+     * Tỉ lệ (0..1) request nhận 429, 500 và body hỏng (JSON cắt ngang hoặc câu trả lời không có giá).
+     */
+    public GeminiStubServer faults(double rate429, double rate500, double malformedRate) {
+        this.rate429 = rate429;
+        this.rate500 = rate500;
+        this.malformedRate = malformedRate;
+        return this;
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), ok.sum(), throttled.sum(), serverErrors.sum(), malformed.sum());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String prompt = promptOf(exchange.getRequestBody().readAllBytes());
+            boolean stream = exchange.getRequestURI().getPath().endsWith(":streamGenerateContent");
+            requests.increment();
+            long latency = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < rate429) {
+                // Quota bị từ chối nhanh, không chờ model
+                throttled.increment();
+                sleep(latency / 10);
+                respond(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Resource has been exhausted (e.g. check quota)."));
+                return;
+            }
+            if (roll < rate429 + rate500) {
+                serverErrors.increment();
+                sleep(latency / 2);
+                respond(exchange, 500, error(500, "INTERNAL", "An internal error has occurred."));
+                return;
+            }
+            boolean broken = roll < rate429 + rate500 + malformedRate;
+            if (broken) malformed.increment();
+            else ok.increment();
+
+            if (stream) {
+                replayStream(exchange, latency, broken);
+                return;
+            }
+            sleep(latency);
+            byte[] body;
+            if (broken) {
+                body = ThreadLocalRandom.current().nextBoolean()
+                        ? Arrays.copyOf(unaryBody, unaryBody.length / 2)
+                        : envelope(REFUSAL_TEXT);
+            } else {
+                body = prompt.contains("### ITEM id=") ? batchBody(prompt) : unaryBody;
+            }
+            respond(exchange, 200, body);
+        }
+    }
+
+    // Phát lại stream: byte đầu tiên sau ~1/3 độ trễ, phần còn lại rải đều giữa các event
+    private void replayStream(HttpExchange exchange, long latency, boolean broken) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        int events = broken ? streamEvents.size() / 2 : streamEvents.size();
+        long gap = events > 1 ? (latency * 2 / 3) / (events - 1) : 0;
+        try (OutputStream out = exchange.getResponseBody()) {
+            sleep(latency / 3);
+            for (int i = 0; i < events; i++) {
+                if (i > 0) sleep(gap);
+                out.write(streamEvents.get(i));
+                out.flush();
+            }
+            if (broken) {
+                byte[] next = streamEvents.get(events);
+                out.write(next, 0, next.length / 2);
+            }
+        }
+    }
+
+    // Câu trả lời batch đã ghi, gán lại id theo thứ tự ITEM trong prompt (lặp lại nếu prompt nhiều item hơn)
+    private byte[] batchBody(String prompt) throws IOException {
+        ArrayNode answer = mapper.createArrayNode();
+        Matcher m = ITEM_ID.matcher(prompt);
+        for (int i = 0; m.find(); i++) {
+            ObjectNode item = batchItems.get(i % batchItems.size()).deepCopy();
+            item.put("id", m.group(1));
+            answer.add(item);
+        }
+        return envelope(mapper.writeValueAsString(answer));
+    }
+
+    private byte[] envelope(String text) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode candidate = root.putArray("candidates").addObject();
+        ObjectNode content = candidate.putObject("content");
+        content.putArray("parts").addObject().put("text", text);
+        content.put("role", "model");
+        candidate.put("finishReason", "STOP");
+        root.put("modelVersion", "gemini-stub");
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private byte[] error(int code, String status, String message) throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode error = root.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        error.put("status", status);
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private String promptOf(byte[] body) {
+        try {
+            return mapper.readTree(body).path("contents").path(0).path("parts").path(0).path("text").asText("");
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    // Text của model trong response đã ghi, bỏ rào ```json
+    private String answerJson(String body) throws IOException {
+        JsonNode root = mapper.readTree(body);
+        String text = root.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText();
+        return text.substring(text.indexOf('['), text.lastIndexOf(']') + 1);
+    }
+
+    private static List<byte[]> splitEvents(String sse) {
+        List<byte[]> events = new ArrayList<>();
+        for (String event : sse.split("\r\n\r\n")) {
+            if (!event.isBlank()) events.add((event + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return events;
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = GeminiStubServer.class.getResourceAsStream("/pricing/gemini/" + name)) {
+            if (in == null) throw new IOException("Missing recorded response " + name);
+            return in.readAllBytes();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLine cli = CommandLine.parse(args);
+        GeminiStubServer stub = new GeminiStubServer(cli.intValue("port", 8089))
+                .latency(cli.longValue("latencyMillis", 800), cli.longValue("jitterMillis", 400))
+                .faults(cli.doubleValue("rate429", 0), cli.doubleValue("rate500", 0), cli.doubleValue("malformedRate", 0))
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Gemini stub stats: " + stub.stats());
+            stub.close();
+        }));
+        System.out.println("Gemini stub listening on " + stub.baseUrl()
+                + " (app: --spring.profiles.active=gemini-stub, GEMINI_STUB_URL=" + stub.baseUrl() + ")");
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,98 @@
+package project.swp.spring.sebt_platform.pricing.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import project.swp.spring.sebt_platform.config.AiConfig;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiClient;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiResponseParser;
+
+/**
+ * {@link GeminiClient} thật gọi vào {@link GeminiStubServer} (AiConfig trỏ baseUrl sang stub).
+ */
+class GeminiStubServerTests {
+
+    private final GeminiResponseParser parser = new GeminiResponseParser();
+    private GeminiStubServer stub;
+    private GeminiClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        stub = new GeminiStubServer(0).latency(0, 0).start();
+        AiConfig config = new AiConfig();
+        config.setGeminiApiKey("stub-key");
+        config.setGeminiBaseUrl(stub.baseUrl());
+        config.setConnectTimeoutMillis(1_000);
+        config.setResponseTimeoutMillis(3_000);
+        config.setDeadlineMillis(5_000);
+        config.setMaxConnections(4);
+        config.setRetryAttempts(2);
+        config.setInitialDelayMillis(10);
+        config.setBreakerFailureThreshold(100);
+        config.setBreakerOpenMillis(60_000);
+        client = new GeminiClient(config);
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        stub.close();
+    }
+
+    @Test
+    void replaysRecordedAnswer() {
+        GeminiClient.Reply reply = client.generateContent("gemini-test", "prompt").join();
+
+        assertThat(parser.parse(reply.body()).price()).isEqualTo(515_000_000d);
+        assertThat(stub.stats().ok()).isEqualTo(1);
+    }
+
+    @Test
+    void batchAnswerIsKeyedByTheItemsInThePrompt() {
+        String prompt = "PROMPT_VERSION=v3-batch\n### ITEM id=a7\n...\n### ITEM id=b9\n...";
+
+        GeminiClient.Reply reply = client.generateContent("gemini-test", prompt).join();
+
+        assertThat(parser.parseBatch(reply.body())).containsOnlyKeys("a7", "b9");
+    }
+
+    @Test
+    void streamReplaysRecordedEvents() {
+        Double[] early = new Double[1];
+
+        GeminiClient.StreamReply reply = client.streamGenerateContent("gemini-test", "prompt", p -> early[0] = p).join();
+
+        assertThat(early[0]).isEqualTo(515_000_000d);
+        assertThat(reply.result().evidence()).contains("market");
+    }
+
+    @Test
+    void injectedThrottlingIsRetriedAndCounted() {
+        stub.faults(1.0, 0, 0);
+
+        assertThatThrownBy(() -> client.generateContent("gemini-test", "prompt").join())
+                .hasCauseInstanceOf(GeminiClient.GeminiCallException.class);
+
+        assertThat(stub.stats().throttled()).isEqualTo(2);
+        assertThat(client.stats().calls()).isEqualTo(1);
+        assertThat(client.stats().retries()).isEqualTo(1);
+        assertThat(client.stats().failures()).isEqualTo(1);
+    }
+
+    @Test
+    void malformedBodiesCarryNoUsablePrice() {
+        stub.faults(0, 0, 1.0);
+
+        for (int i = 0; i < 4; i++) {
+            GeminiClient.Reply reply = client.generateContent("gemini-test", "prompt").join();
+            assertThat(parser.parse(reply.body()).price()).isNull();
+        }
+        assertThat(stub.stats().malformed()).isEqualTo(4);
+    }
+}
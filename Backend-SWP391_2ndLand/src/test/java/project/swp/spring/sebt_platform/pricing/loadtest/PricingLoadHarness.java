@@ -0,0 +1,305 @@
+package project.swp.spring.sebt_platform.pricing.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Load test cho {@code POST /api/pricing/suggest} ở một RPS mục tiêu, để bắt regression của đường định giá
+ * trước khi deploy (chạy với app dùng profile {@code gemini-stub}, xem {@link GeminiStubServer}).
+ * <p>
+ * Open loop: request thứ i được gửi tại {@code start + i / rps} bất kể các request trước đã xong chưa, và
+ * độ trễ tính từ thời điểm dự kiến đó (không bị coordinated omission khi server chậm). Khi số request đang chờ
+ * chạm {@code maxInFlight}, request bị bỏ và đếm vào {@code dropped} thay vì làm chậm nhịp gửi.
+ * <p>
+ * Báo cáo: p50/p90/p99/max, tỉ lệ cache hit (field {@code cacheHit}), phân bố {@code mode}, số fallback
+ * ({@code mode = heuristic}) và số lời gọi/retry Gemini (chênh lệch {@code /api/pricing/health} trước và sau).
+ * <p>
+ * Ví dụ: {@code PricingLoadHarness --target=http://localhost:8080 --email=... --password=... --rps=50
+ * --durationSeconds=60 --warmupSeconds=10 --vehicles=300 [--withStub --stubLatencyMillis=800 --stubRate429=0.05]}
+ */
+public class PricingLoadHarness {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] CONDITIONS = {"EXCELLENT", "GOOD", "GOOD", "FAIR", "POOR"};
+    private static final String[][] LOCATIONS = {
+            {"Hà Nội", "Cầu Giấy"}, {"Hà Nội", "Long Biên"}, {"Hồ Chí Minh", "Quận 7"}, {"Hồ Chí Minh", "Thủ Đức"},
+            {"Đà Nẵng", "Hải Châu"}};
+
+    /**
+     * Cấu hình một lần chạy.
+     *
+     * @param vehicles     số xe khác nhau (cache key khác nhau) được chọn ngẫu nhiên đều; ít xe -> cache hit cao
+     * @param maxInFlight  số request đang chờ tối đa
+     */
+    public record Options(URI target, double rps, Duration duration, int vehicles, int maxInFlight, Duration timeout,
+                          long seed) {
+    }
+
+    /**
+     * Kết quả một lần chạy. Độ trễ tính trên các request có response HTTP (mọi status).
+     */
+    public record Report(long scheduled, long responses, long httpErrors, long failures, long timeouts, long dropped,
+                         double achievedRps, Duration p50, Duration p90, Duration p99, Duration max,
+                         double cacheHitRate, Map<String, Long> modes, long fallbacks,
+                         long geminiCalls, long geminiRetries, long geminiFailures) {
+
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("requests  scheduled=%d responses=%d httpErrors=%d failures=%d timeouts=%d dropped=%d%n",
+                    scheduled, responses, httpErrors, failures, timeouts, dropped));
+            sb.append(String.format("rate      achieved=%.1f rps%n", achievedRps));
+            sb.append(String.format("latency   p50=%dms p90=%dms p99=%dms max=%dms%n",
+                    p50.toMillis(), p90.toMillis(), p99.toMillis(), max.toMillis()));
+            sb.append(String.format("pricing   cacheHitRate=%.1f%% fallbacks=%d modes=%s%n",
+                    cacheHitRate * 100, fallbacks, modes));
+            sb.append(String.format("gemini    calls=%d retries=%d failures=%d", geminiCalls, geminiRetries, geminiFailures));
+            return sb.toString();
+        }
+    }
+
+    private final HttpClient http;
+    private final Options options;
+    private final List<byte[]> payloads;
+
+    public PricingLoadHarness(HttpClient http, Options options) throws IOException {
+        this.http = http;
+        this.options = options;
+        this.payloads = vehicleMix(options.vehicles(), options.seed());
+    }
+
+    /**
+     * Chạy tải trong {@code options.duration()} rồi chờ các request còn dở (tối đa {@code options.timeout()}).
+     */
+    public Report run() throws InterruptedException {
+        Map<String, Long> geminiBefore = geminiCounters();
+        int total = (int) Math.max(1, Math.round(options.rps() * options.duration().toMillis() / 1000.0));
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rps());
+        long[] latencies = new long[total];
+        Arrays.fill(latencies, -1);
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        CountDownLatch finished = new CountDownLatch(total);
+        Counters counters = new Counters();
+        Random random = new Random(options.seed());
+        URI uri = options.target().resolve("/api/pricing/suggest");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * periodNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            if (!inFlight.tryAcquire()) {
+                counters.dropped.increment();
+                finished.countDown();
+                continue;
+            }
+            int slot = i;
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(options.timeout())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(payloads.get(random.nextInt(payloads.size()))))
+                    .build();
+            http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, error) -> {
+                try {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        (cause instanceof HttpTimeoutException ? counters.timeouts : counters.failures).increment();
+                    } else {
+                        latencies[slot] = System.nanoTime() - intended;
+                        counters.record(response);
+                    }
+                } finally {
+                    inFlight.release();
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await(options.timeout().toMillis() + 1_000, TimeUnit.MILLISECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Long> geminiAfter = geminiCounters();
+
+        long[] measured = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+        long responses = counters.responses.sum();
+        long ok = counters.ok.sum();
+        return new Report(total, responses, responses - ok, counters.failures.sum(), counters.timeouts.sum(),
+                counters.dropped.sum(), responses / elapsedSeconds,
+                percentile(measured, 0.50), percentile(measured, 0.90), percentile(measured, 0.99),
+                percentile(measured, 1.0),
+                ok == 0 ? 0 : counters.cacheHits.sum() / (double) ok,
+                new TreeMap<>(counters.modeCounts()), counters.fallbacks.sum(),
+                delta(geminiBefore, geminiAfter, "calls"), delta(geminiBefore, geminiAfter, "retries"),
+                delta(geminiBefore, geminiAfter, "failures"));
+    }
+
+    /**
+     * Đăng nhập để lấy session cookie (client phải có CookieManager).
+     */
+    public static void login(HttpClient http, URI target, String email, String password)
+            throws IOException, InterruptedException {
+        ObjectNode body = MAPPER.createObjectNode().put("email", email).put("password", password);
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(target.resolve("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed: HTTP " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    // Nearest-rank percentile trên mảng đã sắp xếp
+    static Duration percentile(long[] sortedNanos, double q) {
+        if (sortedNanos.length == 0) return Duration.ZERO;
+        int index = (int) Math.ceil(q * sortedNanos.length) - 1;
+        return Duration.ofNanos(sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))]);
+    }
+
+    // Bộ đếm Gemini từ health endpoint; rỗng nếu không đọc được (khi đó báo cáo 0)
+    private Map<String, Long> geminiCounters() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        try {
+            HttpResponse<byte[]> response = http.send(
+                    HttpRequest.newBuilder(options.target().resolve("/api/pricing/health")).timeout(options.timeout()).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode gemini = MAPPER.readTree(response.body()).path("gemini");
+            gemini.fields().forEachRemaining(e -> out.put(e.getKey(), e.getValue().asLong()));
+        } catch (IOException e) {
+            System.err.println("Cannot read /api/pricing/health: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return out;
+    }
+
+    private static long delta(Map<String, Long> before, Map<String, Long> after, String key) {
+        return after.getOrDefault(key, 0L) - before.getOrDefault(key, 0L);
+    }
+
+    /**
+     * {@code vehicles} request định giá khác nhau: brand/model EV lấy từ catalogue baseline, năm, pin, tình trạng,
+     * km và địa điểm ngẫu nhiên (cố định theo seed).
+     */
+    static List<byte[]> vehicleMix(int vehicles, long seed) throws IOException {
+        List<JsonNode> models = new ArrayList<>();
+        try (InputStream in = PricingLoadHarness.class.getResourceAsStream("/pricing/baseline-prices.json")) {
+            if (in == null) throw new IOException("Missing /pricing/baseline-prices.json");
+            for (JsonNode entry : MAPPER.readTree(in).path("baselinePrices")) {
+                if ("EV".equals(entry.path("category").asText())) models.add(entry);
+            }
+        }
+        Random random = new Random(seed);
+        List<byte[]> out = new ArrayList<>(vehicles);
+        for (int i = 0; i < Math.max(1, vehicles); i++) {
+            JsonNode model = models.get(random.nextInt(models.size()));
+            int year = 2019 + random.nextInt(7);
+            String[] location = LOCATIONS[random.nextInt(LOCATIONS.length)];
+            ObjectNode request = MAPPER.createObjectNode();
+            request.put("title", model.path("brand").asText() + " " + model.path("model").asText() + " " + year);
+            request.put("category", "EV");
+            ObjectNode product = request.putObject("product");
+            product.put("brand", model.path("brand").asText());
+            product.put("model", model.path("model").asText());
+            product.put("year", year);
+            product.put("condition", CONDITIONS[random.nextInt(CONDITIONS.length)]);
+            product.put("healthPercentage", 80 + random.nextInt(21));
+            product.put("mileage", (2025 - year) * (8_000 + random.nextInt(12_000)));
+            request.putObject("location").put("province", location[0]).put("district", location[1]);
+            out.add(MAPPER.writeValueAsBytes(request));
+        }
+        return out;
+    }
+
+    private static final class Counters {
+        final LongAdder responses = new LongAdder();
+        final LongAdder ok = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder fallbacks = new LongAdder();
+        final Map<String, LongAdder> modes = new ConcurrentHashMap<>();
+
+        void record(HttpResponse<byte[]> response) {
+            responses.increment();
+            if (response.statusCode() != 200) return;
+            ok.increment();
+            try {
+                JsonNode body = MAPPER.readTree(response.body());
+                if (body.path("cacheHit").asBoolean(false)) cacheHits.increment();
+                String mode = body.path("mode").asText("unknown");
+                modes.computeIfAbsent(mode, k -> new LongAdder()).increment();
+                if ("heuristic".equals(mode)) fallbacks.increment();
+            } catch (IOException e) {
+                modes.computeIfAbsent("unparseable", k -> new LongAdder()).increment();
+            }
+        }
+
+        Map<String, Long> modeCounts() {
+            Map<String, Long> out = new LinkedHashMap<>();
+            modes.forEach((mode, count) -> out.put(mode, count.sum()));
+            return out;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLine cli = CommandLine.parse(args);
+        GeminiStubServer stub = null;
+        if (cli.has("withStub")) {
+            stub = new GeminiStubServer(cli.intValue("stubPort", 8089))
+                    .latency(cli.longValue("stubLatencyMillis", 800), cli.longValue("stubJitterMillis", 400))
+                    .faults(cli.doubleValue("stubRate429", 0), cli.doubleValue("stubRate500", 0),
+                            cli.doubleValue("stubMalformedRate", 0))
+                    .start();
+            System.out.println("Gemini stub listening on " + stub.baseUrl());
+        }
+        try {
+            URI target = URI.create(cli.value("target", "http://localhost:8080"));
+            HttpClient http = HttpClient.newBuilder()
+                    .cookieHandler(new CookieManager())
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            if (cli.has("email")) login(http, target, cli.value("email", ""), cli.value("password", ""));
+            Options measure = new Options(target, cli.doubleValue("rps", 20),
+                    Duration.ofSeconds(cli.longValue("durationSeconds", 60)), cli.intValue("vehicles", 200),
+                    cli.intValue("maxInFlight", 512), Duration.ofMillis(cli.longValue("timeoutMillis", 30_000)),
+                    cli.longValue("seed", 42));
+
+            long warmupSeconds = cli.longValue("warmupSeconds", 0);
+            if (warmupSeconds > 0) {
+                System.out.println("Warm-up " + warmupSeconds + "s ...");
+                new PricingLoadHarness(http, new Options(target, measure.rps(), Duration.ofSeconds(warmupSeconds),
+                        measure.vehicles(), measure.maxInFlight(), measure.timeout(), measure.seed() + 1)).run();
+            }
+            System.out.printf("Load %.1f rps for %ds against %s ...%n", measure.rps(), measure.duration().toSeconds(), target);
+            Report report = new PricingLoadHarness(http, measure).run();
+            System.out.println(report.format());
+            if (stub != null) System.out.println("stub      " + stub.stats());
+        } finally {
+            if (stub != null) stub.close();
+        }
+    }
+}
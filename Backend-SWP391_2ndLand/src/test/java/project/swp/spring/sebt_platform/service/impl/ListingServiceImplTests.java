@@ -0,0 +1,86 @@
+package project.swp.spring.sebt_platform.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import project.swp.spring.sebt_platform.listing.ListingCartAssembler;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.Facet;
+import project.swp.spring.sebt_platform.listing.ListingFacetCache.FacetDictionary;
+import project.swp.spring.sebt_platform.listing.ListingFacetCounter;
+import project.swp.spring.sebt_platform.listing.ListingSearchIndex;
+import project.swp.spring.sebt_platform.listing.ListingViewCounter;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.repository.BatteryRepository;
+import project.swp.spring.sebt_platform.repository.EvVehicleRepository;
+import project.swp.spring.sebt_platform.repository.ListingImageRepository;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+import project.swp.spring.sebt_platform.repository.LocationRepository;
+import project.swp.spring.sebt_platform.repository.PostRequestRepository;
+import project.swp.spring.sebt_platform.repository.ProductRepository;
+import project.swp.spring.sebt_platform.repository.UserRepository;
+
+class ListingServiceImplTests {
+
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final LocationRepository locationRepository = mock(LocationRepository.class);
+    private final EvVehicleRepository evVehicleRepository = mock(EvVehicleRepository.class);
+    private final BatteryRepository batteryRepository = mock(BatteryRepository.class);
+    private final ListingFacetCache facetCache = mock(ListingFacetCache.class);
+    private final ListingServiceImpl service = new ListingServiceImpl(
+            mock(PostRequestRepository.class), mock(UserRepository.class), evVehicleRepository, batteryRepository,
+            mock(ProductRepository.class), listingRepository, mock(ListingImageRepository.class), locationRepository,
+            mock(ListingCartAssembler.class), mock(ListingViewCounter.class), mock(ListingSearchIndex.class),
+            facetCache, mock(ListingFacetCounter.class));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void warmUpFallbackOnlyListsValuesOfActiveListingsWithoutETag() {
+        when(facetCache.isReady()).thenReturn(false);
+        when(listingRepository.findDistinctEvBrandsByStatus(ListingStatus.ACTIVE)).thenReturn(List.of("VinFast"));
+        when(listingRepository.findCompatibleVehiclesByStatus(ListingStatus.ACTIVE))
+                .thenReturn(List.of("VF 9, VF 8", "VF 8"));
+
+        FacetDictionary<?> brands = service.getFilterData(Facet.EV_BRANDS);
+        FacetDictionary<?> vehicles = service.getFilterData(Facet.COMPATIBLE_VEHICLES);
+
+        assertThat((List<Object>) brands.values()).containsExactly("VinFast");
+        assertThat(brands.etag()).isNull();
+        assertThat(brands.lastModified()).isNull();
+        assertThat((List<Object>) vehicles.values()).containsExactly("VF 8", "VF 9");
+        // Không quay lại DISTINCT trên toàn bảng (gồm cả listing đã bán/bị ẩn)
+        verifyNoInteractions(evVehicleRepository, batteryRepository, locationRepository);
+    }
+
+    @Test
+    void warmUpDistrictFallbackIsScopedToActiveListingsOfTheProvince() {
+        when(facetCache.isReady()).thenReturn(false);
+        when(listingRepository.findDistinctDistrictsByStatusAndProvince(ListingStatus.ACTIVE, "Hà Nội"))
+                .thenReturn(List.of("Cầu Giấy"));
+
+        FacetDictionary<String> districts = service.getDistrictFilterData(" Hà Nội ");
+
+        assertThat(districts.values()).containsExactly("Cầu Giấy");
+        assertThat(districts.etag()).isNull();
+        verifyNoInteractions(locationRepository);
+    }
+
+    @Test
+    void readyCacheIsServedWithoutTouchingTheDatabase() {
+        FacetDictionary<String> cached = new FacetDictionary<>(List.of("VinFast"), "\"ev_brands-1\"", null);
+        when(facetCache.isReady()).thenReturn(true);
+        when(facetCache.dictionary(Facet.EV_BRANDS)).thenAnswer(invocation -> cached);
+
+        assertThat(service.getFilterData(Facet.EV_BRANDS)).isSameAs(cached);
+        verify(listingRepository, never()).findDistinctEvBrandsByStatus(any());
+    }
+}
@@ -0,0 +1,213 @@
+package project.swp.spring.sebt_platform.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import project.swp.spring.sebt_platform.config.AiConfig;
+import project.swp.spring.sebt_platform.dto.request.PricingSuggestRequestDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchItemDTO.Status;
+import project.swp.spring.sebt_platform.dto.response.PricingBatchResponseDTO;
+import project.swp.spring.sebt_platform.dto.response.PricingSuggestResponseDTO;
+import project.swp.spring.sebt_platform.model.enums.ListingStatus;
+import project.swp.spring.sebt_platform.pricing.ai.GeminiClient;
+import project.swp.spring.sebt_platform.pricing.baseline.BaselinePriceService;
+import project.swp.spring.sebt_platform.pricing.baseline.BaselinePriceService.LookupResult;
+import project.swp.spring.sebt_platform.pricing.cache.PricingResultStore;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparableListingRow;
+import project.swp.spring.sebt_platform.pricing.comparables.ComparablesIndex;
+import project.swp.spring.sebt_platform.repository.ListingRepository;
+
+class PricingServiceImplTests {
+
+    private final BaselinePriceService baselines = mock(BaselinePriceService.class);
+    private final GeminiClient gemini = mock(GeminiClient.class);
+    private final ListingRepository listingRepository = mock(ListingRepository.class);
+    private final PricingResultStore store = mock(PricingResultStore.class);
+    private PricingServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(baselines.lookup(any(), any(), any(), anyInt())).thenReturn(LookupResult.notFound());
+        // Ba chiếc VF 9 đời 2022 trên sàn -> đủ mẫu để định giá bằng comparables
+        when(listingRepository.findComparableRows(anyCollection(), anyLong(), any(Pageable.class))).thenReturn(List.of(
+                vf9(1L, 1_000_000_000L), vf9(2L, 1_050_000_000L), vf9(3L, 1_100_000_000L)));
+        ComparablesIndex comparables = new ComparablesIndex(listingRepository, 1000, 2);
+        comparables.rebuild();
+
+        AiConfig config = new AiConfig();
+        config.setGeminiApiKey("test-key");
+        config.setGeminiModel("gemini-test");
+        config.setClampPercent(0.15);
+        config.setCacheEnabled(true);
+        config.setCacheMaxSize(100);
+        config.setCacheTtlSeconds(3600);
+        config.setBatchItemsPerCall(10);
+        config.setBaselineMinConfidence(0.5);
+        config.setComparablesEnabled(true);
+        config.setComparablesMinSamples(3);
+        config.setComparablesMaxSpread(0.5);
+        service = new PricingServiceImpl(baselines, config, gemini, comparables, store);
+    }
+
+    @Test
+    void classifiesDuplicatesInvalidComparablesAndAiItems() {
+        answerBatch("[{\"id\":\"i0\",\"suggestedPrice\":400000000},{\"id\":\"i4\",\"suggestedPrice\":300000000}]");
+
+        PricingBatchResponseDTO result = service.suggestPrices(Arrays.asList(
+                ev("VinFast", "VF 8", 2022), ev("VinFast", "VF 8", 2022), new PricingSuggestRequestDTO(),
+                ev("VinFast", "VF 9", 2022), ev("Pega", "eSH", 2023)));
+
+        assertThat(result.getItems()).extracting(PricingBatchItemDTO::getStatus)
+                .containsExactly(Status.AI, Status.AI, Status.INVALID, Status.COMPARABLES, Status.AI);
+        assertThat(result.getItems().get(1).getDuplicateOf()).isZero();
+        assertThat(result.getItems().get(1).getResult()).isSameAs(result.getItems().get(0).getResult());
+        assertThat(result.getItems()).extracting(PricingBatchItemDTO::isBillable)
+                .containsExactly(true, false, false, true, true);
+        assertThat(result.getDeduplicated()).isEqualTo(1);
+        assertThat(result.getComparableHits()).isEqualTo(1);
+        assertThat(result.getAiCalls()).isEqualTo(1);
+        // Trung vị 1,05 tỷ x 0,99 (tình trạng mặc định GOOD)
+        assertThat(result.getItems().get(3).getResult().getSuggestedPrice()).isEqualTo(1_039_500_000L);
+        // Hai item cần AI đi chung một prompt
+        verify(gemini, times(1)).generateContent(anyString(), contains("### ITEM id=i4"));
+    }
+
+    @Test
+    void comparablesMedianIsScaledByConditionMileageAndBatteryHealth() {
+        PricingSuggestRequestDTO pristine = ev("VinFast", "VF 9", 2022);
+        pristine.setProduct(Map.of("brand", "VinFast", "model", "VF 9", "year", 2022, "condition", "EXCELLENT"));
+        PricingSuggestRequestDTO worn = ev("VinFast", "VF 9", 2022);
+        worn.setProduct(Map.of("brand", "VinFast", "model", "VF 9", "year", 2022, "condition", "EXCELLENT",
+                "mileage", 60_000, "healthPercentage", 80));
+
+        PricingSuggestResponseDTO full = service.suggestPrice(pristine);
+        PricingSuggestResponseDTO discounted = service.suggestPrice(worn);
+
+        assertThat(full.getMode()).isEqualTo("comparables");
+        assertThat(full.getSuggestedPrice()).isEqualTo(1_050_000_000L);
+        // 60.000 km -> x0,75; pin 80% -> x0,94
+        assertThat(discounted.getMode()).isEqualTo("comparables");
+        assertThat(discounted.getSuggestedPrice()).isEqualTo(740_250_000L);
+        assertThat(discounted.getMinPrice()).isLessThanOrEqualTo(discounted.getSuggestedPrice());
+        assertThat(discounted.getMaxPrice()).isGreaterThanOrEqualTo(discounted.getSuggestedPrice())
+                .isLessThan(full.getMaxPrice());
+        assertThat(discounted.getComparableMedian()).isEqualTo(1_050_000_000L);
+        verify(gemini, never()).generateContent(anyString(), anyString());
+    }
+
+    @Test
+    void repeatedItemsAreServedFromCacheWithoutMutatingTheCachedResult() {
+        answerBatch("[{\"id\":\"i0\",\"suggestedPrice\":400000000}]");
+        PricingBatchResponseDTO first = service.suggestPrices(List.of(ev("VinFast", "VF 8", 2022)));
+
+        PricingBatchResponseDTO second = service.suggestPrices(List.of(ev("VinFast", "VF 8", 2022),
+                ev("VinFast", "VF 9", 2022)));
+
+        PricingBatchItemDTO cached = second.getItems().get(0);
+        assertThat(cached.getStatus()).isEqualTo(Status.CACHED);
+        assertThat(cached.isBillable()).isFalse();
+        assertThat(cached.getResult().getCacheHit()).isTrue();
+        assertThat(cached.getResult().getSuggestedPrice()).isEqualTo(first.getItems().get(0).getResult().getSuggestedPrice());
+        assertThat(first.getItems().get(0).getResult().getCacheHit()).isFalse();
+        // Giá comparables không được cache: luôn tính lại từ index
+        assertThat(second.getItems().get(1).getStatus()).isEqualTo(Status.COMPARABLES);
+        assertThat(second.getCacheHits()).isEqualTo(1);
+        verify(gemini, times(1)).generateContent(anyString(), anyString());
+    }
+
+    @Test
+    void failedAiCallFallsBackToHeuristicWhichIsNeitherCachedNorBilled() {
+        when(gemini.generateContent(anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new GeminiClient.GeminiCallException(503, 3, "HTTP 503")));
+
+        PricingBatchResponseDTO result = service.suggestPrices(List.of(ev("VinFast", "VF 8", 2022)));
+        PricingBatchResponseDTO retried = service.suggestPrices(List.of(ev("VinFast", "VF 8", 2022)));
+
+        assertThat(result.getItems().get(0).getStatus()).isEqualTo(Status.HEURISTIC);
+        assertThat(result.getItems().get(0).getResult().getSuggestedPrice()).isPositive();
+        // Dealer không trả phí cho sự cố AI
+        assertThat(result.getItems().get(0).isBillable()).isFalse();
+        assertThat(retried.getItems().get(0).getStatus()).isEqualTo(Status.HEURISTIC);
+        verify(gemini, times(2)).generateContent(anyString(), anyString());
+        verify(store, never()).save(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void asyncSuggestionCompletesWhenGeminiRepliesWithoutBlockingTheCaller() {
+        CompletableFuture<GeminiClient.Reply> reply = new CompletableFuture<>();
+        when(gemini.generateContent(anyString(), anyString())).thenReturn(reply);
+
+        CompletableFuture<PricingSuggestResponseDTO> first = service.suggestPriceAsync(ev("VinFast", "VF 8", 2022));
+        CompletableFuture<PricingSuggestResponseDTO> second = service.suggestPriceAsync(ev("VinFast", "VF 8", 2022));
+
+        // Chưa có câu trả lời: thread gọi đã được trả về, hai request cùng key chờ chung một lời gọi
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        reply.complete(envelope("{\"suggestedPrice\":400000000,\"reasoning\":\"ok\"}"));
+
+        assertThat(first.join().getMode()).isEqualTo("gemini");
+        assertThat(second.join().getSuggestedPrice()).isEqualTo(first.join().getSuggestedPrice());
+        verify(gemini, times(1)).generateContent(anyString(), anyString());
+    }
+
+    @Test
+    void unparsableAnswerTriggersOneNonBlockingSemanticRetry() {
+        CompletableFuture<GeminiClient.Reply> retry = new CompletableFuture<>();
+        when(gemini.generateContent(anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(envelope("xin lỗi, tôi không chắc")))
+                .thenReturn(retry);
+
+        CompletableFuture<PricingSuggestResponseDTO> result = service.suggestPriceAsync(ev("VinFast", "VF 8", 2022));
+
+        assertThat(result).isNotDone();
+        retry.complete(envelope("{\"suggestedPrice\":410000000}"));
+        assertThat(result.join().getMode()).isEqualTo("gemini");
+        verify(gemini).generateContent(anyString(), contains("CHỈ TRẢ VỀ JSON HỢP LỆ"));
+    }
+
+    private static GeminiClient.Reply envelope(String text) {
+        String escaped = text.replace("\"", "\\\"");
+        return new GeminiClient.Reply("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escaped
+                + "\"}]}}]}", "gemini-test", 1);
+    }
+
+    private void answerBatch(String answer) {
+        String escaped = answer.replace("\"", "\\\"");
+        String body = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escaped + "\"}]}}]}";
+        when(gemini.generateContent(anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(new GeminiClient.Reply(body, "gemini-test", 1)));
+    }
+
+    private static PricingSuggestRequestDTO ev(String brand, String model, int year) {
+        PricingSuggestRequestDTO request = new PricingSuggestRequestDTO();
+        request.setCategory("EV");
+        request.setProduct(Map.of("brand", brand, "model", model, "year", year));
+        return request;
+    }
+
+    private static ComparableListingRow vf9(Long id, long price) {
+        return new ComparableListingRow(id, ListingStatus.ACTIVE, BigDecimal.valueOf(price), "VinFast", "VF 9", 2022,
+                null, null, null);
+    }
+}
@@ -0,0 +1,33 @@
+package project.swp.spring.sebt_platform.systemconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaMetamodelEntityInformation;
+
+import project.swp.spring.sebt_platform.model.SystemConfigEntity;
+import project.swp.spring.sebt_platform.model.enums.ConfigDataType;
+
+class SystemConfigEntityTests {
+
+    @Test
+    void newConfigIsPersistedNotMergedBySave() {
+        Configuration configuration = new Configuration().addAnnotatedClass(SystemConfigEntity.class);
+        configuration.setProperty(AvailableSettings.DIALECT, "org.hibernate.dialect.SQLServerDialect");
+        configuration.setProperty(AvailableSettings.ALLOW_METADATA_ON_BOOT, "false");
+        try (SessionFactory sessionFactory = configuration.buildSessionFactory()) {
+            JpaMetamodelEntityInformation<SystemConfigEntity, ?> info = new JpaMetamodelEntityInformation<>(
+                    SystemConfigEntity.class, sessionFactory.getMetamodel(), sessionFactory.getPersistenceUnitUtil());
+
+            // SimpleJpaRepository.save(): isNew -> persist, ngược lại merge (thêm một SELECT theo id null)
+            SystemConfigEntity created = new SystemConfigEntity("pricing.fee", "10000", ConfigDataType.NUMBER);
+            assertThat(info.isNew(created)).isTrue();
+
+            created.setVersion(0L);
+            assertThat(info.isNew(created)).isFalse();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package project.swp.spring.sebt_platform.systemconfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import project.swp.spring.sebt_platform.model.SystemConfigEntity;
+import project.swp.spring.sebt_platform.model.enums.ConfigDataType;
+import project.swp.spring.sebt_platform.repository.SystemConfigRepository;
+
+class SystemConfigRegistryTests {
+
+    private final SystemConfigRepository repository = mock(SystemConfigRepository.class);
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final SystemConfigRegistry registry = new SystemConfigRegistry(repository, events);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findVersion()).thenReturn(new SystemConfigVersion(3L, 0L, 3L));
+        when(repository.findAll()).thenReturn(List.of(
+                new SystemConfigEntity("EV_LOW_FEE", "100000", ConfigDataType.NUMBER),
+                new SystemConfigEntity("MAINTENANCE", "true", ConfigDataType.BOOLEAN),
+                new SystemConfigEntity("BATTERY_FEE", "50k", ConfigDataType.NUMBER)));
+    }
+
+    @Test
+    void parsesValuesOnceAndServesReadsFromMemory() {
+        assertThat(registry.getLong("EV_LOW_FEE", 0)).isEqualTo(100_000L);
+        assertThat(registry.getNumber("EV_LOW_FEE", null)).isEqualByComparingTo("100000");
+        assertThat(registry.getBoolean("MAINTENANCE", false)).isTrue();
+        assertThat(registry.getString("MAINTENANCE", null)).isEqualTo("true");
+
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    void unparsableOrMissingValuesFallBackToDefault() {
+        assertThat(registry.getLong("BATTERY_FEE", 50_000L)).isEqualTo(50_000L);
+        assertThat(registry.get("BATTERY_FEE")).hasValueSatisfying(v -> assertThat(v.value()).isNull());
+        assertThat(registry.getNumber("PRICING_FEE", new BigDecimal("20000.00"))).isEqualByComparingTo("20000");
+    }
+
+    @Test
+    void pollReloadsOnlyWhenVersionChangesAndPublishesChangedKeys() {
+        registry.poll();
+        registry.poll();
+        verify(repository, times(1)).findAll();
+        verify(events, never()).publishEvent(any(Object.class));
+
+        // Một node khác sửa EV_LOW_FEE và thêm PRICING_FEE
+        when(repository.findVersion()).thenReturn(new SystemConfigVersion(4L, 1L, 4L));
+        when(repository.findAll()).thenReturn(List.of(
+                new SystemConfigEntity("EV_LOW_FEE", "120000", ConfigDataType.NUMBER),
+                new SystemConfigEntity("MAINTENANCE", "true", ConfigDataType.BOOLEAN),
+                new SystemConfigEntity("BATTERY_FEE", "50k", ConfigDataType.NUMBER),
+                new SystemConfigEntity("PRICING_FEE", "25000", ConfigDataType.NUMBER)));
+        registry.poll();
+
+        assertThat(registry.getLong("EV_LOW_FEE", 0)).isEqualTo(120_000L);
+        verify(events).publishEvent(new SystemConfigChangedEvent(Set.of("EV_LOW_FEE", "PRICING_FEE")));
+    }
+}
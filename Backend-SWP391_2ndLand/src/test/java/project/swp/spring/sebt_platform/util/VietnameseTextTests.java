@@ -0,0 +1,32 @@
+package project.swp.spring.sebt_platform.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class VietnameseTextTests {
+
+    @Test
+    void foldsDiacriticsCaseAndWhitespace() {
+        assertThat(VietnameseText.fold("  Hà   Nội ")).isEqualTo("ha noi");
+        assertThat(VietnameseText.fold("Đà Nẵng")).isEqualTo("da nang");
+        assertThat(VietnameseText.tokens("Xe điện VinFast-Klara")).containsExactly("xe", "dien", "vinfast", "klara");
+    }
+
+    @Test
+    void keysMatchRegardlessOfHowUsersTypeThem() {
+        assertThat(VietnameseText.key("Ha Noi"))
+                .isEqualTo(VietnameseText.key("hà nội"))
+                .isEqualTo(VietnameseText.key("HANOI"))
+                .isEqualTo("hanoi");
+        assertThat(VietnameseText.key("   ")).isNull();
+    }
+
+    @Test
+    void locationKeysDropAdministrativePrefixes() {
+        assertThat(VietnameseText.locationKey("TP. Hồ Chí Minh")).isEqualTo("hochiminh");
+        assertThat(VietnameseText.locationKey("Thành phố Hồ Chí Minh")).isEqualTo("hochiminh");
+        assertThat(VietnameseText.locationKey("Quận 1")).isEqualTo("1");
+        assertThat(VietnameseText.locationKey("Huyện Củ Chi")).isEqualTo("cuchi");
+    }
+}
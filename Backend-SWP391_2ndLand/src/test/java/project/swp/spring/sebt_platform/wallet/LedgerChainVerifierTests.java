@@ -0,0 +1,57 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class LedgerChainVerifierTests {
+
+    @Test
+    void consistentChainsAcrossWalletsPass() {
+        LedgerChainVerifier verifier = new LedgerChainVerifier(true);
+        verifier.accept(row(1L, 10L, 1, "500000", "0", "500000", "480000"));
+        verifier.accept(row(1L, 12L, 2, "-20000", "500000", "480000", "480000"));
+        verifier.accept(row(2L, 11L, 1, "100000", "0.00", "100000.00", "100000"));
+
+        LedgerChainVerifier.Result result = verifier.finish();
+
+        assertThat(result.consistent()).isTrue();
+        assertThat(result.wallets()).isEqualTo(2);
+        assertThat(result.entries()).isEqualTo(3);
+    }
+
+    @Test
+    void reportsBrokenLinksGapsArithmeticAndFinalBalance() {
+        LedgerChainVerifier verifier = new LedgerChainVerifier(true);
+        verifier.accept(row(1L, 10L, 1, "500000", "0", "500000", "460000"));
+        // Số dư trước không nối tiếp giao dịch trước (hai lần trừ cùng đọc một số dư)
+        verifier.accept(row(1L, 12L, 2, "-20000", "520000", "500000", "460000"));
+        // Bỏ mất seq 3, và before + amount != after
+        verifier.accept(row(1L, 13L, 4, "-20000", "500000", "470000", "460000"));
+
+        LedgerChainVerifier.Result result = verifier.finish();
+
+        assertThat(result.chainBreaks()).isEqualTo(1);
+        assertThat(result.sequenceGaps()).isEqualTo(1);
+        assertThat(result.arithmeticErrors()).isEqualTo(1);
+        assertThat(result.balanceMismatches()).isEqualTo(1);
+        assertThat(result.samples()).hasSize(4);
+        assertThat(result.samples().get(0)).startsWith("wallet 1 tx 12");
+    }
+
+    @Test
+    void appendModeSkipsWalletRowComparison() {
+        LedgerChainVerifier verifier = new LedgerChainVerifier(false);
+        verifier.accept(row(1L, 10L, 1, "500000", "0", "500000", "0"));
+
+        assertThat(verifier.finish().consistent()).isTrue();
+    }
+
+    private static LedgerEntryRow row(Long walletId, Long txId, long seq, String amount, String before, String after,
+                                      String walletBalance) {
+        return new LedgerEntryRow(walletId, txId, seq, new BigDecimal(amount), new BigDecimal(before),
+                new BigDecimal(after), new BigDecimal(walletBalance));
+    }
+}
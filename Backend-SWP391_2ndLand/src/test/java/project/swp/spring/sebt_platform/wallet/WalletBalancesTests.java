@@ -0,0 +1,70 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import project.swp.spring.sebt_platform.model.WalletBalanceSnapshotEntity;
+import project.swp.spring.sebt_platform.model.WalletEntity;
+import project.swp.spring.sebt_platform.repository.WalletBalanceSnapshotRepository;
+import project.swp.spring.sebt_platform.repository.WalletTransactionRepository;
+
+class WalletBalancesTests {
+
+    private final WalletTransactionRepository transactions = mock(WalletTransactionRepository.class);
+    private final WalletBalanceSnapshotRepository snapshots = mock(WalletBalanceSnapshotRepository.class);
+    private final WalletEntity wallet = mock(WalletEntity.class);
+
+    @Test
+    void appendModeBalanceIsLatestSnapshotPlusTail() {
+        WalletBalances balances = new WalletBalances(WalletLedgerMode.APPEND, transactions, snapshots);
+        when(wallet.getId()).thenReturn(7L);
+        when(wallet.getBalance()).thenReturn(new BigDecimal("1.00")); // bản sao cũ, không được dùng
+        when(snapshots.findTopByWalletIdOrderByLastLedgerSeqDesc(7L))
+                .thenReturn(new WalletBalanceSnapshotEntity(7L, 40L, new BigDecimal("300000.00"), 40L));
+        when(transactions.findTail(7L, 40L)).thenReturn(new LedgerTail(2L, new BigDecimal("-40000.00"), 42L));
+
+        assertThat(balances.balance(wallet)).isEqualByComparingTo("260000");
+        WalletBalances.LedgerPosition position = balances.position(wallet);
+        assertThat(position.balance()).isEqualByComparingTo("260000");
+        assertThat(position.nextSeq()).isEqualTo(43L);
+        verify(snapshots, never()).save(any());
+    }
+
+    @Test
+    void firstAppendPostingOpensTheLedgerFromTheWalletRow() {
+        WalletBalances balances = new WalletBalances(WalletLedgerMode.APPEND, transactions, snapshots);
+        when(wallet.getId()).thenReturn(7L);
+        when(wallet.getBalance()).thenReturn(new BigDecimal("150000.00"));
+        when(transactions.findMaxLedgerSeq(7L)).thenReturn(12L);
+        when(snapshots.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // Không có giao dịch nào sau seq 12: projection trả toàn null
+        when(transactions.findTail(7L, 12L)).thenReturn(new LedgerTail(0L, null, null));
+
+        WalletBalances.LedgerPosition position = balances.position(wallet);
+
+        ArgumentCaptor<WalletBalanceSnapshotEntity> opening = ArgumentCaptor.forClass(WalletBalanceSnapshotEntity.class);
+        verify(snapshots).save(opening.capture());
+        assertThat(opening.getValue().getLastLedgerSeq()).isEqualTo(12L);
+        assertThat(opening.getValue().getBalance()).isEqualByComparingTo("150000");
+        assertThat(position.balance()).isEqualByComparingTo("150000");
+        assertThat(position.nextSeq()).isEqualTo(13L);
+    }
+
+    @Test
+    void rowModeReadsTheWalletRow() {
+        WalletBalances balances = new WalletBalances(WalletLedgerMode.ROW, transactions, snapshots);
+        when(wallet.getBalance()).thenReturn(new BigDecimal("90000.00"));
+
+        assertThat(balances.balance(wallet)).isEqualByComparingTo("90000");
+        verify(snapshots, never()).findTopByWalletIdOrderByLastLedgerSeqDesc(any());
+    }
+}
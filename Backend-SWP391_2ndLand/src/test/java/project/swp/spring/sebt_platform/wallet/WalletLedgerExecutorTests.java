@@ -0,0 +1,72 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import project.swp.spring.sebt_platform.model.WalletEntity;
+
+class WalletLedgerExecutorTests {
+
+    private final WalletLedgerExecutor executor =
+            new WalletLedgerExecutor(TransactionOperations.withoutTransaction(), 3, 1, 5);
+
+    @Test
+    void retriesOptimisticLockConflictsUntilTheMutationCommits() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = executor.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(WalletEntity.class, 1L);
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+        assertThat(executor.stats()).isEqualTo(new WalletLedgerExecutor.Stats(1, 2, 2, 0));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("deadlock victim");
+        })).isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(executor.stats()).isEqualTo(new WalletLedgerExecutor.Stats(1, 3, 2, 1));
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new DataIntegrityViolationException("duplicate order id");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(executor.stats().conflicts()).isZero();
+    }
+
+    @Test
+    void backoffIsJitteredWithinTheCappedExponentialWindow() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long ceiling = Math.min(5, 1L << (attempt - 1));
+            for (int i = 0; i < 50; i++) {
+                assertThat(executor.backoffMillis(attempt)).isBetween(0L, ceiling);
+            }
+        }
+    }
+}
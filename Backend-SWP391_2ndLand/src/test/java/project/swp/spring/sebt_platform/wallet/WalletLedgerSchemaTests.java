@@ -0,0 +1,51 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+
+import project.swp.spring.sebt_platform.model.UserEntity;
+import project.swp.spring.sebt_platform.model.WalletEntity;
+import project.swp.spring.sebt_platform.model.WalletTransactionEntity;
+
+/**
+ * DDL mà Hibernate sinh cho ledger ví trên SQL Server (ghi ra script, không cần DB).
+ */
+class WalletLedgerSchemaTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ledgerSequenceIsUniquePerWalletButPendingRowsWithoutSequenceAreAllowed() throws Exception {
+        Path script = dir.resolve("create.sql");
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(UserEntity.class)
+                .addAnnotatedClass(WalletEntity.class)
+                .addAnnotatedClass(WalletTransactionEntity.class);
+        configuration.setProperty(AvailableSettings.DIALECT, "org.hibernate.dialect.SQLServerDialect");
+        configuration.setProperty(AvailableSettings.ALLOW_METADATA_ON_BOOT, "false");
+        configuration.setProperty(AvailableSettings.JAKARTA_HBM2DDL_SCRIPTS_ACTION, "create");
+        configuration.setProperty(AvailableSettings.JAKARTA_HBM2DDL_SCRIPTS_CREATE_TARGET, script.toString());
+        configuration.getProperties().put(AvailableSettings.BEAN_CONTAINER,
+                new SpringBeanContainer(new DefaultListableBeanFactory()));
+        configuration.buildSessionFactory().close();
+
+        List<String> ddl = Files.readAllLines(script);
+
+        // Nhiều giao dịch PENDING/FAILED (ledger_seq null) trong cùng ví không được đụng unique index
+        assertThat(ddl).anySatisfy(line -> assertThat(line)
+                .contains("create unique nonclustered index uk_wallet_transactions_wallet_seq")
+                .contains("(wallet_id, ledger_seq)")
+                .contains("ledger_seq is not null"));
+    }
+}
@@ -0,0 +1,115 @@
+package project.swp.spring.sebt_platform.wallet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+
+import project.swp.spring.sebt_platform.model.WalletBalanceSnapshotEntity;
+import project.swp.spring.sebt_platform.model.WalletEntity;
+import project.swp.spring.sebt_platform.repository.WalletBalanceSnapshotRepository;
+import project.swp.spring.sebt_platform.repository.WalletRepository;
+import project.swp.spring.sebt_platform.repository.WalletTransactionRepository;
+
+class WalletSnapshotCompactorTests {
+
+    private final WalletRepository wallets = mock(WalletRepository.class);
+    private final WalletTransactionRepository transactions = mock(WalletTransactionRepository.class);
+    private final WalletBalanceSnapshotRepository snapshots = mock(WalletBalanceSnapshotRepository.class);
+    private final WalletLedgerExecutor executor =
+            new WalletLedgerExecutor(TransactionOperations.withoutTransaction(), 1, 1, 1);
+    private final WalletEntity wallet = new WalletEntity();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(wallet, "id", 7L);
+    }
+
+    @Test
+    void switchingBackToRowFoldsTheAppendTailIntoTheWalletRow() {
+        // Ví chạy APPEND: lần gộp cuối chốt 300000 ở seq 40, sau đó thêm hai lần trừ phí (-40000) chưa gộp.
+        // wallets.balance vẫn là bản sao lúc gộp.
+        wallet.setBalance(new BigDecimal("300000.00"));
+        when(wallets.findByIdForUpdate(7L)).thenReturn(wallet);
+        when(snapshots.findWalletIdsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(snapshots.findTopByWalletIdOrderByLastLedgerSeqDesc(7L))
+                .thenReturn(new WalletBalanceSnapshotEntity(7L, 40L, new BigDecimal("300000.00"), 40L));
+        when(transactions.findTail(7L, 40L)).thenReturn(new LedgerTail(2L, new BigDecimal("-40000.00"), 42L));
+
+        compactor(WalletLedgerMode.ROW).afterSingletonsInstantiated();
+
+        assertThat(wallet.getBalance()).isEqualByComparingTo("260000");
+        verify(wallets).save(wallet);
+        ArgumentCaptor<WalletBalanceSnapshotEntity> snapshot = ArgumentCaptor.forClass(WalletBalanceSnapshotEntity.class);
+        verify(snapshots).save(snapshot.capture());
+        assertThat(snapshot.getValue().getLastLedgerSeq()).isEqualTo(42L);
+        assertThat(snapshot.getValue().getBalance()).isEqualByComparingTo("260000");
+    }
+
+    @Test
+    void foldingAgainAfterRowPostingsChangesNothing() {
+        // Khởi động lại ở ROW: giao dịch ROW sau snapshot đã được cộng vào wallets.balance
+        wallet.setBalance(new BigDecimal("210000.00"));
+        when(wallets.findByIdForUpdate(7L)).thenReturn(wallet);
+        when(snapshots.findWalletIdsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(snapshots.findTopByWalletIdOrderByLastLedgerSeqDesc(7L))
+                .thenReturn(new WalletBalanceSnapshotEntity(7L, 42L, new BigDecimal("260000.00"), 2L));
+        when(transactions.findTail(7L, 42L)).thenReturn(new LedgerTail(1L, new BigDecimal("-50000.00"), 43L));
+
+        assertThat(compactor(WalletLedgerMode.ROW).foldIntoRowBalances()).isZero();
+        assertThat(wallet.getBalance()).isEqualByComparingTo("210000");
+        verify(wallets, never()).save(any());
+    }
+
+    @Test
+    void appendModeStartupDoesNotTouchWallets() {
+        compactor(WalletLedgerMode.APPEND).afterSingletonsInstantiated();
+
+        verify(snapshots, never()).findWalletIdsAfter(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void openingTheLedgerIsNotCountedAsACompaction() {
+        wallet.setBalance(new BigDecimal("150000.00"));
+        when(wallets.findByIdForUpdate(7L)).thenReturn(wallet);
+        when(transactions.findWalletIdsToCompact(anyLong(), anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(transactions.findMaxLedgerSeq(7L)).thenReturn(60L);
+        when(snapshots.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactions.findTail(7L, 60L)).thenReturn(new LedgerTail(0L, null, null));
+
+        assertThat(compactor(WalletLedgerMode.APPEND).compactAll()).isZero();
+        // Snapshot mở đầu vẫn được ghi, chỉ không tính là một lần gộp
+        verify(snapshots).save(any());
+    }
+
+    @Test
+    void compactionCountsSnapshotsThatAbsorbedATail() {
+        wallet.setBalance(new BigDecimal("300000.00"));
+        when(wallets.findByIdForUpdate(7L)).thenReturn(wallet);
+        when(transactions.findWalletIdsToCompact(anyLong(), anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(snapshots.findTopByWalletIdOrderByLastLedgerSeqDesc(7L))
+                .thenReturn(new WalletBalanceSnapshotEntity(7L, 40L, new BigDecimal("300000.00"), 40L));
+        when(transactions.findTail(7L, 40L)).thenReturn(new LedgerTail(2L, new BigDecimal("-40000.00"), 42L));
+
+        assertThat(compactor(WalletLedgerMode.APPEND).compactAll()).isEqualTo(1);
+        assertThat(wallet.getBalance()).isEqualByComparingTo("260000");
+    }
+
+    private WalletSnapshotCompactor compactor(WalletLedgerMode mode) {
+        return new WalletSnapshotCompactor(new WalletBalances(mode, transactions, snapshots), executor, wallets,
+                transactions, snapshots, 2, 500);
+    }
+}